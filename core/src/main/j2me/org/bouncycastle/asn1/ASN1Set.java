@@ -408,19 +408,16 @@ public int hashCode()
      */
     ASN1Primitive toDERObject()
     {
-        ASN1Encodable[] tmp;
         if (isSorted)
         {
-            tmp = elements;
-        }
-        else
-        {
-            tmp = new ASN1Encodable[elements.length];
-            System.arraycopy(elements, 0, tmp, 0, tmp.length);
-            sort(tmp);
+            return new DERSet(true, elements);
         }
 
-        return new DERSet(true, tmp);
+        ASN1Encodable[] tmp = new ASN1Encodable[elements.length];
+        System.arraycopy(elements, 0, tmp, 0, tmp.length);
+        byte[][] encodings = sort(tmp);
+
+        return new DERSet(tmp, encodings);
     }
 
     /**
@@ -514,7 +511,7 @@ private static byte[] getDEREncoded(ASN1Encodable obj)
     /**
      * return true if a <= b (arrays are assumed padded with zeros).
      */
-    private static boolean lessThanOrEqual(byte[] a, byte[] b)
+    static boolean lessThanOrEqual(byte[] a, byte[] b)
     {
 //        assert a.length >= 2 && b.length >= 2;
 
@@ -548,61 +545,87 @@ private static boolean lessThanOrEqual(byte[] a, byte[] b)
         return (a[last] & 0xFF) <= (b[last] & 0xFF);
     }
 
-    private static void sort(ASN1Encodable[] t)
+    /**
+     * Sort the passed in elements into DER order, returning their DER encodings in the same order. Each
+     * element is only encoded once, and the sort is stable so equal elements keep their relative order.
+     */
+    static byte[][] sort(ASN1Encodable[] t)
     {
         int count = t.length;
-        if (count < 2)
-        {
-            return;
-        }
-
-        ASN1Encodable eh = t[0], ei = t[1];
-        byte[] bh = getDEREncoded(eh), bi = getDEREncoded(ei);;
+        byte[][] encodings = new byte[count][];
 
-        if (lessThanOrEqual(bi, bh))
+        for (int i = 0; i < count; ++i)
         {
-            ASN1Encodable et = ei; ei = eh; eh = et;
-            byte[] bt = bi; bi = bh; bh = bt;
+            encodings[i] = getDEREncoded(t[i]);
         }
 
-        for (int i = 2; i < count; ++i)
+        if (count >= 2)
         {
-            ASN1Encodable e2 = t[i];
-            byte[] b2 = getDEREncoded(e2);
+            mergeSort(t, encodings, new ASN1Encodable[count], new byte[count][], 0, count);
+        }
 
-            if (lessThanOrEqual(bi, b2))
-            {
-                t[i - 2] = eh;
-                eh = ei; bh = bi;
-                ei = e2; bi = b2;
-                continue;
-            }
+        return encodings;
+    }
 
-            if (lessThanOrEqual(bh, b2))
-            {
-                t[i - 2] = eh;
-                eh = e2; bh = b2;
-                continue;
-            }
+    private static void mergeSort(ASN1Encodable[] t, byte[][] b, ASN1Encodable[] tTmp, byte[][] bTmp, int from, int to)
+    {
+        int len = to - from;
 
-            int j = i - 1;
-            while (--j > 0)
+        if (len <= 8)
+        {
+            for (int i = from + 1; i < to; ++i)
             {
-                ASN1Encodable e1 = t[j - 1];
-                byte[] b1 = getDEREncoded(e1);
+                ASN1Encodable e2 = t[i];
+                byte[] b2 = b[i];
 
-                if (lessThanOrEqual(b1, b2))
+                int j = i;
+                while (j > from && !lessThanOrEqual(b[j - 1], b2))
                 {
-                    break;
+                    t[j] = t[j - 1];
+                    b[j] = b[j - 1];
+                    --j;
                 }
 
-                t[j] = e1;
+                t[j] = e2;
+                b[j] = b2;
             }
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+
+        mergeSort(t, b, tTmp, bTmp, from, mid);
+        mergeSort(t, b, tTmp, bTmp, mid, to);
+
+        // already in order - common when the elements were added sorted
+        if (lessThanOrEqual(b[mid - 1], b[mid]))
+        {
+            return;
+        }
+
+        System.arraycopy(t, from, tTmp, from, len);
+        System.arraycopy(b, from, bTmp, from, len);
 
-            t[j] = e2;
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to)
+        {
+            if (lessThanOrEqual(bTmp[i], bTmp[j]))
+            {
+                t[k] = tTmp[i];
+                b[k++] = bTmp[i++];
+            }
+            else
+            {
+                t[k] = tTmp[j];
+                b[k++] = bTmp[j++];
+            }
         }
 
-        t[count - 2] = eh;
-        t[count - 1] = ei;
+        // any remaining elements from the upper half are already in place
+        while (i < mid)
+        {
+            t[k] = tTmp[i];
+            b[k++] = bTmp[i++];
+        }
     }
 }
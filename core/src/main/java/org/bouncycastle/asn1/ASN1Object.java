@@ -19,7 +19,14 @@ public void encodeTo(OutputStream output) throws IOException
 
     public void encodeTo(OutputStream output, String encoding) throws IOException
     {
-        ASN1OutputStream.create(output, encoding).writeObject(this);
+        if (encoding.equals(ASN1Encoding.DER))
+        {
+            output.write(DEROutputStream.encode(this.toASN1Primitive()));
+        }
+        else
+        {
+            ASN1OutputStream.create(output, encoding).writeObject(this);
+        }
     }
 
     /**
@@ -44,6 +51,11 @@ public byte[] getEncoded() throws IOException
      */
     public byte[] getEncoded(String encoding) throws IOException
     {
+        if (encoding.equals(ASN1Encoding.DER))
+        {
+            return DEROutputStream.encode(this.toASN1Primitive());
+        }
+
         ByteArrayOutputStream bOut = new ByteArrayOutputStream();
         encodeTo(bOut, encoding);
         return bOut.toByteArray();
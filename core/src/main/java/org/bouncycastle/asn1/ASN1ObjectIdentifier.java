@@ -16,7 +16,7 @@
 {
     private final String identifier;
 
-    private byte[] body;
+    private volatile byte[] body;
 
     /**
      * Return an OID from the passed in object
@@ -89,6 +89,13 @@ public static ASN1ObjectIdentifier getInstance(
 
     ASN1ObjectIdentifier(
         byte[] bytes)
+    {
+        this.identifier = decodeIdentifier(bytes);
+        this.body = Arrays.clone(bytes);
+    }
+
+    private static String decodeIdentifier(
+        byte[] bytes)
     {
         StringBuffer objId = new StringBuffer();
         long value = 0;
@@ -160,8 +167,7 @@ else if (value < 80)
             }
         }
 
-        this.identifier = objId.toString();
-        this.body = Arrays.clone(bytes);
+        return objId.toString();
     }
 
     /**
@@ -300,18 +306,21 @@ private void doOutput(ByteArrayOutputStream aOut)
         }
     }
 
-    private synchronized byte[] getBody()
+    byte[] getBody()
     {
-        if (body == null)
+        // racing threads calculate the same encoding, the volatile field publishes whichever is stored last.
+        byte[] enc = body;
+        if (enc == null)
         {
             ByteArrayOutputStream bOut = new ByteArrayOutputStream();
 
             doOutput(bOut);
 
-            body = bOut.toByteArray();
+            enc = bOut.toByteArray();
+            body = enc;
         }
 
-        return body;
+        return enc;
     }
 
     boolean isConstructed()
@@ -0,0 +1,157 @@
+package org.bouncycastle.asn1;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An immutable map from OBJECT IDENTIFIERs to values, keyed on the contents octets of the OID's encoding.
+ * <p>
+ * Lookups hash and compare encoded bytes only, so a value can be found directly from an OID's encoding
+ * (see {@link DERCursor#lookupObjectIdentifier(ASN1ObjectIdentifierMap)}) without creating an
+ * ASN1ObjectIdentifier, or formatting its dotted string form.
+ * </p>
+ */
+public class ASN1ObjectIdentifierMap<V>
+{
+    private final byte[][] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+
+    /**
+     * Build a lookup table from the entries in the passed in map.
+     *
+     * @param map a map of ASN1ObjectIdentifier to value, null keys and values are not allowed.
+     */
+    public ASN1ObjectIdentifierMap(Map<ASN1ObjectIdentifier, ? extends V> map)
+    {
+        int capacity = 8;
+        while (capacity < map.size() * 2)       // keep the load factor at or below 0.5
+        {
+            capacity <<= 1;
+        }
+
+        this.keys = new byte[capacity][];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.size = map.size();
+
+        for (Iterator it = map.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)it.next();
+            ASN1ObjectIdentifier oid = (ASN1ObjectIdentifier)entry.getKey();
+            Object value = entry.getValue();
+
+            if (oid == null || value == null)
+            {
+                throw new NullPointerException("null keys and values not supported");
+            }
+
+            byte[] body = oid.getBody();
+            int index = hash(body, 0, body.length) & mask;
+            while (keys[index] != null)
+            {
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = body;
+            values[index] = value;
+        }
+    }
+
+    /**
+     * Return the value associated with an OID.
+     *
+     * @param oid the OID of interest.
+     * @return the associated value, null if there isn't one.
+     */
+    public V get(ASN1ObjectIdentifier oid)
+    {
+        byte[] body = oid.getBody();
+
+        return get(body, 0, body.length);
+    }
+
+    /**
+     * Return the value associated with the OID with the passed in contents octets.
+     *
+     * @param contents buffer holding the contents octets of an OBJECT IDENTIFIER encoding.
+     * @param off offset into contents the octets start at.
+     * @param len length of the contents octets.
+     * @return the associated value, null if there isn't one.
+     */
+    public V get(byte[] contents, int off, int len)
+    {
+        int index = hash(contents, off, len) & mask;
+
+        for (;;)
+        {
+            byte[] key = keys[index];
+            if (key == null)
+            {
+                return null;
+            }
+            if (matches(key, contents, off, len))
+            {
+                return (V)values[index];
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Return true if there is a value associated with the passed in OID.
+     *
+     * @param oid the OID of interest.
+     * @return true if the OID is present, false otherwise.
+     */
+    public boolean containsKey(ASN1ObjectIdentifier oid)
+    {
+        return get(oid) != null;
+    }
+
+    /**
+     * Return the number of entries in the map.
+     *
+     * @return the number of OIDs in the map.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    private static int hash(byte[] buf, int off, int len)
+    {
+        int h = len;
+        for (int i = 0; i < len; i++)
+        {
+            h = h * 31 + buf[off + i];
+        }
+
+        // OIDs in a table tend to share a long prefix - spread the differences in the tail arcs.
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+
+        return h;
+    }
+
+    private static boolean matches(byte[] key, byte[] buf, int off, int len)
+    {
+        if (key.length != len)
+        {
+            return false;
+        }
+
+        // compare from the end, the leading arcs are usually shared.
+        for (int i = len - 1; i >= 0; i--)
+        {
+            if (key[i] != buf[off + i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -20,7 +20,14 @@ public void encodeTo(OutputStream output) throws IOException
 
     public void encodeTo(OutputStream output, String encoding) throws IOException
     {
-        ASN1OutputStream.create(output, encoding).writeObject(this);
+        if (encoding.equals(ASN1Encoding.DER))
+        {
+            output.write(DEROutputStream.encode(this.toASN1Primitive()));
+        }
+        else
+        {
+            ASN1OutputStream.create(output, encoding).writeObject(this);
+        }
     }
 
     /**
@@ -0,0 +1,1068 @@
+package org.bouncycastle.asn1;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import org.bouncycastle.util.Properties;
+
+/**
+ * A pull style reader for DER encoded data which walks the tag, length, and value offsets of the elements
+ * in a byte array or ByteBuffer directly, without creating a stream or an object for each element.
+ * <p>
+ * The cursor is positioned on an element by calling next(), which returns false when there are no more
+ * elements at the current level. A constructed element can be entered with enter(), after which next()
+ * walks its contents, and exit() returns to the level the element was found at, skipping anything left
+ * unread. For example, the serial number of an X.509 certificate can be read with:
+ * <pre>
+ *     DERCursor c = new DERCursor(certEncoding);
+ *
+ *     c.next();           // Certificate
+ *     c.enter();
+ *     c.next();           // TBSCertificate
+ *     c.enter();
+ *     c.next();           // version, or serialNumber if version is absent
+ *     if (c.isTagged(0))
+ *     {
+ *         c.next();
+ *     }
+ *     BigInteger serialNumber = c.getInteger();
+ * </pre>
+ * Only definite length encodings are supported. By default the cursor applies the same validation as
+ * ASN1InputStream, in strict mode it also rejects encodings which are valid BER but not valid DER: non-minimal
+ * lengths and tag numbers, BOOLEAN values other than 0x00 and 0xFF, non-zero unused bits in a BIT STRING, and
+ * time values not in the canonical DER form.
+ * </p><p>
+ * The typed accessors check the tag of the current element if it is in the universal class, so they can also
+ * be used on implicitly tagged elements. A cursor is not thread safe.
+ * </p>
+ */
+public class DERCursor
+{
+    private final byte[] array;
+    private final int arrayOffset;
+    private final ByteBuffer buffer;
+    private final boolean strict;
+
+    private int[] levelStack = new int[8];
+    private int depth;
+    private int levelEnd;
+    private int nextPos;
+
+    private int elementStart = -1;
+    private int contentsStart;
+    private int contentsEnd;
+    private int tagFlags;
+    private int tagNo;
+
+    /**
+     * Create a lenient cursor over a byte array.
+     *
+     * @param data the DER encoded data.
+     */
+    public DERCursor(byte[] data)
+    {
+        this(data, 0, data.length, false);
+    }
+
+    /**
+     * Create a cursor over a byte array.
+     *
+     * @param data the DER encoded data.
+     * @param strict true if encodings which are not valid DER should be rejected.
+     */
+    public DERCursor(byte[] data, boolean strict)
+    {
+        this(data, 0, data.length, strict);
+    }
+
+    /**
+     * Create a cursor over part of a byte array. Offsets reported by the cursor are indexes into data.
+     *
+     * @param data the array containing the DER encoded data.
+     * @param off the offset of the encoding in data.
+     * @param len the length of the encoding.
+     * @param strict true if encodings which are not valid DER should be rejected.
+     */
+    public DERCursor(byte[] data, int off, int len, boolean strict)
+    {
+        if (off < 0 || len < 0 || off > data.length - len)
+        {
+            throw new IllegalArgumentException("offset and length outside of data");
+        }
+
+        this.array = data;
+        this.arrayOffset = 0;
+        this.buffer = null;
+        this.strict = strict;
+        this.nextPos = off;
+        this.levelEnd = off + len;
+    }
+
+    /**
+     * Create a lenient cursor over the remaining bytes in a ByteBuffer.
+     *
+     * @param data the buffer containing the DER encoded data between its position and limit.
+     */
+    public DERCursor(ByteBuffer data)
+    {
+        this(data, false);
+    }
+
+    /**
+     * Create a cursor over the remaining bytes in a ByteBuffer. The buffer's position is not changed and offsets
+     * reported by the cursor are absolute indexes into the buffer.
+     *
+     * @param data the buffer containing the DER encoded data between its position and limit.
+     * @param strict true if encodings which are not valid DER should be rejected.
+     */
+    public DERCursor(ByteBuffer data, boolean strict)
+    {
+        if (data.hasArray())
+        {
+            this.array = data.array();
+            this.arrayOffset = data.arrayOffset();
+            this.buffer = null;
+        }
+        else
+        {
+            this.array = null;
+            this.arrayOffset = 0;
+            this.buffer = data;
+        }
+        this.strict = strict;
+        this.nextPos = data.position();
+        this.levelEnd = data.limit();
+    }
+
+    /**
+     * Move to the next element at the current level.
+     *
+     * @return true if the cursor is now on an element, false if the end of the level has been reached.
+     * @throws IOException if the element header is malformed or its length runs past the enclosing element.
+     */
+    public boolean next()
+        throws IOException
+    {
+        if (nextPos >= levelEnd)
+        {
+            elementStart = -1;
+            return false;
+        }
+
+        int pos = nextPos;
+        int b = byteAt(pos++);
+
+        int flags = b & (BERTags.APPLICATION | BERTags.TAGGED | BERTags.CONSTRUCTED);
+        int no = b & 0x1f;
+
+        if (no == 0x1f)
+        {
+            no = 0;
+            if (pos >= levelEnd)
+            {
+                throw new ASN1Exception("EOF found inside tag value.");
+            }
+
+            b = byteAt(pos++);
+            if ((b & 0x7f) == 0)
+            {
+                throw new ASN1Exception("corrupted stream - invalid high tag number found");
+            }
+
+            while ((b & 0x80) != 0)
+            {
+                if ((no >>> 24) != 0)
+                {
+                    throw new ASN1Exception("Tag number more than 31 bits");
+                }
+
+                no |= (b & 0x7f);
+                no <<= 7;
+
+                if (pos >= levelEnd)
+                {
+                    throw new ASN1Exception("EOF found inside tag value.");
+                }
+                b = byteAt(pos++);
+            }
+            no |= (b & 0x7f);
+
+            if (strict && no < 0x1f)
+            {
+                throw new ASN1Exception("DER tag number not minimally encoded");
+            }
+        }
+
+        if (pos >= levelEnd)
+        {
+            throw new ASN1Exception("EOF found when length expected");
+        }
+
+        int length = byteAt(pos++);
+        if (length > 127)
+        {
+            int size = length & 0x7f;
+
+            if (size == 0)
+            {
+                throw new ASN1Exception("indefinite-length encoding not supported by DERCursor");
+            }
+            if (size > 4)
+            {
+                throw new ASN1Exception("DER length more than 4 bytes: " + size);
+            }
+            if (pos > levelEnd - size)
+            {
+                throw new ASN1Exception("EOF found reading length");
+            }
+            if (strict && byteAt(pos) == 0)
+            {
+                throw new ASN1Exception("DER length not minimally encoded");
+            }
+
+            length = 0;
+            for (int i = 0; i < size; i++)
+            {
+                length = (length << 8) + byteAt(pos++);
+            }
+
+            if (length < 0)
+            {
+                throw new ASN1Exception("corrupted stream - negative length found");
+            }
+            if (strict && length < 128)
+            {
+                throw new ASN1Exception("DER length not minimally encoded");
+            }
+        }
+
+        if (length > levelEnd - pos)
+        {
+            throw new ASN1Exception("corrupted stream - out of bounds length found: " + length + " >= " + (levelEnd - pos));
+        }
+
+        this.elementStart = nextPos;
+        this.contentsStart = pos;
+        this.contentsEnd = pos + length;
+        this.tagFlags = flags;
+        this.tagNo = no;
+        this.nextPos = contentsEnd;
+
+        return true;
+    }
+
+    /**
+     * Descend into the current constructed element - following calls to next() walk its contents.
+     *
+     * @throws IllegalStateException if the current element is not constructed.
+     */
+    public void enter()
+    {
+        checkElement();
+
+        if ((tagFlags & BERTags.CONSTRUCTED) == 0)
+        {
+            throw new IllegalStateException("current element is not constructed");
+        }
+
+        if (depth == levelStack.length)
+        {
+            int[] tmp = new int[depth * 2];
+            System.arraycopy(levelStack, 0, tmp, 0, depth);
+            levelStack = tmp;
+        }
+
+        levelStack[depth++] = levelEnd;
+        levelEnd = contentsEnd;
+        nextPos = contentsStart;
+        elementStart = -1;
+    }
+
+    /**
+     * Return to the level containing the element last entered, skipping any of its contents not yet read.
+     * The next call to next() moves to the element following the one entered.
+     *
+     * @throws IllegalStateException if the cursor is at the top level.
+     */
+    public void exit()
+    {
+        if (depth == 0)
+        {
+            throw new IllegalStateException("cursor is at the top level");
+        }
+
+        nextPos = levelEnd;
+        levelEnd = levelStack[--depth];
+        elementStart = -1;
+    }
+
+    /**
+     * Return the number of levels the cursor has entered.
+     *
+     * @return the nesting depth, 0 at the top level.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * Return the tag class of the current element.
+     *
+     * @return 0 for universal, otherwise a combination of BERTags.APPLICATION and BERTags.TAGGED.
+     */
+    public int getTagClass()
+    {
+        checkElement();
+
+        return tagFlags & (BERTags.APPLICATION | BERTags.TAGGED);
+    }
+
+    /**
+     * Return the tag number of the current element.
+     *
+     * @return the tag number.
+     */
+    public int getTagNo()
+    {
+        checkElement();
+
+        return tagNo;
+    }
+
+    public boolean isConstructed()
+    {
+        checkElement();
+
+        return (tagFlags & BERTags.CONSTRUCTED) != 0;
+    }
+
+    /**
+     * Return true if the current element has the passed in universal tag, for example BERTags.SEQUENCE.
+     *
+     * @param tag the universal tag number.
+     * @return true if the tag matches, false otherwise.
+     */
+    public boolean isUniversal(int tag)
+    {
+        checkElement();
+
+        return (tagFlags & (BERTags.APPLICATION | BERTags.TAGGED)) == 0 && tagNo == tag;
+    }
+
+    /**
+     * Return true if the current element is context specific with the passed in tag number.
+     *
+     * @param tagNo the context specific tag number.
+     * @return true if the tag matches, false otherwise.
+     */
+    public boolean isTagged(int tagNo)
+    {
+        checkElement();
+
+        return (tagFlags & (BERTags.APPLICATION | BERTags.TAGGED)) == BERTags.TAGGED && this.tagNo == tagNo;
+    }
+
+    /**
+     * Return the offset of the start of the current element's encoding.
+     */
+    public int getOffset()
+    {
+        checkElement();
+
+        return elementStart;
+    }
+
+    /**
+     * Return the length of the current element's encoding, including the tag and length octets.
+     */
+    public int getLength()
+    {
+        checkElement();
+
+        return contentsEnd - elementStart;
+    }
+
+    /**
+     * Return the offset of the start of the current element's contents.
+     */
+    public int getContentsOffset()
+    {
+        checkElement();
+
+        return contentsStart;
+    }
+
+    /**
+     * Return the length of the current element's contents.
+     */
+    public int getContentsLength()
+    {
+        checkElement();
+
+        return contentsEnd - contentsStart;
+    }
+
+    /**
+     * Copy the contents octets of the current element into out.
+     *
+     * @param out the array to copy into.
+     * @param outOff the offset in out to start copying at.
+     * @return the number of bytes copied.
+     */
+    public int copyContents(byte[] out, int outOff)
+    {
+        checkElement();
+
+        return copy(contentsStart, contentsEnd, out, outOff);
+    }
+
+    /**
+     * Return a copy of the contents octets of the current element.
+     *
+     * @return the contents octets.
+     */
+    public byte[] getContents()
+    {
+        byte[] rv = new byte[getContentsLength()];
+
+        copy(contentsStart, contentsEnd, rv, 0);
+
+        return rv;
+    }
+
+    /**
+     * Return a copy of the full encoding of the current element.
+     *
+     * @return the encoding of the element.
+     */
+    public byte[] getEncoded()
+    {
+        byte[] rv = new byte[getLength()];
+
+        copy(elementStart, contentsEnd, rv, 0);
+
+        return rv;
+    }
+
+    /**
+     * Return the current element as an ASN1Primitive.
+     *
+     * @return the parsed element.
+     * @throws IOException if the element cannot be parsed.
+     */
+    public ASN1Primitive getPrimitive()
+        throws IOException
+    {
+        return ASN1Primitive.fromByteArray(getEncoded());
+    }
+
+    public boolean getBoolean()
+        throws IOException
+    {
+        checkPrimitive(BERTags.BOOLEAN, "BOOLEAN");
+
+        if (contentsEnd - contentsStart != 1)
+        {
+            throw new ASN1Exception("BOOLEAN value should have 1 byte in it");
+        }
+
+        int b = byteAt(contentsStart);
+        if (strict && b != 0x00 && b != 0xff)
+        {
+            throw new ASN1Exception("DER BOOLEAN value must be 0x00 or 0xFF");
+        }
+
+        return b != 0;
+    }
+
+    public void checkNull()
+        throws IOException
+    {
+        checkPrimitive(BERTags.NULL, "NULL");
+
+        if (contentsEnd != contentsStart)
+        {
+            throw new ASN1Exception("malformed NULL encoding encountered");
+        }
+    }
+
+    /**
+     * Return the value of the current INTEGER or ENUMERATED element as an int.
+     *
+     * @return the value of the element.
+     * @throws ArithmeticException if the value does not fit in an int.
+     */
+    public int getIntValueExact()
+        throws IOException
+    {
+        checkInteger();
+
+        if (contentsEnd - contentsStart > 4)
+        {
+            throw new ArithmeticException("ASN.1 Integer out of int range");
+        }
+
+        return (int)signedValue();
+    }
+
+    /**
+     * Return the value of the current INTEGER or ENUMERATED element as a long.
+     *
+     * @return the value of the element.
+     * @throws ArithmeticException if the value does not fit in a long.
+     */
+    public long getLongValueExact()
+        throws IOException
+    {
+        checkInteger();
+
+        if (contentsEnd - contentsStart > 8)
+        {
+            throw new ArithmeticException("ASN.1 Integer out of long range");
+        }
+
+        return signedValue();
+    }
+
+    /**
+     * Return the value of the current INTEGER or ENUMERATED element.
+     *
+     * @return the value of the element.
+     */
+    public BigInteger getInteger()
+        throws IOException
+    {
+        checkInteger();
+
+        return new BigInteger(getContents());
+    }
+
+    /**
+     * Return true if the current element is the passed in OBJECT IDENTIFIER.
+     *
+     * @param oid the identifier to compare against.
+     * @return true if the element's value is oid, false otherwise.
+     */
+    public boolean isObjectIdentifier(ASN1ObjectIdentifier oid)
+        throws IOException
+    {
+        checkPrimitive(BERTags.OBJECT_IDENTIFIER, "OBJECT IDENTIFIER");
+
+        byte[] body = oid.getBody();
+        if (body.length != contentsEnd - contentsStart)
+        {
+            return false;
+        }
+
+        for (int i = 0; i != body.length; i++)
+        {
+            if (body[i] != (byte)byteAt(contentsStart + i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public ASN1ObjectIdentifier getObjectIdentifier()
+        throws IOException
+    {
+        checkPrimitive(BERTags.OBJECT_IDENTIFIER, "OBJECT IDENTIFIER");
+
+        try
+        {
+            return ASN1ObjectIdentifier.fromOctetString(getContents());
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new ASN1Exception("corrupted OBJECT IDENTIFIER: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Look up the current OBJECT IDENTIFIER element in a map, without creating an ASN1ObjectIdentifier.
+     *
+     * @param map the map to search.
+     * @return the value associated with the OID, null if there isn't one.
+     */
+    public <V> V lookupObjectIdentifier(ASN1ObjectIdentifierMap<V> map)
+        throws IOException
+    {
+        checkPrimitive(BERTags.OBJECT_IDENTIFIER, "OBJECT IDENTIFIER");
+
+        if (array != null)
+        {
+            return map.get(array, arrayOffset + contentsStart, contentsEnd - contentsStart);
+        }
+
+        byte[] contents = getContents();
+
+        return map.get(contents, 0, contents.length);
+    }
+
+    /**
+     * Copy the value of the current OCTET STRING element into out.
+     *
+     * @param out the array to copy into.
+     * @param outOff the offset in out to start copying at.
+     * @return the number of bytes copied.
+     */
+    public int copyOctets(byte[] out, int outOff)
+        throws IOException
+    {
+        checkPrimitive(BERTags.OCTET_STRING, "OCTET STRING");
+
+        return copy(contentsStart, contentsEnd, out, outOff);
+    }
+
+    public byte[] getOctets()
+        throws IOException
+    {
+        checkPrimitive(BERTags.OCTET_STRING, "OCTET STRING");
+
+        return getContents();
+    }
+
+    /**
+     * Return the number of unused bits in the last octet of the current BIT STRING element. The bits
+     * themselves start at getContentsOffset() + 1.
+     *
+     * @return the pad bits for the BIT STRING.
+     */
+    public int getBitStringPadBits()
+        throws IOException
+    {
+        checkPrimitive(BERTags.BIT_STRING, "BIT STRING");
+
+        int length = contentsEnd - contentsStart;
+        if (length < 1)
+        {
+            throw new ASN1Exception("truncated BIT STRING detected");
+        }
+
+        int padBits = byteAt(contentsStart);
+        if (padBits > 7 || (length == 1 && padBits != 0))
+        {
+            throw new ASN1Exception("invalid pad bits detected");
+        }
+
+        if (strict && padBits != 0)
+        {
+            int last = byteAt(contentsEnd - 1);
+            if ((last & ((1 << padBits) - 1)) != 0)
+            {
+                throw new ASN1Exception("DER BIT STRING unused bits must be zero");
+            }
+        }
+
+        return padBits;
+    }
+
+    /**
+     * Return the value of the current UTCTime or GeneralizedTime element as milliseconds since the epoch.
+     * UTCTime years are interpreted as 1950 to 2049 as described in RFC 5280.
+     *
+     * @return the time represented by the element.
+     * @throws IOException if the element is not a time or is not a valid time encoding.
+     */
+    public long getTime()
+        throws IOException
+    {
+        checkElement();
+
+        if ((tagFlags & BERTags.CONSTRUCTED) != 0)
+        {
+            throw new ASN1Exception("time value must be primitive");
+        }
+
+        if (tagFlags == 0 && tagNo == BERTags.UTC_TIME)
+        {
+            return parseTime(false);
+        }
+        if (tagFlags == 0 && tagNo == BERTags.GENERALIZED_TIME)
+        {
+            return parseTime(true);
+        }
+
+        throw new ASN1Exception("expected UTCTime or GeneralizedTime");
+    }
+
+    /**
+     * Return the current UTCTime element as milliseconds since the epoch, for an implicitly tagged element.
+     */
+    public long getUTCTime()
+        throws IOException
+    {
+        checkPrimitive(BERTags.UTC_TIME, "UTCTime");
+
+        return parseTime(false);
+    }
+
+    /**
+     * Return the current GeneralizedTime element as milliseconds since the epoch, for an implicitly tagged element.
+     */
+    public long getGeneralizedTime()
+        throws IOException
+    {
+        checkPrimitive(BERTags.GENERALIZED_TIME, "GeneralizedTime");
+
+        return parseTime(true);
+    }
+
+    /**
+     * Check whether an encoding is exactly what re-encoding its parsed form as DER would produce, so it can be
+     * retained in place of the re-encoding. The check walks the encoding without creating any objects and is
+     * conservative: an encoding it rejects may still be DER.
+     *
+     * @param data the encoding to check.
+     * @return true if data holds a single element in the DER form, false otherwise.
+     */
+    public static boolean isDEREncoding(byte[] data)
+    {
+        try
+        {
+            DERCursor cursor = new DERCursor(data, true);
+
+            return cursor.next() && cursor.isDERElement() && !cursor.next();
+        }
+        catch (IOException e)
+        {
+            return false;
+        }
+    }
+
+    private boolean isDERElement()
+        throws IOException
+    {
+        if ((tagFlags & (BERTags.APPLICATION | BERTags.TAGGED)) != 0)
+        {
+            return (tagFlags & BERTags.CONSTRUCTED) == 0 || isDERContents(false);
+        }
+
+        switch (tagNo)
+        {
+        case BERTags.SEQUENCE:
+            return (tagFlags & BERTags.CONSTRUCTED) != 0 && isDERContents(false);
+        case BERTags.SET:
+            return (tagFlags & BERTags.CONSTRUCTED) != 0 && isDERContents(true);
+        case BERTags.BOOLEAN:
+            getBoolean();
+            return true;
+        case BERTags.BIT_STRING:
+            getBitStringPadBits();
+            return true;
+        case BERTags.GENERALIZED_TIME:
+            getGeneralizedTime();
+            return true;
+        case BERTags.EXTERNAL:
+            // DERExternal rebuilds its encoding from the parsed fields
+            return false;
+        default:
+            return (tagFlags & BERTags.CONSTRUCTED) == 0;
+        }
+    }
+
+    private boolean isDERContents(boolean sorted)
+        throws IOException
+    {
+        enter();
+
+        byte[] previous = null;
+        while (next())
+        {
+            if (sorted)
+            {
+                // DER re-encoding sorts a SET unless its elements are already in order
+                byte[] encoding = getEncoded();
+                if (previous != null && !ASN1Set.lessThanOrEqual(previous, encoding))
+                {
+                    return false;
+                }
+                previous = encoding;
+            }
+
+            if (!isDERElement())
+            {
+                return false;
+            }
+        }
+
+        exit();
+
+        return true;
+    }
+
+    private long parseTime(boolean generalized)
+        throws IOException
+    {
+        int pos = contentsStart;
+        int end = contentsEnd;
+
+        int year;
+        if (generalized)
+        {
+            year = digits(pos, 4, end);
+            pos += 4;
+        }
+        else
+        {
+            year = digits(pos, 2, end);
+            year += (year < 50) ? 2000 : 1900;
+            pos += 2;
+        }
+
+        int month = digits(pos, 2, end);
+        int day = digits(pos + 2, 2, end);
+        int hour = digits(pos + 4, 2, end);
+        pos += 6;
+
+        int minute = 0, second = 0, millis = 0;
+        boolean hasSeconds = false;
+
+        if (pos < end && isDigit(byteAt(pos)))
+        {
+            minute = digits(pos, 2, end);
+            pos += 2;
+
+            if (pos < end && isDigit(byteAt(pos)))
+            {
+                second = digits(pos, 2, end);
+                pos += 2;
+                hasSeconds = true;
+            }
+        }
+
+        if (strict && (pos - contentsStart) != (generalized ? 14 : 12))
+        {
+            throw new ASN1Exception("DER time value must include minutes and seconds");
+        }
+
+        if (generalized && pos < end && (byteAt(pos) == '.' || byteAt(pos) == ','))
+        {
+            if (strict && byteAt(pos) != '.')
+            {
+                throw new ASN1Exception("DER fractional seconds must use '.'");
+            }
+            if (!hasSeconds)
+            {
+                throw new ASN1Exception("fractional time value without seconds");
+            }
+
+            int start = ++pos;
+            int scale = 100;
+            while (pos < end && isDigit(byteAt(pos)))
+            {
+                millis += scale * (byteAt(pos) - '0');
+                scale /= 10;
+                pos++;
+            }
+
+            if (pos == start)
+            {
+                throw new ASN1Exception("empty fractional seconds in time value");
+            }
+            if (strict && byteAt(pos - 1) == '0')
+            {
+                throw new ASN1Exception("DER fractional seconds must not have trailing zeros");
+            }
+        }
+
+        if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+            || hour > 23 || minute > 59 || second > 59)
+        {
+            throw new ASN1Exception("invalid time value");
+        }
+
+        long time = ((daysFromCivil(year, month, day) * 24 + hour) * 60 + minute) * 60 + second;
+
+        if (pos >= end)
+        {
+            throw new ASN1Exception("time value must specify a time zone");
+        }
+
+        int zone = byteAt(pos++);
+        if (zone == 'Z')
+        {
+            // UTC
+        }
+        else if ((zone == '+' || zone == '-') && !strict)
+        {
+            int offHour = digits(pos, 2, end);
+            int offMinute = 0;
+            pos += 2;
+            if (pos < end)
+            {
+                offMinute = digits(pos, 2, end);
+                pos += 2;
+            }
+
+            if (offHour > 23 || offMinute > 59)
+            {
+                throw new ASN1Exception("invalid time zone offset");
+            }
+
+            int offset = (offHour * 60 + offMinute) * 60;
+
+            time = (zone == '+') ? time - offset : time + offset;
+        }
+        else
+        {
+            throw new ASN1Exception(strict ? "DER time value must be in UTC ('Z')" : "invalid time zone in time value");
+        }
+
+        if (pos != end)
+        {
+            throw new ASN1Exception("trailing data in time value");
+        }
+
+        return time * 1000 + millis;
+    }
+
+    private int digits(int pos, int count, int end)
+        throws IOException
+    {
+        if (pos + count > end)
+        {
+            throw new ASN1Exception("truncated time value");
+        }
+
+        int v = 0;
+        for (int i = 0; i != count; i++)
+        {
+            int c = byteAt(pos + i);
+            if (!isDigit(c))
+            {
+                throw new ASN1Exception("invalid character in time value");
+            }
+            v = v * 10 + (c - '0');
+        }
+
+        return v;
+    }
+
+    private static boolean isDigit(int c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int daysInMonth(int year, int month)
+    {
+        switch (month)
+        {
+        case 2:
+            return ((year % 4 == 0 && year % 100 != 0) || year % 400 == 0) ? 29 : 28;
+        case 4:
+        case 6:
+        case 9:
+        case 11:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    // days since 1970-01-01 in the proleptic Gregorian calendar.
+    private static long daysFromCivil(int year, int month, int day)
+    {
+        int y = (month <= 2) ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+
+        return era * 146097L + doe - 719468;
+    }
+
+    private void checkInteger()
+        throws IOException
+    {
+        checkElement();
+
+        if ((tagFlags & BERTags.CONSTRUCTED) != 0)
+        {
+            throw new ASN1Exception("INTEGER must be primitive");
+        }
+        if (tagFlags == 0 && tagNo != BERTags.INTEGER && tagNo != BERTags.ENUMERATED)
+        {
+            throw new ASN1Exception("expected INTEGER");
+        }
+
+        int length = contentsEnd - contentsStart;
+        if (length == 0)
+        {
+            throw new ASN1Exception("malformed integer");
+        }
+        if (length > 1 && (byte)byteAt(contentsStart) == (byte)(((byte)byteAt(contentsStart + 1)) >> 7)
+            && (strict || !Properties.isOverrideSet("org.bouncycastle.asn1.allow_unsafe_integer")))
+        {
+            throw new ASN1Exception("malformed integer");
+        }
+    }
+
+    private long signedValue()
+    {
+        long v = (byte)byteAt(contentsStart);
+
+        for (int i = contentsStart + 1; i < contentsEnd; i++)
+        {
+            v = (v << 8) | byteAt(i);
+        }
+
+        return v;
+    }
+
+    private void checkPrimitive(int tag, String name)
+        throws IOException
+    {
+        checkElement();
+
+        if ((tagFlags & BERTags.CONSTRUCTED) != 0)
+        {
+            throw new ASN1Exception(name + " must be primitive");
+        }
+        if (tagFlags == 0 && tagNo != tag)
+        {
+            throw new ASN1Exception("expected " + name);
+        }
+    }
+
+    private void checkElement()
+    {
+        if (elementStart < 0)
+        {
+            throw new IllegalStateException("cursor not positioned on an element");
+        }
+    }
+
+    private int copy(int from, int to, byte[] out, int outOff)
+    {
+        int len = to - from;
+
+        if (array != null)
+        {
+            System.arraycopy(array, arrayOffset + from, out, outOff, len);
+        }
+        else
+        {
+            for (int i = 0; i != len; i++)
+            {
+                out[outOff + i] = buffer.get(from + i);
+            }
+        }
+
+        return len;
+    }
+
+    private int byteAt(int pos)
+    {
+        if (array != null)
+        {
+            return array[arrayOffset + pos] & 0xff;
+        }
+
+        return buffer.get(pos) & 0xff;
+    }
+}
@@ -14,6 +14,25 @@
         super(os);
     }
 
+    /**
+     * Return the DER encoding of the passed in primitive. The lengths of the structure are calculated
+     * first (they are cached by the constructed types) so the encoding can be written directly into
+     * an array of the exact size required.
+     *
+     * @param primitive the primitive to be encoded.
+     * @return the DER encoding of primitive.
+     * @throws IOException on encoding error.
+     */
+    static byte[] encode(ASN1Primitive primitive) throws IOException
+    {
+        ASN1Primitive derObject = primitive.toDERObject();
+        FixedBufferOutputStream bOut = new FixedBufferOutputStream(derObject.encodedLength());
+
+        derObject.encode(new DEROutputStream(bOut), true);
+
+        return bOut.getBuffer();
+    }
+
     void writePrimitive(ASN1Primitive primitive, boolean withTag) throws IOException
     {
         primitive.toDERObject().encode(this, withTag);
@@ -28,4 +47,51 @@ ASN1OutputStream getDLSubStream()
     {
         return this;
     }
+
+    private static class FixedBufferOutputStream
+        extends OutputStream
+    {
+        private final byte[] buf;
+
+        private int pos;
+
+        FixedBufferOutputStream(int size)
+        {
+            this.buf = new byte[size];
+        }
+
+        public void write(int b)
+            throws IOException
+        {
+            if (pos == buf.length)
+            {
+                throw new IOException("DER encoding exceeds calculated length");
+            }
+
+            buf[pos++] = (byte)b;
+        }
+
+        public void write(byte[] b, int off, int len)
+            throws IOException
+        {
+            if (len > buf.length - pos)
+            {
+                throw new IOException("DER encoding exceeds calculated length");
+            }
+
+            System.arraycopy(b, off, buf, pos, len);
+            pos += len;
+        }
+
+        byte[] getBuffer()
+            throws IOException
+        {
+            if (pos != buf.length)
+            {
+                throw new IOException("DER encoding shorter than calculated length");
+            }
+
+            return buf;
+        }
+    }
 }
@@ -2,6 +2,8 @@
 
 import java.io.IOException;
 
+import org.bouncycastle.util.Arrays;
+
 /**
  * A DER encoded SET object
  * <p>
@@ -22,6 +24,12 @@ public static DERSet convert(ASN1Set set)
 
     private int bodyLength = -1;
 
+    /**
+     * The DER encodings of the elements, in sorted order, if calculated when the set was sorted. They
+     * are released once the set has been encoded.
+     */
+    private byte[][] sortedEncodings;
+
     /**
      * create an empty set
      */
@@ -44,7 +52,9 @@ public DERSet(ASN1Encodable element)
      */
     public DERSet(ASN1EncodableVector elementVector)
     {
-        super(elementVector, true);
+        super(true, copyElements(elementVector));
+
+        this.sortedEncodings = sortElements(elements);
     }
 
     /**
@@ -53,7 +63,9 @@ public DERSet(ASN1EncodableVector elementVector)
      */
     public DERSet(ASN1Encodable[] elements)
     {
-        super(elements, true);
+        super(true, copyElements(elements));
+
+        this.sortedEncodings = sortElements(this.elements);
     }
 
     DERSet(boolean isSorted, ASN1Encodable[] elements)
@@ -61,17 +73,35 @@ public DERSet(ASN1Encodable[] elements)
         super(checkSorted(isSorted), elements);
     }
 
+    DERSet(ASN1Encodable[] sortedElements, byte[][] sortedEncodings)
+    {
+        super(true, sortedElements);
+
+        this.sortedEncodings = sortedEncodings;
+    }
+
     private int getBodyLength() throws IOException
     {
         if (bodyLength < 0)
         {
             int count = elements.length;
             int totalLength = 0;
+            byte[][] encodings = sortedEncodings;
 
-            for (int i = 0; i < count; ++i)
+            if (encodings != null)
             {
-                ASN1Primitive derObject = elements[i].toASN1Primitive().toDERObject();
-                totalLength += derObject.encodedLength();
+                for (int i = 0; i < count; ++i)
+                {
+                    totalLength += encodings[i].length;
+                }
+            }
+            else
+            {
+                for (int i = 0; i < count; ++i)
+                {
+                    ASN1Primitive derObject = elements[i].toASN1Primitive().toDERObject();
+                    totalLength += derObject.encodedLength();
+                }
             }
 
             this.bodyLength = totalLength;
@@ -102,9 +132,24 @@ void encode(ASN1OutputStream out, boolean withTag) throws IOException
             out.write(BERTags.SET | BERTags.CONSTRUCTED);
         }
 
+        int count = elements.length;
+        byte[][] encodings = sortedEncodings;
+        if (encodings != null)
+        {
+            out.writeLength(getBodyLength());
+
+            for (int i = 0; i < count; ++i)
+            {
+                out.write(encodings[i], 0, encodings[i].length);
+            }
+
+            // the body length is now known, so the encodings are not kept for the life of the set.
+            sortedEncodings = null;
+            return;
+        }
+
         DEROutputStream derOut = out.getDERSubStream();
 
-        int count = elements.length;
         if (bodyLength >= 0 || count > 16)
         {
             out.writeLength(getBodyLength());
@@ -147,6 +192,31 @@ ASN1Primitive toDLObject()
         return this;
     }
 
+    private static ASN1Encodable[] copyElements(ASN1EncodableVector elementVector)
+    {
+        if (null == elementVector)
+        {
+            throw new NullPointerException("'elementVector' cannot be null");
+        }
+
+        return elementVector.copyElements();
+    }
+
+    private static ASN1Encodable[] copyElements(ASN1Encodable[] elements)
+    {
+        if (Arrays.isNullOrContainsNull(elements))
+        {
+            throw new NullPointerException("'elements' cannot be null, or contain null");
+        }
+
+        return ASN1EncodableVector.cloneElements(elements);
+    }
+
+    private static byte[][] sortElements(ASN1Encodable[] elements)
+    {
+        return elements.length < 2 ? null : sort(elements);
+    }
+
     private static boolean checkSorted(boolean isSorted)
     {
         if (!isSorted)
@@ -33,6 +33,13 @@ public CSHAKEDigest(int bitLength, byte[] N, byte[] S)
         }
     }
 
+    public CSHAKEDigest(CSHAKEDigest source)
+    {
+        super(source);
+
+        this.diff = Arrays.clone(source.diff);
+    }
+
     // bytepad in SP 800-185
     private void diffPadAndAbsorb()
     {
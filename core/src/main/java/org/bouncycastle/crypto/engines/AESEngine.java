@@ -290,7 +290,8 @@ private int[][] generateWorkingKey(byte[] key, boolean forEncryption)
 
         int KC = keyLen >>> 2;
         ROUNDS = KC + 6;  // This is not always true for the generalized Rijndael that allows larger block sizes
-        int[][] W = new int[ROUNDS+1][4];   // 4 words in a block
+        // re-keying with the same key size overwrites the previous schedule rather than leaving it to the GC.
+        int[][] W = (WorkingKey != null && WorkingKey.length == ROUNDS+1) ? WorkingKey : new int[ROUNDS+1][4];   // 4 words in a block
 
         switch (KC)
         {
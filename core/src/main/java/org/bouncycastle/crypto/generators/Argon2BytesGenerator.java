@@ -1,5 +1,9 @@
 package org.bouncycastle.crypto.generators;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.digests.Blake2bDigest;
 import org.bouncycastle.crypto.params.Argon2Parameters;
@@ -36,6 +40,8 @@
 
     private static final byte[] ZERO_BYTES = new byte[4];
 
+    private final Executor executor;
+
     private Argon2Parameters parameters;
     private Block[] memory;
     private int segmentLength;
@@ -43,6 +49,19 @@
 
     public Argon2BytesGenerator()
     {
+        this(null);
+    }
+
+    /**
+     * Create a generator which fills the segments of the different lanes in each slice of the memory
+     * at the same time, using the passed in executor. The calling thread fills the segment in the first
+     * lane, and waits for the others to be completed at each synchronisation point.
+     *
+     * @param executor the executor to fill lane segments on, null to fill them all on the calling thread.
+     */
+    public Argon2BytesGenerator(Executor executor)
+    {
+        this.executor = executor;
     }
 
     /**
@@ -156,6 +175,12 @@ private void initMemory(int memoryBlocks)
 
     private void fillMemoryBlocks()
     {
+        if (executor != null && parameters.getLanes() > 1)
+        {
+            fillMemoryBlocksInParallel();
+            return;
+        }
+
         FillBlock filler = new FillBlock();
         Position position = new Position();
         for (int pass = 0; pass < parameters.getIterations(); ++pass)
@@ -176,6 +201,84 @@ private void fillMemoryBlocks()
         }
     }
 
+    /*
+     * Within a slice a segment only references blocks in its own lane, or blocks in other lanes outside
+     * the current slice, so the segments of a slice can be filled at the same time - the slices
+     * themselves (the synchronisation points) must be done in order.
+     */
+    private void fillMemoryBlocksInParallel()
+    {
+        int lanes = parameters.getLanes();
+        FillBlock[] fillers = new FillBlock[lanes];
+        Position[] positions = new Position[lanes];
+        FutureTask[] tasks = new FutureTask[lanes];
+
+        for (int lane = 0; lane < lanes; ++lane)
+        {
+            fillers[lane] = new FillBlock();
+            positions[lane] = new Position();
+            positions[lane].lane = lane;
+        }
+
+        for (int pass = 0; pass < parameters.getIterations(); ++pass)
+        {
+            for (int slice = 0; slice < ARGON2_SYNC_POINTS; ++slice)
+            {
+                for (int lane = 0; lane < lanes; ++lane)
+                {
+                    positions[lane].pass = pass;
+                    positions[lane].slice = slice;
+                }
+
+                for (int lane = 1; lane < lanes; ++lane)
+                {
+                    final FillBlock filler = fillers[lane];
+                    final Position position = positions[lane];
+
+                    tasks[lane] = new FutureTask(new Runnable()
+                    {
+                        public void run()
+                        {
+                            fillSegment(filler, position);
+                        }
+                    }, null);
+
+                    executor.execute(tasks[lane]);
+                }
+
+                fillSegment(fillers[0], positions[0]);
+
+                for (int lane = 1; lane < lanes; ++lane)
+                {
+                    waitFor(tasks[lane]);
+                }
+            }
+        }
+    }
+
+    private static void waitFor(FutureTask task)
+    {
+        try
+        {
+            task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Argon2 calculation interrupted");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            throw new IllegalStateException("exception in Argon2 calculation: " + cause);
+        }
+    }
+
     private void fillSegment(FillBlock filler, Position position)
     {
         Block addressBlock = null, inputBlock = null;
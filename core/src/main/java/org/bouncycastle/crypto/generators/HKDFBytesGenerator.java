@@ -5,8 +5,11 @@
 import org.bouncycastle.crypto.DerivationParameters;
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.macs.PreparedMacKey;
 import org.bouncycastle.crypto.params.HKDFParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Memoable;
 
 /**
  * HMAC-based Extract-and-Expand Key Derivation Function (HKDF) implemented
@@ -22,6 +25,10 @@
     private HMac hMacHash;
     private int hashLen;
 
+    // the salt is usually the same for every derivation (all zeroes if none is given), so we keep it keyed.
+    private PreparedMacKey saltKey;
+    private byte[] saltKeyBytes;
+
     private byte[] info;
     private byte[] currentT;
 
@@ -75,7 +82,17 @@ private KeyParameter extract(byte[] salt, byte[] ikm)
         if (salt == null)
         {
             // TODO check if hashLen is indeed same as HMAC size
-            hMacHash.init(new KeyParameter(new byte[hashLen]));
+            salt = new byte[hashLen];
+        }
+
+        if (saltKey != null && Arrays.constantTimeAreEqual(saltKeyBytes, salt))
+        {
+            saltKey.initMac(hMacHash);
+        }
+        else if (hMacHash.getUnderlyingDigest() instanceof Memoable)
+        {
+            saltKey = new PreparedMacKey(hMacHash, new KeyParameter(salt));
+            saltKeyBytes = Arrays.clone(salt);
         }
         else
         {
@@ -1,13 +1,21 @@
 package org.bouncycastle.crypto.generators;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.Digest;
 import org.bouncycastle.crypto.Mac;
 import org.bouncycastle.crypto.PBEParametersGenerator;
 import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.macs.PreparedMacKey;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.crypto.util.DigestFactory;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Memoable;
+import org.bouncycastle.util.Pack;
 
 /**
  * Generator for PBE derived keys and ivs as defined by PKCS 5 V2.0 Scheme 2.
@@ -22,6 +30,12 @@
 {
     private Mac hMac;
     private byte[] state;
+    private final Executor executor;
+
+    // the HMAC keyed with the password used last, reused while the password stays the same - the
+    // password is recognised by its SHA-256 hash so no second copy of it is kept.
+    private PreparedMacKey passwordKey;
+    private byte[] passwordHash;
 
     /**
      * construct a PKCS5 Scheme 2 Parameters generator.
@@ -33,73 +47,202 @@ public PKCS5S2ParametersGenerator()
 
     public PKCS5S2ParametersGenerator(Digest digest)
     {
-        hMac = new HMac(digest);
-        state = new byte[hMac.getMacSize()];
+        this(digest, null);
+    }
+
+    /**
+     * Construct a PKCS5 Scheme 2 Parameters generator which, when more than one block of output
+     * is asked for, calculates the blocks after the first on the passed in executor. Only HMACs
+     * over Memoable digests are run in parallel.
+     *
+     * @param digest the digest to use with HMAC.
+     * @param executor the executor to calculate output blocks on, null to calculate them all on the calling thread.
+     */
+    public PKCS5S2ParametersGenerator(Digest digest, Executor executor)
+    {
+        this.hMac = new HMac(digest);
+        this.state = new byte[hMac.getMacSize()];
+        this.executor = executor;
     }
 
     private void F(
+        Mac     mac,
+        byte[]  state,
         byte[]  S,
         int     c,
         byte[]  iBuf,
         byte[]  out,
         int     outOff)
     {
-        if (c == 0)
-        {
-            throw new IllegalArgumentException("iteration count must be at least 1.");
-        }
-
         if (S != null)
         {
-            hMac.update(S, 0, S.length);
+            mac.update(S, 0, S.length);
         }
 
-        hMac.update(iBuf, 0, iBuf.length);
-        hMac.doFinal(state, 0);
+        mac.update(iBuf, 0, iBuf.length);
+        mac.doFinal(state, 0);
 
         System.arraycopy(state, 0, out, outOff, state.length);
 
         for (int count = 1; count < c; count++)
         {
-            hMac.update(state, 0, state.length);
-            hMac.doFinal(state, 0);
+            mac.update(state, 0, state.length);
+            mac.doFinal(state, 0);
 
             for (int j = 0; j != state.length; j++)
             {
                 out[outOff + j] ^= state[j];
             }
         }
+
+        Arrays.fill(state, (byte)0);
+    }
+
+    public void init(
+        byte[]  password,
+        byte[]  salt,
+        int     iterationCount)
+    {
+        super.init(password, salt, iterationCount);
+
+        if (passwordKey != null && !isPasswordKey(password))
+        {
+            clearPasswordKey();
+        }
+    }
+
+    private boolean isPasswordKey(byte[] password)
+    {
+        return Arrays.constantTimeAreEqual(passwordHash, hashPassword(password));
+    }
+
+    private static byte[] hashPassword(byte[] password)
+    {
+        Digest digest = DigestFactory.createSHA256();
+        byte[] hash = new byte[digest.getDigestSize()];
+
+        digest.update(password, 0, password.length);
+        digest.doFinal(hash, 0);
+
+        return hash;
+    }
+
+    private void clearPasswordKey()
+    {
+        Arrays.fill(passwordHash, (byte)0);
+        passwordKey = null;
+        passwordHash = null;
+    }
+
+    private void initMac()
+    {
+        // the password array may have been changed since init() so it is checked again here.
+        if (passwordKey != null)
+        {
+            if (isPasswordKey(password))
+            {
+                passwordKey.initMac(hMac);
+                return;
+            }
+
+            clearPasswordKey();
+        }
+
+        Digest digest = ((HMac)hMac).getUnderlyingDigest();
+
+        if (digest instanceof Memoable)
+        {
+            passwordKey = new PreparedMacKey(hMac, new KeyParameter(password));
+            passwordHash = hashPassword(password);
+        }
+        else
+        {
+            hMac.init(new KeyParameter(password));
+        }
     }
 
     private byte[] generateDerivedKey(
         int dkLen)
     {
+        if (iterationCount == 0)
+        {
+            throw new IllegalArgumentException("iteration count must be at least 1.");
+        }
+
         int     hLen = hMac.getMacSize();
         int     l = (dkLen + hLen - 1) / hLen;
-        byte[]  iBuf = new byte[4];
         byte[]  outBytes = new byte[l * hLen];
-        int     outPos = 0;
-
-        CipherParameters param = new KeyParameter(password);
 
-        hMac.init(param);
+        initMac();
 
-        for (int i = 1; i <= l; i++)
+        if (executor != null && passwordKey != null && l > 1)
+        {
+            generateBlocks(outBytes, l, hLen);
+        }
+        else
         {
-            // Increment the value in 'iBuf'
-            int pos = 3;
-            while (++iBuf[pos] == 0)
+            for (int i = 1; i <= l; i++)
             {
-                --pos;
+                F(hMac, state, salt, iterationCount, Pack.intToBigEndian(i), outBytes, (i - 1) * hLen);
             }
-
-            F(salt, iterationCount, iBuf, outBytes, outPos);
-            outPos += hLen;
         }
 
         return outBytes;
     }
 
+    /*
+     * The output blocks are independent of each other, so blocks 2 to l are each calculated on the executor,
+     * with an HMAC of their own, while we do the first.
+     */
+    private void generateBlocks(final byte[] outBytes, int l, final int hLen)
+    {
+        final byte[] S = salt;
+        final int c = iterationCount;
+        FutureTask[] tasks = new FutureTask[l - 1];
+
+        for (int i = 2; i <= l; i++)
+        {
+            final Mac mac = passwordKey.createMac();
+            final byte[] iBuf = Pack.intToBigEndian(i);
+            final int outOff = (i - 1) * hLen;
+
+            tasks[i - 2] = new FutureTask(new Runnable()
+            {
+                public void run()
+                {
+                    F(mac, new byte[hLen], S, c, iBuf, outBytes, outOff);
+                }
+            }, null);
+
+            executor.execute(tasks[i - 2]);
+        }
+
+        F(hMac, state, S, c, Pack.intToBigEndian(1), outBytes, 0);
+
+        for (int i = 0; i != tasks.length; i++)
+        {
+            try
+            {
+                tasks[i].get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("PBKDF2 calculation interrupted");
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+
+                if (cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException)cause;
+                }
+                throw new IllegalStateException("exception in PBKDF2 calculation: " + cause);
+            }
+        }
+    }
+
     /**
      * Generate a key parameter derived from the password, salt, and iteration
      * count we are currently initialised with.
@@ -1,5 +1,9 @@
 package org.bouncycastle.crypto.generators;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
 import org.bouncycastle.crypto.PBEParametersGenerator;
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.engines.Salsa20Engine;
@@ -35,6 +39,28 @@ private SCrypt()
      * @return the generated key.
      */
     public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen)
+    {
+        return generate(P, S, N, r, p, dkLen, null, null);
+    }
+
+    /**
+     * Generate a key using the scrypt key derivation function, running the p ROMix instances on
+     * an executor and/or taking their scratch memory from a buffer pool.
+     *
+     * @param P     the bytes of the pass phrase.
+     * @param S     the salt to use for this invocation.
+     * @param N     CPU/Memory cost parameter. Must be larger than 1, a power of 2 and less than
+     *              <code>2^(128 * r / 8)</code>.
+     * @param r     the block size, must be &gt;= 1.
+     * @param p     Parallelization parameter. Must be a positive integer less than or equal to
+     *              <code>Integer.MAX_VALUE / (128 * r * 8)</code>.
+     * @param dkLen the length of the key to generate.
+     * @param executor executor to run ROMix instances 2 to p on while the calling thread does the first,
+     *                 null to run them all on the calling thread.
+     * @param bufferPool pool to take scratch memory from and return it to, null to allocate it each call.
+     * @return the generated key.
+     */
+    public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen, Executor executor, SCryptBufferPool bufferPool)
     {
         if (P == null)
         {
@@ -67,10 +93,10 @@ public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen
         {
             throw new IllegalArgumentException("Generated key length dkLen must be >= 1.");
         }
-        return MFcrypt(P, S, N, r, p, dkLen);
+        return MFcrypt(P, S, N, r, p, dkLen, executor, bufferPool);
     }
 
-    private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen)
+    private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen, Executor executor, SCryptBufferPool bufferPool)
     {
         int MFLenBytes = r * 128;
         byte[] bytes = SingleIterationPBKDF2(P, S, p * MFLenBytes);
@@ -96,10 +122,16 @@ private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen
             }
 
             int MFLenWords = MFLenBytes >>> 2;
-            for (int BOff = 0; BOff < BLen; BOff += MFLenWords)
+            if (executor != null && p > 1)
             {
-                // TODO These can be done in parallel threads
-                SMix(B, BOff, N, d, r);
+                ParallelSMix(B, MFLenWords, N, d, r, p, executor, bufferPool);
+            }
+            else
+            {
+                for (int BOff = 0; BOff < BLen; BOff += MFLenWords)
+                {
+                    SMix(B, BOff, N, d, r, bufferPool);
+                }
             }
 
             Pack.intToLittleEndian(B, bytes, 0);
@@ -121,7 +153,57 @@ private static byte[] SingleIterationPBKDF2(byte[] P, byte[] S, int dkLen)
         return key.getKey();
     }
 
-    private static void SMix(int[] B, int BOff, int N, int d, int r)
+    /*
+     * Each ROMix instance works on its own MFLenWords of B, so instances 2 to p can be run on the
+     * executor while we do the first.
+     */
+    private static void ParallelSMix(final int[] B, int MFLenWords, final int N, final int d, final int r, int p,
+        Executor executor, final SCryptBufferPool bufferPool)
+    {
+        FutureTask[] tasks = new FutureTask[p - 1];
+
+        for (int i = 1; i < p; ++i)
+        {
+            final int BOff = i * MFLenWords;
+
+            tasks[i - 1] = new FutureTask(new Runnable()
+            {
+                public void run()
+                {
+                    SMix(B, BOff, N, d, r, bufferPool);
+                }
+            }, null);
+
+            executor.execute(tasks[i - 1]);
+        }
+
+        SMix(B, 0, N, d, r, bufferPool);
+
+        for (int i = 0; i < tasks.length; ++i)
+        {
+            try
+            {
+                tasks[i].get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("scrypt calculation interrupted");
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+
+                if (cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException)cause;
+                }
+                throw new IllegalStateException("exception in scrypt calculation: " + cause);
+            }
+        }
+    }
+
+    private static void SMix(int[] B, int BOff, int N, int d, int r, SCryptBufferPool bufferPool)
     {
         int powN = Integers.numberOfTrailingZeros(N);
         int blocksPerChunk = N >>> d;
@@ -142,7 +224,7 @@ private static void SMix(int[] B, int BOff, int N, int d, int r)
 
             for (int c = 0; c < chunkCount; ++c)
             {
-                int[] V = new int[blocksPerChunk * BCount];
+                int[] V = (bufferPool == null) ? new int[blocksPerChunk * BCount] : bufferPool.take(blocksPerChunk * BCount);
                 VV[c] = V;
 
                 int off = 0;
@@ -172,7 +254,18 @@ private static void SMix(int[] B, int BOff, int N, int d, int r)
         }
         finally
         {
-            ClearAll(VV);
+            if (bufferPool == null)
+            {
+                ClearAll(VV);
+            }
+            else
+            {
+                // the pool zeroes the buffers it is given back.
+                for (int c = 0; c < chunkCount && VV[c] != null; ++c)
+                {
+                    bufferPool.release(VV[c]);
+                }
+            }
             ClearAll(new int[][]{X, blockX1, blockX2, blockY});
         }
     }
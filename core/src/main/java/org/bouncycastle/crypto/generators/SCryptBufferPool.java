@@ -0,0 +1,102 @@
+package org.bouncycastle.crypto.generators;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Integers;
+
+/**
+ * A pool of the scratch buffers used by {@link SCrypt}, allowing the N * r * 128 bytes of working memory
+ * each ROMix instance needs to be reused across calls rather than being allocated afresh each time.
+ * <p>
+ * Buffers are zeroed before they are returned to the pool, and the pool will hold on to at most the
+ * number of bytes it was created with - anything returned past that is left for the garbage collector.
+ * A pool can be shared between threads.
+ * </p>
+ */
+public class SCryptBufferPool
+{
+    private final long maxPooledInts;
+    private final Map buffers = new HashMap();
+
+    private long pooledInts;
+
+    /**
+     * Create a pool which will hold up to maxPooledBytes of scratch buffers.
+     *
+     * @param maxPooledBytes the maximum number of bytes of buffers to keep between calls.
+     */
+    public SCryptBufferPool(long maxPooledBytes)
+    {
+        if (maxPooledBytes < 0)
+        {
+            throw new IllegalArgumentException("maxPooledBytes cannot be negative");
+        }
+
+        this.maxPooledInts = maxPooledBytes / 4;
+    }
+
+    /**
+     * Return the number of bytes of buffers currently held by the pool.
+     *
+     * @return the size of the buffers held, in bytes.
+     */
+    public synchronized long getPooledSize()
+    {
+        return pooledInts * 4;
+    }
+
+    /**
+     * Discard all the buffers held by the pool.
+     */
+    public synchronized void clear()
+    {
+        buffers.clear();
+        pooledInts = 0;
+    }
+
+    int[] take(int length)
+    {
+        synchronized (this)
+        {
+            List free = (List)buffers.get(Integers.valueOf(length));
+
+            if (free != null && !free.isEmpty())
+            {
+                pooledInts -= length;
+
+                return (int[])free.remove(free.size() - 1);
+            }
+        }
+
+        return new int[length];
+    }
+
+    void release(int[] buffer)
+    {
+        Arrays.fill(buffer, 0);
+
+        synchronized (this)
+        {
+            if (pooledInts + buffer.length > maxPooledInts)
+            {
+                return;
+            }
+
+            Integer length = Integers.valueOf(buffer.length);
+            List free = (List)buffers.get(length);
+
+            if (free == null)
+            {
+                free = new ArrayList();
+                buffers.put(length, free);
+            }
+
+            free.add(buffer);
+            pooledInts += buffer.length;
+        }
+    }
+}
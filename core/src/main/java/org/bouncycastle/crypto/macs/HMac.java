@@ -7,13 +7,19 @@
 import org.bouncycastle.crypto.ExtendedDigest;
 import org.bouncycastle.crypto.Mac;
 import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Integers;
 import org.bouncycastle.util.Memoable;
+import org.bouncycastle.util.MemoableResetException;
 
 /**
  * HMAC implementation based on RFC2104
  *
  * H(K XOR opad, H(K XOR ipad, text))
+ * <p>
+ * Where the underlying digest is Memoable a keyed HMAC can be copied rather than initialised
+ * again, see {@link PreparedMacKey}.
+ * </p>
  */
 public class HMac
     implements Mac
@@ -96,6 +102,23 @@ private HMac(
         this.outputBuf = new byte[blockLength + digestSize];
     }
 
+    private HMac(
+        HMac source)
+    {
+        if (!(source.digest instanceof Memoable))
+        {
+            throw new IllegalStateException("underlying digest " + source.digest.getAlgorithmName() + " is not Memoable");
+        }
+
+        this.digest = (Digest)((Memoable)source.digest).copy();
+        this.digestSize = source.digestSize;
+        this.blockLength = source.blockLength;
+        this.ipadState = copyState(null, source.ipadState);
+        this.opadState = copyState(null, source.opadState);
+        this.inputPad = Arrays.clone(source.inputPad);
+        this.outputBuf = Arrays.clone(source.outputBuf);
+    }
+
     public String getAlgorithmName()
     {
         return digest.getAlgorithmName() + "/HMAC";
@@ -136,9 +159,10 @@ public void init(
         xorPad(inputPad, blockLength, IPAD);
         xorPad(outputBuf, blockLength, OPAD);
 
+        // the saved states are overwritten in place on re-keying, so earlier keyed states do not linger.
         if (digest instanceof Memoable)
         {
-            opadState = ((Memoable)digest).copy();
+            opadState = saveState(opadState);
 
             ((Digest)opadState).update(outputBuf, 0, blockLength);
         }
@@ -147,7 +171,7 @@ public void init(
 
         if (digest instanceof Memoable)
         {
-            ipadState = ((Memoable)digest).copy();
+            ipadState = saveState(ipadState);
         }
     }
 
@@ -205,6 +229,65 @@ public int doFinal(
         return len;
     }
 
+    /**
+     * Return a copy of this HMAC, including its key and any data processed so far. The underlying
+     * digest must be Memoable.
+     */
+    HMac copy()
+    {
+        return new HMac(this);
+    }
+
+    /**
+     * Restore the key and processing state of another HMAC into this one.
+     *
+     * @param source an HMAC using the same type of digest as this one (a digest's copy() may return
+     * the class it extends, so the digest here may be a subclass of the source's).
+     * @throws MemoableResetException if source uses a different type of digest.
+     */
+    void reset(HMac source)
+    {
+        if (!(digest instanceof Memoable) || !source.digest.getClass().isInstance(digest)
+            || source.digestSize != digestSize || source.blockLength != blockLength)
+        {
+            throw new MemoableResetException("cannot reset from a different HMAC type");
+        }
+
+        ((Memoable)digest).reset((Memoable)source.digest);
+        ipadState = copyState(ipadState, source.ipadState);
+        opadState = copyState(opadState, source.opadState);
+        System.arraycopy(source.inputPad, 0, inputPad, 0, inputPad.length);
+        System.arraycopy(source.outputBuf, 0, outputBuf, 0, outputBuf.length);
+    }
+
+    private static Memoable copyState(Memoable state, Memoable source)
+    {
+        if (source == null)
+        {
+            return null;
+        }
+        if (state == null)
+        {
+            return source.copy();
+        }
+
+        state.reset(source);
+
+        return state;
+    }
+
+    private Memoable saveState(Memoable state)
+    {
+        if (state == null)
+        {
+            return ((Memoable)digest).copy();
+        }
+
+        state.reset((Memoable)digest);
+
+        return state;
+    }
+
     /**
      * Reset the mac generator.
      */
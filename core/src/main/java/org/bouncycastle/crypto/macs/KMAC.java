@@ -8,6 +8,8 @@
 import org.bouncycastle.crypto.digests.XofUtils;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Memoable;
+import org.bouncycastle.util.MemoableResetException;
 import org.bouncycastle.util.Strings;
 
 /**
@@ -17,11 +19,11 @@
  * </p>
  */
 public class KMAC
-    implements Mac, Xof
+    implements Mac, Xof, Memoable
 {
     private static final byte[] padding = new byte[100];
 
-    private final CSHAKEDigest cshake;
+    private CSHAKEDigest cshake;
     private final int bitLength;
     private final int outputLength;
 
@@ -42,6 +44,16 @@ public KMAC(int bitLength, byte[] S)
         this.outputLength = bitLength * 2 / 8;
     }
 
+    private KMAC(KMAC source)
+    {
+        this.cshake = new CSHAKEDigest(source.cshake);
+        this.bitLength = source.bitLength;
+        this.outputLength = source.outputLength;
+        this.key = Arrays.clone(source.key);
+        this.initialised = source.initialised;
+        this.firstOutput = source.firstOutput;
+    }
+
     public void init(CipherParameters params)
         throws IllegalArgumentException
     {
@@ -176,6 +188,26 @@ public void reset()
         firstOutput = true;
     }
 
+    public Memoable copy()
+    {
+        return new KMAC(this);
+    }
+
+    public void reset(Memoable other)
+    {
+        KMAC source = (KMAC)other;
+
+        if (source.bitLength != bitLength)
+        {
+            throw new MemoableResetException("cannot reset from a different KMAC type");
+        }
+
+        this.cshake = new CSHAKEDigest(source.cshake);
+        this.key = Arrays.clone(source.key);
+        this.initialised = source.initialised;
+        this.firstOutput = source.firstOutput;
+    }
+
     private void bytePad(byte[] X, int w)
     {
         byte[] bytes = XofUtils.leftEncode(w);
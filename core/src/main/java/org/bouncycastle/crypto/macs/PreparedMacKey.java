@@ -0,0 +1,107 @@
+package org.bouncycastle.crypto.macs;
+
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.util.Memoable;
+import org.bouncycastle.util.MemoableResetException;
+
+/**
+ * A MAC key which has already been processed by a MAC, for {@link HMac} over a Memoable digest and
+ * for Memoable MACs such as {@link KMAC}. The keyed state is captured once, after which MACs for the key can be produced,
+ * or existing MACs reset to it, without going through init() again - for HMAC that saves hashing the
+ * inner and outer key pads each time.
+ * <p>
+ * A PreparedMacKey is never modified after construction, so it can be shared between threads, each
+ * thread taking its own MAC from it.
+ * </p>
+ */
+public final class PreparedMacKey
+{
+    private final Mac keyedMac;
+    private final String algorithmName;
+    private final int macSize;
+
+    /**
+     * Prepare a key for a MAC. The passed in MAC is initialised with params, and is left ready
+     * for use with the key.
+     *
+     * @param mac the MAC to prepare the key for, an HMac over a Memoable digest or a Memoable MAC.
+     * @param params the key parameters to initialise the MAC with.
+     * @throws IllegalArgumentException if the MAC is not Memoable.
+     */
+    public PreparedMacKey(Mac mac, CipherParameters params)
+    {
+        if (mac instanceof HMac ? !(((HMac)mac).getUnderlyingDigest() instanceof Memoable) : !(mac instanceof Memoable))
+        {
+            throw new IllegalArgumentException("MAC " + mac.getAlgorithmName() + " is not Memoable");
+        }
+
+        mac.init(params);
+
+        this.keyedMac = copy(mac);
+        this.algorithmName = mac.getAlgorithmName();
+        this.macSize = mac.getMacSize();
+    }
+
+    /**
+     * Return the name of the MAC this key was prepared for.
+     *
+     * @return the MAC's algorithm name.
+     */
+    public String getAlgorithmName()
+    {
+        return algorithmName;
+    }
+
+    /**
+     * Return the size of the MACs this key produces.
+     *
+     * @return the MAC size in bytes.
+     */
+    public int getMacSize()
+    {
+        return macSize;
+    }
+
+    /**
+     * Create a new MAC, ready for use with the key.
+     *
+     * @return a new MAC initialised with the prepared key.
+     */
+    public Mac createMac()
+    {
+        return copy(keyedMac);
+    }
+
+    /**
+     * Reset an existing MAC to the prepared key - for HMac this avoids any memory allocation.
+     *
+     * @param mac a MAC of the same type and configuration as the one the key was prepared with.
+     * @throws MemoableResetException if mac is not of the same type as the one the key was prepared with.
+     */
+    public void initMac(Mac mac)
+    {
+        if (mac instanceof HMac && keyedMac instanceof HMac)
+        {
+            ((HMac)mac).reset((HMac)keyedMac);
+        }
+        else if (mac instanceof Memoable && keyedMac instanceof Memoable)
+        {
+            ((Memoable)mac).reset((Memoable)keyedMac);
+        }
+        else
+        {
+            throw new MemoableResetException("cannot reset " + mac.getAlgorithmName() + " to a " + algorithmName + " key");
+        }
+    }
+
+    private static Mac copy(Mac mac)
+    {
+        if (mac instanceof HMac)
+        {
+            return ((HMac)mac).copy();
+        }
+
+        return (Mac)((Memoable)mac).copy();
+    }
+}
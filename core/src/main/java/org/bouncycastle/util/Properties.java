@@ -115,6 +115,19 @@ public static boolean removeThreadOverride(String propertyName)
         return false;
     }
 
+    /**
+     * Return whether a value for the specified override property has been set for the current thread.
+     *
+     * @param propertyName the property name for the override.
+     * @return true if the current thread has its own value for the override, false otherwise.
+     */
+    public static boolean hasThreadOverride(String propertyName)
+    {
+        Map localProps = (Map)threadProperties.get();
+
+        return localProps != null && localProps.containsKey(propertyName);
+    }
+
     public static BigInteger asBigInteger(String propertyName)
     {
         String p = getPropertyValue(propertyName);
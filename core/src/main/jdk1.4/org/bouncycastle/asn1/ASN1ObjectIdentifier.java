@@ -294,7 +294,7 @@ private void doOutput(ByteArrayOutputStream aOut)
         }
     }
 
-    private synchronized byte[] getBody()
+    synchronized byte[] getBody()
     {
         if (body == null)
         {
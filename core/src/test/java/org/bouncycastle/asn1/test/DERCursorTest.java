@@ -0,0 +1,373 @@
+package org.bouncycastle.asn1.test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+
+import org.bouncycastle.asn1.ASN1Boolean;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1GeneralizedTime;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1ObjectIdentifierMap;
+import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.ASN1UTCTime;
+import org.bouncycastle.asn1.BERTags;
+import org.bouncycastle.asn1.DERBitString;
+import org.bouncycastle.asn1.DERCursor;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERSet;
+import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Strings;
+import org.bouncycastle.util.encoders.Hex;
+import org.bouncycastle.util.test.SimpleTest;
+
+public class DERCursorTest
+    extends SimpleTest
+{
+    private static final BigInteger SERIAL = new BigInteger("123456789012345678901234567890");
+    private static final ASN1ObjectIdentifier OID = new ASN1ObjectIdentifier("1.2.840.113549.1.1.11");
+    private static final ASN1ObjectIdentifierMap<String> NAMES = new ASN1ObjectIdentifierMap<String>(
+        Collections.singletonMap(OID, "sha256WithRSA"));
+
+    public String getName()
+    {
+        return "DERCursor";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        byte[] data = createStructure();
+
+        walkStructure(new DERCursor(data, true), 0);
+
+        byte[] padded = Arrays.concatenate(new byte[7], data, new byte[3]);
+        walkStructure(new DERCursor(padded, 7, data.length, true), 7);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 5);
+        direct.position(5);
+        direct.put(data);
+        direct.position(5);
+        walkStructure(new DERCursor(direct, true), 5);
+
+        ByteBuffer wrapped = ByteBuffer.wrap(padded, 7, data.length).slice();
+        walkStructure(new DERCursor(wrapped, true), 0);
+
+        exitTest(data);
+        strictTest();
+        timeTest();
+        derEncodingTest(data);
+    }
+
+    private byte[] createStructure()
+        throws IOException
+    {
+        ASN1EncodableVector v = new ASN1EncodableVector();
+
+        v.add(new DERTaggedObject(true, 0, new ASN1Integer(2)));
+        v.add(new ASN1Integer(SERIAL));
+        v.add(new DERSequence(new ASN1ObjectIdentifier[] { OID }));
+        v.add(new DERSet(new DERUTF8String("hello")));
+        v.add(ASN1Boolean.TRUE);
+        v.add(DERNull.INSTANCE);
+        v.add(new DEROctetString(new byte[200]));
+        v.add(new DERBitString(new byte[] { (byte)0xf0 }, 4));
+        v.add(new ASN1UTCTime("200101120000Z"));
+        v.add(new ASN1GeneralizedTime("20500101120000.25Z"));
+        v.add(new DERTaggedObject(false, 100, new ASN1Integer(-129)));
+
+        return new DERSequence(new DERSequence(v)).getEncoded(ASN1Encoding.DER);
+    }
+
+    private void walkStructure(DERCursor c, int base)
+        throws Exception
+    {
+        isTrue(c.next());
+        isTrue(c.isUniversal(BERTags.SEQUENCE));
+        isEquals(base, c.getOffset());
+        c.enter();
+        isTrue(c.next());
+        c.enter();
+        isEquals(2, c.getDepth());
+
+        isTrue(c.next());
+        isTrue(c.isTagged(0));
+        c.enter();
+        isTrue(c.next());
+        isEquals(2, c.getIntValueExact());
+        isTrue(!c.next());
+        c.exit();
+
+        isTrue(c.next());
+        isEquals(SERIAL, c.getInteger());
+        try
+        {
+            c.getLongValueExact();
+            fail("no exception");
+        }
+        catch (ArithmeticException e)
+        {
+            isEquals("ASN.1 Integer out of long range", e.getMessage());
+        }
+
+        isTrue(c.next());
+        c.enter();
+        isTrue(c.next());
+        isTrue(c.isObjectIdentifier(OID));
+        isTrue(!c.isObjectIdentifier(new ASN1ObjectIdentifier("1.2.840.113549.1.1.1")));
+        isEquals(OID, c.getObjectIdentifier());
+        isEquals("sha256WithRSA", c.lookupObjectIdentifier(NAMES));
+        c.exit();
+
+        isTrue(c.next());
+        isTrue(c.isUniversal(BERTags.SET));
+        c.enter();
+        isTrue(c.next());
+        isEquals(new DERUTF8String("hello"), c.getPrimitive());
+        c.exit();
+
+        isTrue(c.next());
+        isTrue(c.getBoolean());
+
+        isTrue(c.next());
+        c.checkNull();
+
+        isTrue(c.next());
+        isEquals(200, c.getContentsLength());
+        byte[] octets = new byte[210];
+        isEquals(200, c.copyOctets(octets, 10));
+        isTrue(areEqual(new byte[200], c.getOctets()));
+
+        isTrue(c.next());
+        isEquals(4, c.getBitStringPadBits());
+
+        isTrue(c.next());
+        isEquals(new ASN1UTCTime("200101120000Z").getDate().getTime(), c.getTime());
+
+        isTrue(c.next());
+        isEquals(new ASN1GeneralizedTime("20500101120000.25Z").getDate().getTime(), c.getTime());
+
+        isTrue(c.next());
+        isEquals(0, c.getTagClass() & BERTags.APPLICATION);
+        isEquals(100, c.getTagNo());
+        isEquals(-129, c.getIntValueExact());
+
+        isTrue(!c.next());
+        c.exit();
+        c.exit();
+        isTrue(!c.next());
+    }
+
+    private void exitTest(byte[] data)
+        throws Exception
+    {
+        DERCursor c = new DERCursor(data);
+
+        isTrue(c.next());
+        c.enter();
+        isTrue(c.next());
+        c.enter();
+        isTrue(c.next());
+        c.exit();               // skip the rest of the inner sequence
+        isTrue(!c.next());
+        c.exit();
+        isTrue(!c.next());
+
+        try
+        {
+            c.exit();
+            fail("no exception");
+        }
+        catch (IllegalStateException e)
+        {
+            isEquals("cursor is at the top level", e.getMessage());
+        }
+    }
+
+    private void strictTest()
+        throws Exception
+    {
+        // non-minimal length
+        checkLenientOnly(Hex.decode("048103010203"), BERTags.OCTET_STRING);
+        // BOOLEAN not 0xFF
+        checkLenientOnly(Hex.decode("010101"), BERTags.BOOLEAN);
+        // non-zero unused bits
+        checkLenientOnly(Hex.decode("030204f1"), BERTags.BIT_STRING);
+        // UTCTime without seconds
+        checkLenientOnly(timeEncoding(BERTags.UTC_TIME, "2001011200Z"), BERTags.UTC_TIME);
+        // GeneralizedTime with trailing zero in fraction
+        checkLenientOnly(timeEncoding(BERTags.GENERALIZED_TIME, "20200101120000.100Z"), BERTags.GENERALIZED_TIME);
+        // GeneralizedTime with an offset
+        checkLenientOnly(timeEncoding(BERTags.GENERALIZED_TIME, "20200101120000+0130"), BERTags.GENERALIZED_TIME);
+
+        // malformed INTEGER is always rejected
+        DERCursor c = new DERCursor(Hex.decode("02020001"));
+        isTrue(c.next());
+        try
+        {
+            c.getIntValueExact();
+            fail("no exception");
+        }
+        catch (IOException e)
+        {
+            isEquals("malformed integer", e.getMessage());
+        }
+
+        // length past the end of the data
+        c = new DERCursor(Hex.decode("3005020101"));
+        try
+        {
+            c.next();
+            fail("no exception");
+        }
+        catch (IOException e)
+        {
+            isTrue(e.getMessage().startsWith("corrupted stream - out of bounds length found"));
+        }
+
+        // indefinite length
+        c = new DERCursor(Hex.decode("30800201010000"));
+        try
+        {
+            c.next();
+            fail("no exception");
+        }
+        catch (IOException e)
+        {
+            isEquals("indefinite-length encoding not supported by DERCursor", e.getMessage());
+        }
+    }
+
+    private void checkLenientOnly(byte[] encoding, int tag)
+        throws Exception
+    {
+        read(new DERCursor(encoding, false), tag);
+
+        try
+        {
+            read(new DERCursor(encoding, true), tag);
+            fail("strict cursor accepted " + Hex.toHexString(encoding));
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    private void read(DERCursor c, int tag)
+        throws IOException
+    {
+        c.next();
+
+        switch (tag)
+        {
+        case BERTags.OCTET_STRING:
+            c.getOctets();
+            break;
+        case BERTags.BOOLEAN:
+            c.getBoolean();
+            break;
+        case BERTags.BIT_STRING:
+            c.getBitStringPadBits();
+            break;
+        default:
+            c.getTime();
+            break;
+        }
+    }
+
+    private void timeTest()
+        throws Exception
+    {
+        checkTime("19991231235959Z");
+        checkTime("20200229000000Z");
+        checkTime("19700101000000.001Z");
+        checkTime("19691231235959.5Z");
+        checkTime("21000301000000Z");
+
+        // offsets are accepted by a lenient cursor
+        DERCursor c = new DERCursor(timeEncoding(BERTags.GENERALIZED_TIME, "20200101120000+0130"));
+        isTrue(c.next());
+        isEquals(new ASN1GeneralizedTime("20200101103000Z").getDate().getTime(), c.getTime());
+
+        // invalid date
+        c = new DERCursor(new ASN1GeneralizedTime("20190229120000Z").getEncoded());
+        isTrue(c.next());
+        try
+        {
+            c.getTime();
+            fail("no exception");
+        }
+        catch (IOException e)
+        {
+            isEquals("invalid time value", e.getMessage());
+        }
+    }
+
+    private void checkTime(String time)
+        throws Exception
+    {
+        ASN1GeneralizedTime t = new ASN1GeneralizedTime(time);
+        DERCursor c = new DERCursor(t.getEncoded(), true);
+
+        isTrue(c.next());
+        isEquals(t.getDate().getTime(), c.getGeneralizedTime());
+    }
+
+    private void derEncodingTest(byte[] data)
+        throws Exception
+    {
+        checkDEREncoding(data, true);
+        checkDEREncoding(Hex.decode("3106020101020102"), true);
+        checkDEREncoding(timeEncoding(BERTags.GENERALIZED_TIME, "20200101120000.1Z"), true);
+        checkDEREncoding(Hex.decode("a0053003010100"), true);
+
+        // unsorted SET
+        checkDEREncoding(Hex.decode("3106020102020101"), false);
+        // non-minimal length
+        checkDEREncoding(Hex.decode("30050481020102"), false);
+        // BOOLEAN not 0xFF
+        checkDEREncoding(Hex.decode("3003010101"), false);
+        // non-zero unused bits
+        checkDEREncoding(Hex.decode("3004030204f1"), false);
+        // GeneralizedTime with trailing zero in fraction
+        checkDEREncoding(timeEncoding(BERTags.GENERALIZED_TIME, "20200101120000.10Z"), false);
+        // constructed OCTET STRING
+        checkDEREncoding(Hex.decode("2403040101"), false);
+        // indefinite length
+        checkDEREncoding(Hex.decode("30800201010000"), false);
+        // trailing data
+        checkDEREncoding(Hex.decode("3003020101020101"), false);
+        // no data
+        checkDEREncoding(new byte[0], false);
+    }
+
+    private void checkDEREncoding(byte[] encoding, boolean isDER)
+        throws Exception
+    {
+        isEquals("DER check wrong for " + Hex.toHexString(encoding), isDER, DERCursor.isDEREncoding(encoding));
+
+        if (isDER)
+        {
+            isTrue("DER re-encoding differs", Arrays.areEqual(encoding, ASN1Primitive.fromByteArray(encoding).getEncoded(ASN1Encoding.DER)));
+        }
+    }
+
+    private static byte[] timeEncoding(int tag, String time)
+    {
+        return Arrays.concatenate(new byte[] { (byte)tag, (byte)time.length() }, Strings.toByteArray(time));
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new DERCursorTest());
+    }
+}
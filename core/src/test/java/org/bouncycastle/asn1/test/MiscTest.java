@@ -4,14 +4,21 @@
 import java.io.IOException;
 
 import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Encoding;
 import org.bouncycastle.asn1.ASN1Enumerated;
+import org.bouncycastle.asn1.ASN1GeneralizedTime;
 import org.bouncycastle.asn1.ASN1InputStream;
 import org.bouncycastle.asn1.ASN1Integer;
 import org.bouncycastle.asn1.ASN1OutputStream;
 import org.bouncycastle.asn1.ASN1Primitive;
+import org.bouncycastle.asn1.BEROctetString;
 import org.bouncycastle.asn1.BERSequence;
+import org.bouncycastle.asn1.BERTaggedObject;
 import org.bouncycastle.asn1.DERBitString;
 import org.bouncycastle.asn1.DERIA5String;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DLSet;
 import org.bouncycastle.asn1.misc.CAST5CBCParameters;
 import org.bouncycastle.asn1.misc.IDEACBCPar;
 import org.bouncycastle.asn1.misc.NetscapeCertType;
@@ -88,6 +95,42 @@ public void asn1IntegerTest()
         }
     }
 
+    public void derEncodingTest()
+        throws Exception
+    {
+        byte[] data = new byte[300];
+
+        ASN1EncodableVector setV = new ASN1EncodableVector();
+        setV.add(new DEROctetString(data));
+        setV.add(new ASN1Integer(-12345));
+        setV.add(new BEROctetString(new byte[] { 1, 2, 3 }));
+
+        ASN1EncodableVector v = new ASN1EncodableVector();
+        v.add(new DLSet(setV));
+        v.add(new BERTaggedObject(true, 3, new DERIA5String("hello")));
+        v.add(new BERSequence(new ASN1Encodable[] { new DERBitString(data, 3), new ASN1GeneralizedTime("20200101120000.100Z") }));
+
+        for (int i = 0; i != 20; i++)
+        {
+            v.add(new ASN1Integer(i));
+        }
+
+        ASN1Primitive obj = new BERSequence(v);
+
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        ASN1OutputStream.create(bOut, ASN1Encoding.DER).writeObject(obj);
+
+        byte[] expected = bOut.toByteArray();
+
+        isTrue("DER getEncoded mismatch", areEqual(expected, obj.getEncoded(ASN1Encoding.DER)));
+
+        bOut.reset();
+        obj.encodeTo(bOut, ASN1Encoding.DER);
+
+        isTrue("DER encodeTo mismatch", areEqual(expected, bOut.toByteArray()));
+        isTrue("DER round trip mismatch", areEqual(expected, ASN1Primitive.fromByteArray(expected).getEncoded(ASN1Encoding.DER)));
+    }
+
     public void performTest()
         throws Exception
     {
@@ -134,6 +177,7 @@ public void performTest()
 
         shouldFailOnExtraData();
         asn1IntegerTest();
+        derEncodingTest();
     }
 
     public String getName()
@@ -1,6 +1,10 @@
 package org.bouncycastle.asn1.test;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1ObjectIdentifierMap;
 import org.bouncycastle.util.test.SimpleTest;
 import org.bouncycastle.util.test.TestResult;
 
@@ -72,6 +76,68 @@ public void performTest()
                 }
             }
         }
+
+        identityTest();
+        mapTest();
+    }
+
+    private void identityTest()
+        throws Exception
+    {
+        String[] ids = { "0.0", "1.2.840.113549.1.1.11", "2.100.3", "1.3.6.1.4.1.22554.3.4294967296.18446744073709551616" };
+
+        for (int i = 0; i != ids.length; i++)
+        {
+            ASN1ObjectIdentifier oid1 = new ASN1ObjectIdentifier(ids[i]);
+            ASN1ObjectIdentifier oid2 = (ASN1ObjectIdentifier)ASN1ObjectIdentifier.fromByteArray(oid1.getEncoded());
+
+            isTrue(oid1.equals(oid2));
+            isEquals(oid1.hashCode(), oid2.hashCode());
+            isEquals(ids[i], oid2.getId());
+            isEquals(ids[i], oid2.toString());
+        }
+
+        ASN1ObjectIdentifier stem = new ASN1ObjectIdentifier("1.2.840");
+        ASN1ObjectIdentifier branch = (ASN1ObjectIdentifier)ASN1ObjectIdentifier.fromByteArray(stem.branch("113549.1").getEncoded());
+
+        isTrue(branch.on(stem));
+        isTrue(!stem.on(stem));
+        isTrue(!stem.on(branch));
+        isTrue(!new ASN1ObjectIdentifier("1.2.8400").on(stem));
+        isTrue(!new ASN1ObjectIdentifier("1.2.841.1").on(stem));
+    }
+
+    private void mapTest()
+        throws Exception
+    {
+        Map<ASN1ObjectIdentifier, String> entries = new HashMap<ASN1ObjectIdentifier, String>();
+        ASN1ObjectIdentifier base = new ASN1ObjectIdentifier("1.2.840.113549.1");
+
+        for (int i = 0; i != 100; i++)
+        {
+            entries.put(base.branch(Integer.toString(i)), "value-" + i);
+        }
+
+        ASN1ObjectIdentifierMap<String> map = new ASN1ObjectIdentifierMap<String>(entries);
+
+        isEquals(100, map.size());
+
+        for (int i = 0; i != 100; i++)
+        {
+            ASN1ObjectIdentifier oid = (ASN1ObjectIdentifier)ASN1ObjectIdentifier.fromByteArray(
+                new ASN1ObjectIdentifier(base.getId() + "." + i).getEncoded());
+
+            isEquals("value-" + i, map.get(oid));
+            isTrue(map.containsKey(oid));
+
+            byte[] contents = oid.getEncoded();
+            isEquals("value-" + i, map.get(contents, 2, contents.length - 2));
+        }
+
+        isTrue(null == map.get(base));
+        isTrue(null == map.get(base.branch("100")));
+        isTrue(!map.containsKey(new ASN1ObjectIdentifier("1.2.840.113549.2.0")));
+        isTrue(null == map.get(new byte[0], 0, 0));
     }
 
     public static void main(
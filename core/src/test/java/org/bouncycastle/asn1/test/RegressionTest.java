@@ -71,6 +71,7 @@
         new ParsingTest(),
         new GeneralNameTest(),
         new ObjectIdentifierTest(),
+        new DERCursorTest(),
         new RFC4519Test(),
         new PolicyConstraintsTest(),
         new PollReqContentTest(),
@@ -1,8 +1,12 @@
 package org.bouncycastle.asn1.test;
 
+import java.util.Random;
+
 import org.bouncycastle.asn1.ASN1Boolean;
 import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Encoding;
 import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1Primitive;
 import org.bouncycastle.asn1.ASN1Set;
 import org.bouncycastle.asn1.ASN1TaggedObject;
 import org.bouncycastle.asn1.BERSet;
@@ -11,6 +15,7 @@
 import org.bouncycastle.asn1.DERSequence;
 import org.bouncycastle.asn1.DERSet;
 import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.DLSet;
 import org.bouncycastle.util.test.SimpleTest;
 
 /**
@@ -39,6 +44,7 @@ private void checkedSortedSet(int attempt, ASN1Set s)
     }
 
     public void performTest()
+        throws Exception
     {
         ASN1EncodableVector v = new ASN1EncodableVector();
         byte[] data = new byte[10];
@@ -105,6 +111,69 @@ public void performTest()
         v.add(ASN1Boolean.getInstance(true));
 
         s = new DERSet(v);
+
+        largeSetTest();
+    }
+
+    private void largeSetTest()
+        throws Exception
+    {
+        Random random = new Random(1);
+        ASN1EncodableVector v = new ASN1EncodableVector();
+
+        for (int i = 0; i != 500; i++)
+        {
+            byte[] data = new byte[random.nextInt(40)];
+
+            random.nextBytes(data);
+
+            v.add(new DEROctetString(data));
+            if (i % 7 == 0)
+            {
+                v.add(new DEROctetString(data));     // duplicates
+            }
+        }
+
+        DERSet s = new DERSet(v);
+
+        isEquals("wrong size", v.size(), s.size());
+
+        byte[] last = s.getObjectAt(0).toASN1Primitive().getEncoded(ASN1Encoding.DER);
+        for (int i = 1; i != s.size(); i++)
+        {
+            byte[] next = s.getObjectAt(i).toASN1Primitive().getEncoded(ASN1Encoding.DER);
+
+            isTrue("set not sorted at " + i, compareEncodings(last, next) <= 0);
+
+            last = next;
+        }
+
+        // the set built from the unsorted elements should encode the same as one built from sorted ones
+        ASN1Set dlSet = new DLSet(v);
+        byte[] encoding = s.getEncoded();
+
+        isTrue("converted set encoding mismatch", areEqual(encoding, dlSet.getEncoded(ASN1Encoding.DER)));
+        isTrue("re-sorted set encoding mismatch", areEqual(encoding, new DERSet(s.toArray()).getEncoded()));
+        isTrue("parsed set encoding mismatch", areEqual(encoding, ASN1Primitive.fromByteArray(encoding).getEncoded(ASN1Encoding.DER)));
+
+        // the cached element encodings are released after the first encoding, later ones must match
+        isTrue("second encoding mismatch", areEqual(encoding, s.getEncoded()));
+        isTrue("second encoding mismatch", areEqual(encoding, s.getEncoded(ASN1Encoding.DER)));
+    }
+
+    private static int compareEncodings(byte[] a, byte[] b)
+    {
+        int len = Math.min(a.length, b.length);
+
+        for (int i = 0; i != len; i++)
+        {
+            if (a[i] != b[i])
+            {
+                return (a[i] & 0xff) - (b[i] & 0xff);
+            }
+        }
+
+        return a.length - b.length;
     }
 
     public static void main(
@@ -423,11 +423,45 @@ private void ctrCounterTest()
         }
     }
 
+    private void rekeyTest()
+    {
+        SecureRandom rand = new SecureRandom();
+        AESEngine engine = new AESEngine();
+        byte[] block = new byte[16];
+        byte[] out = new byte[16];
+        byte[] expected = new byte[16];
+
+        rand.nextBytes(block);
+
+        // the working key is reused when the key size does not change, make sure nothing leaks between keys.
+        int[] keySizes = { 16, 16, 32, 24, 24, 32, 32, 16 };
+        for (int i = 0; i != keySizes.length; i++)
+        {
+            KeyParameter key = new KeyParameter(new byte[keySizes[i]]);
+            rand.nextBytes(key.getKey());
+            boolean forEncryption = (i & 1) == 0;
+
+            engine.init(forEncryption, key);
+            engine.processBlock(block, 0, out, 0);
+
+            AESEngine fresh = new AESEngine();
+            fresh.init(forEncryption, key);
+            fresh.processBlock(block, 0, expected, 0);
+
+            if (!areEqual(expected, out))
+            {
+                fail("re-keyed engine failed: " + i);
+            }
+        }
+    }
+
     public void performTest()
         throws Exception
     {
         super.performTest();
 
+        rekeyTest();
+
         byte[] keyBytes = new byte[16];
         
         _engine.init(true, new KeyParameter(keyBytes));
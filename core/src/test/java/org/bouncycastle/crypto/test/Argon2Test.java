@@ -2,6 +2,8 @@
 
 
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
 import org.bouncycastle.crypto.params.Argon2Parameters;
@@ -33,6 +35,7 @@ public void performTest()
 
         testPermutations();
         testVectorsFromInternetDraft();
+        testParallelLanes();
 
         int version = Argon2Parameters.ARGON2_VERSION_10;
 
@@ -316,6 +319,78 @@ private void testVectorsFromInternetDraft()
 
     }
 
+    private void testParallelLanes()
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        try
+        {
+            int[] types = { Argon2Parameters.ARGON2_d, Argon2Parameters.ARGON2_i, Argon2Parameters.ARGON2_id };
+            int[] versions = { Argon2Parameters.ARGON2_VERSION_10, Argon2Parameters.ARGON2_VERSION_13 };
+
+            for (int t = 0; t != types.length; t++)
+            {
+                for (int v = 0; v != versions.length; v++)
+                {
+                    for (int parallelism = 1; parallelism <= 5; parallelism += 2)
+                    {
+                        Argon2Parameters parameters = new Argon2Parameters.Builder(types[t])
+                            .withVersion(versions[v])
+                            .withIterations(3)
+                            .withMemoryAsKB(64 * parallelism)
+                            .withParallelism(parallelism)
+                            .withAdditional(Hex.decode("040404040404040404040404"))
+                            .withSecret(Hex.decode("0303030303030303"))
+                            .withSalt(Hex.decode("02020202020202020202020202020202"))
+                            .build();
+
+                        byte[] password = Strings.toByteArray("password" + parallelism);
+
+                        Argon2BytesGenerator gen = new Argon2BytesGenerator();
+                        gen.init(parameters);
+                        byte[] expected = new byte[48];
+                        gen.generateBytes(password, expected);
+
+                        gen = new Argon2BytesGenerator(executor);
+                        gen.init(parameters);
+                        byte[] result = new byte[48];
+                        gen.generateBytes(password, result);
+
+                        isTrue("parallel lanes failed: " + types[t] + "/" + versions[v] + "/" + parallelism,
+                            areEqual(expected, result));
+
+                        // and again, to check the generator can be reused.
+                        gen.generateBytes(password, result);
+                        isTrue(areEqual(expected, result));
+                    }
+                }
+            }
+
+            // the draft vectors use 4 lanes.
+            Argon2Parameters parameters = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+                .withVersion(Argon2Parameters.ARGON2_VERSION_13)
+                .withIterations(3)
+                .withMemoryAsKB(32)
+                .withParallelism(4)
+                .withAdditional(Hex.decode("040404040404040404040404"))
+                .withSecret(Hex.decode("0303030303030303"))
+                .withSalt(Hex.decode("02020202020202020202020202020202"))
+                .build();
+
+            Argon2BytesGenerator gen = new Argon2BytesGenerator(executor);
+            gen.init(parameters);
+
+            byte[] result = new byte[32];
+            gen.generateBytes(Hex.decode("0101010101010101010101010101010101010101010101010101010101010101"), result);
+            isTrue("parallel Argon 2id Failed", areEqual(result, Hex.decode("0d640df58d78766c08c037a34a8b53c9d01ef0452" +
+                "d75b65eb52520e96b01e659")));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
     private static int getJvmVersion()
     {
         String version = System.getProperty("java.specification.version");
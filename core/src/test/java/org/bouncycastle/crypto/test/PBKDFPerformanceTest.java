@@ -0,0 +1,130 @@
+package org.bouncycastle.crypto.test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
+import org.bouncycastle.crypto.generators.PKCS5S2ParametersGenerator;
+import org.bouncycastle.crypto.params.Argon2Parameters;
+import org.bouncycastle.util.Memoable;
+import org.bouncycastle.util.Strings;
+
+/**
+ * Benchmark of PBKDF2 with its blocks run sequentially and on an executor, and of Argon2 with its lanes filled sequentially and on an executor.
+ * <p>
+ * Usage: PBKDFPerformanceTest [PBKDF2 iterations] [threads]
+ * </p>
+ */
+public class PBKDFPerformanceTest
+{
+    private static final int DEFAULT_ITERATIONS = 100000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        int iterations = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try
+        {
+            byte[] password = Strings.toByteArray("password");
+            byte[] salt = Strings.toByteArray("saltsaltsaltsalt");
+
+            System.out.println("PBKDF2, " + iterations + " iterations, " + threads + " threads");
+
+            pbkdf2("HMAC-SHA256, 32 byte key ", new SHA256Digest(), executor, password, salt, iterations, 256);
+            pbkdf2("HMAC-SHA256, 128 byte key", new SHA256Digest(), executor, password, salt, iterations, 1024);
+            pbkdf2("HMAC-SHA512, 64 byte key ", new SHA512Digest(), executor, password, salt, iterations, 512);
+            pbkdf2("HMAC-SHA512, 256 byte key", new SHA512Digest(), executor, password, salt, iterations, 2048);
+
+            System.out.println("Argon2id, 3 passes, 64MB");
+
+            argon2(executor, password, salt, 4);
+            argon2(executor, password, salt, 8);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static void pbkdf2(String label, Digest digest, ExecutorService executor,
+        byte[] password, byte[] salt, int iterations, int keySize)
+    {
+        PKCS5S2ParametersGenerator sequentialGen = new PKCS5S2ParametersGenerator(digest);
+        PKCS5S2ParametersGenerator parallelGen = new PKCS5S2ParametersGenerator((Digest)((Memoable)digest).copy(), executor);
+
+        sequentialGen.init(password, salt, iterations);
+        parallelGen.init(password, salt, iterations);
+
+        // warm up
+        for (int i = 0; i != 2; i++)
+        {
+            sequentialGen.generateDerivedParameters(keySize);
+            parallelGen.generateDerivedParameters(keySize);
+        }
+
+        long sequentialTime = time(sequentialGen, keySize);
+        long parallelTime = time(parallelGen, keySize);
+
+        System.out.println(label + "  sequential: " + sequentialTime + " ms  on executor: " + parallelTime + " ms");
+    }
+
+    private static long time(PKCS5S2ParametersGenerator gen, int keySize)
+    {
+        long start = System.nanoTime();
+        for (int i = 0; i != ROUNDS; i++)
+        {
+            gen.generateDerivedParameters(keySize);
+        }
+        return (System.nanoTime() - start) / ROUNDS / 1000000;
+    }
+
+    private static void argon2(ExecutorService executor, byte[] password, byte[] salt, int lanes)
+    {
+        Argon2Parameters parameters = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+            .withVersion(Argon2Parameters.ARGON2_VERSION_13)
+            .withIterations(3)
+            .withMemoryAsKB(64 * 1024)
+            .withParallelism(lanes)
+            .withSalt(salt)
+            .build();
+
+        Argon2BytesGenerator sequential = new Argon2BytesGenerator();
+        Argon2BytesGenerator parallel = new Argon2BytesGenerator(executor);
+
+        sequential.init(parameters);
+        parallel.init(parameters);
+
+        byte[] out = new byte[32];
+
+        // warm up
+        for (int i = 0; i != 2; i++)
+        {
+            sequential.generateBytes(password, out);
+            parallel.generateBytes(password, out);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i != ROUNDS; i++)
+        {
+            sequential.generateBytes(password, out);
+        }
+        long sequentialTime = (System.nanoTime() - start) / ROUNDS / 1000000;
+
+        start = System.nanoTime();
+        for (int i = 0; i != ROUNDS; i++)
+        {
+            parallel.generateBytes(password, out);
+        }
+        long parallelTime = (System.nanoTime() - start) / ROUNDS / 1000000;
+
+        System.out.println(lanes + " lanes                    sequential: " + sequentialTime + " ms  on executor: " + parallelTime + " ms");
+    }
+}
@@ -1,6 +1,8 @@
 package org.bouncycastle.crypto.test;
 
 import java.io.ByteArrayInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.bouncycastle.asn1.ASN1InputStream;
 import org.bouncycastle.asn1.ASN1OctetString;
@@ -12,7 +14,12 @@
 import org.bouncycastle.asn1.pkcs.RC2CBCParameter;
 import org.bouncycastle.crypto.BufferedBlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.ExtendedDigest;
 import org.bouncycastle.crypto.PBEParametersGenerator;
+import org.bouncycastle.crypto.digests.SHA1Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA512Digest;
 import org.bouncycastle.crypto.engines.DESEngine;
 import org.bouncycastle.crypto.engines.DESedeEngine;
 import org.bouncycastle.crypto.engines.RC2Engine;
@@ -254,6 +261,149 @@ public void performTest()
         {
             fail("192 (60000) test failed");
         }
+
+        preparedKeyTest();
+        executorTest();
+    }
+
+    /*
+     * HMACs over Memoable digests are keyed from a prepared password key, others are initialised
+     * with the password each time, so compare the two.
+     */
+    private void preparedKeyTest()
+    {
+        int[] passwordLengths = { 0, 1, 8, 63, 64, 65, 127, 128, 129, 300 };
+        int[] iterationCounts = { 1, 2, 3, 100 };
+        byte[] salt = Hex.decode("a5a5a5a5a5a5a5a5a5a5a5a5a5a5a5a5");
+
+        for (int p = 0; p != passwordLengths.length; p++)
+        {
+            byte[] password = new byte[passwordLengths[p]];
+            for (int i = 0; i != password.length; i++)
+            {
+                password[i] = (byte)(i * 7 + p);
+            }
+
+            for (int c = 0; c != iterationCounts.length; c++)
+            {
+                compare(new SHA256Digest(), new NonMemoableDigest(new SHA256Digest()), password, salt, iterationCounts[c], 520);
+                compare(new SHA512Digest(), new NonMemoableDigest(new SHA512Digest()), password, salt, iterationCounts[c], 1032);
+            }
+        }
+    }
+
+    private void executorTest()
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try
+        {
+            Digest[] digests = { new SHA1Digest(), new SHA256Digest(), new SHA512Digest(), new SHA256Digest() {} };
+            byte[] password = PBEParametersGenerator.PKCS5PasswordToBytes("password".toCharArray());
+            byte[] salt = Hex.decode("1234567878563412");
+
+            for (int d = 0; d != digests.length; d++)
+            {
+                int blockBits = digests[d].getDigestSize() * 8;
+                int[] keySizes = { 64, blockBits, blockBits + 8, blockBits * 5 + 24 };
+
+                for (int k = 0; k != keySizes.length; k++)
+                {
+                    PKCS5S2ParametersGenerator generator = new PKCS5S2ParametersGenerator(digests[d]);
+                    generator.init(password, salt, 200);
+                    byte[] expected = ((KeyParameter)generator.generateDerivedParameters(keySizes[k])).getKey();
+
+                    generator = new PKCS5S2ParametersGenerator(digests[d], executor);
+                    generator.init(password, salt, 200);
+                    byte[] result = ((KeyParameter)generator.generateDerivedParameters(keySizes[k])).getKey();
+                    if (!areEqual(expected, result))
+                    {
+                        fail("executor test failed: " + digests[d].getAlgorithmName() + " " + keySizes[k]);
+                    }
+
+                    // the second run uses the prepared password key.
+                    result = ((KeyParameter)generator.generateDerivedParameters(keySizes[k])).getKey();
+                    if (!areEqual(expected, result))
+                    {
+                        fail("executor reuse test failed: " + digests[d].getAlgorithmName() + " " + keySizes[k]);
+                    }
+                }
+            }
+
+            PKCS5S2ParametersGenerator generator = new PKCS5S2ParametersGenerator(new SHA1Digest(), executor);
+            generator.init(PBEParametersGenerator.PKCS5PasswordToBytes(
+                "All n-entities must communicate with other n-entities via n-1 entiteeheehees".toCharArray()), salt, 500);
+            if (!areEqual(((KeyParameter)generator.generateDerivedParameters(192)).getKey(), Hex.decode("6a8970bf68c92caea84a8df28510858607126380cc47ab2d")))
+            {
+                fail("192 executor test failed");
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void compare(Digest memoable, Digest nonMemoable, byte[] password, byte[] salt, int iterationCount, int keySize)
+    {
+        PKCS5S2ParametersGenerator generator = new PKCS5S2ParametersGenerator(memoable);
+        generator.init(password, salt, iterationCount);
+        byte[] result = ((KeyParameter)generator.generateDerivedParameters(keySize)).getKey();
+
+        generator = new PKCS5S2ParametersGenerator(nonMemoable);
+        generator.init(password, salt, iterationCount);
+        byte[] expected = ((KeyParameter)generator.generateDerivedParameters(keySize)).getKey();
+
+        if (!areEqual(expected, result))
+        {
+            fail("prepared key " + memoable.getAlgorithmName() + " failed: " + password.length + "/" + iterationCount);
+        }
+    }
+
+    private static class NonMemoableDigest
+        implements ExtendedDigest
+    {
+        private final ExtendedDigest digest;
+
+        NonMemoableDigest(ExtendedDigest digest)
+        {
+            this.digest = digest;
+        }
+
+        public String getAlgorithmName()
+        {
+            return digest.getAlgorithmName();
+        }
+
+        public int getDigestSize()
+        {
+            return digest.getDigestSize();
+        }
+
+        public int getByteLength()
+        {
+            return digest.getByteLength();
+        }
+
+        public void update(byte in)
+        {
+            digest.update(in);
+        }
+
+        public void update(byte[] in, int inOff, int len)
+        {
+            digest.update(in, inOff, len);
+        }
+
+        public int doFinal(byte[] out, int outOff)
+        {
+            return digest.doFinal(out, outOff);
+        }
+
+        public void reset()
+        {
+            digest.reset();
+        }
     }
 
     public static void main(
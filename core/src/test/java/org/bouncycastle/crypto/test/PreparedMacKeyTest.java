@@ -0,0 +1,285 @@
+package org.bouncycastle.crypto.test;
+
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.digests.Blake2bDigest;
+import org.bouncycastle.crypto.digests.SHA1Digest;
+import org.bouncycastle.crypto.digests.SHA224Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.generators.HKDFBytesGenerator;
+import org.bouncycastle.crypto.generators.PKCS5S2ParametersGenerator;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.macs.KMAC;
+import org.bouncycastle.crypto.macs.PreparedMacKey;
+import org.bouncycastle.crypto.params.HKDFParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.Memoable;
+import org.bouncycastle.util.MemoableResetException;
+import org.bouncycastle.util.Strings;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Test Memoable HMAC and KMAC and the PreparedMacKey built on them.
+ */
+public class PreparedMacKeyTest
+    extends SimpleTest
+{
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "PreparedMacKey";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        hmacCopyTest(new SHA256Digest(), 16);
+        hmacCopyTest(new SHA512Digest(), 300);
+        kmacCopyTest();
+
+        preparedKeyTest(new HMac(new SHA256Digest()), new HMac(new SHA256Digest()));
+        preparedKeyTest(new KMAC(256, Strings.toByteArray("test")), new KMAC(256, Strings.toByteArray("test")));
+        threadTest();
+
+        pbkdf2Test();
+        hkdfTest();
+
+        try
+        {
+            new PreparedMacKey(new org.bouncycastle.crypto.macs.CMac(new org.bouncycastle.crypto.engines.AESEngine()), new KeyParameter(new byte[16]));
+            fail("no exception");
+        }
+        catch (IllegalArgumentException e)
+        {
+            isEquals("MAC AES/CBC is not Memoable", e.getMessage());
+        }
+
+        try
+        {
+            new PreparedMacKey(new HMac(new Blake2bDigest()), new KeyParameter(new byte[16]));
+            fail("no exception");
+        }
+        catch (IllegalArgumentException e)
+        {
+            isEquals("MAC BLAKE2b/HMAC is not Memoable", e.getMessage());
+        }
+
+        try
+        {
+            new PreparedMacKey(new HMac(new SHA256Digest()), new KeyParameter(new byte[16])).initMac(new HMac(new SHA224Digest()));
+            fail("no exception");
+        }
+        catch (MemoableResetException e)
+        {
+            isEquals("cannot reset from a different HMAC type", e.getMessage());
+        }
+
+        try
+        {
+            new PreparedMacKey(new HMac(new SHA256Digest()), new KeyParameter(new byte[16])).initMac(new KMAC(128, null));
+            fail("no exception");
+        }
+        catch (MemoableResetException e)
+        {
+            // expected
+        }
+    }
+
+    private void hmacCopyTest(Digest digest, int keySize)
+    {
+        byte[] key = new byte[keySize];
+        byte[] data = new byte[150];
+        random.nextBytes(key);
+        random.nextBytes(data);
+
+        HMac hMac = new HMac(digest);
+        PreparedMacKey prepared = new PreparedMacKey(hMac, new KeyParameter(key));
+        byte[] expected = doFinal(hMac, data, 0);
+
+        // the prepared key is not affected by later use of the MAC it was prepared with.
+        hMac.update(data, 0, 70);
+        Mac copy = prepared.createMac();
+        isTrue(areEqual(expected, doFinal(copy, data, 0)));
+
+        // ... and the copy is left keyed.
+        isTrue(areEqual(expected, doFinal(copy, data, 0)));
+
+        // reset another HMAC to the key, including part way through a message under another key.
+        HMac other = new HMac((Digest)((Memoable)digest).copy());
+        other.init(new KeyParameter(new byte[10]));
+        other.update(data, 0, 5);
+        prepared.initMac(other);
+        isTrue(areEqual(expected, doFinal(other, data, 0)));
+    }
+
+    private void kmacCopyTest()
+    {
+        byte[] key = new byte[32];
+        byte[] data = new byte[400];
+        random.nextBytes(key);
+        random.nextBytes(data);
+
+        KMAC kmac = new KMAC(128, Strings.toByteArray("copy"));
+        kmac.init(new KeyParameter(key));
+        byte[] expected = doFinal(kmac, data, 0);
+
+        kmac.update(data, 0, 200);
+        KMAC copy = (KMAC)kmac.copy();
+        copy.update(data, 200, 200);
+        isTrue(areEqual(expected, doFinal(copy, new byte[0], 0)));
+        isTrue(areEqual(expected, doFinal(copy, data, 0)));
+
+        KMAC other = new KMAC(128, Strings.toByteArray("copy"));
+        other.reset(kmac);
+        other.update(data, 200, 200);
+        isTrue(areEqual(expected, doFinal(other, new byte[0], 0)));
+    }
+
+    private void preparedKeyTest(Mac mac, Mac other)
+    {
+        byte[] key = new byte[32];
+        byte[] data = new byte[100];
+        random.nextBytes(key);
+        random.nextBytes(data);
+
+        other.init(new KeyParameter(key));
+        byte[] expected = doFinal(other, data, 0);
+
+        PreparedMacKey prepared = new PreparedMacKey(mac, new KeyParameter(key));
+        isEquals(mac.getAlgorithmName(), prepared.getAlgorithmName());
+        isEquals(mac.getMacSize(), prepared.getMacSize());
+
+        // the MAC passed in is left keyed.
+        isTrue(areEqual(expected, doFinal(mac, data, 0)));
+
+        for (int i = 0; i != 3; i++)
+        {
+            isTrue(areEqual(expected, doFinal(prepared.createMac(), data, 0)));
+        }
+
+        other.init(new KeyParameter(new byte[16]));
+        other.update(data, 0, 10);
+        prepared.initMac(other);
+        isTrue(areEqual(expected, doFinal(other, data, 0)));
+    }
+
+    private void threadTest()
+        throws Exception
+    {
+        final byte[] key = new byte[32];
+        final byte[] data = new byte[1000];
+        random.nextBytes(key);
+        random.nextBytes(data);
+
+        HMac hMac = new HMac(new SHA256Digest());
+        hMac.init(new KeyParameter(key));
+        final byte[] expected = doFinal(hMac, data, 0);
+
+        final PreparedMacKey prepared = new PreparedMacKey(hMac, new KeyParameter(key));
+        final boolean[] failed = new boolean[1];
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t != threads.length; t++)
+        {
+            threads[t] = new Thread()
+            {
+                public void run()
+                {
+                    for (int i = 0; i != 500; i++)
+                    {
+                        Mac mac = prepared.createMac();
+                        if (!areEqual(expected, doFinal(mac, data, 0)))
+                        {
+                            failed[0] = true;
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t != threads.length; t++)
+        {
+            threads[t].join();
+        }
+
+        isTrue("threaded MACs failed", !failed[0]);
+    }
+
+    private void pbkdf2Test()
+    {
+        byte[] password1 = Strings.toByteArray("password");
+        byte[] password2 = Strings.toByteArray("drowssap");
+        byte[] salt = new byte[16];
+        random.nextBytes(salt);
+
+        PKCS5S2ParametersGenerator gen = new PKCS5S2ParametersGenerator(new SHA256Digest());
+
+        byte[][] passwords = { password1, password1, password2, password1, password2, password2 };
+        for (int i = 0; i != passwords.length; i++)
+        {
+            PKCS5S2ParametersGenerator fresh = new PKCS5S2ParametersGenerator(new SHA256Digest());
+            fresh.init(passwords[i], salt, 100 + i);
+            gen.init(passwords[i], salt, 100 + i);
+
+            isTrue("pbkdf2 " + i, areEqual(((KeyParameter)fresh.generateDerivedParameters(520)).getKey(),
+                ((KeyParameter)gen.generateDerivedParameters(520)).getKey()));
+        }
+
+        // changing the password array in place is noticed.
+        byte[] password = Strings.toByteArray("password");
+        gen.init(password, salt, 10);
+        gen.generateDerivedParameters(256);
+        password[0] = 'P';
+        PKCS5S2ParametersGenerator fresh = new PKCS5S2ParametersGenerator(new SHA256Digest());
+        fresh.init(Strings.toByteArray("Password"), salt, 10);
+        isTrue(areEqual(((KeyParameter)fresh.generateDerivedParameters(256)).getKey(),
+            ((KeyParameter)gen.generateDerivedParameters(256)).getKey()));
+    }
+
+    private void hkdfTest()
+    {
+        byte[] salt = new byte[20];
+        random.nextBytes(salt);
+
+        HKDFBytesGenerator gen = new HKDFBytesGenerator(new SHA1Digest());
+
+        byte[][] salts = { null, null, salt, salt, null, new byte[20] };
+        for (int i = 0; i != salts.length; i++)
+        {
+            byte[] ikm = new byte[22 + i];
+            random.nextBytes(ikm);
+            HKDFParameters params = new HKDFParameters(ikm, salts[i], Strings.toByteArray("info" + i));
+
+            HKDFBytesGenerator fresh = new HKDFBytesGenerator(new SHA1Digest());
+            fresh.init(params);
+            byte[] expected = new byte[50];
+            fresh.generateBytes(expected, 0, expected.length);
+
+            gen.init(params);
+            byte[] okm = new byte[50];
+            gen.generateBytes(okm, 0, okm.length);
+
+            isTrue("hkdf " + i, areEqual(expected, okm));
+        }
+    }
+
+    private static byte[] doFinal(Mac mac, byte[] data, int off)
+    {
+        byte[] out = new byte[mac.getMacSize()];
+
+        mac.update(data, off, data.length - off);
+        mac.doFinal(out, 0);
+
+        return out;
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new PreparedMacKeyTest());
+    }
+}
@@ -175,7 +175,8 @@
             new Haraka256DigestTest(),
             new Haraka512DigestTest(),
             new KMACTest(),
-            new SipHash128Test()
+            new SipHash128Test(),
+            new PreparedMacKeyTest()
         };
 
     public static void main(String[] args)
@@ -3,8 +3,11 @@
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.bouncycastle.crypto.generators.SCrypt;
+import org.bouncycastle.crypto.generators.SCryptBufferPool;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Strings;
 import org.bouncycastle.util.encoders.Hex;
@@ -28,6 +31,47 @@ public void performTest()
         testPermutations();
         testParameters();
         testVectors();
+        testExecutorAndBufferPool();
+    }
+
+    public void testExecutorAndBufferPool()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        try
+        {
+            SCryptBufferPool pool = new SCryptBufferPool(1024 * 1024);
+            byte[] P = Strings.toByteArray("password");
+            byte[] S = Strings.toByteArray("NaCl");
+
+            int[][] params = { { 2, 1, 1 }, { 16, 1, 4 }, { 1024, 8, 16 }, { 1024, 2, 3 }, { 4096, 4, 2 } };
+            for (int i = 0; i != params.length; i++)
+            {
+                int N = params[i][0], r = params[i][1], p = params[i][2];
+                byte[] expected = SCrypt.generate(P, S, N, r, p, 64);
+
+                isTrue("executor " + i, areEqual(expected, SCrypt.generate(P, S, N, r, p, 64, executor, null)));
+                isTrue("pool " + i, areEqual(expected, SCrypt.generate(P, S, N, r, p, 64, null, pool)));
+                isTrue("both " + i, areEqual(expected, SCrypt.generate(P, S, N, r, p, 64, executor, pool)));
+                // the pooled buffers come back zeroed and get reused.
+                isTrue("both again " + i, areEqual(expected, SCrypt.generate(P, S, N, r, p, 64, executor, pool)));
+
+                isTrue("pool too large " + i, pool.getPooledSize() <= 1024 * 1024);
+            }
+
+            isTrue("pool empty", pool.getPooledSize() != 0);
+            pool.clear();
+            isTrue("pool not cleared", pool.getPooledSize() == 0);
+
+            SCryptBufferPool noPool = new SCryptBufferPool(0);
+            isTrue(areEqual(SCrypt.generate(P, S, 1024, 8, 2, 32), SCrypt.generate(P, S, 1024, 8, 2, 32, null, noPool)));
+            isTrue("zero size pool", noPool.getPooledSize() == 0);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
     }
 
     public void testParameters()
@@ -113,6 +113,9 @@ private void makeMaps() {
 
     private InputStream bsStream;
 
+    private byte[] range;
+    private int rangePos;
+
     private boolean streamEnd = false;
 
     private int currentChar = -1;
@@ -148,6 +151,77 @@ public CBZip2InputStream(InputStream zStream)
         setupBlock();
     }
 
+    /*
+     * a decoder for single blocks on behalf of a parallel stream.
+     */
+    CBZip2InputStream(int blockSize100k) {
+        setDecompressStructureSizes(blockSize100k);
+    }
+
+    /**
+     * Decode a single block, which must take up exactly rangeBits bits at
+     * the start of data, as the range between two block markers found by a
+     * parallel stream.
+     *
+     * @return the decoded block.
+     * @throws IOException if the range does not hold exactly one block, or
+     * the block's CRC does not match.
+     */
+    byte[] decodeBlock(byte[] data, long rangeBits) throws IOException {
+        range = data;
+        rangePos = 0;
+        bsLive = 0;
+        bsBuff = 0;
+        streamEnd = false;
+
+        try {
+            initBlock();
+            setupBlock();
+
+            byte[] out = new byte[last + 1];
+            int outLen = 0;
+            int c;
+
+            while ((c = read()) >= 0) {
+                if (outLen == out.length) {
+                    byte[] tmp = new byte[out.length * 2];
+                    System.arraycopy(out, 0, tmp, 0, outLen);
+                    out = tmp;
+                }
+                out[outLen++] = (byte)c;
+            }
+
+            if ((long)rangePos * 8 - bsLive != rangeBits) {
+                throw new IOException("block does not fill its range");
+            }
+            if (computedBlockCRC != storedBlockCRC) {
+                throw new IOException("block CRC mismatch");
+            }
+
+            if (outLen == out.length) {
+                return out;
+            }
+
+            byte[] tmp = new byte[outLen];
+            System.arraycopy(out, 0, tmp, 0, outLen);
+            return tmp;
+        } catch (RuntimeException e) {
+            // a range cut short by a false marker can fail in all sorts of ways.
+            IOException ioe = new IOException("corrupted block: " + e);
+            ioe.initCause(e);
+            throw ioe;
+        } finally {
+            range = null;
+        }
+    }
+
+    /**
+     * Return the CRC of the last block decoded by decodeBlock().
+     */
+    int getBlockCRC() {
+        return computedBlockCRC;
+    }
+
     public int read() {
         if (streamEnd) {
             return -1;
@@ -236,6 +310,18 @@ private void initBlock() {
         currentState = START_BLOCK_STATE;
     }
 
+    private void nextBlock() {
+        if (range != null) {
+            // decoding a single block for a parallel stream.
+            computedBlockCRC = mCrc.getFinalCRC();
+            streamEnd = true;
+            return;
+        }
+        endBlock();
+        initBlock();
+        setupBlock();
+    }
+
     private void endBlock() {
         computedBlockCRC = mCrc.getFinalCRC();
         /* A bad CRC is considered a fatal error. */
@@ -289,13 +375,23 @@ private void bsSetStream(InputStream f) {
         bsBuff = 0;
     }
 
+    private int bsReadByte() throws IOException {
+        if (range != null) {
+            if (rangePos == range.length) {
+                throw new IllegalStateException("block overrun");
+            }
+            return range[rangePos++] & 0xff;
+        }
+        return bsStream.read();
+    }
+
     private int bsR(int n) {
         int v;
         while (bsLive < n) {
             int zzi;
             char thech = 0;
             try {
-                thech = (char) bsStream.read();
+                thech = (char) bsReadByte();
             } catch (IOException e) {
                 compressedStreamEOF();
             }
@@ -517,7 +613,7 @@ private void getAndMoveToFrontDecode() {
                             int zzi;
                             char thech = 0;
                             try {
-                                thech = (char) bsStream.read();
+                                thech = (char) bsReadByte();
                             } catch (IOException e) {
                                 compressedStreamEOF();
                             }
@@ -572,7 +668,7 @@ private void getAndMoveToFrontDecode() {
                                         int zzi;
                                         char thech = 0;
                                         try {
-                                            thech = (char) bsStream.read();
+                                            thech = (char) bsReadByte();
                                         } catch (IOException e) {
                                             compressedStreamEOF();
                                         }
@@ -655,7 +751,7 @@ private void getAndMoveToFrontDecode() {
                                     int zzi;
                                     char thech = 0;
                                     try {
-                                        thech = (char) bsStream.read();
+                                        thech = (char) bsReadByte();
                                     } catch (IOException e) {
                                         compressedStreamEOF();
                                     }
@@ -730,9 +826,7 @@ private void setupRandPartA() {
             currentState = RAND_PART_B_STATE;
             mCrc.updateCRC(ch2);
         } else {
-            endBlock();
-            initBlock();
-            setupBlock();
+            nextBlock();
         }
     }
 
@@ -747,9 +841,7 @@ private void setupNoRandPartA() {
             currentState = NO_RAND_PART_B_STATE;
             mCrc.updateCRC(ch2);
         } else {
-            endBlock();
-            initBlock();
-            setupBlock();
+            nextBlock();
         }
     }
 
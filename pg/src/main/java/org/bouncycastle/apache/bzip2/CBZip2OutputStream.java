@@ -24,8 +24,16 @@
 
 package org.bouncycastle.apache.bzip2;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * An output stream that compresses into the BZip2 format (with the file
@@ -36,6 +44,13 @@
  * TODO:    Update to BZip2 1.0.1
  * <b>NB:</b> note this class has been modified to add a leading BZ to the
  * start of the BZIP2 stream to make it compatible with other PGP programs.
+ * <p>
+ * If an Executor is passed in, each block is sorted and Huffman coded by a
+ * task on the executor while the next block is being filled, and the coded
+ * blocks are spliced into the output in order - the output is the same as
+ * that of the single threaded stream. Each block in progress needs its own
+ * set of sort structures, about 11MB for a 900k block.
+ * </p>
  */
 public class CBZip2OutputStream extends OutputStream implements BZip2Constants {
     protected static final int SETMASK = (1 << 21);
@@ -43,6 +58,9 @@ public class CBZip2OutputStream extends OutputStream implements BZip2Constants {
     protected static final int GREATER_ICOST = 15;
     protected static final int LESSER_ICOST = 0;
     protected static final int SMALL_THRESH = 20;
+
+    // each block in progress holds its own sort structures, so only a few are allowed by default.
+    private static final int DEFAULT_MAX_PENDING_BLOCKS = 4;
     protected static final int DEPTH_THRESH = 10;
 
     /*
@@ -283,11 +301,50 @@ public CBZip2OutputStream(OutputStream inStream) throws IOException {
 
     public CBZip2OutputStream(OutputStream inStream, int inBlockSize)
         throws IOException {
+        this(inStream, inBlockSize, null);
+    }
+
+    /**
+     * Create a stream which compresses blocks in parallel on executor, with
+     * up to one block in progress per available processor, but no more than
+     * four.
+     *
+     * @param inStream the stream to write the compressed data to.
+     * @param inBlockSize the block size, in units of 100k.
+     * @param executor the executor to compress blocks on, null to compress
+     * them on the calling thread.
+     */
+    public CBZip2OutputStream(OutputStream inStream, int inBlockSize,
+                              Executor executor)
+        throws IOException {
+        this(inStream, inBlockSize, executor,
+            Math.max(2, Math.min(DEFAULT_MAX_PENDING_BLOCKS, Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * Create a stream which compresses blocks in parallel on executor.
+     *
+     * @param inStream the stream to write the compressed data to.
+     * @param inBlockSize the block size, in units of 100k.
+     * @param executor the executor to compress blocks on, null to compress
+     * them on the calling thread.
+     * @param maxPendingBlocks the maximum number of blocks to have in
+     * progress at once.
+     */
+    public CBZip2OutputStream(OutputStream inStream, int inBlockSize,
+                              Executor executor, int maxPendingBlocks)
+        throws IOException {
+        if (maxPendingBlocks < 1) {
+            throw new IllegalArgumentException("maxPendingBlocks must be positive");
+        }
+
         block = null;
         quadrant = null;
         zptr = null;
         ftab = null;
 
+        this.executor = executor;
+
         inStream.write('B');
         inStream.write('Z');
 
@@ -301,11 +358,29 @@ public CBZip2OutputStream(OutputStream inStream, int inBlockSize)
             inBlockSize = 1;
         }
         blockSize100k = inBlockSize;
-        allocateCompressStructures();
+        if (executor != null) {
+            // the sorting is done by the block compressors.
+            block = newBlock();
+            this.maxPendingBlocks = maxPendingBlocks;
+        } else {
+            allocateCompressStructures();
+        }
         initialize();
         initBlock();
     }
 
+    /*
+     * a compressor for single blocks on behalf of a parallel stream.
+     */
+    private CBZip2OutputStream(int inBlockSize) {
+        workFactor = 50;
+        blockSize100k = inBlockSize;
+        allocateCompressStructures();
+        block = null;
+        finished = true;
+        closed = true;
+    }
+
     /**
      *
      * modified by Oliver Merkel, 010128
@@ -407,6 +482,9 @@ public void finish() throws IOException {
         }
         currentChar = -1;
         endBlock();
+        while (!pendingBlocks.isEmpty()) {
+            writePendingBlock();
+        }
         endCompression();
         finished = true;
         flush();
@@ -434,6 +512,141 @@ private void initialize() throws IOException {
 
     private int allowableBlockSize;
 
+    private Executor executor;
+    private int maxPendingBlocks;
+    private final LinkedList pendingBlocks = new LinkedList();
+    private final LinkedList freeBlocks = new LinkedList();
+    private final LinkedList compressors = new LinkedList();
+
+    private char[] newBlock() {
+        synchronized (freeBlocks) {
+            if (!freeBlocks.isEmpty()) {
+                return (char[])freeBlocks.removeFirst();
+            }
+        }
+        return new char[baseBlockSize * blockSize100k + 1 + NUM_OVERSHOOT_BYTES];
+    }
+
+    /*
+     * hand the block just filled to a compressor on the executor, and start
+     * a new one. Blocks are written out in order as they complete.
+     */
+    private void queueBlock() throws IOException {
+        final char[] data = block;
+        final int dataLast = last;
+        final boolean[] dataInUse = new boolean[256];
+        final int dataCRC = blockCRC;
+
+        System.arraycopy(inUse, 0, dataInUse, 0, 256);
+
+        FutureTask task = new FutureTask(new Callable() {
+            public Object call() throws Exception {
+                CBZip2OutputStream compressor = null;
+                synchronized (compressors) {
+                    if (!compressors.isEmpty()) {
+                        compressor = (CBZip2OutputStream)compressors.removeFirst();
+                    }
+                }
+                if (compressor == null) {
+                    compressor = new CBZip2OutputStream(blockSize100k);
+                }
+
+                try {
+                    return compressor.compressBlock(data, dataLast, dataInUse, dataCRC);
+                } finally {
+                    compressor.block = null;
+                    synchronized (compressors) {
+                        compressors.addLast(compressor);
+                    }
+                    synchronized (freeBlocks) {
+                        freeBlocks.addLast(data);
+                    }
+                }
+            }
+        });
+
+        pendingBlocks.addLast(task);
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+
+        block = newBlock();
+
+        while (pendingBlocks.size() > maxPendingBlocks) {
+            writePendingBlock();
+        }
+    }
+
+    private static class CompressedBlock {
+        final int bits;
+        final byte[] data;
+
+        CompressedBlock(int bits, byte[] data) {
+            this.bits = bits;
+            this.data = data;
+        }
+    }
+
+    /*
+     * compress a block for a parallel stream, returning the bits produced.
+     */
+    private CompressedBlock compressBlock(char[] data, int dataLast,
+                                   boolean[] dataInUse, int dataCRC)
+        throws IOException {
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+
+        block = data;
+        last = dataLast;
+        System.arraycopy(dataInUse, 0, inUse, 0, 256);
+        blockCRC = dataCRC;
+
+        bsSetStream(bOut);
+        compressBlock();
+
+        int bits = bytesOut * 8 + bsLive;
+        bsFinishedWithStream();
+
+        return new CompressedBlock(bits, bOut.toByteArray());
+    }
+
+    private void writePendingBlock() throws IOException {
+        FutureTask task = (FutureTask)pendingBlocks.removeFirst();
+        CompressedBlock result;
+
+        // if no thread has picked the task up yet, do it here.
+        task.run();
+
+        try {
+            result = (CompressedBlock)task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for block");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw new IllegalStateException(cause.toString());
+        }
+
+        int bits = result.bits;
+        byte[] data = result.data;
+        int i = 0;
+
+        for (; bits >= 8; bits -= 8) {
+            bsW(8, data[i++] & 0xff);
+        }
+        if (bits > 0) {
+            bsW(bits, (data[i] & 0xff) >>> (8 - bits));
+        }
+    }
+
     private void initBlock() {
         //        blockNo++;
         mCrc.initialiseCRC();
@@ -453,6 +666,15 @@ private void endBlock() throws IOException {
         combinedCRC = (combinedCRC << 1) | (combinedCRC >>> 31);
         combinedCRC ^= blockCRC;
 
+        if (executor != null) {
+            queueBlock();
+            return;
+        }
+
+        compressBlock();
+    }
+
+    private void compressBlock() throws IOException {
         /* sort the block and establish posn of original string */
         doReversibleTransformation();
 
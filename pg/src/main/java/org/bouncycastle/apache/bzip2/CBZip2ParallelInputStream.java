@@ -0,0 +1,533 @@
+package org.bouncycastle.apache.bzip2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An input stream that decompresses from the BZip2 format (with the leading
+ * BZ used in OpenPGP) decoding several blocks at once on an Executor.
+ * <p>
+ * Block boundaries are found ahead of decoding by scanning the compressed data
+ * for the 48 bit block and end of stream markers at every bit offset. The bits
+ * between two markers are handed to a task to decode as a block, and the
+ * decoded blocks are returned in order. As a marker can turn up by chance
+ * inside compressed data, a block is only accepted if it fills the bits
+ * between its markers exactly and its CRC checks out - if not, the second
+ * marker is taken to be false and the block is decoded again from the same
+ * start, up to the next marker. The combined CRC of the stream is checked at
+ * the end. Unlike {@link CBZip2InputStream}, a corrupted stream results in an
+ * IOException.
+ * </p>
+ */
+public class CBZip2ParallelInputStream
+    extends InputStream
+    implements BZip2Constants
+{
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long EOS_MAGIC = 0x177245385090L;
+    private static final long MAGIC_MASK = 0xffffffffffffL;
+
+    private final InputStream in;
+    private final Executor executor;
+    private final int maxPendingBlocks;
+
+    private int blockSize100k;
+    private long maxBlockBits;
+
+    // compressed data from byte windowBase of the stream (after the header) on.
+    private byte[] window = new byte[1 << 16];
+    private int windowLen;
+    private long windowBase;
+    private boolean inputEnd;
+
+    private long scanned;
+    private long shiftReg;
+    private final LinkedList markers = new LinkedList();
+
+    private long confirmed;
+    private long rangeStart;
+    private boolean endSubmitted;
+    private final LinkedList pendingBlocks = new LinkedList();
+    private final LinkedList decoders = new LinkedList();
+
+    private int combinedCRC;
+    private boolean streamEnd;
+
+    private byte[] block;
+    private int blockPos;
+
+    /**
+     * Create a stream decoding blocks on executor, with up to one block in
+     * progress per available processor.
+     *
+     * @param in the stream of compressed data.
+     * @param executor the executor to decode blocks on.
+     */
+    public CBZip2ParallelInputStream(InputStream in, Executor executor)
+        throws IOException
+    {
+        this(in, executor, Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Create a stream decoding blocks on executor.
+     *
+     * @param in the stream of compressed data.
+     * @param executor the executor to decode blocks on.
+     * @param maxPendingBlocks the maximum number of blocks to have in progress at once.
+     */
+    public CBZip2ParallelInputStream(InputStream in, Executor executor, int maxPendingBlocks)
+        throws IOException
+    {
+        if (maxPendingBlocks < 1)
+        {
+            throw new IllegalArgumentException("maxPendingBlocks must be positive");
+        }
+
+        this.in = in;
+        this.executor = executor;
+        this.maxPendingBlocks = maxPendingBlocks;
+
+        int b = in.read();
+        int z = in.read();
+        if (b != 'B' && z != 'Z')
+        {
+            throw new IOException("Not a BZIP2 marked stream");
+        }
+
+        int h = in.read();
+        int size = in.read();
+        if (h != 'h' || size < '1' || size > '9')
+        {
+            streamEnd = true;
+            return;
+        }
+
+        blockSize100k = size - '0';
+        // no block can code to anywhere near this, so a longer range is not a block.
+        maxBlockBits = (4L * baseBlockSize * blockSize100k + 65536) * 8;
+
+        Marker first = nextMarker(-1);
+        if (first == null || first.bit != 0)
+        {
+            throw new IOException("bad block header in BZIP2 stream");
+        }
+    }
+
+    public int read()
+        throws IOException
+    {
+        if (block == null || blockPos == block.length)
+        {
+            if (!nextBlock())
+            {
+                return -1;
+            }
+        }
+
+        return block[blockPos++] & 0xff;
+    }
+
+    public int read(byte[] b, int off, int len)
+        throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+
+        if (block == null || blockPos == block.length)
+        {
+            if (!nextBlock())
+            {
+                return -1;
+            }
+        }
+
+        int count = Math.min(len, block.length - blockPos);
+
+        System.arraycopy(block, blockPos, b, off, count);
+        blockPos += count;
+
+        return count;
+    }
+
+    public int available()
+    {
+        return (block == null) ? 0 : block.length - blockPos;
+    }
+
+    public void close()
+        throws IOException
+    {
+        streamEnd = true;
+        block = null;
+        pendingBlocks.clear();
+        in.close();
+    }
+
+    private boolean nextBlock()
+        throws IOException
+    {
+        for (;;)
+        {
+            if (streamEnd)
+            {
+                return false;
+            }
+
+            submitBlocks();
+
+            if (pendingBlocks.isEmpty())
+            {
+                throw new IOException("unexpected end of BZIP2 stream");
+            }
+
+            PendingBlock pending = (PendingBlock)pendingBlocks.removeFirst();
+            byte[] decoded = null;
+
+            // if no thread has picked the task up yet, do it here.
+            pending.task.run();
+
+            try
+            {
+                decoded = (byte[])pending.task.get();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted waiting for block");
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException)cause;
+                }
+                if (cause instanceof Error)
+                {
+                    throw (Error)cause;
+                }
+                // IOException - the range didn't hold a block.
+            }
+
+            if (decoded == null)
+            {
+                rejectMarker(pending.end);
+                continue;
+            }
+
+            confirmed = pending.end;
+            combinedCRC = ((combinedCRC << 1) | (combinedCRC >>> 31)) ^ pending.crc;
+            discardMarkers();
+
+            if (pending.endOfStream)
+            {
+                int storedCRC = (int)readBits(confirmed + 48, 32);
+                if (storedCRC != combinedCRC)
+                {
+                    throw new IOException("BZIP2 stream CRC mismatch");
+                }
+                streamEnd = true;
+            }
+
+            block = decoded;
+            blockPos = 0;
+
+            if (decoded.length != 0)
+            {
+                return true;
+            }
+        }
+    }
+
+    /*
+     * the marker at bit has turned out not to be one - forget about it, and
+     * everything decoded past it, and start again from the last good block.
+     */
+    private void rejectMarker(long bit)
+        throws IOException
+    {
+        for (Iterator it = markers.iterator(); it.hasNext();)
+        {
+            if (((Marker)it.next()).bit == bit)
+            {
+                it.remove();
+                break;
+            }
+        }
+
+        for (Iterator it = pendingBlocks.iterator(); it.hasNext();)
+        {
+            ((PendingBlock)it.next()).task.cancel(false);
+        }
+        pendingBlocks.clear();
+
+        rangeStart = confirmed;
+        endSubmitted = false;
+    }
+
+    private void submitBlocks()
+        throws IOException
+    {
+        while (pendingBlocks.size() < maxPendingBlocks && !endSubmitted)
+        {
+            // a marker overlapping the one at the start of the range can't be real.
+            Marker next = nextMarker(rangeStart + 47);
+
+            if (next == null)
+            {
+                return;
+            }
+
+            if (next.bit - rangeStart > maxBlockBits)
+            {
+                throw new IOException("corrupted BZIP2 block");
+            }
+
+            final byte[] data = extractBits(rangeStart, next.bit);
+            final long bits = next.bit - rangeStart;
+            final PendingBlock pending = new PendingBlock(next.bit, next.endOfStream);
+
+            pending.task = new FutureTask(new Callable()
+            {
+                public Object call()
+                    throws Exception
+                {
+                    CBZip2InputStream decoder = takeDecoder();
+
+                    try
+                    {
+                        byte[] decoded = decoder.decodeBlock(data, bits);
+
+                        pending.crc = decoder.getBlockCRC();
+
+                        return decoded;
+                    }
+                    finally
+                    {
+                        synchronized (decoders)
+                        {
+                            decoders.addLast(decoder);
+                        }
+                    }
+                }
+            });
+
+            pendingBlocks.addLast(pending);
+
+            try
+            {
+                executor.execute(pending.task);
+            }
+            catch (RejectedExecutionException e)
+            {
+                pending.task.run();
+            }
+
+            rangeStart = next.bit;
+            endSubmitted = next.endOfStream;
+        }
+    }
+
+    private CBZip2InputStream takeDecoder()
+    {
+        synchronized (decoders)
+        {
+            if (!decoders.isEmpty())
+            {
+                return (CBZip2InputStream)decoders.removeFirst();
+            }
+        }
+
+        return new CBZip2InputStream(blockSize100k);
+    }
+
+    /*
+     * return the first marker after bit, scanning more of the input if needed,
+     * or null if the input runs out first.
+     */
+    private Marker nextMarker(long bit)
+        throws IOException
+    {
+        for (;;)
+        {
+            for (Iterator it = markers.iterator(); it.hasNext();)
+            {
+                Marker marker = (Marker)it.next();
+
+                if (marker.bit > bit)
+                {
+                    return marker;
+                }
+            }
+
+            if (!scanMore())
+            {
+                return null;
+            }
+        }
+    }
+
+    private boolean scanMore()
+        throws IOException
+    {
+        if (windowBase + windowLen == scanned)
+        {
+            if (inputEnd || !fillWindow())
+            {
+                return false;
+            }
+        }
+
+        long end = windowBase + windowLen;
+
+        for (; scanned < end; scanned++)
+        {
+            shiftReg = (shiftReg << 8) | (window[(int)(scanned - windowBase)] & 0xff);
+
+            if (scanned < 5)
+            {
+                continue;
+            }
+
+            for (int s = 7; s >= 0; s--)
+            {
+                long value = (shiftReg >>> s) & MAGIC_MASK;
+
+                if (value == BLOCK_MAGIC || value == EOS_MAGIC)
+                {
+                    long bit = (scanned + 1) * 8 - s - 48;
+
+                    if (bit >= 0)
+                    {
+                        markers.addLast(new Marker(bit, value == EOS_MAGIC));
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private boolean fillWindow()
+        throws IOException
+    {
+        // drop anything before the last block confirmed, it won't be needed again.
+        int discard = (int)(confirmed / 8 - windowBase);
+        if (discard > 0)
+        {
+            System.arraycopy(window, discard, window, 0, windowLen - discard);
+            windowLen -= discard;
+            windowBase += discard;
+        }
+
+        if (windowLen == window.length)
+        {
+            byte[] tmp = new byte[window.length * 2];
+            System.arraycopy(window, 0, tmp, 0, windowLen);
+            window = tmp;
+        }
+
+        int len = in.read(window, windowLen, window.length - windowLen);
+        if (len < 0)
+        {
+            inputEnd = true;
+            return false;
+        }
+
+        windowLen += len;
+
+        return true;
+    }
+
+    private void discardMarkers()
+    {
+        while (!markers.isEmpty() && ((Marker)markers.getFirst()).bit < confirmed)
+        {
+            markers.removeFirst();
+        }
+    }
+
+    /*
+     * copy the bits from start to end into a new array, aligned to the start of it.
+     */
+    private byte[] extractBits(long start, long end)
+    {
+        int from = (int)(start / 8 - windowBase);
+        int shift = (int)(start % 8);
+        byte[] data = new byte[(int)((end - start + 7) / 8)];
+        int avail = windowLen - from;
+
+        for (int i = 0; i != data.length; i++)
+        {
+            int b = window[from + i] << shift;
+            if (shift != 0 && i + 1 < avail)
+            {
+                b |= (window[from + i + 1] & 0xff) >>> (8 - shift);
+            }
+            data[i] = (byte)b;
+        }
+
+        return data;
+    }
+
+    private long readBits(long start, int count)
+        throws IOException
+    {
+        while (windowBase + windowLen < (start + count + 7) / 8)
+        {
+            if (inputEnd || !fillWindow())
+            {
+                throw new IOException("unexpected end of BZIP2 stream");
+            }
+        }
+
+        long value = 0;
+        for (int i = 0; i != count; i++)
+        {
+            long bit = start + i;
+            int b = window[(int)(bit / 8 - windowBase)] >> (7 - (int)(bit % 8));
+
+            value = (value << 1) | (b & 1);
+        }
+
+        return value;
+    }
+
+    private static class Marker
+    {
+        final long bit;
+        final boolean endOfStream;
+
+        Marker(long bit, boolean endOfStream)
+        {
+            this.bit = bit;
+            this.endOfStream = endOfStream;
+        }
+    }
+
+    private static class PendingBlock
+    {
+        final long end;
+        final boolean endOfStream;
+
+        FutureTask task;
+        volatile int crc;
+
+        PendingBlock(long end, boolean endOfStream)
+        {
+            this.end = end;
+            this.endOfStream = endOfStream;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.bouncycastle.bcpg;
+
+/**
+ * Basic tags for AEAD algorithms (RFC 4880bis).
+ */
+public interface AEADAlgorithmTags
+{
+    /** EAX mode. */
+    public static final int EAX = 1;
+
+    /** OCB mode (RFC 7253). */
+    public static final int OCB = 2;
+}
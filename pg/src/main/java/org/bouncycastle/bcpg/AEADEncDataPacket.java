@@ -0,0 +1,151 @@
+package org.bouncycastle.bcpg;
+
+import java.io.IOException;
+
+import org.bouncycastle.util.Arrays;
+
+/**
+ * An AEAD encrypted data packet (RFC 4880bis). The encrypted data is a series of chunks, each
+ * authenticated separately, followed by a final authentication tag covering the whole message.
+ */
+public class AEADEncDataPacket
+    extends InputStreamPacket
+    implements AEADAlgorithmTags
+{
+    public static final int VERSION_1 = 1;
+
+    private final int version;
+    private final int algorithm;
+    private final int aeadAlgorithm;
+    private final int chunkSize;
+    private final byte[] iv;
+
+    AEADEncDataPacket(
+        BCPGInputStream    in)
+        throws IOException
+    {
+        super(in);
+
+        version = in.read();
+        if (version != VERSION_1)
+        {
+            throw new IOException("unsupported AEAD encrypted data packet version: " + version);
+        }
+
+        algorithm = in.read();
+        aeadAlgorithm = in.read();
+        chunkSize = in.read();
+
+        if (chunkSize < 0)
+        {
+            throw new IOException("unexpected end of AEAD encrypted data packet header");
+        }
+
+        try
+        {
+            iv = new byte[getIVLength(aeadAlgorithm)];
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new IOException(e.getMessage());
+        }
+
+        in.readFully(iv);
+    }
+
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return the symmetric algorithm the data is encrypted with.
+     */
+    public int getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    /**
+     * @return the AEAD mode the data is encrypted with.
+     */
+    public int getAEADAlgorithm()
+    {
+        return aeadAlgorithm;
+    }
+
+    /**
+     * @return the chunk size octet - chunks are 2^(chunkSize + 6) bytes long.
+     */
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * @return the starting IV the nonce for each chunk is derived from.
+     */
+    public byte[] getIV()
+    {
+        return Arrays.clone(iv);
+    }
+
+    /**
+     * @return the associated data common to every chunk of the packet.
+     */
+    public byte[] getAAData()
+    {
+        return createAAData(version, algorithm, aeadAlgorithm, chunkSize);
+    }
+
+    /**
+     * Return the length of the starting IV used with an AEAD algorithm.
+     *
+     * @param aeadAlgorithm the AEAD algorithm.
+     * @return the IV length in bytes.
+     */
+    public static int getIVLength(int aeadAlgorithm)
+    {
+        switch (aeadAlgorithm)
+        {
+        case EAX:
+            return 16;
+        case OCB:
+            return 15;
+        default:
+            throw new IllegalArgumentException("unknown AEAD algorithm: " + aeadAlgorithm);
+        }
+    }
+
+    /**
+     * Return the length in bytes of the chunks described by a chunk size octet.
+     *
+     * @param chunkSize the chunk size octet.
+     * @return 2^(chunkSize + 6).
+     */
+    public static int getChunkLength(int chunkSize)
+    {
+        if (chunkSize < 0 || chunkSize > 16)
+        {
+            throw new IllegalArgumentException("unsupported chunk size: " + chunkSize);
+        }
+
+        return 1 << (chunkSize + 6);
+    }
+
+    /**
+     * Create the associated data common to every chunk of an AEAD encrypted data packet - the
+     * packet tag in new format, followed by the version, algorithm, AEAD algorithm and chunk size.
+     */
+    public static byte[] createAAData(int version, int symAlgorithm, int aeadAlgorithm, int chunkSize)
+    {
+        return new byte[]
+            {
+                (byte)(0xC0 | PacketTags.AEAD_ENC_DATA),
+                (byte)version,
+                (byte)symAlgorithm,
+                (byte)aeadAlgorithm,
+                (byte)chunkSize
+            };
+    }
+}
@@ -6,11 +6,17 @@
 
 import org.bouncycastle.util.StringList;
 import org.bouncycastle.util.Strings;
+import org.bouncycastle.util.io.Streams;
 
 /**
  * reader for Base64 armored objects - read the headers and then start returning
  * bytes when the data is reached. An IOException is thrown if the CRC check
  * fails.
+ * <p>
+ * If the underlying stream supports mark() the body of the armor is decoded a block at a
+ * time by read(byte[], int, int), otherwise it is read a character at a time so that
+ * nothing past the end of the armor is taken from the underlying stream.
+ * </p>
  */
 public class ArmoredInputStream
     extends InputStream
@@ -20,6 +26,8 @@
      */
     private static final byte[] decodingTable;
 
+    private static final int BLOCK_SIZE = 4096;
+
     static
     {
         decodingTable = new byte[128];
@@ -132,6 +140,7 @@ else if (in3 == '=')
     StringList     headerList= Strings.newList();
     int            lastC = 0;
     boolean        isEndOfStream;
+    byte[]         charBuf;
     
     /**
      * Create a stream for reading a PGP armoured message, parsing up to a header 
@@ -485,6 +494,128 @@ else if (c == '-')        // end of record reached
         return c;
     }
     
+    public int read(
+        byte[] b,
+        int    off,
+        int    len)
+        throws IOException
+    {
+        if (off < 0 || len < 0 || off > b.length - len)
+        {
+            throw new IndexOutOfBoundsException();
+        }
+
+        int count = 0;
+
+        while (count < len)
+        {
+            if (!start && !clearText && !crcFound && bufPtr > 2 && len - count >= 3 && in.markSupported())
+            {
+                int n = readBlock(b, off + count, len - count);
+                if (n > 0)
+                {
+                    count += n;
+                    continue;
+                }
+            }
+
+            // headers, clear text, padding and the checksum are all left to read().
+            int c = read();
+            if (c < 0)
+            {
+                return (count == 0) ? -1 : count;
+            }
+
+            b[off + count++] = (byte)c;
+        }
+
+        return count;
+    }
+
+    /**
+     * Decode as many complete groups of 4 characters as are available in the next block of the
+     * underlying stream and fit in len, stopping short of anything read() needs to deal with. Only
+     * the characters making up the groups decoded are consumed.
+     *
+     * @return the number of bytes decoded into b.
+     */
+    private int readBlock(
+        byte[] b,
+        int    off,
+        int    len)
+        throws IOException
+    {
+        int groups = len / 3;
+        int limit = Math.min(BLOCK_SIZE, groups * 5 + 8);
+
+        if (charBuf == null)
+        {
+            charBuf = new byte[BLOCK_SIZE];
+        }
+
+        in.mark(limit);
+
+        int available = in.read(charBuf, 0, limit);
+        int consumed = 0;
+        int outPos = off;
+
+        while (groups > 0)
+        {
+            int pos = consumed;
+
+            // between groups any white space is fine, newlines included as data follows them.
+            while (pos < available
+                && (charBuf[pos] == ' ' || charBuf[pos] == '\t' || charBuf[pos] == '\r' || charBuf[pos] == '\n'))
+            {
+                pos++;
+            }
+
+            int group = 0;
+            int i = 0;
+            while (i < 4 && pos < available)
+            {
+                int c = charBuf[pos++];
+
+                if (c == ' ' || c == '\t')
+                {
+                    continue;
+                }
+
+                int v = (c < 0) ? -1 : decodingTable[c];
+                if (v < 0)
+                {
+                    break;  // '=', a newline or an invalid character
+                }
+
+                group = (group << 6) | v;
+                i++;
+            }
+
+            if (i != 4)
+            {
+                break;
+            }
+
+            b[outPos++] = (byte)(group >>> 16);
+            b[outPos++] = (byte)(group >>> 8);
+            b[outPos++] = (byte)group;
+
+            consumed = pos;
+            groups--;
+        }
+
+        in.reset();
+
+        if (consumed > 0)
+        {
+            Streams.readFully(in, charBuf, 0, consumed);
+        }
+
+        crc.update(b, off, outPos - off);
+
+        return outPos - off;
+    }
+
     public void close()
         throws IOException
     {
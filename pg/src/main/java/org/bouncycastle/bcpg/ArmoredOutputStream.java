@@ -8,6 +8,7 @@
 import java.util.Iterator;
 
 import org.bouncycastle.util.Strings;
+import org.bouncycastle.util.encoders.Base64Encoder;
 
 /**
  * Output stream that writes data in ASCII Armored format.
@@ -22,6 +23,10 @@
 {
     public static final String VERSION_HDR = "Version";
 
+    private static final Base64Encoder encoder = new Base64Encoder();
+
+    private static final int LINE_GROUPS = 16;      // 3 byte groups per line of armor
+
     private static final byte[] encodingTable =
         {
             (byte)'A', (byte)'B', (byte)'C', (byte)'D', (byte)'E', (byte)'F', (byte)'G',
@@ -416,19 +421,126 @@ public void write(
 
         if (bufPtr == 3)
         {
-            encode(out, buf, bufPtr);
-            bufPtr = 0;
-            if ((++chunkCount & 0xf) == 0)
+            encodeBuffer();
+        }
+
+        crc.update(b);
+        buf[bufPtr++] = b & 0xff;
+    }
+
+    public void write(
+        byte[] b,
+        int    off,
+        int    len)
+        throws IOException
+    {
+        if (clearText)
+        {
+            // clear text needs dash escaping, so goes a byte at a time.
+            for (int i = 0; i != len; i++)
             {
-                for (int i = 0; i != nl.length(); i++)
+                this.write(b[off + i]);
+            }
+            return;
+        }
+
+        if (len <= 0)
+        {
+            return;
+        }
+
+        if (start)
+        {
+            // the first byte decides the armor header.
+            this.write(b[off++]);
+            len--;
+        }
+
+        crc.update(b, off, len);
+
+        //
+        // as with write(int) a group of 3 is only encoded once the byte after it arrives, so the
+        // line breaks come out in the same places.
+        //
+        if (bufPtr == 3 && len > 0)
+        {
+            encodeBuffer();
+        }
+
+        while (bufPtr < 3 && len > 0)
+        {
+            buf[bufPtr++] = b[off++] & 0xff;
+            len--;
+        }
+
+        if (len == 0)
+        {
+            return;
+        }
+
+        encodeBuffer();
+
+        // encode all but the last 1 to 3 bytes, which become the pending group.
+        int groups = (len - 1) / 3;
+
+        encodeGroups(b, off, groups);
+
+        off += groups * 3;
+        len -= groups * 3;
+
+        for (int i = 0; i != len; i++)
+        {
+            buf[i] = b[off + i] & 0xff;
+        }
+        bufPtr = len;
+    }
+
+    private void encodeBuffer()
+        throws IOException
+    {
+        encode(out, buf, bufPtr);
+        bufPtr = 0;
+        if ((++chunkCount & 0xf) == 0)
+        {
+            for (int i = 0; i != nl.length(); i++)
+            {
+                out.write(nl.charAt(i));
+            }
+        }
+    }
+
+    private void encodeGroups(
+        byte[] b,
+        int    off,
+        int    groups)
+        throws IOException
+    {
+        byte[] nlBytes = Strings.toByteArray(nl);
+        int lineLength = LINE_GROUPS * 4 + nlBytes.length;
+        byte[] lines = new byte[Math.min(groups / LINE_GROUPS + 1, 64) * lineLength];
+
+        while (groups > 0)
+        {
+            int pos = 0;
+
+            while (groups > 0 && pos + lineLength <= lines.length)
+            {
+                int count = Math.min(groups, LINE_GROUPS - (chunkCount & 0xf));
+
+                pos += encoder.encode(b, off, count * 3, lines, pos);
+                off += count * 3;
+                groups -= count;
+                chunkCount += count;
+
+                if ((chunkCount & 0xf) == 0)
                 {
-                    out.write(nl.charAt(i));
+                    System.arraycopy(nlBytes, 0, lines, pos, nlBytes.length);
+                    pos += nlBytes.length;
                 }
             }
-        }
 
-        crc.update(b);
-        buf[bufPtr++] = b & 0xff;
+            out.write(lines, 0, pos);
+        }
     }
 
     public void flush()
@@ -69,7 +69,15 @@ public int read(
         buf[off] = (byte)nextB;  // May throw NullPointerException...
         next = false;            // ...so only set this afterwards
 
-        return 1;
+        if (len == 1)
+        {
+            return 1;
+        }
+
+        // carry on with the rest of the request, rather than hand back a single byte.
+        int count = in.read(buf, off + 1, len - 1);
+
+        return (count < 0) ? 1 : count + 1;
     }
 
     public void readFully(
@@ -258,6 +266,8 @@ else if (l == 255)
             return new SymmetricEncIntegrityPacket(objStream);
         case MOD_DETECTION_CODE:
             return new ModDetectionCodePacket(objStream);
+        case AEAD_ENC_DATA:
+            return new AEADEncDataPacket(objStream);
         case EXPERIMENTAL_1:
         case EXPERIMENTAL_2:
         case EXPERIMENTAL_3:
@@ -350,6 +360,8 @@ else if (l == 255)
         public int read(byte[] buf, int offset, int len)
             throws IOException
         {
+            int total = 0;
+
             do
             {
                 if (dataLength != 0)
@@ -361,12 +373,21 @@ public int read(byte[] buf, int offset, int len)
                         throw new EOFException("premature end of stream in PartialInputStream");
                     }
                     dataLength -= readLen;
-                    return readLen;
+                    total += readLen;
+
+                    // carry on into the next chunk of a partial packet, rather than return short.
+                    if (readLen == len || dataLength != 0 || !partial)
+                    {
+                        return total;
+                    }
+
+                    offset += readLen;
+                    len -= readLen;
                 }
             }
             while (partial && loadDataLength() >= 0);
 
-            return -1;
+            return (total == 0) ? -1 : total;
         }
 
         public int read()
@@ -17,6 +17,7 @@
     private int     partialBufferLength;
     private int     partialPower;
     private int     partialOffset;
+    private byte[]  lengthBuf = new byte[5];
     
     private static final int    BUF_SIZE_POWER = 16; // 2^16 size buffer on long files
     
@@ -136,16 +137,20 @@ else if (bodyLen <= 8383)
         {
             bodyLen -= 192;
                     
-            out.write((byte)(((bodyLen >> 8) & 0xff) + 192));
-            out.write((byte)bodyLen);
+            lengthBuf[0] = (byte)(((bodyLen >> 8) & 0xff) + 192);
+            lengthBuf[1] = (byte)bodyLen;
+
+            out.write(lengthBuf, 0, 2);
         }
         else
         {
-            out.write(0xff);
-            out.write((byte)(bodyLen >> 24));
-            out.write((byte)(bodyLen >> 16));
-            out.write((byte)(bodyLen >> 8));
-            out.write((byte)bodyLen);
+            lengthBuf[0] = (byte)0xff;
+            lengthBuf[1] = (byte)(bodyLen >> 24);
+            lengthBuf[2] = (byte)(bodyLen >> 16);
+            lengthBuf[3] = (byte)(bodyLen >> 8);
+            lengthBuf[4] = (byte)bodyLen;
+
+            out.write(lengthBuf, 0, 5);
         }
     }
     
@@ -264,12 +269,13 @@ private void writePartial(
             len -= partialBufferLength - partialOffset;
             partialFlush(false);
             
+            // whole chunks can go straight out, there's no need to copy them through the buffer.
             while (len > partialBufferLength)
             {
-                System.arraycopy(buf, off, partialBuffer, 0, partialBufferLength);
+                out.write(0xE0 | partialPower);
+                out.write(buf, off, partialBufferLength);
                 off += partialBufferLength;
                 len -= partialBufferLength;
-                partialFlush(false);
             }
 
             System.arraycopy(buf, off, partialBuffer, 0, len);
@@ -4,9 +4,42 @@
 {
     private static final int CRC24_INIT = 0x0b704ce;
     private static final int CRC24_POLY = 0x1864cfb;
-                                                                                
+
+    /*
+     * TABLE[k][b] is the CRC, from a zero register, of the byte b followed by k zero bytes - this
+     * allows 8 bytes to be folded into the register at a time in the bulk update.
+     */
+    private static final int[][] TABLE = new int[8][256];
+
+    static
+    {
+        for (int b = 0; b != 256; b++)
+        {
+            int crc = b << 16;
+            for (int i = 0; i < 8; i++)
+            {
+                crc <<= 1;
+                if ((crc & 0x1000000) != 0)
+                {
+                    crc ^= CRC24_POLY;
+                }
+            }
+            TABLE[0][b] = crc;
+        }
+
+        for (int k = 1; k != TABLE.length; k++)
+        {
+            for (int b = 0; b != 256; b++)
+            {
+                int crc = TABLE[k - 1][b];
+
+                TABLE[k][b] = ((crc << 8) & 0xffffff) ^ TABLE[0][crc >>> 16];
+            }
+        }
+    }
+
     private int crc = CRC24_INIT;
-                                                                                
+
     public CRC24()
     {
     }
@@ -14,15 +47,46 @@ public CRC24()
     public void update(
         int b)
     {
-        crc ^= b << 16;
-        for (int i = 0; i < 8; i++)
+        crc = ((crc << 8) & 0xffffff) ^ TABLE[0][((crc >>> 16) ^ b) & 0xff];
+    }
+
+    /**
+     * Update the checksum with len bytes from buf, starting at off.
+     *
+     * @param buf the data to add to the checksum.
+     * @param off the offset into buf the data starts at.
+     * @param len the number of bytes to add.
+     */
+    public void update(
+        byte[] buf,
+        int    off,
+        int    len)
+    {
+        int[] t0 = TABLE[0], t1 = TABLE[1], t2 = TABLE[2], t3 = TABLE[3];
+        int[] t4 = TABLE[4], t5 = TABLE[5], t6 = TABLE[6], t7 = TABLE[7];
+        int c = crc;
+        int end = off + len;
+
+        // the 24 bit register lines up with the first 3 bytes of each block of 8.
+        while (end - off >= 8)
         {
-            crc <<= 1;
-            if ((crc & 0x1000000) != 0)
-            {
-                crc ^= CRC24_POLY;
-            }
+            c = t7[((c >>> 16) ^ buf[off]) & 0xff]
+              ^ t6[((c >>> 8) ^ buf[off + 1]) & 0xff]
+              ^ t5[(c ^ buf[off + 2]) & 0xff]
+              ^ t4[buf[off + 3] & 0xff]
+              ^ t3[buf[off + 4] & 0xff]
+              ^ t2[buf[off + 5] & 0xff]
+              ^ t1[buf[off + 6] & 0xff]
+              ^ t0[buf[off + 7] & 0xff];
+            off += 8;
+        }
+
+        while (off < end)
+        {
+            c = ((c << 8) & 0xffffff) ^ t0[((c >>> 16) ^ buf[off++]) & 0xff];
         }
+
+        crc = c;
     }
 
     public int getValue()
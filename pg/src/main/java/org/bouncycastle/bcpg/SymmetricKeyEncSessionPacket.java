@@ -2,7 +2,8 @@
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.Arrays;
+
+import org.bouncycastle.util.Arrays;
 
 /**
  * Basic type for a symmetric encrypted session key packet
@@ -10,9 +11,14 @@
 public class SymmetricKeyEncSessionPacket 
     extends ContainedPacket
 {
+    public static final int VERSION_4 = 4;
+    public static final int VERSION_5 = 5;
+
     private int       version;
     private int       encAlgorithm;
+    private int       aeadAlgorithm;
     private S2K       s2k;
+    private byte[]    iv;
     private byte[]    secKeyData;
     
     public SymmetricKeyEncSessionPacket(
@@ -22,7 +28,27 @@ public SymmetricKeyEncSessionPacket(
         version = in.read();
         encAlgorithm = in.read();
 
-        s2k = new S2K(in);
+        if (version == VERSION_5)
+        {
+            aeadAlgorithm = in.read();
+
+            s2k = new S2K(in);
+
+            try
+            {
+                iv = new byte[AEADEncDataPacket.getIVLength(aeadAlgorithm)];
+            }
+            catch (IllegalArgumentException e)
+            {
+                throw new IOException(e.getMessage());
+            }
+
+            in.readFully(iv);
+        }
+        else
+        {
+            s2k = new S2K(in);
+        }
 
         this.secKeyData = in.readAll();
     }
@@ -32,11 +58,35 @@ public SymmetricKeyEncSessionPacket(
         S2K       s2k,
         byte[]    secKeyData)
     {
-        this.version = 4;
+        this.version = VERSION_4;
         this.encAlgorithm = encAlgorithm;
         this.s2k = s2k;
         this.secKeyData = secKeyData;
     }
+
+    /**
+     * Create a version 5 packet, with the session key encrypted using an AEAD algorithm.
+     *
+     * @param encAlgorithm the symmetric algorithm for the key encryption and the session key.
+     * @param aeadAlgorithm the AEAD algorithm the session key is encrypted with.
+     * @param iv the nonce for the session key encryption.
+     * @param s2k the S2K specifier for the key encryption key.
+     * @param secKeyData the encrypted session key, followed by the authentication tag.
+     */
+    public SymmetricKeyEncSessionPacket(
+        int       encAlgorithm,
+        int       aeadAlgorithm,
+        byte[]    iv,
+        S2K       s2k,
+        byte[]    secKeyData)
+    {
+        this.version = VERSION_5;
+        this.encAlgorithm = encAlgorithm;
+        this.aeadAlgorithm = aeadAlgorithm;
+        this.iv = Arrays.clone(iv);
+        this.s2k = s2k;
+        this.secKeyData = secKeyData;
+    }
     
     /**
      * @return int
@@ -46,6 +96,45 @@ public int getEncAlgorithm()
         return encAlgorithm;
     }
 
+    /**
+     * @return the AEAD algorithm for a version 5 packet, 0 otherwise.
+     */
+    public int getAEADAlgorithm()
+    {
+        return aeadAlgorithm;
+    }
+
+    /**
+     * @return the nonce for the session key encryption in a version 5 packet, null otherwise.
+     */
+    public byte[] getIV()
+    {
+        return Arrays.clone(iv);
+    }
+
+    /**
+     * @return the associated data for the session key encryption in a version 5 packet.
+     */
+    public byte[] getAAData()
+    {
+        return createAAData(version, encAlgorithm, aeadAlgorithm);
+    }
+
+    /**
+     * Create the associated data for the session key encryption in a version 5 packet - the
+     * packet tag in new format, followed by the version, algorithm and AEAD algorithm.
+     */
+    public static byte[] createAAData(int version, int encAlgorithm, int aeadAlgorithm)
+    {
+        return new byte[]
+            {
+                (byte)(0xC0 | SYMMETRIC_KEY_ENC_SESSION),
+                (byte)version,
+                (byte)encAlgorithm,
+                (byte)aeadAlgorithm
+            };
+    }
+
     /**
      * @return S2K
      */
@@ -79,7 +168,17 @@ public void encode(
 
         pOut.write(version);
         pOut.write(encAlgorithm);
-        pOut.writeObject(s2k);
+
+        if (version == VERSION_5)
+        {
+            pOut.write(aeadAlgorithm);
+            pOut.writeObject(s2k);
+            pOut.write(iv);
+        }
+        else
+        {
+            pOut.writeObject(s2k);
+        }
         
         if (secKeyData != null && secKeyData.length > 0)
         {
@@ -0,0 +1,501 @@
+package org.bouncycastle.openpgp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Integers;
+import org.bouncycastle.util.Strings;
+
+/**
+ * Secondary indexes for the key ring collections, mapping the key IDs and fingerprints of every key in a ring,
+ * and the user IDs and e-mail addresses on its master key, to the ID of the ring's master key.
+ * <p>
+ * A collection never changes the index it was built with - adding or removing rings works on a copy, with
+ * the entries in the maps treated as immutable so the copies can share them. Copying the index costs as
+ * much as building it, so when many rings change at once they should be passed in a single call. An entry holds a single Long
+ * ring ID, or a List of them where more than one ring matches, in the order the rings were added. The
+ * substring index over user IDs is only built the first time a partial match is asked for, and from then on
+ * carried through to copies.
+ * </p>
+ */
+class KeyRingIndex
+{
+    private static final int GRAM_LENGTH = 3;
+
+    private final Map keyIDs;
+    private final Map fingerprints;
+    private final Map userIDs;
+    private final Map lowerCaseUserIDs;
+    private final Map emails;
+    private final Map sequences;
+
+    private int nextSequence;
+    private Map substrings;
+
+    KeyRingIndex()
+    {
+        this.keyIDs = new HashMap();
+        this.fingerprints = new HashMap();
+        this.userIDs = new HashMap();
+        this.lowerCaseUserIDs = new HashMap();
+        this.emails = new HashMap();
+        this.sequences = new HashMap();
+        this.nextSequence = 0;
+        this.substrings = null;
+    }
+
+    private KeyRingIndex(KeyRingIndex other)
+    {
+        this.keyIDs = new HashMap(other.keyIDs);
+        this.fingerprints = new HashMap(other.fingerprints);
+        this.userIDs = new HashMap(other.userIDs);
+        this.lowerCaseUserIDs = new HashMap(other.lowerCaseUserIDs);
+        this.emails = new HashMap(other.emails);
+        this.sequences = new HashMap(other.sequences);
+        this.nextSequence = other.nextSequence;
+
+        synchronized (other)
+        {
+            this.substrings = (other.substrings == null) ? null : new HashMap(other.substrings);
+        }
+    }
+
+    /**
+     * Build an index over the rings in the passed in map of master key ID to ring, adding them in the
+     * order given by the passed in list of master key IDs.
+     */
+    static KeyRingIndex build(Map rings, List order)
+    {
+        KeyRingIndex index = new KeyRingIndex();
+
+        for (int i = 0; i != order.size(); i++)
+        {
+            Long ringID = (Long)order.get(i);
+
+            if (!index.sequences.containsKey(ringID))
+            {
+                index.add(ringID, (PGPKeyRing)rings.get(ringID));
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Return a copy of this index with the passed in ring added.
+     */
+    KeyRingIndex with(Long ringID, PGPKeyRing ring)
+    {
+        return with(Collections.singletonList(ringID), Collections.singletonMap(ringID, ring));
+    }
+
+    /**
+     * Return a copy of this index with rings added, in the order given by the passed in list of master
+     * key IDs.
+     *
+     * @param ringIDs the master key IDs of the rings to add.
+     * @param rings a map of master key ID to ring holding at least the rings to add.
+     */
+    KeyRingIndex with(List ringIDs, Map rings)
+    {
+        KeyRingIndex index = new KeyRingIndex(this);
+
+        for (int i = 0; i != ringIDs.size(); i++)
+        {
+            Long ringID = (Long)ringIDs.get(i);
+
+            index.add(ringID, (PGPKeyRing)rings.get(ringID));
+        }
+
+        return index;
+    }
+
+    /**
+     * Return a copy of this index with the passed in ring removed.
+     */
+    KeyRingIndex without(Long ringID, PGPKeyRing ring)
+    {
+        return without(Collections.singletonList(ringID), Collections.singletonMap(ringID, ring));
+    }
+
+    /**
+     * Return a copy of this index with rings removed.
+     *
+     * @param ringIDs the master key IDs of the rings to remove.
+     * @param rings a map of master key ID to ring holding at least the rings to remove.
+     */
+    KeyRingIndex without(List ringIDs, Map rings)
+    {
+        KeyRingIndex index = new KeyRingIndex(this);
+
+        for (int i = 0; i != ringIDs.size(); i++)
+        {
+            Long ringID = (Long)ringIDs.get(i);
+
+            index.remove(ringID, (PGPKeyRing)rings.get(ringID));
+        }
+
+        return index;
+    }
+
+    List getRingsForKeyID(long keyID)
+    {
+        return toList(keyIDs.get(new Long(keyID)));
+    }
+
+    List getRingsForFingerprint(byte[] fingerprint)
+    {
+        return toList(fingerprints.get(new Fingerprint(fingerprint)));
+    }
+
+    /**
+     * Return the rings with a user ID equal to userID - a ring appears once for each matching user ID.
+     */
+    List getRingsForUserID(String userID, boolean ignoreCase)
+    {
+        if (ignoreCase)
+        {
+            return toList(lowerCaseUserIDs.get(Strings.toLowerCase(userID)));
+        }
+
+        return toList(userIDs.get(userID));
+    }
+
+    List getRingsForEmail(String email)
+    {
+        return toList(emails.get(Strings.toLowerCase(email.trim())));
+    }
+
+    /**
+     * Return the rings which might have a user ID containing userID, or null if userID is too short
+     * for the index to narrow things down. The rings returned still need to be checked.
+     */
+    List getCandidatesForSubstring(String userID)
+    {
+        String lowerCaseID = Strings.toLowerCase(userID);
+
+        if (lowerCaseID.length() < GRAM_LENGTH)
+        {
+            return null;
+        }
+
+        Map grams = getSubstrings();
+        Object smallest = null;
+        int smallestSize = Integer.MAX_VALUE;
+
+        // any ring that matches has every gram in userID, so the shortest list of rings will do.
+        for (int i = 0; i <= lowerCaseID.length() - GRAM_LENGTH; i++)
+        {
+            Object entry = grams.get(lowerCaseID.substring(i, i + GRAM_LENGTH));
+
+            if (entry == null)
+            {
+                return Collections.EMPTY_LIST;
+            }
+
+            int size = (entry instanceof Long) ? 1 : ((List)entry).size();
+            if (size < smallestSize)
+            {
+                smallest = entry;
+                smallestSize = size;
+            }
+        }
+
+        return toList(smallest);
+    }
+
+    private synchronized Map getSubstrings()
+    {
+        if (substrings == null)
+        {
+            Map grams = new HashMap();
+
+            for (Iterator it = lowerCaseUserIDs.entrySet().iterator(); it.hasNext();)
+            {
+                Map.Entry entry = (Map.Entry)it.next();
+                List rings = toList(entry.getValue());
+
+                for (int i = 0; i != rings.size(); i++)
+                {
+                    addGrams(grams, (String)entry.getKey(), (Long)rings.get(i));
+                }
+            }
+
+            // the user IDs come out in hash order, so put each gram's rings back in the order they were added.
+            Comparator bySequence = new Comparator()
+            {
+                public int compare(Object o1, Object o2)
+                {
+                    return ((Integer)sequences.get(o1)).compareTo((Integer)sequences.get(o2));
+                }
+            };
+
+            for (Iterator it = grams.values().iterator(); it.hasNext();)
+            {
+                Object entry = it.next();
+
+                if (entry instanceof List)
+                {
+                    Collections.sort((List)entry, bySequence);
+                }
+            }
+
+            substrings = grams;
+        }
+
+        return substrings;
+    }
+
+    private void add(Long ringID, PGPKeyRing ring)
+    {
+        List ringKeyIDs = new ArrayList();
+        List ringFingerprints = new ArrayList();
+        List ringUserIDs = new ArrayList();
+
+        for (Iterator it = ring.getPublicKeys(); it.hasNext();)
+        {
+            PGPPublicKey key = (PGPPublicKey)it.next();
+
+            ringKeyIDs.add(new Long(key.getKeyID()));
+            ringFingerprints.add(key.getFingerprint());
+        }
+
+        for (Iterator it = ring.getPublicKey().getUserIDs(); it.hasNext();)
+        {
+            ringUserIDs.add(it.next());
+        }
+
+        add(ringID, ringKeyIDs, ringFingerprints, ringUserIDs);
+    }
+
+    /**
+     * Add a ring to this index, which must not have been handed to a collection yet.
+     *
+     * @param ringID the ID the ring is known by.
+     * @param ringKeyIDs the Long key IDs of the keys in the ring.
+     * @param ringFingerprints the byte[] fingerprints of the keys in the ring.
+     * @param ringUserIDs the String user IDs on the ring's master key.
+     */
+    void add(Long ringID, List ringKeyIDs, List ringFingerprints, List ringUserIDs)
+    {
+        if (!sequences.containsKey(ringID))
+        {
+            sequences.put(ringID, Integers.valueOf(nextSequence++));
+        }
+
+        for (int i = 0; i != ringKeyIDs.size(); i++)
+        {
+            Long keyID = (Long)ringKeyIDs.get(i);
+            keyIDs.put(keyID, addValue(keyIDs.get(keyID), ringID, true));
+        }
+
+        for (int i = 0; i != ringFingerprints.size(); i++)
+        {
+            Fingerprint fingerprint = new Fingerprint((byte[])ringFingerprints.get(i));
+            fingerprints.put(fingerprint, addValue(fingerprints.get(fingerprint), ringID, true));
+        }
+
+        for (int i = 0; i != ringUserIDs.size(); i++)
+        {
+            String userID = (String)ringUserIDs.get(i);
+            String lowerCaseID = Strings.toLowerCase(userID);
+
+            userIDs.put(userID, addValue(userIDs.get(userID), ringID, false));
+            lowerCaseUserIDs.put(lowerCaseID, addValue(lowerCaseUserIDs.get(lowerCaseID), ringID, false));
+
+            String email = getEmail(lowerCaseID);
+            if (email != null)
+            {
+                emails.put(email, addValue(emails.get(email), ringID, true));
+            }
+
+            if (substrings != null)
+            {
+                addGrams(substrings, lowerCaseID, ringID);
+            }
+        }
+    }
+
+    private void remove(Long ringID, PGPKeyRing ring)
+    {
+        sequences.remove(ringID);
+
+        for (Iterator it = ring.getPublicKeys(); it.hasNext();)
+        {
+            PGPPublicKey key = (PGPPublicKey)it.next();
+
+            removeValue(keyIDs, new Long(key.getKeyID()), ringID);
+            removeValue(fingerprints, new Fingerprint(key.getFingerprint()), ringID);
+        }
+
+        for (Iterator it = ring.getPublicKey().getUserIDs(); it.hasNext();)
+        {
+            String userID = (String)it.next();
+            String lowerCaseID = Strings.toLowerCase(userID);
+
+            removeValue(userIDs, userID, ringID);
+            removeValue(lowerCaseUserIDs, lowerCaseID, ringID);
+
+            String email = getEmail(lowerCaseID);
+            if (email != null)
+            {
+                removeValue(emails, email, ringID);
+            }
+
+            if (substrings != null)
+            {
+                for (int i = 0; i <= lowerCaseID.length() - GRAM_LENGTH; i++)
+                {
+                    removeValue(substrings, lowerCaseID.substring(i, i + GRAM_LENGTH), ringID);
+                }
+            }
+        }
+    }
+
+    private static void addGrams(Map grams, String lowerCaseID, Long ringID)
+    {
+        for (int i = 0; i <= lowerCaseID.length() - GRAM_LENGTH; i++)
+        {
+            String gram = lowerCaseID.substring(i, i + GRAM_LENGTH);
+
+            grams.put(gram, addValue(grams.get(gram), ringID, true));
+        }
+    }
+
+    /**
+     * Return the address from a user ID of the form "Name &lt;address&gt;", or the user ID itself if it
+     * looks like a bare address, null otherwise.
+     */
+    static String getEmail(String userID)
+    {
+        int start = userID.lastIndexOf('<');
+        if (start >= 0)
+        {
+            int end = userID.indexOf('>', start);
+            if (end > start + 1)
+            {
+                return Strings.toLowerCase(userID.substring(start + 1, end).trim());
+            }
+            return null;
+        }
+
+        String id = userID.trim();
+        if (id.indexOf('@') > 0 && id.indexOf(' ') < 0)
+        {
+            return Strings.toLowerCase(id);
+        }
+
+        return null;
+    }
+
+    private static Object addValue(Object entry, Long ringID, boolean unique)
+    {
+        if (entry == null)
+        {
+            return ringID;
+        }
+
+        List rings;
+        if (entry instanceof Long)
+        {
+            if (unique && entry.equals(ringID))
+            {
+                return entry;
+            }
+            rings = new ArrayList(2);
+            rings.add(entry);
+        }
+        else
+        {
+            if (unique && ((List)entry).contains(ringID))
+            {
+                return entry;
+            }
+            rings = new ArrayList((List)entry);
+        }
+
+        rings.add(ringID);
+
+        return rings;
+    }
+
+    private static void removeValue(Map map, Object key, Long ringID)
+    {
+        Object entry = map.get(key);
+
+        if (entry == null)
+        {
+            return;
+        }
+
+        if (entry instanceof Long)
+        {
+            if (entry.equals(ringID))
+            {
+                map.remove(key);
+            }
+            return;
+        }
+
+        List rings = new ArrayList((List)entry);
+        while (rings.remove(ringID))
+        {
+            // remove every occurrence.
+        }
+
+        if (rings.isEmpty())
+        {
+            map.remove(key);
+        }
+        else if (rings.size() == 1)
+        {
+            map.put(key, rings.get(0));
+        }
+        else
+        {
+            map.put(key, rings);
+        }
+    }
+
+    private static List toList(Object entry)
+    {
+        if (entry == null)
+        {
+            return Collections.EMPTY_LIST;
+        }
+        if (entry instanceof Long)
+        {
+            return Collections.singletonList(entry);
+        }
+
+        return (List)entry;
+    }
+
+    private static class Fingerprint
+    {
+        private final byte[] fingerprint;
+        private final int hashCode;
+
+        Fingerprint(byte[] fingerprint)
+        {
+            this.fingerprint = fingerprint;
+            this.hashCode = Arrays.hashCode(fingerprint);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        public boolean equals(Object o)
+        {
+            return o instanceof Fingerprint && Arrays.areEqual(fingerprint, ((Fingerprint)o).fingerprint);
+        }
+    }
+}
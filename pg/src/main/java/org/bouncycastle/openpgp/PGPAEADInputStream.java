@@ -0,0 +1,311 @@
+package org.bouncycastle.openpgp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.bouncycastle.openpgp.operator.PGPAEADCipher;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
+import org.bouncycastle.util.io.Streams;
+
+/**
+ * Decrypts the chunks of an AEAD encrypted data packet body, checking the final authentication tag
+ * at the end of the stream. If an Executor is given, the chunks read ahead of the reader, up to a
+ * fixed number, are decrypted at once as tasks on it.
+ * <p>
+ * The data from a chunk is only returned once the chunk has been authenticated. A chunk failing
+ * authentication, or a stream which is truncated or fails the final tag check, results in an
+ * IOException.
+ * </p>
+ */
+class PGPAEADInputStream
+    extends InputStream
+{
+    private static final int MAX_PENDING = 8;
+
+    private final InputStream in;
+    private final PGPAEADCipher cipher;
+    private final byte[] iv;
+    private final byte[] aaData;
+    private final int chunkLength;
+    private final int tagLength;
+    private final Executor executor;
+
+    private final LinkedList pending = new LinkedList();
+    private final LinkedList free = new LinkedList();
+
+    private final byte[] held;
+    private byte[] finalTag;
+    private long chunkIndex;
+    private long totalBytes;
+    private boolean finished;
+
+    private Chunk current;
+    private int currentOff;
+
+    /**
+     * @param in the packet stream, positioned after the packet header.
+     * @param cipher the cipher for the session key.
+     * @param iv the starting IV from the packet header.
+     * @param aaData the associated data from the packet header.
+     * @param chunkLength the length of a plaintext chunk.
+     * @param executor the executor to decrypt chunks on, null to decrypt on the calling thread.
+     */
+    PGPAEADInputStream(InputStream in, PGPAEADCipher cipher, byte[] iv, byte[] aaData, int chunkLength, Executor executor)
+        throws IOException
+    {
+        this.in = in;
+        this.cipher = cipher;
+        this.iv = Arrays.clone(iv);
+        this.aaData = Arrays.clone(aaData);
+        this.chunkLength = chunkLength;
+        this.tagLength = cipher.getTagLength();
+        this.executor = executor;
+
+        // the last tag length bytes read are held back, as they may turn out to be the final tag.
+        this.held = new byte[tagLength];
+
+        if (Streams.readFully(in, held) != tagLength)
+        {
+            throw new IOException("truncated AEAD encrypted data");
+        }
+    }
+
+    public int read()
+        throws IOException
+    {
+        if (!nextChunk())
+        {
+            return -1;
+        }
+
+        return current.out[currentOff++] & 0xff;
+    }
+
+    public int read(byte[] b, int off, int len)
+        throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+
+        if (!nextChunk())
+        {
+            return -1;
+        }
+
+        int count = Math.min(len, current.outLen - currentOff);
+
+        System.arraycopy(current.out, currentOff, b, off, count);
+        currentOff += count;
+
+        return count;
+    }
+
+    public void close()
+        throws IOException
+    {
+        in.close();
+    }
+
+    /**
+     * Make sure there is decrypted data in the current chunk, returning false at the end of the data.
+     */
+    private boolean nextChunk()
+        throws IOException
+    {
+        while (current == null || currentOff == current.outLen)
+        {
+            if (current != null)
+            {
+                free.addLast(current);
+                current = null;
+            }
+
+            readAhead();
+
+            if (pending.isEmpty())
+            {
+                checkFinalTag();
+
+                return false;
+            }
+
+            current = takeNext();
+            currentOff = 0;
+        }
+
+        return true;
+    }
+
+    private void readAhead()
+        throws IOException
+    {
+        int maxPending = (executor != null) ? MAX_PENDING : 1;
+
+        while (finalTag == null && pending.size() < maxPending)
+        {
+            readChunk();
+        }
+    }
+
+    private void readChunk()
+        throws IOException
+    {
+        final Chunk c = free.isEmpty() ? new Chunk() : (Chunk)free.removeFirst();
+        int fullLength = chunkLength + tagLength;
+
+        System.arraycopy(held, 0, c.data, 0, tagLength);
+
+        int count = tagLength + Streams.readFully(in, c.data, tagLength, chunkLength);
+
+        if (count < fullLength)
+        {
+            // the stream ended in this chunk, so its last bytes are the final tag.
+            c.len = count - tagLength;
+            finalTag = Arrays.copyOfRange(c.data, c.len, count);
+        }
+        else
+        {
+            int heldCount = Streams.readFully(in, held);
+
+            if (heldCount < tagLength)
+            {
+                // the stream ended just after this chunk, with the final tag split across the two.
+                c.len = chunkLength + heldCount;
+                finalTag = Arrays.concatenate(Arrays.copyOfRange(c.data, c.len, fullLength), Arrays.copyOfRange(held, 0, heldCount));
+            }
+            else
+            {
+                c.len = fullLength;
+            }
+        }
+
+        if (c.len == 0)
+        {
+            free.addLast(c);
+            return;
+        }
+
+        if (c.len < tagLength)
+        {
+            throw new IOException("truncated AEAD encrypted data");
+        }
+
+        c.index = chunkIndex++;
+        totalBytes += c.len - tagLength;
+
+        c.task = new FutureTask(new Callable()
+        {
+            public Object call()
+                throws Exception
+            {
+                c.decrypt();
+
+                return null;
+            }
+        });
+
+        pending.addLast(c);
+
+        if (executor != null)
+        {
+            try
+            {
+                executor.execute(c.task);
+            }
+            catch (RejectedExecutionException e)
+            {
+                c.task.run();
+            }
+        }
+    }
+
+    private Chunk takeNext()
+        throws IOException
+    {
+        Chunk c = (Chunk)pending.removeFirst();
+
+        // if no thread has picked the chunk up yet, do it here.
+        c.task.run();
+
+        try
+        {
+            c.task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted decrypting AEAD chunk");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof PGPException)
+            {
+                throw new IOException("exception decrypting AEAD chunk " + c.index + ": " + cause.getMessage());
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new IllegalStateException(cause.toString());
+        }
+
+        c.task = null;
+
+        return c;
+    }
+
+    private void checkFinalTag()
+        throws IOException
+    {
+        if (finished)
+        {
+            return;
+        }
+
+        byte[] aad = Arrays.concatenate(aaData, Pack.longToBigEndian(chunkIndex), Pack.longToBigEndian(totalBytes));
+
+        try
+        {
+            cipher.processChunk(false, PGPAEADOutputStream.getNonce(iv, chunkIndex), aad, finalTag, 0, finalTag.length, new byte[0], 0);
+        }
+        catch (PGPException e)
+        {
+            throw new IOException("exception checking final authentication tag: " + e.getMessage());
+        }
+
+        finished = true;
+    }
+
+    private class Chunk
+    {
+        final byte[] data = new byte[chunkLength + tagLength];
+        final byte[] out = new byte[chunkLength];
+        int len;
+        int outLen;
+        long index;
+        FutureTask task;
+
+        void decrypt()
+            throws PGPException
+        {
+            byte[] aad = Arrays.concatenate(aaData, Pack.longToBigEndian(index));
+
+            outLen = cipher.processChunk(false, PGPAEADOutputStream.getNonce(iv, index), aad, data, 0, len, out, 0);
+        }
+    }
+}
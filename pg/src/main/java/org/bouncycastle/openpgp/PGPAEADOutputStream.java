@@ -0,0 +1,259 @@
+package org.bouncycastle.openpgp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.bouncycastle.openpgp.operator.PGPAEADCipher;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
+
+/**
+ * Encrypts data written to it into the chunks of an AEAD encrypted data packet body, finishing with
+ * the final authentication tag when closed. If an Executor is given, up to a fixed number of chunks
+ * are encrypted at once as tasks on it, and written out in order as they complete.
+ */
+class PGPAEADOutputStream
+    extends OutputStream
+{
+    private static final int MAX_PENDING = 8;
+
+    private final OutputStream out;
+    private final PGPAEADCipher cipher;
+    private final byte[] iv;
+    private final byte[] aaData;
+    private final int chunkLength;
+    private final Executor executor;
+
+    private final LinkedList pending = new LinkedList();
+    private final LinkedList free = new LinkedList();
+
+    private Chunk chunk;
+    private long chunkIndex;
+    private long totalBytes;
+    private boolean closed;
+
+    /**
+     * @param out the packet stream to write the encrypted chunks to.
+     * @param cipher the cipher for the session key.
+     * @param iv the starting IV from the packet header.
+     * @param aaData the associated data from the packet header.
+     * @param chunkLength the length of a plaintext chunk.
+     * @param executor the executor to encrypt chunks on, null to encrypt on the calling thread.
+     */
+    PGPAEADOutputStream(OutputStream out, PGPAEADCipher cipher, byte[] iv, byte[] aaData, int chunkLength, Executor executor)
+    {
+        this.out = out;
+        this.cipher = cipher;
+        this.iv = Arrays.clone(iv);
+        this.aaData = Arrays.clone(aaData);
+        this.chunkLength = chunkLength;
+        this.executor = executor;
+        this.chunk = new Chunk();
+    }
+
+    public void write(int b)
+        throws IOException
+    {
+        checkOpen();
+
+        chunk.data[chunk.len++] = (byte)b;
+
+        if (chunk.len == chunkLength)
+        {
+            submit();
+        }
+    }
+
+    public void write(byte[] b, int off, int len)
+        throws IOException
+    {
+        checkOpen();
+
+        while (len > 0)
+        {
+            int count = Math.min(len, chunkLength - chunk.len);
+
+            System.arraycopy(b, off, chunk.data, chunk.len, count);
+            chunk.len += count;
+            off += count;
+            len -= count;
+
+            if (chunk.len == chunkLength)
+            {
+                submit();
+            }
+        }
+    }
+
+    public void close()
+        throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+
+        closed = true;
+
+        if (chunk.len > 0)
+        {
+            submit();
+        }
+
+        while (!pending.isEmpty())
+        {
+            writeNext();
+        }
+
+        //
+        // the final tag authenticates the chunk count and the total length, so truncation is detected.
+        //
+        byte[] aad = Arrays.concatenate(aaData, Pack.longToBigEndian(chunkIndex), Pack.longToBigEndian(totalBytes));
+        byte[] tag = new byte[cipher.getTagLength()];
+
+        try
+        {
+            cipher.processChunk(true, getNonce(iv, chunkIndex), aad, tag, 0, 0, tag, 0);
+        }
+        catch (PGPException e)
+        {
+            throw new IOException("exception creating final authentication tag: " + e.getMessage());
+        }
+
+        out.write(tag);
+        out.close();
+    }
+
+    private void checkOpen()
+        throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("stream closed");
+        }
+    }
+
+    private void submit()
+        throws IOException
+    {
+        final Chunk c = chunk;
+
+        c.index = chunkIndex++;
+        totalBytes += c.len;
+
+        chunk = free.isEmpty() ? new Chunk() : (Chunk)free.removeFirst();
+
+        c.task = new FutureTask(new Callable()
+        {
+            public Object call()
+                throws Exception
+            {
+                c.encrypt();
+
+                return null;
+            }
+        });
+
+        pending.addLast(c);
+
+        if (executor != null)
+        {
+            try
+            {
+                executor.execute(c.task);
+            }
+            catch (RejectedExecutionException e)
+            {
+                c.task.run();
+            }
+        }
+
+        while (pending.size() > ((executor != null) ? MAX_PENDING : 0))
+        {
+            writeNext();
+        }
+    }
+
+    private void writeNext()
+        throws IOException
+    {
+        Chunk c = (Chunk)pending.removeFirst();
+
+        // if no thread has picked the chunk up yet, do it here.
+        c.task.run();
+
+        try
+        {
+            c.task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted encrypting AEAD chunk");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof PGPException)
+            {
+                throw new IOException("exception encrypting AEAD chunk: " + cause.getMessage());
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new IllegalStateException(cause.toString());
+        }
+
+        out.write(c.out, 0, c.outLen);
+
+        c.len = 0;
+        c.task = null;
+        free.addLast(c);
+    }
+
+    /**
+     * Return the nonce for a chunk - the starting IV with the chunk index exclusive-ORed into its
+     * last 8 bytes.
+     */
+    static byte[] getNonce(byte[] iv, long chunkIndex)
+    {
+        byte[] nonce = Arrays.clone(iv);
+
+        for (int i = 0; i != 8; i++)
+        {
+            nonce[nonce.length - 1 - i] ^= (byte)(chunkIndex >>> (i * 8));
+        }
+
+        return nonce;
+    }
+
+    private class Chunk
+    {
+        final byte[] data = new byte[chunkLength];
+        final byte[] out = new byte[chunkLength + cipher.getTagLength()];
+        int len;
+        int outLen;
+        long index;
+        FutureTask task;
+
+        void encrypt()
+            throws PGPException
+        {
+            byte[] aad = Arrays.concatenate(aaData, Pack.longToBigEndian(index));
+
+            outLen = cipher.processChunk(true, getNonce(iv, index), aad, data, 0, len, out, 0);
+        }
+    }
+}
@@ -4,10 +4,12 @@
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.Executor;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 import org.bouncycastle.apache.bzip2.CBZip2InputStream;
+import org.bouncycastle.apache.bzip2.CBZip2ParallelInputStream;
 import org.bouncycastle.bcpg.BCPGInputStream;
 import org.bouncycastle.bcpg.CompressedDataPacket;
 import org.bouncycastle.bcpg.CompressionAlgorithmTags;
@@ -184,4 +186,35 @@ protected void fill() throws IOException
 
       throw new PGPException("can't recognise compression algorithm: " + this.getAlgorithm());
     }
+
+    /**
+     * Return an input stream that decompresses and returns data in the compressed packet, using
+     * executor to decompress several BZIP2 blocks at once. Other algorithms are decompressed as
+     * for {@link #getDataStream()}.
+     * <p>
+     * Note: unlike the stream returned by getDataStream(), a BZIP2 stream returned by this method
+     * throws an IOException if the compressed data is corrupted.
+     * </p>
+     *
+     * @param executor the executor to decompress blocks on.
+     * @return a stream over the uncompressed data.
+     * @throws PGPException if an error occurs constructing the decompression stream.
+     */
+    public InputStream getDataStream(Executor executor)
+        throws PGPException
+    {
+        if (this.getAlgorithm() == BZIP2)
+        {
+            try
+            {
+                return new CBZip2ParallelInputStream(this.getInputStream(), executor);
+            }
+            catch (IOException e)
+            {
+                throw new PGPException("I/O problem with stream: " + e, e);
+            }
+        }
+
+        return getDataStream();
+    }
 }
@@ -2,6 +2,7 @@
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.Executor;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 
@@ -34,15 +35,21 @@
  * stream is completed by closing the OutputStream obtained from the <code>#open()</code> method, or
  * equivalently invoking {@link #close()} on this generator.
  * </p>
+ * <p>
+ * If the generator is constructed with an Executor, compression runs as a separate
+ * {@link PGPPipelinedOutputStream pipeline stage} from whatever is writing to the stream.
+ * </p>
  */
 public class PGPCompressedDataGenerator
     implements CompressionAlgorithmTags, StreamGenerator
 {
     private int                     algorithm;
     private int                     compression;
+    private Executor                executor;
 
     private OutputStream            dOut;
     private BCPGOutputStream        pkOut;
+    private PGPPipelinedOutputStream pipeOut;
 
     /**
      * Construct a new compressed data generator.
@@ -90,6 +97,25 @@ public PGPCompressedDataGenerator(
         this.compression = compression;
     }
 
+    /**
+     * Construct a new compressed data generator which compresses as a separate pipeline stage.
+     * BZIP2 data is also compressed several blocks at a time on the executor.
+     *
+     * @param algorithm the identifier of the {@link CompressionAlgorithmTags compression algorithm}
+     *            to use.
+     * @param compression the {@link Deflater} compression level to use.
+     * @param executor the executor to run compression on.
+     */
+    public PGPCompressedDataGenerator(
+        int                    algorithm,
+        int                    compression,
+        Executor               executor)
+    {
+        this(algorithm, compression);
+
+        this.executor = executor;
+    }
+
     /**
      * Return an OutputStream which will save the data being written to
      * the compressed object.
@@ -116,7 +142,7 @@ public OutputStream open(
 
         doOpen();
 
-        return new WrappedGeneratorStream(dOut, this);
+        return new WrappedGeneratorStream(getGeneratorStream(), this);
     }
 
     /**
@@ -157,7 +183,7 @@ public OutputStream open(
 
         doOpen();
 
-        return new WrappedGeneratorStream(dOut, this);
+        return new WrappedGeneratorStream(getGeneratorStream(), this);
     }
 
     private void doOpen() throws IOException
@@ -176,7 +202,14 @@ private void doOpen() throws IOException
                 dOut = new SafeDeflaterOutputStream(pkOut, compression, false);
                 break;
             case CompressionAlgorithmTags.BZIP2:
-                dOut = new SafeCBZip2OutputStream(pkOut);
+                if (executor != null)
+                {
+                    dOut = new SafeCBZip2OutputStream(pkOut, executor);
+                }
+                else
+                {
+                    dOut = new SafeCBZip2OutputStream(pkOut);
+                }
                 break;
             default:
                 // Constructor should guard against this possibility
@@ -184,6 +217,18 @@ private void doOpen() throws IOException
         }
     }
 
+    private OutputStream getGeneratorStream()
+    {
+        if (executor != null)
+        {
+            pipeOut = new PGPPipelinedOutputStream(dOut, executor);
+
+            return pipeOut;
+        }
+
+        return dOut;
+    }
+
     /**
      * Close the compressed object - this is equivalent to calling close on the stream
      * returned by the open() method.
@@ -195,6 +240,12 @@ public void close()
     {
         if (dOut != null)
         {
+            if (pipeOut != null)
+            {
+                pipeOut.finish();
+                pipeOut = null;
+            }
+
             if (dOut != pkOut)
             {
                 dOut.close();
@@ -215,6 +266,11 @@ public SafeCBZip2OutputStream(OutputStream output) throws IOException
             super(output);
         }
 
+        public SafeCBZip2OutputStream(OutputStream output, Executor executor) throws IOException
+        {
+            super(output, 9, executor);
+        }
+
         public void close() throws IOException
         {
             finish();
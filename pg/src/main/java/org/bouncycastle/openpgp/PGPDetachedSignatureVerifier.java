@@ -0,0 +1,163 @@
+package org.bouncycastle.openpgp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Verifies signatures over data held in a file, such as a detached signature over a large file.
+ * <p>
+ * Rather than being read through an input stream, the file is memory mapped a window at a time,
+ * and each window is passed to the signature in large blocks. The signature must have been
+ * initialised with the signer's public key first.
+ * </p>
+ */
+public class PGPDetachedSignatureVerifier
+{
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int BLOCK_SIZE = 256 * 1024;
+
+    private final int windowSize;
+
+    /**
+     * Create a verifier mapping 64MB of a file at a time.
+     */
+    public PGPDetachedSignatureVerifier()
+    {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Create a verifier mapping windowSize bytes of a file at a time.
+     *
+     * @param windowSize the number of bytes of a file to map at a time.
+     */
+    public PGPDetachedSignatureVerifier(int windowSize)
+    {
+        if (windowSize <= 0)
+        {
+            throw new IllegalArgumentException("window size must be positive");
+        }
+
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Update a signature with the contents of a file.
+     *
+     * @param signature the initialised signature to update.
+     * @param file the file to read.
+     * @throws IOException if the file cannot be read.
+     */
+    public void update(final PGPSignature signature, File file)
+        throws IOException
+    {
+        process(file, new Updater()
+        {
+            public void update(byte[] block, int off, int len)
+            {
+                signature.update(block, off, len);
+            }
+        });
+    }
+
+    /**
+     * Update a one pass signature with the contents of a file.
+     *
+     * @param signature the initialised one pass signature to update.
+     * @param file the file to read.
+     * @throws IOException if the file cannot be read.
+     */
+    public void update(final PGPOnePassSignature signature, File file)
+        throws IOException
+    {
+        process(file, new Updater()
+        {
+            public void update(byte[] block, int off, int len)
+            {
+                signature.update(block, off, len);
+            }
+        });
+    }
+
+    /**
+     * Verify a signature over the contents of a file.
+     *
+     * @param signature the initialised signature to verify.
+     * @param file the file the signature was made over.
+     * @return true if the signature verifies, false otherwise.
+     * @throws IOException if the file cannot be read.
+     * @throws PGPException if the signature cannot be checked.
+     */
+    public boolean verify(PGPSignature signature, File file)
+        throws IOException, PGPException
+    {
+        update(signature, file);
+
+        return signature.verify();
+    }
+
+    /**
+     * Verify a one pass signature over the contents of a file against the signature which
+     * followed the data.
+     *
+     * @param onePassSignature the initialised one pass signature to verify.
+     * @param signature the signature packet read after the data.
+     * @param file the file holding the signed data.
+     * @return true if the signature verifies, false otherwise.
+     * @throws IOException if the file cannot be read.
+     * @throws PGPException if the signature cannot be checked.
+     */
+    public boolean verify(PGPOnePassSignature onePassSignature, PGPSignature signature, File file)
+        throws IOException, PGPException
+    {
+        update(onePassSignature, file);
+
+        return onePassSignature.verify(signature);
+    }
+
+    private void process(File file, Updater updater)
+        throws IOException
+    {
+        RandomAccessFile raFile = new RandomAccessFile(file, "r");
+
+        try
+        {
+            FileChannel channel = raFile.getChannel();
+            long length = channel.size();
+            byte[] block = new byte[(int)Math.min(BLOCK_SIZE, Math.min(windowSize, length))];
+
+            for (long pos = 0; pos < length; pos += windowSize)
+            {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(windowSize, length - pos));
+
+                while (window.hasRemaining())
+                {
+                    int len = Math.min(block.length, window.remaining());
+
+                    window.get(block, 0, len);
+
+                    try
+                    {
+                        updater.update(block, 0, len);
+                    }
+                    catch (PGPRuntimeOperationException e)
+                    {
+                        throw new IOException("unable to update signature: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        finally
+        {
+            raFile.close();
+        }
+    }
+
+    private interface Updater
+    {
+        void update(byte[] block, int off, int len);
+    }
+}
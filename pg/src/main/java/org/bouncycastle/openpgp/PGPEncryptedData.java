@@ -4,14 +4,20 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.Executor;
 
+import org.bouncycastle.bcpg.AEADEncDataPacket;
+import org.bouncycastle.bcpg.BCPGInputStream;
 import org.bouncycastle.bcpg.InputStreamPacket;
 import org.bouncycastle.bcpg.SymmetricEncIntegrityPacket;
 import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.openpgp.operator.PGPAEADCipher;
+import org.bouncycastle.openpgp.operator.PGPAEADDataDecryptorFactory;
 import org.bouncycastle.openpgp.operator.PGPDataDecryptor;
 import org.bouncycastle.openpgp.operator.PGPDataDecryptorFactory;
 import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
 import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.io.Streams;
 
 /**
  * A PGP encrypted data object.
@@ -26,6 +32,7 @@
     protected class TruncatedStream extends InputStream
     {
         int[]         lookAhead = new int[22];
+        int[]         spare = new int[22];
         int           bufPtr;
         InputStream   in;
 
@@ -63,6 +70,55 @@ public int read()
             return -1;
         }
 
+        public int read(byte[] buf, int off, int len)
+            throws IOException
+        {
+            int count = in.read(buf, off, len);
+
+            if (count <= 0)
+            {
+                return count;
+            }
+
+            if (count < lookAhead.length)
+            {
+                for (int i = 0; i != count; i++)
+                {
+                    int c = lookAhead[bufPtr];
+
+                    lookAhead[bufPtr] = buf[off + i] & 0xff;
+                    bufPtr = (bufPtr + 1) % lookAhead.length;
+
+                    buf[off + i] = (byte)c;
+                }
+            }
+            else
+            {
+                // the last bytes read become the look ahead, everything else moves up behind the old one.
+                int[] next = spare;
+                int tail = off + count - next.length;
+
+                for (int i = 0; i != next.length; i++)
+                {
+                    next[i] = buf[tail + i] & 0xff;
+                }
+
+                System.arraycopy(buf, off, buf, off + lookAhead.length, count - lookAhead.length);
+
+                for (int i = 0; i != lookAhead.length; i++)
+                {
+                    buf[off + i] = (byte)lookAhead[bufPtr];
+                    bufPtr = (bufPtr + 1) % lookAhead.length;
+                }
+
+                spare = lookAhead;
+                lookAhead = next;
+                bufPtr = 0;
+            }
+
+            return count;
+        }
+
         int[] getLookAhead()
         {
             int[]    tmp = new int[lookAhead.length];
@@ -114,14 +170,27 @@ public InputStream getInputStream()
      */
     public boolean isIntegrityProtected()
     {
-        return (encData instanceof SymmetricEncIntegrityPacket);
+        return (encData instanceof SymmetricEncIntegrityPacket) || isAEAD();
+    }
+
+    /**
+     * Checks whether the packet is an AEAD encrypted data packet.
+     *
+     * @return <code>true</code> if the data is AEAD encrypted, in which case each chunk of it is
+     *         authenticated as it is read.
+     */
+    public boolean isAEAD()
+    {
+        return (encData instanceof AEADEncDataPacket);
     }
 
     /**
      * Verifies the integrity of the packet against the modification detection code associated with
      * it in the stream.
      * <p>
-     * Note: This can only be called after the message has been read.
+     * Note: This can only be called after the message has been read. For AEAD encrypted data the
+     * chunks, and the final authentication tag, are checked as the data is read, with an
+     * IOException thrown on failure, so this just reads any remaining data.
      * </p>
      * @return <code>true</code> if the message verifies, <code>false</code> otherwise.
      * @throws PGPException if the message is not {@link #isIntegrityProtected() integrity
@@ -138,9 +207,11 @@ public boolean verify()
         //
         // make sure we are at the end.
         //
-        while (encStream.read() >= 0)
+        Streams.drain(encStream);
+
+        if (isAEAD())
         {
-            // do nothing
+            return true;
         }
 
         //
@@ -163,4 +234,38 @@ public boolean verify()
 
         return Arrays.constantTimeAreEqual(digest, streamDigest);
     }
+
+    InputStream getAEADDataStream(PGPDataDecryptorFactory dataDecryptorFactory, int keyAlgorithm, byte[] sessionKey, Executor executor)
+        throws PGPException
+    {
+        AEADEncDataPacket aeadData = (AEADEncDataPacket)encData;
+
+        if (keyAlgorithm != aeadData.getAlgorithm())
+        {
+            throw new PGPException("session key algorithm does not match AEAD encrypted data: " + keyAlgorithm);
+        }
+
+        if (!(dataDecryptorFactory instanceof PGPAEADDataDecryptorFactory))
+        {
+            throw new PGPException("data decryptor factory does not support AEAD encrypted data");
+        }
+
+        try
+        {
+            PGPAEADCipher cipher = ((PGPAEADDataDecryptorFactory)dataDecryptorFactory).createAEADCipher(aeadData.getAEADAlgorithm(), aeadData.getAlgorithm(), sessionKey);
+
+            encStream = new BCPGInputStream(new PGPAEADInputStream(aeadData.getInputStream(), cipher, aeadData.getIV(),
+                aeadData.getAAData(), AEADEncDataPacket.getChunkLength(aeadData.getChunkSize()), executor));
+
+            return encStream;
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new PGPException("unsupported AEAD encrypted data: " + e.getMessage(), e);
+        }
+        catch (IOException e)
+        {
+            throw new PGPException("Exception starting decryption", e);
+        }
+    }
 }
@@ -5,12 +5,16 @@
 import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
+import org.bouncycastle.bcpg.AEADEncDataPacket;
 import org.bouncycastle.bcpg.BCPGOutputStream;
 import org.bouncycastle.bcpg.HashAlgorithmTags;
 import org.bouncycastle.bcpg.PacketTags;
 import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
 import org.bouncycastle.openpgp.operator.PBEKeyEncryptionMethodGenerator;
+import org.bouncycastle.openpgp.operator.PGPAEADCipher;
+import org.bouncycastle.openpgp.operator.PGPAEADDataEncryptorBuilder;
 import org.bouncycastle.openpgp.operator.PGPDataEncryptor;
 import org.bouncycastle.openpgp.operator.PGPDataEncryptorBuilder;
 import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
@@ -38,6 +42,16 @@
  * the encrypted object stream is completed by closing the OutputStream obtained from the
  * <code>open()</code> method, or equivalently invoking {@link #close()} on this generator.
  * </p>
+ * <p>
+ * If the generator is constructed with an Executor, encryption and integrity hashing run as a
+ * separate {@link PGPPipelinedOutputStream pipeline stage} from whatever is writing to the stream.
+ * </p>
+ * <p>
+ * If the data encryptor builder is configured for AEAD, an AEAD encrypted data packet (RFC 4880bis)
+ * is produced instead of a CFB encrypted one. The data is encrypted in separately authenticated
+ * chunks, and if the generator is constructed with an Executor several chunks are encrypted at once
+ * on it. PBE methods produce version 5 symmetric key encrypted session key packets in this case.
+ * </p>
  */
 public class PGPEncryptedDataGenerator
     implements SymmetricKeyAlgorithmTags, StreamGenerator
@@ -74,6 +88,8 @@
     private PGPDigestCalculator digestCalc;
     private OutputStream            genOut;
     private PGPDataEncryptorBuilder dataEncryptorBuilder;
+    private Executor                executor;
+    private PGPPipelinedOutputStream pipeOut;
 
     private List            methods = new ArrayList();
     private int             defAlgorithm;
@@ -104,6 +120,20 @@ public PGPEncryptedDataGenerator(PGPDataEncryptorBuilder encryptorBuilder, boole
         this.rand = dataEncryptorBuilder.getSecureRandom();
     }
 
+    /**
+     * Constructor for a generator which encrypts as a separate pipeline stage.
+     *
+     * @param encryptorBuilder builder to create actual data encryptor.
+     * @param oldFormat        PGP 2.6.x compatibility required.
+     * @param executor         the executor to run encryption and integrity hashing on.
+     */
+    public PGPEncryptedDataGenerator(PGPDataEncryptorBuilder encryptorBuilder, boolean oldFormat, Executor executor)
+    {
+        this(encryptorBuilder, oldFormat);
+
+        this.executor = executor;
+    }
+
     /**
      * Add a key encryption method to be used to encrypt the session data associated with this
      * encrypted data.
@@ -185,6 +215,12 @@ private OutputStream open(
         defAlgorithm = dataEncryptorBuilder.getAlgorithm();
         rand = dataEncryptorBuilder.getSecureRandom();
 
+        if (dataEncryptorBuilder instanceof PGPAEADDataEncryptorBuilder
+            && ((PGPAEADDataEncryptorBuilder)dataEncryptorBuilder).getAEADAlgorithm() != 0)
+        {
+            return openAEAD((PGPAEADDataEncryptorBuilder)dataEncryptorBuilder, out, length, buffer);
+        }
+
         if (methods.size() == 1)
         {
 
@@ -267,6 +303,82 @@ private OutputStream open(
 
             genOut.write(inLineIv);
 
+            if (executor != null)
+            {
+                pipeOut = new PGPPipelinedOutputStream(genOut, executor);
+
+                return new WrappedGeneratorStream(pipeOut, this);
+            }
+
+            return new WrappedGeneratorStream(genOut, this);
+        }
+        catch (Exception e)
+        {
+            throw new PGPException("Exception creating cipher", e);
+        }
+    }
+
+    private OutputStream openAEAD(
+        PGPAEADDataEncryptorBuilder aeadEncryptorBuilder,
+        OutputStream    out,
+        long            length,
+        byte[]          buffer)
+        throws IOException, PGPException
+    {
+        int aeadAlgorithm = aeadEncryptorBuilder.getAEADAlgorithm();
+        int chunkSize = aeadEncryptorBuilder.getChunkSize();
+
+        //
+        // session keys for AEAD are always random, a PBE method gets a version 5 packet with the
+        // session key encrypted under the key derived from the pass phrase.
+        //
+        byte[] key = PGPUtil.makeRandomKey(defAlgorithm, rand);
+        byte[] sessionInfo = createSessionInfo(defAlgorithm, key);
+
+        for (int i = 0; i != methods.size(); i++)
+        {
+            PGPKeyEncryptionMethodGenerator m = (PGPKeyEncryptionMethodGenerator)methods.get(i);
+
+            if (m instanceof PBEKeyEncryptionMethodGenerator)
+            {
+                pOut.writePacket(((PBEKeyEncryptionMethodGenerator)m).generateAEAD(aeadEncryptorBuilder, key));
+            }
+            else
+            {
+                pOut.writePacket(m.generate(defAlgorithm, sessionInfo));
+            }
+        }
+
+        try
+        {
+            PGPAEADCipher cipher = aeadEncryptorBuilder.buildAEADCipher(key);
+            int chunkLength = AEADEncDataPacket.getChunkLength(chunkSize);
+            byte[] iv = new byte[AEADEncDataPacket.getIVLength(aeadAlgorithm)];
+
+            rand.nextBytes(iv);
+
+            if (buffer == null)
+            {
+                //
+                // the header, the data, a tag for each chunk and the final tag.
+                //
+                long chunks = (length + chunkLength - 1) / chunkLength;
+
+                pOut = new ClosableBCPGOutputStream(out, PacketTags.AEAD_ENC_DATA, 4 + iv.length + length + (chunks + 1) * cipher.getTagLength());
+            }
+            else
+            {
+                pOut = new ClosableBCPGOutputStream(out, PacketTags.AEAD_ENC_DATA, buffer);
+            }
+
+            byte[] aaData = AEADEncDataPacket.createAAData(AEADEncDataPacket.VERSION_1, defAlgorithm, aeadAlgorithm, chunkSize);
+
+            pOut.write(aaData, 1, aaData.length - 1);
+            pOut.write(iv);
+
+            digestCalc = null;
+            genOut = cOut = new PGPAEADOutputStream(pOut, cipher, iv, aaData, chunkLength, executor);
+
             return new WrappedGeneratorStream(genOut, this);
         }
         catch (Exception e)
@@ -348,6 +460,12 @@ public void close()
     {
         if (cOut != null)
         {
+            if (pipeOut != null)
+            {
+                pipeOut.finish();
+                pipeOut = null;
+            }
+
             if (digestCalc != null)
             {
                 //
@@ -25,6 +25,10 @@
  * <li>{@link PacketTags#PUBLIC_KEY_ENC_SESSION} - produces a {@link PGPPublicKeyEncryptedData}</li>
  * </ul>
  * <p>
+ * The encrypted data packet may be CFB encrypted, with or without an integrity check, or AEAD
+ * encrypted ({@link PacketTags#AEAD_ENC_DATA}).
+ * </p>
+ * <p>
  * All of the objects returned from this holder share a reference to the same encrypted data input
  * stream, which can only be consumed once.
  * </p>
@@ -2,13 +2,17 @@
 
 import java.io.EOFException;
 import java.io.InputStream;
+import java.util.concurrent.Executor;
 
+import org.bouncycastle.bcpg.AEADEncDataPacket;
 import org.bouncycastle.bcpg.BCPGInputStream;
 import org.bouncycastle.bcpg.InputStreamPacket;
 import org.bouncycastle.bcpg.SymmetricEncIntegrityPacket;
 import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
 import org.bouncycastle.bcpg.SymmetricKeyEncSessionPacket;
 import org.bouncycastle.openpgp.operator.PBEDataDecryptorFactory;
+import org.bouncycastle.openpgp.operator.PGPAEADCipher;
+import org.bouncycastle.openpgp.operator.PGPAEADDataDecryptorFactory;
 import org.bouncycastle.openpgp.operator.PGPDataDecryptor;
 import org.bouncycastle.util.io.TeeInputStream;
 
@@ -53,11 +57,45 @@ public int getSymmetricAlgorithm(
         throws PGPException
     {
         byte[]       key = dataDecryptorFactory.makeKeyFromPassPhrase(keyData.getEncAlgorithm(), keyData.getS2K());
-        byte[]       sessionData = dataDecryptorFactory.recoverSessionData(keyData.getEncAlgorithm(), key, keyData.getSecKeyData());
+        byte[]       sessionData = recoverSessionData(dataDecryptorFactory, key);
 
         return sessionData[0];
     }
 
+    private byte[] recoverSessionData(
+        PBEDataDecryptorFactory dataDecryptorFactory,
+        byte[]                  key)
+        throws PGPException
+    {
+        if (keyData.getVersion() == SymmetricKeyEncSessionPacket.VERSION_5)
+        {
+            //
+            // the session key is AEAD encrypted, and always uses the packet's algorithm.
+            //
+            if (!(dataDecryptorFactory instanceof PGPAEADDataDecryptorFactory))
+            {
+                throw new PGPException("data decryptor factory does not support AEAD encrypted session keys");
+            }
+
+            PGPAEADCipher cipher = ((PGPAEADDataDecryptorFactory)dataDecryptorFactory).createAEADCipher(keyData.getAEADAlgorithm(), keyData.getEncAlgorithm(), key);
+            byte[]        secKeyData = keyData.getSecKeyData();
+
+            if (secKeyData.length <= cipher.getTagLength())
+            {
+                throw new PGPException("truncated AEAD encrypted session key");
+            }
+
+            byte[]        sessionData = new byte[secKeyData.length - cipher.getTagLength() + 1];
+
+            sessionData[0] = (byte)keyData.getEncAlgorithm();
+            cipher.processChunk(false, keyData.getIV(), keyData.getAAData(), secKeyData, 0, secKeyData.length, sessionData, 1);
+
+            return sessionData;
+        }
+
+        return dataDecryptorFactory.recoverSessionData(keyData.getEncAlgorithm(), key, keyData.getSecKeyData());
+    }
+
     /**
      * Open an input stream which will provide the decrypted data protected by this object.
      * 
@@ -70,6 +108,26 @@ public int getSymmetricAlgorithm(
     public InputStream getDataStream(
         PBEDataDecryptorFactory dataDecryptorFactory)
         throws PGPException
+    {
+        return getDataStream(dataDecryptorFactory, null);
+    }
+
+    /**
+     * Open an input stream which will provide the decrypted data protected by this object, with
+     * the chunks of AEAD encrypted data decrypted as tasks on an Executor.
+     *
+     * @param dataDecryptorFactory decryptor factory to use to recover the session data and provide
+     *            the stream.
+     * @param executor the executor to decrypt AEAD chunks on, null to decrypt on the calling
+     *            thread. Data which is not AEAD encrypted is always decrypted on the calling thread.
+     * @return the resulting decrypted input stream, probably containing a sequence of PGP data
+     *         objects.
+     * @throws PGPException if the session data cannot be recovered or the stream cannot be created.
+     */
+    public InputStream getDataStream(
+        PBEDataDecryptorFactory dataDecryptorFactory,
+        Executor                executor)
+        throws PGPException
     {
         try
         {
@@ -77,11 +135,16 @@ public InputStream getDataStream(
             byte[]       key = dataDecryptorFactory.makeKeyFromPassPhrase(keyAlgorithm, keyData.getS2K());
             boolean      withIntegrityPacket = encData instanceof SymmetricEncIntegrityPacket;
 
-            byte[]       sessionData = dataDecryptorFactory.recoverSessionData(keyData.getEncAlgorithm(), key, keyData.getSecKeyData());
+            byte[]       sessionData = recoverSessionData(dataDecryptorFactory, key);
             byte[]       sessionKey = new byte[sessionData.length - 1];
 
             System.arraycopy(sessionData, 1, sessionKey, 0, sessionKey.length);
 
+            if (encData instanceof AEADEncDataPacket)
+            {
+                return getAEADDataStream(dataDecryptorFactory, sessionData[0] & 0xff, sessionKey, executor);
+            }
+
             PGPDataDecryptor dataDecryptor = dataDecryptorFactory.createDataDecryptor(withIntegrityPacket, sessionData[0] & 0xff, sessionKey);
 
             encStream = new BCPGInputStream(dataDecryptor.getInputStream(encData.getInputStream()));
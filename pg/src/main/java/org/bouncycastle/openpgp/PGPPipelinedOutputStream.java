@@ -0,0 +1,457 @@
+package org.bouncycastle.openpgp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An OutputStream which runs the stream it wraps as a separate stage of a pipeline. Data written
+ * to it is collected into blocks which are queued, up to a fixed depth, for a task on an Executor
+ * to write to the wrapped stream, so the work done by the wrapped stream - compression, encryption
+ * and integrity hashing, or signature hashing - overlaps with the work of whoever is writing.
+ * <p>
+ * The wrapped stream sees exactly the same bytes, in the same order, as it would if it was written
+ * to directly, so the output of a pipeline is identical to the output without one. Only one task
+ * ever writes to the wrapped stream at a time. If the queue fills before the executor has started
+ * a task for the stage, the writer does the work itself rather than wait, so a pipeline cannot
+ * stall for want of threads.
+ * </p>
+ * <p>
+ * An exception thrown by the wrapped stream is passed back to the writer on its next call to
+ * write(), flush(), finish() or close().
+ * </p>
+ * <p>
+ * The streams returned by {@link PGPCompressedDataGenerator} and {@link PGPEncryptedDataGenerator}
+ * use this class when the generators are constructed with an Executor.
+ * </p>
+ */
+public class PGPPipelinedOutputStream
+    extends OutputStream
+{
+    private static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+    private static final int DEFAULT_QUEUE_DEPTH = 4;
+
+    private final OutputStream out;
+    private final Executor executor;
+    private final int blockSize;
+    private final int queueDepth;
+
+    private final LinkedList queue = new LinkedList();
+    private final LinkedList free = new LinkedList();
+    private final Runnable drainTask = new Runnable()
+    {
+        public void run()
+        {
+            synchronized (PGPPipelinedOutputStream.this)
+            {
+                submitted = false;
+                if (draining)
+                {
+                    return;
+                }
+                draining = true;
+            }
+
+            drain();
+        }
+    };
+
+    private byte[] block;
+    private int blockOff;
+    private boolean submitted;
+    private boolean draining;
+    private Throwable error;
+    private boolean closed;
+
+    /**
+     * Create a pipeline stage for out with the default block size (64KB) and queue depth (4).
+     *
+     * @param out the stream to run as a separate stage.
+     * @param executor the executor to run the stage on.
+     */
+    public PGPPipelinedOutputStream(OutputStream out, Executor executor)
+    {
+        this(out, executor, DEFAULT_BLOCK_SIZE, DEFAULT_QUEUE_DEPTH);
+    }
+
+    /**
+     * Create a pipeline stage for out.
+     *
+     * @param out the stream to run as a separate stage.
+     * @param executor the executor to run the stage on.
+     * @param blockSize the size of the blocks data is passed to the stage in.
+     * @param queueDepth the maximum number of blocks waiting for the stage.
+     */
+    public PGPPipelinedOutputStream(OutputStream out, Executor executor, int blockSize, int queueDepth)
+    {
+        if (out == null)
+        {
+            throw new NullPointerException("out cannot be null");
+        }
+        if (executor == null)
+        {
+            throw new NullPointerException("executor cannot be null");
+        }
+        if (blockSize <= 0)
+        {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        if (queueDepth <= 0)
+        {
+            throw new IllegalArgumentException("queueDepth must be positive");
+        }
+
+        this.out = out;
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Create a pipeline stage which feeds the data written to it into a signature generator. Once
+     * the stage has been closed the signature can be generated as usual.
+     *
+     * @param sigGen the signature generator to update.
+     * @param executor the executor to run the stage on.
+     */
+    public PGPPipelinedOutputStream(PGPSignatureGenerator sigGen, Executor executor)
+    {
+        this(sigGen, executor, DEFAULT_BLOCK_SIZE, DEFAULT_QUEUE_DEPTH);
+    }
+
+    /**
+     * Create a pipeline stage which feeds the data written to it into a signature generator. Once
+     * the stage has been closed the signature can be generated as usual.
+     *
+     * @param sigGen the signature generator to update.
+     * @param executor the executor to run the stage on.
+     * @param blockSize the size of the blocks data is passed to the stage in.
+     * @param queueDepth the maximum number of blocks waiting for the stage.
+     */
+    public PGPPipelinedOutputStream(PGPSignatureGenerator sigGen, Executor executor, int blockSize, int queueDepth)
+    {
+        this(new SignatureOutputStream(sigGen), executor, blockSize, queueDepth);
+    }
+
+    public void write(int b)
+        throws IOException
+    {
+        checkOpen();
+
+        if (block == null)
+        {
+            block = takeBlock();
+        }
+
+        block[blockOff++] = (byte)b;
+
+        if (blockOff == blockSize)
+        {
+            queueBlock();
+        }
+    }
+
+    public void write(byte[] b, int off, int len)
+        throws IOException
+    {
+        checkOpen();
+
+        while (len > 0)
+        {
+            if (block == null)
+            {
+                block = takeBlock();
+            }
+
+            int count = Math.min(len, blockSize - blockOff);
+
+            System.arraycopy(b, off, block, blockOff, count);
+            blockOff += count;
+            off += count;
+            len -= count;
+
+            if (blockOff == blockSize)
+            {
+                queueBlock();
+            }
+        }
+    }
+
+    /**
+     * Wait for everything written so far to pass through the stage, then flush the wrapped stream.
+     */
+    public void flush()
+        throws IOException
+    {
+        checkOpen();
+
+        waitForStage();
+
+        out.flush();
+    }
+
+    /**
+     * Wait for everything written so far to pass through the stage, without closing the wrapped
+     * stream. Nothing further can be written to this stream afterwards.
+     */
+    public void finish()
+        throws IOException
+    {
+        if (!closed)
+        {
+            waitForStage();
+
+            closed = true;
+        }
+    }
+
+    /**
+     * Wait for everything written so far to pass through the stage, then close the wrapped stream.
+     */
+    public void close()
+        throws IOException
+    {
+        if (!closed)
+        {
+            finish();
+
+            out.close();
+        }
+    }
+
+    private void checkOpen()
+        throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("pipeline stage closed");
+        }
+
+        synchronized (this)
+        {
+            checkError();
+        }
+    }
+
+    private void waitForStage()
+        throws IOException
+    {
+        if (blockOff > 0)
+        {
+            queueBlock();
+        }
+
+        boolean runInline = false;
+
+        synchronized (this)
+        {
+            if (!draining && !queue.isEmpty())
+            {
+                draining = true;
+                runInline = true;
+            }
+        }
+
+        if (runInline)
+        {
+            drain();
+        }
+
+        synchronized (this)
+        {
+            while (draining)
+            {
+                waitForDrain();
+            }
+
+            checkError();
+        }
+    }
+
+    private void queueBlock()
+        throws IOException
+    {
+        Block full = new Block(block, blockOff);
+        boolean schedule = false;
+        boolean runInline = false;
+
+        block = null;
+        blockOff = 0;
+
+        synchronized (this)
+        {
+            while (queue.size() >= queueDepth && draining && error == null)
+            {
+                waitForDrain();
+            }
+
+            checkError();
+
+            queue.addLast(full);
+
+            if (!draining)
+            {
+                if (queue.size() >= queueDepth)
+                {
+                    // the executor hasn't got to the stage yet - do the work here rather than wait.
+                    draining = true;
+                    runInline = true;
+                }
+                else if (!submitted)
+                {
+                    submitted = true;
+                    schedule = true;
+                }
+            }
+        }
+
+        if (schedule)
+        {
+            try
+            {
+                executor.execute(drainTask);
+            }
+            catch (RejectedExecutionException e)
+            {
+                synchronized (this)
+                {
+                    submitted = false;
+                    runInline = !draining;
+                    draining = true;
+                }
+            }
+        }
+
+        if (runInline)
+        {
+            drain();
+        }
+
+        synchronized (this)
+        {
+            checkError();
+        }
+    }
+
+    private void drain()
+    {
+        for (;;)
+        {
+            Block next;
+
+            synchronized (this)
+            {
+                if (queue.isEmpty() || error != null)
+                {
+                    draining = false;
+                    notifyAll();
+                    return;
+                }
+
+                next = (Block)queue.removeFirst();
+                notifyAll();
+            }
+
+            try
+            {
+                out.write(next.data, 0, next.length);
+            }
+            catch (Throwable e)
+            {
+                synchronized (this)
+                {
+                    error = e;
+                    draining = false;
+                    queue.clear();
+                    notifyAll();
+                }
+                return;
+            }
+
+            synchronized (this)
+            {
+                if (free.size() <= queueDepth)
+                {
+                    free.addLast(next.data);
+                }
+            }
+        }
+    }
+
+    private synchronized byte[] takeBlock()
+    {
+        if (free.isEmpty())
+        {
+            return new byte[blockSize];
+        }
+
+        return (byte[])free.removeFirst();
+    }
+
+    private void waitForDrain()
+        throws IOException
+    {
+        try
+        {
+            wait();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for pipeline stage");
+        }
+    }
+
+    private void checkError()
+        throws IOException
+    {
+        if (error instanceof IOException)
+        {
+            throw (IOException)error;
+        }
+        if (error instanceof RuntimeException)
+        {
+            throw (RuntimeException)error;
+        }
+        if (error instanceof Error)
+        {
+            throw (Error)error;
+        }
+    }
+
+    private static class SignatureOutputStream
+        extends OutputStream
+    {
+        private final PGPSignatureGenerator sigGen;
+
+        SignatureOutputStream(PGPSignatureGenerator sigGen)
+        {
+            this.sigGen = sigGen;
+        }
+
+        public void write(int b)
+        {
+            sigGen.update((byte)b);
+        }
+
+        public void write(byte[] b, int off, int len)
+        {
+            sigGen.update(b, off, len);
+        }
+    }
+
+    private static class Block
+    {
+        final byte[] data;
+        final int length;
+
+        Block(byte[] data, int length)
+        {
+            this.data = data;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.bouncycastle.openpgp;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.bouncycastle.openpgp.operator.PBESecretKeyDecryptor;
+
+/**
+ * Extracts the private keys from many secret keys at once, running the S2K key derivation and
+ * decryption for each secret key as a task on an Executor.
+ * <p>
+ * If the decryptor has been given a {@link org.bouncycastle.openpgp.operator.PGPDerivedKeyCache},
+ * secret keys sharing a pass phrase and S2K specifier have the key derived for them only once, with
+ * any other tasks needing it waiting for the result rather than deriving it again. The decryptor
+ * is called from several threads at once, so any digest calculator provider it uses needs to be
+ * safe for that - the ones in this package are.
+ * </p>
+ */
+public class PGPPrivateKeyExtractor
+{
+    private final Executor executor;
+
+    /**
+     * Create an extractor running on executor.
+     *
+     * @param executor the executor to extract keys on.
+     */
+    public PGPPrivateKeyExtractor(Executor executor)
+    {
+        if (executor == null)
+        {
+            throw new NullPointerException("executor cannot be null");
+        }
+
+        this.executor = executor;
+    }
+
+    /**
+     * Extract the private keys in a secret key ring.
+     *
+     * @param secretKeyRing the key ring to extract the keys from.
+     * @param decryptorFactory the decryptor for the secret keys.
+     * @return a list of the private keys, in key ring order, with null for any secret key with no
+     * private key material.
+     * @throws PGPException if a key cannot be extracted, for example because of a wrong pass phrase.
+     */
+    public List<PGPPrivateKey> extractPrivateKeys(PGPSecretKeyRing secretKeyRing, PBESecretKeyDecryptor decryptorFactory)
+        throws PGPException
+    {
+        return extractPrivateKeys(secretKeyRing.getSecretKeys(), decryptorFactory);
+    }
+
+    /**
+     * Extract the private keys from a set of secret keys.
+     *
+     * @param secretKeys an iterator of the PGPSecretKey objects to extract the keys from.
+     * @param decryptorFactory the decryptor for the secret keys.
+     * @return a list of the private keys, in iterator order, with null for any secret key with no
+     * private key material.
+     * @throws PGPException if a key cannot be extracted, for example because of a wrong pass phrase.
+     */
+    public List<PGPPrivateKey> extractPrivateKeys(Iterator<PGPSecretKey> secretKeys, final PBESecretKeyDecryptor decryptorFactory)
+        throws PGPException
+    {
+        List tasks = new ArrayList();
+
+        while (secretKeys.hasNext())
+        {
+            final PGPSecretKey secretKey = (PGPSecretKey)secretKeys.next();
+
+            FutureTask task = new FutureTask(new Callable()
+            {
+                public Object call()
+                    throws Exception
+                {
+                    return secretKey.extractPrivateKey(decryptorFactory);
+                }
+            });
+
+            tasks.add(task);
+
+            try
+            {
+                executor.execute(task);
+            }
+            catch (RejectedExecutionException e)
+            {
+                task.run();
+            }
+        }
+
+        List keys = new ArrayList(tasks.size());
+
+        for (int i = 0; i != tasks.size(); i++)
+        {
+            FutureTask task = (FutureTask)tasks.get(i);
+
+            // if no thread has picked the task up yet, do it here.
+            task.run();
+
+            try
+            {
+                keys.add(task.get());
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new PGPException("interrupted extracting private keys", e);
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+                if (cause instanceof PGPException)
+                {
+                    throw (PGPException)cause;
+                }
+                if (cause instanceof RuntimeException)
+                {
+                    throw (RuntimeException)cause;
+                }
+                if (cause instanceof Error)
+                {
+                    throw (Error)cause;
+                }
+                throw new IllegalStateException(cause.toString());
+            }
+        }
+
+        return keys;
+    }
+}
@@ -2,7 +2,9 @@
 
 import java.io.EOFException;
 import java.io.InputStream;
+import java.util.concurrent.Executor;
 
+import org.bouncycastle.bcpg.AEADEncDataPacket;
 import org.bouncycastle.bcpg.BCPGInputStream;
 import org.bouncycastle.bcpg.InputStreamPacket;
 import org.bouncycastle.bcpg.PublicKeyEncSessionPacket;
@@ -80,6 +82,24 @@ public int getSymmetricAlgorithm(
     public InputStream getDataStream(
         PublicKeyDataDecryptorFactory dataDecryptorFactory)
         throws PGPException
+    {
+        return getDataStream(dataDecryptorFactory, null);
+    }
+
+    /**
+     * Open an input stream which will provide the decrypted data protected by this object, with
+     * the chunks of AEAD encrypted data decrypted as tasks on an Executor.
+     *
+     * @param dataDecryptorFactory  decryptor factory to use to recover the session data and provide the stream.
+     * @param executor the executor to decrypt AEAD chunks on, null to decrypt on the calling thread.
+     *                 Data which is not AEAD encrypted is always decrypted on the calling thread.
+     * @return  the resulting input stream
+     * @throws PGPException  if the session data cannot be recovered or the stream cannot be created.
+     */
+    public InputStream getDataStream(
+        PublicKeyDataDecryptorFactory dataDecryptorFactory,
+        Executor                      executor)
+        throws PGPException
     {
         byte[] sessionData = dataDecryptorFactory.recoverSessionData(keyData.getAlgorithm(), keyData.getEncSessionKey());
 
@@ -88,6 +108,15 @@ public InputStream getDataStream(
             throw new PGPKeyValidationException("key checksum failed");
         }
 
+        if (encData instanceof AEADEncDataPacket)
+        {
+            byte[]       sessionKey = new byte[sessionData.length - 3];
+
+            System.arraycopy(sessionData, 1, sessionKey, 0, sessionKey.length);
+
+            return getAEADDataStream(dataDecryptorFactory, sessionData[0] & 0xff, sessionKey, executor);
+        }
+
         if (sessionData[0] != SymmetricKeyAlgorithmTags.NULL)
         {
             try
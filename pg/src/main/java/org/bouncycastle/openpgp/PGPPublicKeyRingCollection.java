@@ -26,13 +26,16 @@
 {
     private Map   pubRings = new HashMap();
     private List  order = new ArrayList();
-    
+    private KeyRingIndex index;
+
     private PGPPublicKeyRingCollection(
         Map     pubRings,
-        List    order)
+        List    order,
+        KeyRingIndex index)
     {
         this.pubRings = pubRings;
         this.order = order;
+        this.index = index;
     }
 
     public PGPPublicKeyRingCollection(
@@ -71,6 +74,8 @@ public PGPPublicKeyRingCollection(
             pubRings.put(key, pgpPub);
             order.add(key);
         }
+
+        index = KeyRingIndex.build(pubRings, order);
     }
     
     public PGPPublicKeyRingCollection(
@@ -88,6 +93,8 @@ public PGPPublicKeyRingCollection(
             pubRings.put(key, pgpPub);
             order.add(key);
         }
+
+        index = KeyRingIndex.build(pubRings, order);
     }
     
     /**
@@ -155,7 +162,13 @@ public Iterator<PGPPublicKeyRing> getKeyRings(
         boolean   ignoreCase) 
         throws PGPException
     {
-        Iterator    it = this.getKeyRings();
+        if (!matchPartial)
+        {
+            return getRings(index.getRingsForUserID(userID, ignoreCase)).iterator();
+        }
+
+        List        candidates = index.getCandidatesForSubstring(userID);
+        Iterator    it = getRings((candidates == null) ? order : candidates).iterator();
         List        rings = new ArrayList();
 
         if (ignoreCase)
@@ -176,19 +189,9 @@ public Iterator<PGPPublicKeyRing> getKeyRings(
                     next = Strings.toLowerCase(next);
                 }
 
-                if (matchPartial)
-                {
-                    if (next.indexOf(userID) > -1)
-                    {
-                        rings.add(pubRing);
-                    }
-                }
-                else
+                if (next.indexOf(userID) > -1)
                 {
-                    if (next.equals(userID))
-                    {
-                        rings.add(pubRing);
-                    }
+                    rings.add(pubRing);
                 }
             }
         }
@@ -196,6 +199,19 @@ public Iterator<PGPPublicKeyRing> getKeyRings(
         return rings.iterator();
     }
 
+    /**
+     * Return an iterator of the key rings with a user ID carrying the passed in e-mail address, either
+     * in the form "Name &lt;address&gt;" or as the user ID itself. Addresses are compared ignoring case.
+     *
+     * @param emailAddress the e-mail address to be matched.
+     * @return an iterator (possibly empty) of key rings which matched.
+     */
+    public Iterator<PGPPublicKeyRing> getKeyRingsByEmail(
+        String    emailAddress)
+    {
+        return getRings(index.getRingsForEmail(emailAddress)).iterator();
+    }
+
     /**
      * Return the PGP public key associated with the given key id.
      * 
@@ -207,7 +223,7 @@ public PGPPublicKey getPublicKey(
         long        keyID) 
         throws PGPException
     {    
-        Iterator    it = this.getKeyRings();
+        Iterator    it = getRings(index.getRingsForKeyID(keyID)).iterator();
         
         while (it.hasNext())
         {
@@ -241,7 +257,7 @@ public PGPPublicKeyRing getPublicKeyRing(
             return (PGPPublicKeyRing)pubRings.get(id);
         }
         
-        Iterator    it = this.getKeyRings();
+        Iterator    it = getRings(index.getRingsForKeyID(keyID)).iterator();
         
         while (it.hasNext())
         {
@@ -268,7 +284,7 @@ public PGPPublicKey getPublicKey(
         byte[] fingerprint)
         throws PGPException
     {
-        Iterator    it = this.getKeyRings();
+        Iterator    it = getRings(index.getRingsForFingerprint(fingerprint)).iterator();
 
         while (it.hasNext())
         {
@@ -295,7 +311,7 @@ public PGPPublicKeyRing getPublicKeyRing(
         byte[] fingerprint)
         throws PGPException
     {
-        Iterator    it = this.getKeyRings();
+        Iterator    it = getRings(index.getRingsForFingerprint(fingerprint)).iterator();
 
         while (it.hasNext())
         {
@@ -419,7 +435,7 @@ public static PGPPublicKeyRingCollection addPublicKeyRing(
         newPubRings.put(key, publicKeyRing);
         newOrder.add(key);
         
-        return new PGPPublicKeyRingCollection(newPubRings, newOrder);
+        return new PGPPublicKeyRingCollection(newPubRings, newOrder, ringCollection.index.with(key, publicKeyRing));
     }
     
     /**
@@ -458,7 +474,102 @@ public static PGPPublicKeyRingCollection removePublicKeyRing(
             }
         }
         
-        return new PGPPublicKeyRingCollection(newPubRings, newOrder);
+        return new PGPPublicKeyRingCollection(newPubRings, newOrder,
+            ringCollection.index.without(key, (PGPPublicKeyRing)ringCollection.pubRings.get(key)));
+    }
+
+    /**
+     * Return a new collection object containing the contents of the passed in collection and
+     * the passed in public key rings. The collection's index is copied once for all the rings, so
+     * this should be used rather than addPublicKeyRing() when adding a number of rings.
+     *
+     * @param ringCollection the collection the rings are to be added to.
+     * @param publicKeyRings the key rings to be added.
+     * @return a new collection merging the current one with the passed in rings.
+     * @exception IllegalArgumentException if the keyID for any of the passed in rings is already present.
+     */
+    public static PGPPublicKeyRingCollection addPublicKeyRings(
+        PGPPublicKeyRingCollection       ringCollection,
+        Collection<PGPPublicKeyRing>     publicKeyRings)
+    {
+        Map     newPubRings = new HashMap(ringCollection.pubRings);
+        List    newOrder = new ArrayList(ringCollection.order);
+        List    added = new ArrayList(publicKeyRings.size());
+
+        for (Iterator it = publicKeyRings.iterator(); it.hasNext();)
+        {
+            PGPPublicKeyRing    ring = (PGPPublicKeyRing)it.next();
+            Long                key = new Long(ring.getPublicKey().getKeyID());
+
+            if (newPubRings.containsKey(key))
+            {
+                throw new IllegalArgumentException("Collection already contains a key with a keyID for a passed in ring.");
+            }
+
+            newPubRings.put(key, ring);
+            newOrder.add(key);
+            added.add(key);
+        }
+
+        return new PGPPublicKeyRingCollection(newPubRings, newOrder, ringCollection.index.with(added, newPubRings));
+    }
+
+    /**
+     * Return a new collection object containing the contents of this collection with
+     * the passed in public key rings removed. The collection's index is copied once for all the
+     * rings, so this should be used rather than removePublicKeyRing() when removing a number of rings.
+     *
+     * @param ringCollection the collection the rings are to be removed from.
+     * @param publicKeyRings the key rings to be removed.
+     * @return a new collection not containing the passed in rings.
+     * @exception IllegalArgumentException if the keyID for any of the passed in rings is not present.
+     */
+    public static PGPPublicKeyRingCollection removePublicKeyRings(
+        PGPPublicKeyRingCollection       ringCollection,
+        Collection<PGPPublicKeyRing>     publicKeyRings)
+    {
+        Map     newPubRings = new HashMap(ringCollection.pubRings);
+        List    removed = new ArrayList(publicKeyRings.size());
+
+        for (Iterator it = publicKeyRings.iterator(); it.hasNext();)
+        {
+            Long        key = new Long(((PGPPublicKeyRing)it.next()).getPublicKey().getKeyID());
+
+            if (!newPubRings.containsKey(key))
+            {
+                throw new IllegalArgumentException("Collection does not contain a key with a keyID for a passed in ring.");
+            }
+
+            newPubRings.remove(key);
+            removed.add(key);
+        }
+
+        List    newOrder = new ArrayList(newPubRings.size());
+
+        for (int i = 0; i < ringCollection.order.size(); i++)
+        {
+            Long    r = (Long)ringCollection.order.get(i);
+
+            if (newPubRings.containsKey(r))
+            {
+                newOrder.add(r);
+            }
+        }
+
+        return new PGPPublicKeyRingCollection(newPubRings, newOrder,
+            ringCollection.index.without(removed, ringCollection.pubRings));
+    }
+
+    private List getRings(List ringIDs)
+    {
+        List rings = new ArrayList(ringIDs.size());
+
+        for (int i = 0; i != ringIDs.size(); i++)
+        {
+            rings.add(pubRings.get(ringIDs.get(i)));
+        }
+
+        return rings;
     }
 
     /**
@@ -0,0 +1,924 @@
+package org.bouncycastle.openpgp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.bouncycastle.bcpg.BCPGInputStream;
+import org.bouncycastle.bcpg.PacketTags;
+import org.bouncycastle.bcpg.PublicKeyPacket;
+import org.bouncycastle.bcpg.UserIDPacket;
+import org.bouncycastle.openpgp.operator.KeyFingerPrintCalculator;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Iterable;
+import org.bouncycastle.util.Strings;
+
+/**
+ * A read-only store over a public key ring file, either a plain succession of transferable public keys
+ * such as pubring.gpg, or a GnuPG keybox (pubring.kbx).
+ * <p>
+ * The file is memory mapped and scanned once, picking out the offset of each key ring along with the key IDs
+ * and fingerprints of its keys and the user IDs on its master key - signatures, user attributes and the like
+ * are skipped over without being parsed. A PGPPublicKeyRing is only built from the mapped file when it is
+ * asked for, so the heap used is proportional to the size of the index and the rings the caller holds on to,
+ * rather than the size of the file.
+ * </p>
+ * <p>
+ * If an index file is given the offsets and identifiers found by the scan are written to it, and later
+ * stores opened on the same, unchanged, key ring file read the index rather than scanning the file again.
+ * Keybox blob checksums are not verified.
+ * </p>
+ * <p>
+ * The store can be shared between threads. The key ring file must not be changed while it is open.
+ * </p>
+ */
+public class PGPPublicKeyRingStore
+    implements Iterable<PGPPublicKeyRing>
+{
+    private static final int REGION_SIZE = 1 << 30;
+    private static final byte[] INDEX_MAGIC = Strings.toByteArray("BCKRIDX1");
+    private static final byte[] KEYBOX_MAGIC = Strings.toByteArray("KBXf");
+
+    // the smallest number of bytes a ring, a key and a user ID can take in an index file.
+    private static final int RING_ENTRY_SIZE = 8 + 4 + 4 + 4;
+    private static final int KEY_ENTRY_SIZE = 8 + 4;
+    private static final int ID_ENTRY_SIZE = 4;
+
+    private static final int KEYBOX_FIRST_BLOB = 1;
+    private static final int KEYBOX_OPENPGP_BLOB = 2;
+
+    private final RandomAccessFile file;
+    private final ByteBuffer[] regions;
+    private final long fileLength;
+    private final KeyFingerPrintCalculator fingerPrintCalculator;
+
+    private long[] ringOffsets;
+    private int[] ringLengths;
+    private String[][] ringUserIDs;
+    private KeyRingIndex index;
+
+    /**
+     * Open a store over a key ring file, scanning the file to build the index.
+     *
+     * @param keyRingFile the key ring, or keybox, file to open.
+     * @param fingerPrintCalculator calculator for the fingerprints of the keys in the file.
+     * @throws IOException if the file cannot be mapped, or is not a key ring file.
+     * @throws PGPException if a key in the file cannot be processed.
+     */
+    public PGPPublicKeyRingStore(
+        File                     keyRingFile,
+        KeyFingerPrintCalculator fingerPrintCalculator)
+        throws IOException, PGPException
+    {
+        this(keyRingFile, null, fingerPrintCalculator);
+    }
+
+    /**
+     * Open a store over a key ring file, using the index saved in indexFile if it was made for the file as it
+     * is now, otherwise scanning the file and saving the index to indexFile for next time.
+     *
+     * @param keyRingFile the key ring, or keybox, file to open.
+     * @param indexFile the file to read the index from and save it to, null if the index should not be saved.
+     * @param fingerPrintCalculator calculator for the fingerprints of the keys in the file.
+     * @throws IOException if the file cannot be mapped, or is not a key ring file.
+     * @throws PGPException if a key in the file cannot be processed.
+     */
+    public PGPPublicKeyRingStore(
+        File                     keyRingFile,
+        File                     indexFile,
+        KeyFingerPrintCalculator fingerPrintCalculator)
+        throws IOException, PGPException
+    {
+        this.file = new RandomAccessFile(keyRingFile, "r");
+        this.fingerPrintCalculator = fingerPrintCalculator;
+
+        try
+        {
+            FileChannel channel = file.getChannel();
+
+            this.fileLength = channel.size();
+            this.regions = new ByteBuffer[(int)((fileLength + REGION_SIZE - 1) / REGION_SIZE)];
+
+            // a read crossing the boundary between two regions is split in two.
+            for (int i = 0; i != regions.length; i++)
+            {
+                long start = (long)i * REGION_SIZE;
+
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, fileLength - start));
+            }
+
+            long lastModified = keyRingFile.lastModified();
+
+            if (indexFile == null || !readIndex(indexFile, lastModified))
+            {
+                List rings = scanFile();
+
+                setRings(rings);
+
+                if (indexFile != null)
+                {
+                    writeIndex(indexFile, lastModified, rings);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            file.close();
+            throw e;
+        }
+        catch (PGPException e)
+        {
+            file.close();
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Return the number of key rings in the store.
+     *
+     * @return the number of rings.
+     */
+    public int size()
+    {
+        return ringOffsets.length;
+    }
+
+    /**
+     * Return the key rings in the store, in file order. Each ring is read from the file as the iterator
+     * reaches it.
+     *
+     * @return an iterator over the key rings.
+     */
+    public Iterator<PGPPublicKeyRing> getKeyRings()
+    {
+        return new Iterator<PGPPublicKeyRing>()
+        {
+            private int next = 0;
+
+            public boolean hasNext()
+            {
+                return next < ringOffsets.length;
+            }
+
+            public PGPPublicKeyRing next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+
+                try
+                {
+                    return readRing(next++);
+                }
+                catch (IOException e)
+                {
+                    throw new PGPRuntimeOperationException("unable to read key ring: " + e.getMessage(), e);
+                }
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException("key ring store is read-only");
+            }
+        };
+    }
+
+    /**
+     * Return the key rings with a user ID matching userID.
+     *
+     * @param userID the user ID to be matched.
+     * @param matchPartial if true userID need only be a substring of an actual ID string to match.
+     * @param ignoreCase if true case is ignored in user ID comparisons.
+     * @return an iterator (possibly empty) of key rings which matched.
+     * @throws IOException if a key ring cannot be read from the file.
+     */
+    public Iterator<PGPPublicKeyRing> getKeyRings(
+        String  userID,
+        boolean matchPartial,
+        boolean ignoreCase)
+        throws IOException
+    {
+        if (!matchPartial)
+        {
+            return readRings(index.getRingsForUserID(userID, ignoreCase)).iterator();
+        }
+
+        List candidates = index.getCandidatesForSubstring(userID);
+        List matches = new ArrayList();
+
+        if (ignoreCase)
+        {
+            userID = Strings.toLowerCase(userID);
+        }
+
+        int count = (candidates == null) ? ringOffsets.length : candidates.size();
+        for (int i = 0; i != count; i++)
+        {
+            int ring = (candidates == null) ? i : ((Long)candidates.get(i)).intValue();
+            String[] ids = ringUserIDs[ring];
+
+            for (int j = 0; j != ids.length; j++)
+            {
+                String next = ignoreCase ? Strings.toLowerCase(ids[j]) : ids[j];
+
+                if (next.indexOf(userID) > -1)
+                {
+                    matches.add(new Long(ring));
+                }
+            }
+        }
+
+        return readRings(matches).iterator();
+    }
+
+    /**
+     * Return the key rings with a user ID carrying the passed in e-mail address, either in the
+     * form "Name &lt;address&gt;" or as the user ID itself. Addresses are compared ignoring case.
+     *
+     * @param emailAddress the e-mail address to be matched.
+     * @return an iterator (possibly empty) of key rings which matched.
+     * @throws IOException if a key ring cannot be read from the file.
+     */
+    public Iterator<PGPPublicKeyRing> getKeyRingsByEmail(
+        String emailAddress)
+        throws IOException
+    {
+        return readRings(index.getRingsForEmail(emailAddress)).iterator();
+    }
+
+    /**
+     * Return the public key with the given key ID.
+     *
+     * @param keyID the key ID to match against.
+     * @return the public key, null if there is none.
+     * @throws IOException if a key ring cannot be read from the file.
+     */
+    public PGPPublicKey getPublicKey(
+        long keyID)
+        throws IOException
+    {
+        List rings = index.getRingsForKeyID(keyID);
+
+        for (int i = 0; i != rings.size(); i++)
+        {
+            PGPPublicKey pub = readRing(((Long)rings.get(i)).intValue()).getPublicKey(keyID);
+
+            if (pub != null)
+            {
+                return pub;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Return the public key ring which contains the key with the given key ID.
+     *
+     * @param keyID the key ID to match against.
+     * @return the public key ring, null if there is none.
+     * @throws IOException if a key ring cannot be read from the file.
+     */
+    public PGPPublicKeyRing getPublicKeyRing(
+        long keyID)
+        throws IOException
+    {
+        List rings = index.getRingsForKeyID(keyID);
+
+        for (int i = 0; i != rings.size(); i++)
+        {
+            PGPPublicKeyRing pubRing = readRing(((Long)rings.get(i)).intValue());
+
+            if (pubRing.getPublicKey(keyID) != null)
+            {
+                return pubRing;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Return the public key with the given fingerprint.
+     *
+     * @param fingerprint the key fingerprint to match against.
+     * @return the public key, null if there is none.
+     * @throws IOException if a key ring cannot be read from the file.
+     */
+    public PGPPublicKey getPublicKey(
+        byte[] fingerprint)
+        throws IOException
+    {
+        List rings = index.getRingsForFingerprint(fingerprint);
+
+        for (int i = 0; i != rings.size(); i++)
+        {
+            PGPPublicKey pub = readRing(((Long)rings.get(i)).intValue()).getPublicKey(fingerprint);
+
+            if (pub != null)
+            {
+                return pub;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Return the public key ring which contains the key with the given fingerprint.
+     *
+     * @param fingerprint the key fingerprint to match against.
+     * @return the public key ring, null if there is none.
+     * @throws IOException if a key ring cannot be read from the file.
+     */
+    public PGPPublicKeyRing getPublicKeyRing(
+        byte[] fingerprint)
+        throws IOException
+    {
+        List rings = index.getRingsForFingerprint(fingerprint);
+
+        for (int i = 0; i != rings.size(); i++)
+        {
+            PGPPublicKeyRing pubRing = readRing(((Long)rings.get(i)).intValue());
+
+            if (pubRing.getPublicKey(fingerprint) != null)
+            {
+                return pubRing;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Return true if a key matching the passed in key ID is present, false otherwise. The answer
+     * comes from the index, no key ring is read.
+     *
+     * @param keyID key ID to look for.
+     * @return true if keyID present, false otherwise.
+     */
+    public boolean contains(long keyID)
+    {
+        return !index.getRingsForKeyID(keyID).isEmpty();
+    }
+
+    /**
+     * Return true if a key matching the passed in fingerprint is present, false otherwise. The answer
+     * comes from the index, no key ring is read.
+     *
+     * @param fingerprint the key fingerprint to look for.
+     * @return true if fingerprint present, false otherwise.
+     */
+    public boolean contains(byte[] fingerprint)
+    {
+        return !index.getRingsForFingerprint(fingerprint).isEmpty();
+    }
+
+    /**
+     * Close the key ring file. The mapping of the file is released once the store has been garbage collected.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    public void close()
+        throws IOException
+    {
+        file.close();
+    }
+
+    /**
+     * Support method for Iterable where available.
+     */
+    public Iterator<PGPPublicKeyRing> iterator()
+    {
+        return getKeyRings();
+    }
+
+    private List readRings(List rings)
+        throws IOException
+    {
+        List result = new ArrayList(rings.size());
+
+        for (int i = 0; i != rings.size(); i++)
+        {
+            result.add(readRing(((Long)rings.get(i)).intValue()));
+        }
+
+        return result;
+    }
+
+    private PGPPublicKeyRing readRing(int ring)
+        throws IOException
+    {
+        return new PGPPublicKeyRing(
+            new BCPGInputStream(new MappedInputStream(ringOffsets[ring], ringOffsets[ring] + ringLengths[ring])),
+            fingerPrintCalculator);
+    }
+
+    private List scanFile()
+        throws IOException, PGPException
+    {
+        List rings = new ArrayList();
+
+        if (isKeyBox())
+        {
+            long pos = 0;
+
+            while (pos < fileLength)
+            {
+                if (fileLength - pos < 16)
+                {
+                    throw new IOException("truncated keybox blob at offset " + pos);
+                }
+
+                long blobLength = u32(pos);
+                int blobType = u8(pos + 4);
+
+                if (blobLength < 16 || pos + blobLength > fileLength)
+                {
+                    throw new IOException("corrupted keybox blob at offset " + pos);
+                }
+
+                if (blobType == KEYBOX_OPENPGP_BLOB)
+                {
+                    long keyBlockStart = pos + u32(pos + 8);
+                    long keyBlockEnd = keyBlockStart + u32(pos + 12);
+
+                    if (keyBlockStart < pos || keyBlockEnd > pos + blobLength)
+                    {
+                        throw new IOException("corrupted keybox blob at offset " + pos);
+                    }
+
+                    scanRings(keyBlockStart, keyBlockEnd, rings);
+                }
+
+                pos += blobLength;
+            }
+        }
+        else
+        {
+            scanRings(0, fileLength, rings);
+        }
+
+        return rings;
+    }
+
+    /*
+     * Each public key packet starts a new ring - we parse the key packets and user IDs, and only look
+     * at the headers of everything else.
+     */
+    private void scanRings(long start, long end, List rings)
+        throws IOException, PGPException
+    {
+        RingEntry ring = null;
+        boolean inSubkeys = false;
+        long pos = start;
+
+        while (pos < end)
+        {
+            int tag = tagOf(pos);
+            long packetEnd = packetEnd(pos, end);
+
+            switch (tag)
+            {
+            case PacketTags.PUBLIC_KEY:
+                if (ring != null)
+                {
+                    ring.length = (int)(pos - ring.offset);
+                    rings.add(ring);
+                }
+                ring = new RingEntry(pos);
+                inSubkeys = false;
+                ring.addKey(readKeyPacket(pos, packetEnd));
+                break;
+            case PacketTags.PUBLIC_SUBKEY:
+                if (ring != null)
+                {
+                    inSubkeys = true;
+                    ring.addKey(readKeyPacket(pos, packetEnd));
+                }
+                break;
+            case PacketTags.USER_ID:
+                if (ring != null && !inSubkeys)
+                {
+                    ring.userIDs.add(((UserIDPacket)readPacket(pos, packetEnd)).getID());
+                }
+                break;
+            case PacketTags.SECRET_KEY:
+            case PacketTags.SECRET_SUBKEY:
+                throw new PGPException("secret key found where public key ring expected at offset " + pos);
+            default:
+                // signatures, trust packets, user attributes, markers...
+                break;
+            }
+
+            pos = packetEnd;
+        }
+
+        if (ring != null)
+        {
+            ring.length = (int)(end - ring.offset);
+            rings.add(ring);
+        }
+    }
+
+    private PGPPublicKey readKeyPacket(long start, long end)
+        throws IOException, PGPException
+    {
+        return new PGPPublicKey((PublicKeyPacket)readPacket(start, end), fingerPrintCalculator);
+    }
+
+    private Object readPacket(long start, long end)
+        throws IOException
+    {
+        return new BCPGInputStream(new MappedInputStream(start, end)).readPacket();
+    }
+
+    private int tagOf(long pos)
+        throws IOException
+    {
+        int hdr = u8(pos);
+
+        if ((hdr & 0x80) == 0)
+        {
+            throw new IOException("invalid header encountered at offset " + pos);
+        }
+
+        return ((hdr & 0x40) != 0) ? (hdr & 0x3f) : ((hdr & 0x3f) >> 2);
+    }
+
+    /*
+     * Return the offset of the byte following the packet starting at pos.
+     */
+    private long packetEnd(long pos, long end)
+        throws IOException
+    {
+        int hdr = u8(pos++);
+
+        if ((hdr & 0x40) == 0)
+        {
+            long bodyLen;
+
+            switch (hdr & 0x3)
+            {
+            case 0:
+                bodyLen = u8(pos);
+                pos += 1;
+                break;
+            case 1:
+                bodyLen = (u8(pos) << 8) | u8(pos + 1);
+                pos += 2;
+                break;
+            case 2:
+                bodyLen = u32(pos);
+                pos += 4;
+                break;
+            default:
+                // indeterminate length, the packet runs to the end.
+                return end;
+            }
+
+            return checkEnd(pos + bodyLen, end);
+        }
+
+        for (;;)
+        {
+            int l = u8(pos++);
+
+            if (l < 192)
+            {
+                return checkEnd(pos + l, end);
+            }
+            else if (l <= 223)
+            {
+                return checkEnd(pos + 1 + ((l - 192) << 8) + u8(pos) + 192, end);
+            }
+            else if (l == 255)
+            {
+                return checkEnd(pos + 4 + u32(pos), end);
+            }
+
+            // partial body length, another length follows the chunk.
+            pos = checkEnd(pos + (1L << (l & 0x1f)), end);
+        }
+    }
+
+    private static long checkEnd(long packetEnd, long end)
+        throws IOException
+    {
+        if (packetEnd > end)
+        {
+            throw new IOException("packet extends past end of key ring data");
+        }
+
+        return packetEnd;
+    }
+
+    private boolean isKeyBox()
+        throws IOException
+    {
+        if (fileLength < 12 || u8(4) != KEYBOX_FIRST_BLOB)
+        {
+            return false;
+        }
+
+        for (int i = 0; i != KEYBOX_MAGIC.length; i++)
+        {
+            if (u8(8 + i) != (KEYBOX_MAGIC[i] & 0xff))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private int u8(long pos)
+        throws IOException
+    {
+        if (pos >= fileLength)
+        {
+            throw new IOException("unexpected end of key ring file");
+        }
+
+        return regions[(int)(pos / REGION_SIZE)].get((int)(pos % REGION_SIZE)) & 0xff;
+    }
+
+    private long u32(long pos)
+        throws IOException
+    {
+        return ((long)u8(pos) << 24) | (u8(pos + 1) << 16) | (u8(pos + 2) << 8) | u8(pos + 3);
+    }
+
+    private void setRings(List rings)
+    {
+        ringOffsets = new long[rings.size()];
+        ringLengths = new int[rings.size()];
+        ringUserIDs = new String[rings.size()][];
+        index = new KeyRingIndex();
+
+        for (int i = 0; i != rings.size(); i++)
+        {
+            RingEntry ring = (RingEntry)rings.get(i);
+
+            ringOffsets[i] = ring.offset;
+            ringLengths[i] = ring.length;
+            ringUserIDs[i] = (String[])ring.userIDs.toArray(new String[ring.userIDs.size()]);
+
+            index.add(new Long(i), ring.keyIDs, ring.fingerprints, ring.userIDs);
+        }
+    }
+
+    private boolean readIndex(File indexFile, long lastModified)
+    {
+        if (!indexFile.exists())
+        {
+            return false;
+        }
+
+        try
+        {
+            DataInputStream dIn = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+
+            try
+            {
+                byte[] magic = new byte[INDEX_MAGIC.length];
+                dIn.readFully(magic);
+
+                if (!Arrays.areEqual(INDEX_MAGIC, magic)
+                    || dIn.readLong() != fileLength || dIn.readLong() != lastModified)
+                {
+                    return false;
+                }
+
+                // each entry takes some bytes in the index, so no count can be more than its length.
+                long indexLength = indexFile.length();
+
+                int count = readCount(dIn, indexLength / RING_ENTRY_SIZE);
+                List rings = new ArrayList(count);
+
+                for (int i = 0; i != count; i++)
+                {
+                    RingEntry ring = new RingEntry(dIn.readLong());
+
+                    ring.length = dIn.readInt();
+                    if (ring.offset < 0 || ring.length < 0 || ring.offset > fileLength - ring.length)
+                    {
+                        return false;
+                    }
+
+                    int keyCount = readCount(dIn, indexLength / KEY_ENTRY_SIZE);
+                    for (int k = 0; k != keyCount; k++)
+                    {
+                        ring.keyIDs.add(new Long(dIn.readLong()));
+                        ring.fingerprints.add(readBytes(dIn));
+                    }
+
+                    int idCount = readCount(dIn, indexLength / ID_ENTRY_SIZE);
+                    for (int k = 0; k != idCount; k++)
+                    {
+                        ring.userIDs.add(Strings.fromUTF8ByteArray(readBytes(dIn)));
+                    }
+
+                    rings.add(ring);
+                }
+
+                setRings(rings);
+
+                return true;
+            }
+            finally
+            {
+                dIn.close();
+            }
+        }
+        catch (IOException e)
+        {
+            // unreadable or truncated - we just rebuild it.
+            return false;
+        }
+        catch (RuntimeException e)
+        {
+            // corrupt - we just rebuild it.
+            return false;
+        }
+    }
+
+    private void writeIndex(File indexFile, long lastModified, List rings)
+    {
+        try
+        {
+            DataOutputStream dOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+
+            try
+            {
+                dOut.write(INDEX_MAGIC);
+                dOut.writeLong(fileLength);
+                dOut.writeLong(lastModified);
+                dOut.writeInt(rings.size());
+
+                for (int i = 0; i != rings.size(); i++)
+                {
+                    RingEntry ring = (RingEntry)rings.get(i);
+
+                    dOut.writeLong(ring.offset);
+                    dOut.writeInt(ring.length);
+
+                    dOut.writeInt(ring.keyIDs.size());
+                    for (int k = 0; k != ring.keyIDs.size(); k++)
+                    {
+                        dOut.writeLong(((Long)ring.keyIDs.get(k)).longValue());
+                        writeBytes(dOut, (byte[])ring.fingerprints.get(k));
+                    }
+
+                    dOut.writeInt(ring.userIDs.size());
+                    for (int k = 0; k != ring.userIDs.size(); k++)
+                    {
+                        writeBytes(dOut, Strings.toUTF8ByteArray((String)ring.userIDs.get(k)));
+                    }
+                }
+            }
+            finally
+            {
+                dOut.close();
+            }
+        }
+        catch (IOException e)
+        {
+            // the index is only a cache, if it cannot be saved we scan the file next time.
+            indexFile.delete();
+        }
+    }
+
+    private static int readCount(DataInputStream dIn, long limit)
+        throws IOException
+    {
+        int count = dIn.readInt();
+
+        if (count < 0 || count > limit)
+        {
+            throw new IOException("invalid count in index");
+        }
+
+        return count;
+    }
+
+    private static byte[] readBytes(DataInputStream dIn)
+        throws IOException
+    {
+        int len = dIn.readInt();
+
+        if (len < 0 || len > 0xffff)
+        {
+            throw new IOException("invalid length in index");
+        }
+
+        byte[] bytes = new byte[len];
+        dIn.readFully(bytes);
+
+        return bytes;
+    }
+
+    private static void writeBytes(DataOutputStream dOut, byte[] bytes)
+        throws IOException
+    {
+        dOut.writeInt(bytes.length);
+        dOut.write(bytes);
+    }
+
+    private static class RingEntry
+    {
+        final long offset;
+        final List keyIDs = new ArrayList();
+        final List fingerprints = new ArrayList();
+        final List userIDs = new ArrayList();
+
+        int length;
+
+        RingEntry(long offset)
+        {
+            this.offset = offset;
+        }
+
+        void addKey(PGPPublicKey key)
+        {
+            keyIDs.add(new Long(key.getKeyID()));
+            fingerprints.add(key.getFingerprint());
+        }
+    }
+
+    /**
+     * An input stream over part of the mapped file, which may span regions.
+     */
+    private class MappedInputStream
+        extends InputStream
+    {
+        private final long end;
+
+        private long pos;
+
+        MappedInputStream(long start, long end)
+        {
+            this.pos = start;
+            this.end = end;
+        }
+
+        public int read()
+            throws IOException
+        {
+            if (pos >= end)
+            {
+                return -1;
+            }
+
+            return u8(pos++);
+        }
+
+        public int read(byte[] buf, int off, int len)
+        {
+            if (len == 0)
+            {
+                return 0;
+            }
+            if (pos >= end)
+            {
+                return -1;
+            }
+
+            int region = (int)(pos / REGION_SIZE);
+            int regionPos = (int)(pos % REGION_SIZE);
+            int count = (int)Math.min(Math.min(len, end - pos), REGION_SIZE - regionPos);
+
+            ByteBuffer buffer = regions[region].duplicate();
+            buffer.position(regionPos);
+            buffer.get(buf, off, count);
+
+            pos += count;
+
+            return count;
+        }
+
+        public int available()
+        {
+            return (int)Math.min(Integer.MAX_VALUE, end - pos);
+        }
+    }
+}
@@ -26,13 +26,16 @@
 {
     private Map    secretRings = new HashMap();
     private List   order = new ArrayList();
-    
+    private KeyRingIndex index;
+
     private PGPSecretKeyRingCollection(
         Map     secretRings,
-        List    order)
+        List    order,
+        KeyRingIndex index)
     {
         this.secretRings = secretRings;
         this.order = order;
+        this.index = index;
     }
     
     public PGPSecretKeyRingCollection(
@@ -71,6 +74,8 @@ public PGPSecretKeyRingCollection(
             secretRings.put(key, pgpSecret);
             order.add(key);
         }
+
+        index = KeyRingIndex.build(secretRings, order);
     }
     
     public PGPSecretKeyRingCollection(
@@ -87,6 +92,8 @@ public PGPSecretKeyRingCollection(
             secretRings.put(key, pgpSecret);
             order.add(key);
         }
+
+        index = KeyRingIndex.build(secretRings, order);
     }
     
     /**
@@ -154,7 +161,13 @@ public Iterator<PGPSecretKeyRing> getKeyRings(
         boolean   ignoreCase) 
         throws PGPException
     {
-        Iterator    it = this.getKeyRings();
+        if (!matchPartial)
+        {
+            return getRings(index.getRingsForUserID(userID, ignoreCase)).iterator();
+        }
+
+        List        candidates = index.getCandidatesForSubstring(userID);
+        Iterator    it = getRings((candidates == null) ? order : candidates).iterator();
         List        rings = new ArrayList();
 
         if (ignoreCase)
@@ -175,19 +188,9 @@ public Iterator<PGPSecretKeyRing> getKeyRings(
                     next = Strings.toLowerCase(next);
                 }
 
-                if (matchPartial)
+                if (next.indexOf(userID) > -1)
                 {
-                    if (next.indexOf(userID) > -1)
-                    {
-                        rings.add(secRing);
-                    }
-                }
-                else
-                {
-                    if (next.equals(userID))
-                    {
-                        rings.add(secRing);
-                    }
+                    rings.add(secRing);
                 }
             }
         }
@@ -195,6 +198,19 @@ public Iterator<PGPSecretKeyRing> getKeyRings(
         return rings.iterator();
     }
 
+    /**
+     * Return an iterator of the key rings with a user ID carrying the passed in e-mail address, either
+     * in the form "Name &lt;address&gt;" or as the user ID itself. Addresses are compared ignoring case.
+     *
+     * @param emailAddress the e-mail address to be matched.
+     * @return an iterator (possibly empty) of key rings which matched.
+     */
+    public Iterator<PGPSecretKeyRing> getKeyRingsByEmail(
+        String    emailAddress)
+    {
+        return getRings(index.getRingsForEmail(emailAddress)).iterator();
+    }
+
     /**
      * Return the PGP secret key associated with the given key id.
      * 
@@ -206,7 +222,7 @@ public PGPSecretKey getSecretKey(
         long        keyID) 
         throws PGPException
     {    
-        Iterator    it = this.getKeyRings();
+        Iterator    it = getRings(index.getRingsForKeyID(keyID)).iterator();
         
         while (it.hasNext())
         {
@@ -240,7 +256,7 @@ public PGPSecretKeyRing getSecretKeyRing(
             return (PGPSecretKeyRing)secretRings.get(id);
         }
         
-        Iterator    it = this.getKeyRings();
+        Iterator    it = getRings(index.getRingsForKeyID(keyID)).iterator();
         
         while (it.hasNext())
         {
@@ -256,6 +272,60 @@ public PGPSecretKeyRing getSecretKeyRing(
         return null;
     }
 
+    /**
+     * Return the PGP secret key associated with the given key fingerprint.
+     *
+     * @param fingerprint the key fingerprint to match against.
+     * @return the secret key matching fingerprint, null if there is none.
+     * @throws PGPException
+     */
+    public PGPSecretKey getSecretKey(
+        byte[] fingerprint)
+        throws PGPException
+    {
+        Iterator    it = getRings(index.getRingsForFingerprint(fingerprint)).iterator();
+
+        while (it.hasNext())
+        {
+            PGPSecretKeyRing    secRing = (PGPSecretKeyRing)it.next();
+            PGPSecretKey        sec = secRing.getSecretKey(fingerprint);
+
+            if (sec != null)
+            {
+                return sec;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Return the secret key ring which contains the key with the given fingerprint.
+     *
+     * @param fingerprint the key fingerprint to match against.
+     * @return the secret key ring containing the key matching fingerprint, null if there is none.
+     * @throws PGPException
+     */
+    public PGPSecretKeyRing getSecretKeyRing(
+        byte[] fingerprint)
+        throws PGPException
+    {
+        Iterator    it = getRings(index.getRingsForFingerprint(fingerprint)).iterator();
+
+        while (it.hasNext())
+        {
+            PGPSecretKeyRing    secRing = (PGPSecretKeyRing)it.next();
+            PGPSecretKey        sec = secRing.getSecretKey(fingerprint);
+
+            if (sec != null)
+            {
+                return secRing;
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Return true if a key matching the passed in key ID is present, false otherwise.
      *
@@ -268,6 +338,18 @@ public boolean contains(long keyID)
         return getSecretKey(keyID) != null;
     }
 
+    /**
+     * Return true if a secret key matching the passed in fingerprint is present, false otherwise.
+     *
+     * @param fingerprint the key fingerprint to look for.
+     * @return true if fingerprint present, false otherwise.
+     */
+    public boolean contains(byte[] fingerprint)
+        throws PGPException
+    {
+        return getSecretKey(fingerprint) != null;
+    }
+
     public byte[] getEncoded() 
         throws IOException
     {
@@ -328,7 +410,7 @@ public static PGPSecretKeyRingCollection addSecretKeyRing(
         newSecretRings.put(key, secretKeyRing);
         newOrder.add(key);
         
-        return new PGPSecretKeyRingCollection(newSecretRings, newOrder);
+        return new PGPSecretKeyRingCollection(newSecretRings, newOrder, ringCollection.index.with(key, secretKeyRing));
     }
     
     /**
@@ -367,7 +449,102 @@ public static PGPSecretKeyRingCollection removeSecretKeyRing(
             }
         }
         
-        return new PGPSecretKeyRingCollection(newSecretRings, newOrder);
+        return new PGPSecretKeyRingCollection(newSecretRings, newOrder,
+            ringCollection.index.without(key, (PGPSecretKeyRing)ringCollection.secretRings.get(key)));
+    }
+
+    /**
+     * Return a new collection object containing the contents of the passed in collection and
+     * the passed in secret key rings. The collection's index is copied once for all the rings, so
+     * this should be used rather than addSecretKeyRing() when adding a number of rings.
+     *
+     * @param ringCollection the collection the rings are to be added to.
+     * @param secretKeyRings the key rings to be added.
+     * @return a new collection merging the current one with the passed in rings.
+     * @exception IllegalArgumentException if the keyID for any of the passed in rings is already present.
+     */
+    public static PGPSecretKeyRingCollection addSecretKeyRings(
+        PGPSecretKeyRingCollection       ringCollection,
+        Collection<PGPSecretKeyRing>     secretKeyRings)
+    {
+        Map     newSecretRings = new HashMap(ringCollection.secretRings);
+        List    newOrder = new ArrayList(ringCollection.order);
+        List    added = new ArrayList(secretKeyRings.size());
+
+        for (Iterator it = secretKeyRings.iterator(); it.hasNext();)
+        {
+            PGPSecretKeyRing    ring = (PGPSecretKeyRing)it.next();
+            Long                key = new Long(ring.getPublicKey().getKeyID());
+
+            if (newSecretRings.containsKey(key))
+            {
+                throw new IllegalArgumentException("Collection already contains a key with a keyID for a passed in ring.");
+            }
+
+            newSecretRings.put(key, ring);
+            newOrder.add(key);
+            added.add(key);
+        }
+
+        return new PGPSecretKeyRingCollection(newSecretRings, newOrder, ringCollection.index.with(added, newSecretRings));
+    }
+
+    /**
+     * Return a new collection object containing the contents of this collection with
+     * the passed in secret key rings removed. The collection's index is copied once for all the
+     * rings, so this should be used rather than removeSecretKeyRing() when removing a number of rings.
+     *
+     * @param ringCollection the collection the rings are to be removed from.
+     * @param secretKeyRings the key rings to be removed.
+     * @return a new collection not containing the passed in rings.
+     * @exception IllegalArgumentException if the keyID for any of the passed in rings is not present.
+     */
+    public static PGPSecretKeyRingCollection removeSecretKeyRings(
+        PGPSecretKeyRingCollection       ringCollection,
+        Collection<PGPSecretKeyRing>     secretKeyRings)
+    {
+        Map     newSecretRings = new HashMap(ringCollection.secretRings);
+        List    removed = new ArrayList(secretKeyRings.size());
+
+        for (Iterator it = secretKeyRings.iterator(); it.hasNext();)
+        {
+            Long        key = new Long(((PGPSecretKeyRing)it.next()).getPublicKey().getKeyID());
+
+            if (!newSecretRings.containsKey(key))
+            {
+                throw new IllegalArgumentException("Collection does not contain a key with a keyID for a passed in ring.");
+            }
+
+            newSecretRings.remove(key);
+            removed.add(key);
+        }
+
+        List    newOrder = new ArrayList(newSecretRings.size());
+
+        for (int i = 0; i < ringCollection.order.size(); i++)
+        {
+            Long    r = (Long)ringCollection.order.get(i);
+
+            if (newSecretRings.containsKey(r))
+            {
+                newOrder.add(r);
+            }
+        }
+
+        return new PGPSecretKeyRingCollection(newSecretRings, newOrder,
+            ringCollection.index.without(removed, ringCollection.secretRings));
+    }
+
+    private List getRings(List ringIDs)
+    {
+        List rings = new ArrayList(ringIDs.size());
+
+        for (int i = 0; i != ringIDs.size(); i++)
+        {
+            rings.add(secretRings.get(ringIDs.get(i)));
+        }
+
+        return rings;
     }
 
     /**
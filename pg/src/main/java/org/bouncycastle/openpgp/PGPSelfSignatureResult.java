@@ -0,0 +1,106 @@
+package org.bouncycastle.openpgp;
+
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Strings;
+
+/**
+ * The outcome of checking a single self-signature with a {@link PGPSelfSignatureVerifier}.
+ */
+public class PGPSelfSignatureResult
+{
+    private final PGPPublicKey key;
+    private final PGPSignature signature;
+    private final byte[] rawUserID;
+    private final PGPUserAttributeSubpacketVector userAttributes;
+    private final boolean verified;
+    private final PGPException exception;
+
+    PGPSelfSignatureResult(
+        PGPPublicKey                    key,
+        PGPSignature                    signature,
+        byte[]                          rawUserID,
+        PGPUserAttributeSubpacketVector userAttributes,
+        boolean                         verified,
+        PGPException                    exception)
+    {
+        this.key = key;
+        this.signature = signature;
+        this.rawUserID = rawUserID;
+        this.userAttributes = userAttributes;
+        this.verified = verified;
+        this.exception = exception;
+    }
+
+    /**
+     * Return the key the signature is attached to - the master key for user ID and attribute
+     * certifications, direct key signatures and key revocations, the subkey for subkey bindings
+     * and revocations.
+     *
+     * @return the key the signature is on.
+     */
+    public PGPPublicKey getPublicKey()
+    {
+        return key;
+    }
+
+    /**
+     * Return the signature checked.
+     *
+     * @return the signature.
+     */
+    public PGPSignature getSignature()
+    {
+        return signature;
+    }
+
+    /**
+     * Return the user ID the signature is over, as a String.
+     *
+     * @return the user ID, null if the signature is not over a user ID.
+     */
+    public String getUserID()
+    {
+        return (rawUserID == null) ? null : Strings.fromUTF8ByteArray(rawUserID);
+    }
+
+    /**
+     * Return the user ID the signature is over in raw byte form.
+     *
+     * @return the user ID, null if the signature is not over a user ID.
+     */
+    public byte[] getRawUserID()
+    {
+        return Arrays.clone(rawUserID);
+    }
+
+    /**
+     * Return the user attributes the signature is over.
+     *
+     * @return the user attributes, null if the signature is not over user attributes.
+     */
+    public PGPUserAttributeSubpacketVector getUserAttributes()
+    {
+        return userAttributes;
+    }
+
+    /**
+     * Return whether the signature verified.
+     *
+     * @return true if the signature verified, false if it failed to verify or could not be checked.
+     */
+    public boolean isVerified()
+    {
+        return verified;
+    }
+
+    /**
+     * Return the reason the signature could not be checked, if there was one - for example an
+     * unsupported algorithm, or a signature type that does not belong where it was found.
+     *
+     * @return the exception raised checking the signature, null if there was none.
+     */
+    public PGPException getException()
+    {
+        return exception;
+    }
+}
@@ -0,0 +1,345 @@
+package org.bouncycastle.openpgp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.bouncycastle.bcpg.UserAttributeSubpacket;
+import org.bouncycastle.bcpg.UserIDPacket;
+import org.bouncycastle.openpgp.operator.PGPContentVerifierBuilderProvider;
+
+/**
+ * Verifier for the self-signatures in public key rings - the user ID and attribute certifications,
+ * direct key signatures, revocations and subkey bindings made by a key ring's master key - for
+ * checking whole key rings, or collections of them, at once as on a bulk import.
+ * <p>
+ * Each key packet, user ID and user attribute is encoded once for all the signatures over it,
+ * rather than once per signature, and the signatures are verified in batches, on an Executor if
+ * one is given. The outcome for each signature is reported as a {@link PGPSelfSignatureResult},
+ * in the order the signatures appear in the key ring. Signatures made by other keys are not
+ * included.
+ * </p>
+ * <p>
+ * Note: as with {@link PGPSignature#init(PGPContentVerifierBuilderProvider, PGPPublicKey)}, the
+ * signatures are initialised for verification as part of the process, so the key rings should not
+ * be used to verify signatures elsewhere at the same time.
+ * </p>
+ */
+public class PGPSelfSignatureVerifier
+{
+    private static final int BATCH_SIZE = 8;
+
+    private final PGPContentVerifierBuilderProvider verifierBuilderProvider;
+    private final Executor executor;
+
+    /**
+     * Create a verifier which checks signatures on the calling thread.
+     *
+     * @param verifierBuilderProvider provider of content verifiers for the signatures.
+     */
+    public PGPSelfSignatureVerifier(PGPContentVerifierBuilderProvider verifierBuilderProvider)
+    {
+        this(verifierBuilderProvider, null);
+    }
+
+    /**
+     * Create a verifier which checks batches of signatures on executor.
+     *
+     * @param verifierBuilderProvider provider of content verifiers for the signatures, this needs
+     * to be safe to use from several threads at once.
+     * @param executor the executor to verify signatures on, null to verify on the calling thread.
+     */
+    public PGPSelfSignatureVerifier(PGPContentVerifierBuilderProvider verifierBuilderProvider, Executor executor)
+    {
+        this.verifierBuilderProvider = verifierBuilderProvider;
+        this.executor = executor;
+    }
+
+    /**
+     * Verify the self-signatures in a key ring.
+     *
+     * @param keyRing the key ring to check.
+     * @return a list of PGPSelfSignatureResult, one for each self-signature.
+     * @throws PGPException if a key ring cannot be encoded.
+     */
+    public List<PGPSelfSignatureResult> verify(PGPPublicKeyRing keyRing)
+        throws PGPException
+    {
+        List checks = new ArrayList();
+
+        addChecks(keyRing, checks);
+
+        return runChecks(checks);
+    }
+
+    /**
+     * Verify the self-signatures in every key ring in a collection.
+     *
+     * @param keyRings the key rings to check.
+     * @return a list of PGPSelfSignatureResult, one for each self-signature, in key ring order.
+     * @throws PGPException if a key ring cannot be encoded.
+     */
+    public List<PGPSelfSignatureResult> verify(PGPPublicKeyRingCollection keyRings)
+        throws PGPException
+    {
+        List checks = new ArrayList();
+
+        for (Iterator it = keyRings.getKeyRings(); it.hasNext();)
+        {
+            addChecks((PGPPublicKeyRing)it.next(), checks);
+        }
+
+        return runChecks(checks);
+    }
+
+    private void addChecks(PGPPublicKeyRing keyRing, List checks)
+        throws PGPException
+    {
+        Iterator keys = keyRing.getPublicKeys();
+        PGPPublicKey masterKey = (PGPPublicKey)keys.next();
+        long masterKeyID = masterKey.getKeyID();
+        byte[] masterKeyBytes = getEncodedContents(masterKey);
+
+        for (Iterator it = masterKey.keySigs.iterator(); it.hasNext();)
+        {
+            PGPSignature sig = (PGPSignature)it.next();
+
+            if (sig.getKeyID() == masterKeyID)
+            {
+                checks.add(new Check(masterKey, masterKey, sig, masterKeyBytes, null, null, null,
+                    sig.getSignatureType() == PGPSignature.DIRECT_KEY || sig.getSignatureType() == PGPSignature.KEY_REVOCATION));
+            }
+        }
+
+        for (int i = 0; i != masterKey.ids.size(); i++)
+        {
+            Object id = masterKey.ids.get(i);
+            List sigs = (List)masterKey.idSigs.get(i);
+            byte[] idBytes = null;
+
+            for (Iterator it = sigs.iterator(); it.hasNext();)
+            {
+                PGPSignature sig = (PGPSignature)it.next();
+
+                if (sig.getKeyID() == masterKeyID)
+                {
+                    if (idBytes == null)
+                    {
+                        idBytes = getEncodedID(id);
+                    }
+
+                    checks.add(new Check(masterKey, masterKey, sig, masterKeyBytes, null, id, idBytes,
+                        sig.isCertification() || sig.getSignatureType() == PGPSignature.CERTIFICATION_REVOCATION));
+                }
+            }
+        }
+
+        while (keys.hasNext())
+        {
+            PGPPublicKey subKey = (PGPPublicKey)keys.next();
+            byte[] subKeyBytes = null;
+
+            for (Iterator it = subKey.subSigs.iterator(); it.hasNext();)
+            {
+                PGPSignature sig = (PGPSignature)it.next();
+
+                if (sig.getKeyID() == masterKeyID)
+                {
+                    if (subKeyBytes == null)
+                    {
+                        subKeyBytes = getEncodedContents(subKey);
+                    }
+
+                    checks.add(new Check(masterKey, subKey, sig, masterKeyBytes, subKeyBytes, null, null,
+                        sig.getSignatureType() == PGPSignature.SUBKEY_BINDING || sig.getSignatureType() == PGPSignature.SUBKEY_REVOCATION));
+                }
+            }
+        }
+    }
+
+    private List runChecks(final List checks)
+        throws PGPException
+    {
+        final PGPSelfSignatureResult[] results = new PGPSelfSignatureResult[checks.size()];
+
+        if (executor == null)
+        {
+            checkBatch(checks, 0, checks.size(), results);
+        }
+        else
+        {
+            List tasks = new ArrayList();
+
+            for (int start = 0; start < checks.size(); start += BATCH_SIZE)
+            {
+                final int from = start;
+                final int to = Math.min(start + BATCH_SIZE, checks.size());
+
+                FutureTask task = new FutureTask(new Runnable()
+                {
+                    public void run()
+                    {
+                        checkBatch(checks, from, to, results);
+                    }
+                }, null);
+
+                tasks.add(task);
+
+                try
+                {
+                    executor.execute(task);
+                }
+                catch (RejectedExecutionException e)
+                {
+                    task.run();
+                }
+            }
+
+            for (int i = 0; i != tasks.size(); i++)
+            {
+                FutureTask task = (FutureTask)tasks.get(i);
+
+                // if no thread has picked the batch up yet, do it here.
+                task.run();
+
+                try
+                {
+                    task.get();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new PGPException("interrupted verifying signatures", new InterruptedIOException(e.getMessage()));
+                }
+                catch (ExecutionException e)
+                {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException)
+                    {
+                        throw (RuntimeException)cause;
+                    }
+                    if (cause instanceof Error)
+                    {
+                        throw (Error)cause;
+                    }
+                    throw new IllegalStateException(cause.toString());
+                }
+            }
+        }
+
+        List resultList = new ArrayList(results.length);
+        for (int i = 0; i != results.length; i++)
+        {
+            resultList.add(results[i]);
+        }
+
+        return resultList;
+    }
+
+    private void checkBatch(List checks, int from, int to, PGPSelfSignatureResult[] results)
+    {
+        for (int i = from; i != to; i++)
+        {
+            results[i] = ((Check)checks.get(i)).check();
+        }
+    }
+
+    private static byte[] getEncodedContents(PGPPublicKey key)
+        throws PGPException
+    {
+        try
+        {
+            return key.publicPk.getEncodedContents();
+        }
+        catch (IOException e)
+        {
+            throw new PGPException("exception preparing key.", e);
+        }
+    }
+
+    private static byte[] getEncodedID(Object id)
+        throws PGPException
+    {
+        if (id instanceof UserIDPacket)
+        {
+            return ((UserIDPacket)id).getRawID();
+        }
+
+        try
+        {
+            ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+            UserAttributeSubpacket[] packets = ((PGPUserAttributeSubpacketVector)id).toSubpacketArray();
+            for (int i = 0; i != packets.length; i++)
+            {
+                packets[i].encode(bOut);
+            }
+
+            return bOut.toByteArray();
+        }
+        catch (IOException e)
+        {
+            throw new PGPException("cannot encode subpacket array", e);
+        }
+    }
+
+    private class Check
+    {
+        private final PGPPublicKey masterKey;
+        private final PGPPublicKey key;
+        private final PGPSignature sig;
+        private final byte[] keyBytes;
+        private final byte[] subKeyBytes;
+        private final Object id;
+        private final byte[] idBytes;
+        private final boolean expectedType;
+
+        Check(PGPPublicKey masterKey, PGPPublicKey key, PGPSignature sig, byte[] keyBytes, byte[] subKeyBytes, Object id, byte[] idBytes, boolean expectedType)
+        {
+            this.masterKey = masterKey;
+            this.key = key;
+            this.sig = sig;
+            this.keyBytes = keyBytes;
+            this.subKeyBytes = subKeyBytes;
+            this.id = id;
+            this.idBytes = idBytes;
+            this.expectedType = expectedType;
+        }
+
+        PGPSelfSignatureResult check()
+        {
+            byte[] rawUserID = (id instanceof UserIDPacket) ? idBytes : null;
+            PGPUserAttributeSubpacketVector userAttributes = (id instanceof PGPUserAttributeSubpacketVector) ? (PGPUserAttributeSubpacketVector)id : null;
+            boolean verified = false;
+            PGPException exception = null;
+
+            try
+            {
+                if (!expectedType)
+                {
+                    throw new PGPException("unexpected signature type: " + sig.getSignatureType());
+                }
+
+                sig.init(verifierBuilderProvider, masterKey);
+
+                verified = sig.verifyEncodedCertification(keyBytes, subKeyBytes, (userAttributes != null) ? 0xd1 : 0xb4, idBytes);
+            }
+            catch (PGPException e)
+            {
+                exception = e;
+            }
+            catch (RuntimeException e)
+            {
+                exception = new PGPException("exception verifying signature: " + e.getMessage(), e);
+            }
+
+            return new PGPSelfSignatureResult(key, sig, rawUserID, userAttributes, verified, exception);
+        }
+    }
+}
@@ -249,8 +249,11 @@ private void updateWithIdData(int header, byte[] idBytes)
     private void updateWithPublicKey(PGPPublicKey key)
         throws PGPException
     {
-        byte[] keyBytes = getEncodedPublicKey(key);
+        updateWithEncodedPublicKey(getEncodedPublicKey(key));
+    }
 
+    private void updateWithEncodedPublicKey(byte[] keyBytes)
+    {
         this.update((byte)0x99);
         this.update((byte)(keyBytes.length >> 8));
         this.update((byte)(keyBytes.length));
@@ -390,6 +393,44 @@ public boolean verifyCertification(
         return verifier.verify(this.getSignature());
     }
 
+    /**
+     * Verify a certification, revocation or binding where the key packets, and any user ID or
+     * attribute data, have already been encoded - as done once for all the signatures on a key by
+     * {@link PGPSelfSignatureVerifier}.
+     *
+     * @param keyBytes the encoded contents of the (master) key packet.
+     * @param subKeyBytes the encoded contents of the subkey packet, null if not a subkey signature.
+     * @param idHeader the header byte for idBytes.
+     * @param idBytes the encoded user ID or attribute, null if not a user ID or attribute signature.
+     */
+    boolean verifyEncodedCertification(
+        byte[]    keyBytes,
+        byte[]    subKeyBytes,
+        int       idHeader,
+        byte[]    idBytes)
+        throws PGPException
+    {
+        if (verifier == null)
+        {
+            throw new PGPException("PGPSignature not initialised - call init().");
+        }
+
+        updateWithEncodedPublicKey(keyBytes);
+
+        if (subKeyBytes != null)
+        {
+            updateWithEncodedPublicKey(subKeyBytes);
+        }
+        if (idBytes != null)
+        {
+            updateWithIdData(idHeader, idBytes);
+        }
+
+        addTrailer();
+
+        return verifier.verify(this.getSignature());
+    }
+
     private void addTrailer()
     {
         try
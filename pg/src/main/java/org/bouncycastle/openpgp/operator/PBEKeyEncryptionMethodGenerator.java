@@ -2,6 +2,7 @@
 
 import java.security.SecureRandom;
 
+import org.bouncycastle.bcpg.AEADEncDataPacket;
 import org.bouncycastle.bcpg.ContainedPacket;
 import org.bouncycastle.bcpg.S2K;
 import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
@@ -130,6 +131,37 @@ public ContainedPacket generate(int encAlgorithm, byte[] sessionInfo)
         return new SymmetricKeyEncSessionPacket(encAlgorithm, s2k, encryptSessionInfo(encAlgorithm, key, nSessionInfo));
     }
 
+    /**
+     * Generate a version 5 symmetric key encrypted session key packet, with the session key
+     * encrypted under the key derived from the pass phrase using the AEAD algorithm of an AEAD
+     * configured data encryptor builder.
+     *
+     * @param dataEncryptorBuilder the builder for the data encryptor the session key is for.
+     * @param sessionKey the session key to encrypt.
+     * @return the session key packet.
+     * @throws PGPException if an error occurs deriving the key or encrypting the session key.
+     */
+    public ContainedPacket generateAEAD(PGPAEADDataEncryptorBuilder dataEncryptorBuilder, byte[] sessionKey)
+        throws PGPException
+    {
+        int encAlgorithm = dataEncryptorBuilder.getAlgorithm();
+        int aeadAlgorithm = dataEncryptorBuilder.getAEADAlgorithm();
+
+        byte[] key = getKey(encAlgorithm);
+        PGPAEADCipher cipher = dataEncryptorBuilder.buildAEADCipher(key);
+
+        byte[] iv = new byte[AEADEncDataPacket.getIVLength(aeadAlgorithm)];
+
+        random.nextBytes(iv);
+
+        byte[] aaData = SymmetricKeyEncSessionPacket.createAAData(SymmetricKeyEncSessionPacket.VERSION_5, encAlgorithm, aeadAlgorithm);
+        byte[] encSessionKey = new byte[sessionKey.length + cipher.getTagLength()];
+
+        cipher.processChunk(true, iv, aaData, sessionKey, 0, sessionKey.length, encSessionKey, 0);
+
+        return new SymmetricKeyEncSessionPacket(encAlgorithm, aeadAlgorithm, iv, s2k, encSessionKey);
+    }
+
     abstract protected byte[]  encryptSessionInfo(int encAlgorithm, byte[] key, byte[] sessionInfo)
         throws PGPException;
 }
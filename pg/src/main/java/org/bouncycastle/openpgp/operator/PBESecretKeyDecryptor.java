@@ -7,11 +7,26 @@
 {
     private char[] passPhrase;
     private PGPDigestCalculatorProvider calculatorProvider;
+    private PGPDerivedKeyCache keyCache;
 
     protected PBESecretKeyDecryptor(char[] passPhrase, PGPDigestCalculatorProvider calculatorProvider)
+    {
+        this(passPhrase, calculatorProvider, null);
+    }
+
+    /**
+     * Base constructor for a decryptor which takes keys derived from the pass phrase from a cache
+     * where it can.
+     *
+     * @param passPhrase the pass phrase the secret keys are protected with.
+     * @param calculatorProvider provider of the digests to use in key derivation.
+     * @param keyCache the cache of derived keys to use, null if keys are to be derived every time.
+     */
+    protected PBESecretKeyDecryptor(char[] passPhrase, PGPDigestCalculatorProvider calculatorProvider, PGPDerivedKeyCache keyCache)
     {
         this.passPhrase = passPhrase;
         this.calculatorProvider = calculatorProvider;
+        this.keyCache = keyCache;
     }
 
     public PGPDigestCalculator getChecksumCalculator(int hashAlgorithm)
@@ -23,6 +38,11 @@ public PGPDigestCalculator getChecksumCalculator(int hashAlgorithm)
     public byte[] makeKeyFromPassPhrase(int keyAlgorithm, S2K s2k)
         throws PGPException
     {
+        if (keyCache != null)
+        {
+            return keyCache.getKey(calculatorProvider, keyAlgorithm, s2k, passPhrase);
+        }
+
         return PGPUtil.makeKeyFromPassPhrase(calculatorProvider, keyAlgorithm, s2k, passPhrase);
     }
 
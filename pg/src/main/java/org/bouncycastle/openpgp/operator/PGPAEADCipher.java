@@ -0,0 +1,49 @@
+package org.bouncycastle.openpgp.operator;
+
+import org.bouncycastle.bcpg.AEADAlgorithmTags;
+import org.bouncycastle.openpgp.PGPException;
+
+/**
+ * An AEAD cipher with a fixed key, used to encrypt and decrypt the separately authenticated chunks
+ * of an AEAD encrypted data packet, and the session key in a version 5 symmetric key encrypted
+ * session key packet.
+ * <p>
+ * Each call to {@link #processChunk processChunk()} is independent of any other, so a cipher can
+ * be used from several threads at once to process different chunks.
+ * </p>
+ */
+public interface PGPAEADCipher
+{
+    /**
+     * Return the AEAD algorithm of this cipher.
+     *
+     * @return one of the {@link AEADAlgorithmTags AEAD algorithms}.
+     */
+    int getAEADAlgorithm();
+
+    /**
+     * Return the length of the authentication tag added to each chunk.
+     *
+     * @return the tag length in bytes.
+     */
+    int getTagLength();
+
+    /**
+     * Encrypt or decrypt a single chunk. On encryption the output is the ciphertext followed by the
+     * authentication tag, on decryption the input is the ciphertext followed by the tag and the
+     * output is the plaintext.
+     *
+     * @param forEncryption true to encrypt, false to decrypt.
+     * @param nonce the nonce for this chunk.
+     * @param associatedData the associated data for this chunk.
+     * @param in the input buffer.
+     * @param inOff offset of the input in in.
+     * @param inLen length of the input.
+     * @param out the output buffer.
+     * @param outOff offset in out to write the output at.
+     * @return the number of bytes written to out.
+     * @throws PGPException if the cipher cannot be initialised, or the chunk fails authentication.
+     */
+    int processChunk(boolean forEncryption, byte[] nonce, byte[] associatedData, byte[] in, int inOff, int inLen, byte[] out, int outOff)
+        throws PGPException;
+}
@@ -0,0 +1,26 @@
+package org.bouncycastle.openpgp.operator;
+
+import org.bouncycastle.bcpg.AEADAlgorithmTags;
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.openpgp.PGPException;
+
+/**
+ * A {@link PGPDataDecryptorFactory} which can also decrypt AEAD encrypted data.
+ */
+public interface PGPAEADDataDecryptorFactory
+    extends PGPDataDecryptorFactory
+{
+    /**
+     * Constructs an AEAD cipher for decrypting AEAD encrypted data.
+     *
+     * @param aeadAlgorithm the identifier of the {@link AEADAlgorithmTags AEAD algorithm} to
+     *            decrypt with.
+     * @param encAlgorithm the identifier of the {@link SymmetricKeyAlgorithmTags encryption
+     *            algorithm} to decrypt with.
+     * @param key the bytes of the key for the cipher.
+     * @return an AEAD cipher for the key.
+     * @throws PGPException if the algorithms are not supported or the cipher cannot be initialised.
+     */
+    public PGPAEADCipher createAEADCipher(int aeadAlgorithm, int encAlgorithm, byte[] key)
+        throws PGPException;
+}
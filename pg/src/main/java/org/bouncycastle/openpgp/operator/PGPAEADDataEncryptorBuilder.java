@@ -0,0 +1,37 @@
+package org.bouncycastle.openpgp.operator;
+
+import org.bouncycastle.bcpg.AEADAlgorithmTags;
+import org.bouncycastle.openpgp.PGPException;
+
+/**
+ * A {@link PGPDataEncryptorBuilder} which can also be configured to produce AEAD encrypted data.
+ */
+public interface PGPAEADDataEncryptorBuilder
+    extends PGPDataEncryptorBuilder
+{
+    /**
+     * The AEAD algorithm used for data encrypted with this builder, if any.
+     *
+     * @return one of the {@link AEADAlgorithmTags AEAD algorithms}, or 0 if data is to be
+     *         encrypted with CFB.
+     */
+    int getAEADAlgorithm();
+
+    /**
+     * The chunk size octet used for AEAD encrypted data - chunks are 2^(chunkSize + 6) bytes.
+     *
+     * @return the chunk size octet, only meaningful if {@link #getAEADAlgorithm()} is not 0.
+     */
+    int getChunkSize();
+
+    /**
+     * Builds an AEAD cipher using the algorithm and AEAD algorithm configured for this builder.
+     *
+     * @param keyBytes the bytes of the key to use for the cipher.
+     * @return an AEAD cipher for the key.
+     * @throws PGPException if this builder is not configured for AEAD, or an error occurs
+     *             initialising the cipher.
+     */
+    PGPAEADCipher buildAEADCipher(byte[] keyBytes)
+        throws PGPException;
+}
@@ -0,0 +1,327 @@
+package org.bouncycastle.openpgp.operator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.bcpg.S2K;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Strings;
+
+/**
+ * A bounded, in memory cache of keys derived from pass phrases with S2K, so secret keys protected
+ * with the same pass phrase and S2K specifier - as happens with the subkeys of a key ring - only
+ * pay for the iterated and salted hashing once.
+ * <p>
+ * Keys are cached against the symmetric algorithm, the S2K specifier (type, hash algorithm, salt
+ * and iteration count) and a digest of the pass phrase salted with a random value private to the
+ * cache, so the pass phrase itself is not held. Entries are dropped after a fixed lifetime, or
+ * least recently used first once the cache is full, and the key bytes are zeroed as they are
+ * dropped. {@link #clear()} drops everything at once.
+ * </p>
+ * <p>
+ * A cache is safe to share between threads. If several threads ask for the same key at once, one
+ * derives it and the others wait for the result.
+ * </p>
+ */
+public class PGPDerivedKeyCache
+{
+    private final int maxEntries;
+    private final long lifetime;
+    private final byte[] passPhraseSalt = new byte[32];
+
+    private final LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+    private final Map pending = new HashMap();
+
+    /**
+     * Create a cache.
+     *
+     * @param maxEntries the maximum number of keys to hold.
+     * @param lifetime how long, in milliseconds, a key can be held for after it was derived.
+     */
+    public PGPDerivedKeyCache(int maxEntries, long lifetime)
+    {
+        if (maxEntries < 1)
+        {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        if (lifetime < 1)
+        {
+            throw new IllegalArgumentException("lifetime must be positive");
+        }
+
+        this.maxEntries = maxEntries;
+        this.lifetime = lifetime;
+
+        new SecureRandom().nextBytes(passPhraseSalt);
+    }
+
+    /**
+     * Return the key for keyAlgorithm derived from passPhrase using s2k, deriving it if it is not
+     * in the cache. Keys for the old MD5 based scheme, with no S2K specifier, are not cached.
+     *
+     * @param calculatorProvider provider for the digest calculators to derive the key with.
+     * @param keyAlgorithm the symmetric algorithm the key is for.
+     * @param s2k the S2K specifier to use.
+     * @param passPhrase the pass phrase.
+     * @return a copy of the derived key.
+     * @throws PGPException if the key cannot be derived.
+     */
+    public byte[] getKey(PGPDigestCalculatorProvider calculatorProvider, int keyAlgorithm, S2K s2k, char[] passPhrase)
+        throws PGPException
+    {
+        if (s2k == null)
+        {
+            return PGPUtil.makeKeyFromPassPhrase(calculatorProvider, keyAlgorithm, null, passPhrase);
+        }
+
+        CacheKey cacheKey = new CacheKey(keyAlgorithm, s2k, digestPassPhrase(calculatorProvider, passPhrase));
+        Derivation derivation;
+        boolean derive = false;
+
+        synchronized (this)
+        {
+            Entry entry = (Entry)entries.get(cacheKey);
+
+            if (entry != null)
+            {
+                if (entry.expiry > System.currentTimeMillis())
+                {
+                    return Arrays.clone(entry.key);
+                }
+
+                entries.remove(cacheKey);
+                Arrays.fill(entry.key, (byte)0);
+            }
+
+            derivation = (Derivation)pending.get(cacheKey);
+
+            if (derivation == null)
+            {
+                derivation = new Derivation();
+                pending.put(cacheKey, derivation);
+                derive = true;
+            }
+            else
+            {
+                derivation.waiters++;
+            }
+        }
+
+        if (derive)
+        {
+            byte[] key = null;
+            PGPException exception = null;
+
+            try
+            {
+                key = PGPUtil.makeKeyFromPassPhrase(calculatorProvider, keyAlgorithm, s2k, passPhrase);
+            }
+            catch (PGPException e)
+            {
+                exception = e;
+            }
+            catch (RuntimeException e)
+            {
+                exception = new PGPException("exception deriving key: " + e.getMessage(), e);
+            }
+
+            synchronized (this)
+            {
+                pending.remove(cacheKey);
+
+                if (key != null)
+                {
+                    purge();
+                    entries.put(cacheKey, new Entry(Arrays.clone(key), System.currentTimeMillis() + lifetime));
+
+                    while (entries.size() > maxEntries)
+                    {
+                        Iterator it = entries.values().iterator();
+                        Entry eldest = (Entry)it.next();
+
+                        it.remove();
+                        Arrays.fill(eldest.key, (byte)0);
+                    }
+                }
+
+                // waiting threads each take a copy of the key, the last one zeroes it.
+                derivation.done((key != null && derivation.waiters > 0) ? Arrays.clone(key) : null, exception);
+                notifyAll();
+            }
+
+            if (exception != null)
+            {
+                throw exception;
+            }
+
+            return key;
+        }
+
+        synchronized (this)
+        {
+            try
+            {
+                while (!derivation.done)
+                {
+                    try
+                    {
+                        wait();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        throw new PGPException("interrupted waiting for key derivation", e);
+                    }
+                }
+
+                if (derivation.exception != null)
+                {
+                    throw derivation.exception;
+                }
+
+                return Arrays.clone(derivation.key);
+            }
+            finally
+            {
+                if (--derivation.waiters == 0 && derivation.key != null)
+                {
+                    Arrays.fill(derivation.key, (byte)0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the number of keys currently held, not counting any that have expired.
+     *
+     * @return the number of keys in the cache.
+     */
+    public synchronized int size()
+    {
+        purge();
+
+        return entries.size();
+    }
+
+    /**
+     * Drop, and zero, every key in the cache.
+     */
+    public synchronized void clear()
+    {
+        for (Iterator it = entries.values().iterator(); it.hasNext();)
+        {
+            Arrays.fill(((Entry)it.next()).key, (byte)0);
+        }
+
+        entries.clear();
+    }
+
+    private void purge()
+    {
+        long now = System.currentTimeMillis();
+
+        for (Iterator it = entries.values().iterator(); it.hasNext();)
+        {
+            Entry entry = (Entry)it.next();
+
+            if (entry.expiry <= now)
+            {
+                it.remove();
+                Arrays.fill(entry.key, (byte)0);
+            }
+        }
+    }
+
+    private byte[] digestPassPhrase(PGPDigestCalculatorProvider calculatorProvider, char[] passPhrase)
+        throws PGPException
+    {
+        PGPDigestCalculator digestCalculator = calculatorProvider.get(HashAlgorithmTags.SHA256);
+        OutputStream dOut = digestCalculator.getOutputStream();
+        byte[] pBytes = Strings.toUTF8ByteArray(passPhrase);
+
+        try
+        {
+            dOut.write(passPhraseSalt);
+            dOut.write(pBytes);
+            dOut.close();
+        }
+        catch (IOException e)
+        {
+            throw new PGPException("exception calculating digest: " + e.getMessage(), e);
+        }
+        finally
+        {
+            Arrays.fill(pBytes, (byte)0);
+        }
+
+        return digestCalculator.getDigest();
+    }
+
+    private static class CacheKey
+    {
+        private final byte[] encoding;
+        private final int hashCode;
+
+        CacheKey(int keyAlgorithm, S2K s2k, byte[] passPhraseDigest)
+            throws PGPException
+        {
+            byte[] s2kEncoding;
+
+            try
+            {
+                s2kEncoding = s2k.getEncoded();
+            }
+            catch (IOException e)
+            {
+                throw new PGPException("cannot encode S2K: " + e.getMessage(), e);
+            }
+
+            this.encoding = Arrays.concatenate(new byte[]{ (byte)keyAlgorithm }, s2kEncoding, passPhraseDigest);
+            this.hashCode = Arrays.hashCode(encoding);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        public boolean equals(Object o)
+        {
+            return (o instanceof CacheKey) && Arrays.areEqual(encoding, ((CacheKey)o).encoding);
+        }
+    }
+
+    private static class Entry
+    {
+        final byte[] key;
+        final long expiry;
+
+        Entry(byte[] key, long expiry)
+        {
+            this.key = key;
+            this.expiry = expiry;
+        }
+    }
+
+    private static class Derivation
+    {
+        int waiters;
+        boolean done;
+        byte[] key;
+        PGPException exception;
+
+        void done(byte[] key, PGPException exception)
+        {
+            this.done = true;
+            this.key = key;
+            this.exception = exception;
+        }
+    }
+}
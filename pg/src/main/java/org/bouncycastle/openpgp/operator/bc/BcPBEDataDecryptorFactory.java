@@ -4,6 +4,8 @@
 import org.bouncycastle.crypto.BufferedBlockCipher;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.operator.PBEDataDecryptorFactory;
+import org.bouncycastle.openpgp.operator.PGPAEADCipher;
+import org.bouncycastle.openpgp.operator.PGPAEADDataDecryptorFactory;
 import org.bouncycastle.openpgp.operator.PGPDataDecryptor;
 
 /**
@@ -12,6 +14,7 @@
  */
 public class BcPBEDataDecryptorFactory
     extends PBEDataDecryptorFactory
+    implements PGPAEADDataDecryptorFactory
 {
     /**
      * Base constructor.
@@ -65,4 +68,10 @@ public PGPDataDecryptor createDataDecryptor(boolean withIntegrityPacket, int enc
 
         return BcUtil.createDataDecryptor(withIntegrityPacket, engine, key);
     }
+
+    public PGPAEADCipher createAEADCipher(int aeadAlgorithm, int encAlgorithm, byte[] key)
+        throws PGPException
+    {
+        return BcUtil.createAEADCipher(aeadAlgorithm, encAlgorithm, key);
+    }
 }
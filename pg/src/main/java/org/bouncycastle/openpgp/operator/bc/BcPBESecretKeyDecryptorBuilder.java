@@ -4,20 +4,36 @@
 import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.operator.PBESecretKeyDecryptor;
+import org.bouncycastle.openpgp.operator.PGPDerivedKeyCache;
 import org.bouncycastle.openpgp.operator.PGPDigestCalculatorProvider;
 
 public class BcPBESecretKeyDecryptorBuilder
 {
     private PGPDigestCalculatorProvider calculatorProvider;
+    private PGPDerivedKeyCache keyCache;
 
     public BcPBESecretKeyDecryptorBuilder(PGPDigestCalculatorProvider calculatorProvider)
     {
         this.calculatorProvider = calculatorProvider;
     }
 
+    /**
+     * Set a cache for the keys derived from pass phrases, so secret keys sharing a pass phrase and
+     * S2K specifier only need the key derived once.
+     *
+     * @param keyCache the cache to use.
+     * @return the current builder.
+     */
+    public BcPBESecretKeyDecryptorBuilder setKeyCache(PGPDerivedKeyCache keyCache)
+    {
+        this.keyCache = keyCache;
+
+        return this;
+    }
+
     public PBESecretKeyDecryptor build(char[] passPhrase)
     {
-        return new PBESecretKeyDecryptor(passPhrase, calculatorProvider)
+        return new PBESecretKeyDecryptor(passPhrase, calculatorProvider, keyCache)
         {
             public byte[] recoverKeyData(int encAlgorithm, byte[] key, byte[] iv, byte[] keyData, int keyOff, int keyLen)
                 throws PGPException
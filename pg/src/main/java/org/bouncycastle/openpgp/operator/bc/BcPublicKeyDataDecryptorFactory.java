@@ -22,6 +22,8 @@
 import org.bouncycastle.crypto.params.X25519PublicKeyParameters;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.operator.PGPAEADCipher;
+import org.bouncycastle.openpgp.operator.PGPAEADDataDecryptorFactory;
 import org.bouncycastle.openpgp.operator.PGPDataDecryptor;
 import org.bouncycastle.openpgp.operator.PGPPad;
 import org.bouncycastle.openpgp.operator.PublicKeyDataDecryptorFactory;
@@ -32,7 +34,7 @@
  * A decryptor factory for handling public key decryption operations.
  */
 public class BcPublicKeyDataDecryptorFactory
-    implements PublicKeyDataDecryptorFactory
+    implements PublicKeyDataDecryptorFactory, PGPAEADDataDecryptorFactory
 {
     private static final BcPGPKeyConverter KEY_CONVERTER = new BcPGPKeyConverter();
 
@@ -186,4 +188,10 @@ public PGPDataDecryptor createDataDecryptor(boolean withIntegrityPacket, int enc
 
         return BcUtil.createDataDecryptor(withIntegrityPacket, engine, key);
     }
+
+    public PGPAEADCipher createAEADCipher(int aeadAlgorithm, int encAlgorithm, byte[] key)
+        throws PGPException
+    {
+        return BcUtil.createAEADCipher(aeadAlgorithm, encAlgorithm, key);
+    }
 }
@@ -7,17 +7,26 @@
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.x9.ECNamedCurveTable;
 import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.bcpg.AEADAlgorithmTags;
 import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.BufferedBlockCipher;
+import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.crypto.ec.CustomNamedCurves;
 import org.bouncycastle.crypto.io.CipherInputStream;
+import org.bouncycastle.crypto.modes.AEADBlockCipher;
 import org.bouncycastle.crypto.modes.CFBBlockCipher;
+import org.bouncycastle.crypto.modes.EAXBlockCipher;
+import org.bouncycastle.crypto.modes.OCBBlockCipher;
 import org.bouncycastle.crypto.modes.OpenPGPCFBBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.math.ec.ECAlgorithms;
 import org.bouncycastle.math.ec.ECCurve;
 import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.openpgp.PGPDataValidationException;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.operator.PGPAEADCipher;
 import org.bouncycastle.openpgp.operator.PGPDataDecryptor;
 import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
 import org.bouncycastle.util.BigIntegers;
@@ -74,6 +83,67 @@ public PGPDigestCalculator getIntegrityCalculator()
         };
     }
 
+    static PGPAEADCipher createAEADCipher(final int aeadAlgorithm, final int encAlgorithm, byte[] key)
+        throws PGPException
+    {
+        if (aeadAlgorithm != AEADAlgorithmTags.EAX && aeadAlgorithm != AEADAlgorithmTags.OCB)
+        {
+            throw new PGPException("unknown AEAD algorithm: " + aeadAlgorithm);
+        }
+        if (BcImplProvider.createBlockCipher(encAlgorithm).getBlockSize() != 16)
+        {
+            throw new PGPException("AEAD requires a 128 bit block cipher: " + encAlgorithm);
+        }
+
+        final KeyParameter keyParameter = new KeyParameter(key);
+
+        return new PGPAEADCipher()
+        {
+            public int getAEADAlgorithm()
+            {
+                return aeadAlgorithm;
+            }
+
+            public int getTagLength()
+            {
+                return 16;
+            }
+
+            public int processChunk(boolean forEncryption, byte[] nonce, byte[] associatedData, byte[] in, int inOff, int inLen, byte[] out, int outOff)
+                throws PGPException
+            {
+                // a new cipher for each chunk, so chunks can be processed on several threads at once.
+                AEADBlockCipher c;
+
+                if (aeadAlgorithm == AEADAlgorithmTags.EAX)
+                {
+                    c = new EAXBlockCipher(BcImplProvider.createBlockCipher(encAlgorithm));
+                }
+                else
+                {
+                    c = new OCBBlockCipher(BcImplProvider.createBlockCipher(encAlgorithm), BcImplProvider.createBlockCipher(encAlgorithm));
+                }
+
+                try
+                {
+                    c.init(forEncryption, new AEADParameters(keyParameter, 128, nonce, associatedData));
+
+                    int len = c.processBytes(in, inOff, inLen, out, outOff);
+
+                    return len + c.doFinal(out, outOff + len);
+                }
+                catch (InvalidCipherTextException e)
+                {
+                    throw new PGPDataValidationException("AEAD chunk authentication failed");
+                }
+                catch (IllegalArgumentException e)
+                {
+                    throw new PGPException("invalid parameters: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
     public static BufferedBlockCipher createSymmetricKeyWrapper(boolean forEncryption, BlockCipher engine, byte[] key, byte[] iv)
     {
         BufferedBlockCipher c = new BufferedBlockCipher(new CFBBlockCipher(engine, engine.getBlockSize() * 8));
@@ -12,6 +12,8 @@
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPUtil;
 import org.bouncycastle.openpgp.operator.PBEDataDecryptorFactory;
+import org.bouncycastle.openpgp.operator.PGPAEADCipher;
+import org.bouncycastle.openpgp.operator.PGPAEADDataDecryptorFactory;
 import org.bouncycastle.openpgp.operator.PGPDataDecryptor;
 import org.bouncycastle.openpgp.operator.PGPDigestCalculatorProvider;
 
@@ -88,7 +90,7 @@ public PBEDataDecryptorFactory build(char[] passPhrase)
                  throw new IllegalStateException("digest calculator provider cannot be built with current helper: " + e.getMessage());
              }
          }
-         return new PBEDataDecryptorFactory(passPhrase, calculatorProvider)
+         return new AEADPBEDataDecryptorFactory(passPhrase, calculatorProvider)
          {
              public byte[] recoverSessionData(int keyAlgorithm, byte[] key, byte[] secKeyData)
                  throws PGPException
@@ -125,6 +127,22 @@ public PGPDataDecryptor createDataDecryptor(boolean withIntegrityPacket, int enc
              {
                  return helper.createDataDecryptor(withIntegrityPacket, encAlgorithm, key);
              }
+
+             public PGPAEADCipher createAEADCipher(int aeadAlgorithm, int encAlgorithm, byte[] key)
+                 throws PGPException
+             {
+                 return helper.createAEADCipher(aeadAlgorithm, encAlgorithm, key);
+             }
          };
     }
+
+    private static abstract class AEADPBEDataDecryptorFactory
+        extends PBEDataDecryptorFactory
+        implements PGPAEADDataDecryptorFactory
+    {
+        AEADPBEDataDecryptorFactory(char[] passPhrase, PGPDigestCalculatorProvider calculatorProvider)
+        {
+            super(passPhrase, calculatorProvider);
+        }
+    }
 }
@@ -15,12 +15,14 @@
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPUtil;
 import org.bouncycastle.openpgp.operator.PBESecretKeyDecryptor;
+import org.bouncycastle.openpgp.operator.PGPDerivedKeyCache;
 import org.bouncycastle.openpgp.operator.PGPDigestCalculatorProvider;
 
 public class JcePBESecretKeyDecryptorBuilder
 {
     private OperatorHelper helper = new OperatorHelper(new DefaultJcaJceHelper());
     private PGPDigestCalculatorProvider calculatorProvider;
+    private PGPDerivedKeyCache keyCache;
 
     private JcaPGPDigestCalculatorProviderBuilder calculatorProviderBuilder;
 
@@ -58,6 +60,20 @@ public JcePBESecretKeyDecryptorBuilder setProvider(String providerName)
         return this;
     }
 
+    /**
+     * Set a cache for the keys derived from pass phrases, so secret keys sharing a pass phrase and
+     * S2K specifier only need the key derived once.
+     *
+     * @param keyCache the cache to use.
+     * @return the current builder.
+     */
+    public JcePBESecretKeyDecryptorBuilder setKeyCache(PGPDerivedKeyCache keyCache)
+    {
+        this.keyCache = keyCache;
+
+        return this;
+    }
+
     public PBESecretKeyDecryptor build(char[] passPhrase)
         throws PGPException
     {
@@ -66,7 +82,7 @@ public PBESecretKeyDecryptor build(char[] passPhrase)
             calculatorProvider = calculatorProviderBuilder.build();
         }
 
-        return new PBESecretKeyDecryptor(passPhrase, calculatorProvider)
+        return new PBESecretKeyDecryptor(passPhrase, calculatorProvider, keyCache)
         {
             public byte[] recoverKeyData(int encAlgorithm, byte[] key, byte[] iv, byte[] keyData, int keyOff, int keyLen)
                 throws PGPException
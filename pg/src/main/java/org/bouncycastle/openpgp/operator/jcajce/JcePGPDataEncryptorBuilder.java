@@ -9,12 +9,16 @@
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
 
+import org.bouncycastle.bcpg.AEADAlgorithmTags;
+import org.bouncycastle.bcpg.AEADEncDataPacket;
 import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
 import org.bouncycastle.jcajce.io.CipherOutputStream;
 import org.bouncycastle.jcajce.util.DefaultJcaJceHelper;
 import org.bouncycastle.jcajce.util.NamedJcaJceHelper;
 import org.bouncycastle.jcajce.util.ProviderJcaJceHelper;
 import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.operator.PGPAEADCipher;
+import org.bouncycastle.openpgp.operator.PGPAEADDataEncryptorBuilder;
 import org.bouncycastle.openpgp.operator.PGPDataEncryptor;
 import org.bouncycastle.openpgp.operator.PGPDataEncryptorBuilder;
 import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
@@ -29,12 +33,14 @@
  * </p>
  */
 public class JcePGPDataEncryptorBuilder
-    implements PGPDataEncryptorBuilder
+    implements PGPAEADDataEncryptorBuilder
 {
     private OperatorHelper helper = new OperatorHelper(new DefaultJcaJceHelper());
     private SecureRandom   random;
     private boolean withIntegrityPacket;
     private int encAlgorithm;
+    private int aeadAlgorithm;
+    private int chunkSize;
 
     /**
      * Constructs a new data encryptor builder for a specified cipher type.
@@ -91,6 +97,28 @@ public JcePGPDataEncryptorBuilder setProvider(String providerName)
         return this;
     }
 
+    /**
+     * Sets the resulting encrypted data to be an AEAD encrypted data packet (RFC 4880bis), made
+     * up of separately authenticated chunks, rather than CFB encrypted.
+     * <p>
+     * Note: the symmetric algorithm must have a 128 bit block size, and recipients need to support
+     * AEAD encrypted data.
+     * </p>
+     * @param aeadAlgorithm the {@link AEADAlgorithmTags AEAD algorithm} to use.
+     * @param chunkSize the chunk size octet, from 0 to 16 - chunks are 2^(chunkSize + 6) bytes.
+     * @return the current builder.
+     */
+    public JcePGPDataEncryptorBuilder setWithAEAD(int aeadAlgorithm, int chunkSize)
+    {
+        AEADEncDataPacket.getIVLength(aeadAlgorithm);
+        AEADEncDataPacket.getChunkLength(chunkSize);
+
+        this.aeadAlgorithm = aeadAlgorithm;
+        this.chunkSize = chunkSize;
+
+        return this;
+    }
+
     /**
      * Provide a user defined source of randomness.
      * <p>
@@ -111,6 +139,16 @@ public int getAlgorithm()
         return encAlgorithm;
     }
 
+    public int getAEADAlgorithm()
+    {
+        return aeadAlgorithm;
+    }
+
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
     public SecureRandom getSecureRandom()
     {
         if (random == null)
@@ -127,6 +165,17 @@ public PGPDataEncryptor build(byte[] keyBytes)
         return new MyPGPDataEncryptor(keyBytes);
     }
 
+    public PGPAEADCipher buildAEADCipher(byte[] keyBytes)
+        throws PGPException
+    {
+        if (aeadAlgorithm == 0)
+        {
+            throw new PGPException("builder not configured for AEAD");
+        }
+
+        return helper.createAEADCipher(aeadAlgorithm, encAlgorithm, keyBytes);
+    }
+
     private class MyPGPDataEncryptor
         implements PGPDataEncryptor
     {
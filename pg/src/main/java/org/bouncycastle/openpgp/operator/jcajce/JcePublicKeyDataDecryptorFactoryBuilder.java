@@ -34,6 +34,8 @@
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPrivateKey;
 import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.operator.PGPAEADCipher;
+import org.bouncycastle.openpgp.operator.PGPAEADDataDecryptorFactory;
 import org.bouncycastle.openpgp.operator.PGPDataDecryptor;
 import org.bouncycastle.openpgp.operator.PGPPad;
 import org.bouncycastle.openpgp.operator.PublicKeyDataDecryptorFactory;
@@ -99,7 +101,7 @@ public JcePublicKeyDataDecryptorFactoryBuilder setContentProvider(String provide
 
     public PublicKeyDataDecryptorFactory build(final PrivateKey privKey)
     {
-         return new PublicKeyDataDecryptorFactory()
+         return new AEADPublicKeyDataDecryptorFactory()
          {
              public byte[] recoverSessionData(int keyAlgorithm, byte[][] secKeyData)
                  throws PGPException
@@ -116,12 +118,18 @@ public PGPDataDecryptor createDataDecryptor(boolean withIntegrityPacket, int enc
              {
                  return contentHelper.createDataDecryptor(withIntegrityPacket, encAlgorithm, key);
              }
+
+             public PGPAEADCipher createAEADCipher(int aeadAlgorithm, int encAlgorithm, byte[] key)
+                 throws PGPException
+             {
+                 return contentHelper.createAEADCipher(aeadAlgorithm, encAlgorithm, key);
+             }
          };
     }
 
     public PublicKeyDataDecryptorFactory build(final PGPPrivateKey privKey)
     {
-         return new PublicKeyDataDecryptorFactory()
+         return new AEADPublicKeyDataDecryptorFactory()
          {
              public byte[] recoverSessionData(int keyAlgorithm, byte[][] secKeyData)
                  throws PGPException
@@ -139,6 +147,12 @@ public PGPDataDecryptor createDataDecryptor(boolean withIntegrityPacket, int enc
              {
                  return contentHelper.createDataDecryptor(withIntegrityPacket, encAlgorithm, key);
              }
+
+             public PGPAEADCipher createAEADCipher(int aeadAlgorithm, int encAlgorithm, byte[] key)
+                 throws PGPException
+             {
+                 return contentHelper.createAEADCipher(aeadAlgorithm, encAlgorithm, key);
+             }
          };
     }
 
@@ -306,4 +320,9 @@ private byte[] decryptSessionData(int keyAlgorithm, PrivateKey privKey, byte[][]
             throw new PGPException("exception decrypting session data", e);
         }
     }
+
+    private static abstract class AEADPublicKeyDataDecryptorFactory
+        implements PublicKeyDataDecryptorFactory, PGPAEADDataDecryptorFactory
+    {
+    }
 }
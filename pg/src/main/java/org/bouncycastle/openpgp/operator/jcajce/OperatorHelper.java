@@ -10,20 +10,25 @@
 import java.security.NoSuchProviderException;
 import java.security.Signature;
 
+import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.KeyAgreement;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
+import org.bouncycastle.bcpg.AEADAlgorithmTags;
 import org.bouncycastle.bcpg.HashAlgorithmTags;
 import org.bouncycastle.bcpg.PublicKeyAlgorithmTags;
 import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
 import org.bouncycastle.jcajce.io.CipherInputStream;
+import org.bouncycastle.jcajce.spec.AEADParameterSpec;
 import org.bouncycastle.jcajce.util.JcaJceHelper;
+import org.bouncycastle.openpgp.PGPDataValidationException;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPublicKey;
 import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.operator.PGPAEADCipher;
 import org.bouncycastle.openpgp.operator.PGPDataDecryptor;
 import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
 
@@ -163,6 +168,67 @@ public PGPDigestCalculator getIntegrityCalculator()
         }
     }
 
+    PGPAEADCipher createAEADCipher(final int aeadAlgorithm, int encAlgorithm, byte[] key)
+        throws PGPException
+    {
+        String mode;
+
+        switch (aeadAlgorithm)
+        {
+        case AEADAlgorithmTags.EAX:
+            mode = "EAX";
+            break;
+        case AEADAlgorithmTags.OCB:
+            mode = "OCB";
+            break;
+        default:
+            throw new PGPException("unknown AEAD algorithm: " + aeadAlgorithm);
+        }
+
+        final String cName = PGPUtil.getSymmetricCipherName(encAlgorithm) + "/" + mode + "/NoPadding";
+        final SecretKey secretKey = new SecretKeySpec(key, PGPUtil.getSymmetricCipherName(encAlgorithm));
+
+        if (createCipher(cName).getBlockSize() != 16)
+        {
+            throw new PGPException("AEAD requires a 128 bit block cipher: " + encAlgorithm);
+        }
+
+        return new PGPAEADCipher()
+        {
+            public int getAEADAlgorithm()
+            {
+                return aeadAlgorithm;
+            }
+
+            public int getTagLength()
+            {
+                return 16;
+            }
+
+            public int processChunk(boolean forEncryption, byte[] nonce, byte[] associatedData, byte[] in, int inOff, int inLen, byte[] out, int outOff)
+                throws PGPException
+            {
+                // a new cipher for each chunk, so chunks can be processed on several threads at once.
+                Cipher c = createCipher(cName);
+
+                try
+                {
+                    c.init(forEncryption ? Cipher.ENCRYPT_MODE : Cipher.DECRYPT_MODE, secretKey, new AEADParameterSpec(nonce, 128, associatedData));
+
+                    return c.doFinal(in, inOff, inLen, out, outOff);
+                }
+                catch (BadPaddingException e)
+                {
+                    throw new PGPDataValidationException("AEAD chunk authentication failed");
+                }
+                catch (GeneralSecurityException e)
+                {
+                    throw new PGPException("exception processing AEAD chunk: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
     Cipher createStreamCipher(int encAlgorithm, boolean withIntegrityPacket)
         throws PGPException
     {
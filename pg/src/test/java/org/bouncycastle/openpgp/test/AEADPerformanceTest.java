@@ -0,0 +1,107 @@
+package org.bouncycastle.openpgp.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bouncycastle.bcpg.AEADAlgorithmTags;
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.openpgp.PGPEncryptedDataGenerator;
+import org.bouncycastle.openpgp.PGPEncryptedDataList;
+import org.bouncycastle.openpgp.PGPPBEEncryptedData;
+import org.bouncycastle.openpgp.operator.bc.BcPBEDataDecryptorFactory;
+import org.bouncycastle.openpgp.operator.bc.BcPBEKeyEncryptionMethodGenerator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDataEncryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+
+/**
+ * Benchmark of CFB with an integrity packet against AEAD encryption, with the AEAD chunks
+ * processed on the calling thread and on a thread pool.
+ * <p>
+ * Usage: AEADPerformanceTest [message size in MB] [threads] [chunk size octet]
+ * </p>
+ */
+public class AEADPerformanceTest
+{
+    private static final int DEFAULT_SIZE = 64;
+    private static final int DEFAULT_CHUNK_SIZE = 10;
+
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        int size = ((args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_SIZE) * 1024 * 1024;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int chunkSize = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_CHUNK_SIZE;
+
+        byte[] data = new byte[size];
+        new Random(1).nextBytes(data);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try
+        {
+            System.out.println((size / (1024 * 1024)) + "MB, " + threads + " threads, 2^" + (chunkSize + 6) + " byte AEAD chunks");
+
+            run("CFB + MDC:          ", new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128).setWithIntegrityPacket(true), data, null);
+            run("EAX:                ", new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128).setWithAEAD(AEADAlgorithmTags.EAX, chunkSize), data, null);
+            run("EAX parallel:       ", new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128).setWithAEAD(AEADAlgorithmTags.EAX, chunkSize), data, executor);
+            run("OCB:                ", new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128).setWithAEAD(AEADAlgorithmTags.OCB, chunkSize), data, null);
+            run("OCB parallel:       ", new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128).setWithAEAD(AEADAlgorithmTags.OCB, chunkSize), data, executor);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static void run(String label, BcPGPDataEncryptorBuilder builder, byte[] data, ExecutorService executor)
+        throws Exception
+    {
+        long start = System.nanoTime();
+
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream(data.length + data.length / 8);
+        PGPEncryptedDataGenerator encGen = new PGPEncryptedDataGenerator(builder, false, executor);
+
+        encGen.addMethod(new BcPBEKeyEncryptionMethodGenerator(PASSWORD));
+
+        OutputStream encOut = encGen.open(bOut, new byte[1 << 16]);
+
+        encOut.write(data);
+        encOut.close();
+
+        long encryptTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+
+        PGPPBEEncryptedData encData = (PGPPBEEncryptedData)new PGPEncryptedDataList(bOut.toByteArray()).get(0);
+        InputStream clear = encData.getDataStream(new BcPBEDataDecryptorFactory(PASSWORD, new BcPGPDigestCalculatorProvider()), executor);
+
+        byte[] buf = new byte[1 << 16];
+        long read = 0;
+        int len;
+
+        while ((len = clear.read(buf, 0, buf.length)) >= 0)
+        {
+            read += len;
+        }
+
+        if (read != data.length || !encData.verify())
+        {
+            throw new IllegalStateException("message did not decrypt correctly");
+        }
+
+        long decryptTime = System.nanoTime() - start;
+
+        System.out.println(label + "encrypt " + rate(data.length, encryptTime) + " MB/s, decrypt " + rate(data.length, decryptTime) + " MB/s");
+    }
+
+    private static long rate(long size, long time)
+    {
+        return (size * 1000000000L) / (time * 1024 * 1024);
+    }
+}
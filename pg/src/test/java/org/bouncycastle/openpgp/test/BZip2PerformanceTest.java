@@ -0,0 +1,112 @@
+package org.bouncycastle.openpgp.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bouncycastle.apache.bzip2.CBZip2InputStream;
+import org.bouncycastle.apache.bzip2.CBZip2OutputStream;
+import org.bouncycastle.apache.bzip2.CBZip2ParallelInputStream;
+
+/**
+ * Benchmark of BZip2 compression and decompression, sequential against parallel.
+ * <p>
+ * Usage: BZip2PerformanceTest [data size in MB] [threads]
+ * </p>
+ */
+public class BZip2PerformanceTest
+{
+    private static final int DEFAULT_SIZE = 16;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        int size = ((args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_SIZE) * 1024 * 1024;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        byte[] data = new byte[size];
+        Random random = new Random(1);
+        for (int i = 0; i != data.length; i++)
+        {
+            data[i] = (byte)((i % 1000 < 300) ? 'a' : 'a' + random.nextInt(20));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try
+        {
+            byte[] compressed = compress(data, null);
+
+            long start = System.nanoTime();
+            for (int i = 0; i != ROUNDS; i++)
+            {
+                compress(data, null);
+            }
+            long seqCompress = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i != ROUNDS; i++)
+            {
+                compress(data, executor);
+            }
+            long parCompress = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i != ROUNDS; i++)
+            {
+                decompress(new CBZip2InputStream(new ByteArrayInputStream(compressed)));
+            }
+            long seqDecompress = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i != ROUNDS; i++)
+            {
+                decompress(new CBZip2ParallelInputStream(new ByteArrayInputStream(compressed), executor));
+            }
+            long parDecompress = System.nanoTime() - start;
+
+            System.out.println((size / (1024 * 1024)) + "MB, " + threads + " threads");
+            System.out.println("sequential compress:     " + rate(size, seqCompress) + " MB/s");
+            System.out.println("parallel compress:       " + rate(size, parCompress) + " MB/s");
+            System.out.println("sequential decompress:   " + rate(size, seqDecompress) + " MB/s");
+            System.out.println("parallel decompress:     " + rate(size, parDecompress) + " MB/s");
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static byte[] compress(byte[] data, ExecutorService executor)
+        throws Exception
+    {
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        OutputStream out = (executor == null) ? new CBZip2OutputStream(bOut, 9) : new CBZip2OutputStream(bOut, 9, executor);
+
+        out.write(data);
+        out.close();
+
+        return bOut.toByteArray();
+    }
+
+    private static void decompress(InputStream in)
+        throws Exception
+    {
+        byte[] buf = new byte[1 << 16];
+
+        while (in.read(buf, 0, buf.length) >= 0)
+        {
+            // just reading
+        }
+    }
+
+    private static long rate(int size, long time)
+    {
+        return ((long)size * ROUNDS * 1000000000L) / (time * 1024 * 1024);
+    }
+}
@@ -0,0 +1,135 @@
+package org.bouncycastle.openpgp.test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.Random;
+
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.bcpg.PublicKeyAlgorithmTags;
+import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
+import org.bouncycastle.openpgp.PGPDetachedSignatureVerifier;
+import org.bouncycastle.openpgp.PGPKeyPair;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureGenerator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentVerifierBuilderProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyPair;
+
+/**
+ * Benchmark of verifying a detached signature over a file by reading it through an input stream
+ * against verifying it with the file memory mapped.
+ * <p>
+ * Usage: DetachedSignaturePerformanceTest [file size in MB] [hash algorithm tag]
+ * </p>
+ */
+public class DetachedSignaturePerformanceTest
+{
+    private static final int DEFAULT_SIZE = 256;
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        long size = ((args.length > 0) ? Long.parseLong(args[0]) : DEFAULT_SIZE) * 1024 * 1024;
+        int hashAlgorithm = (args.length > 1) ? Integer.parseInt(args[1]) : HashAlgorithmTags.SHA256;
+
+        RSAKeyPairGenerator kpGen = new RSAKeyPairGenerator();
+
+        kpGen.init(new RSAKeyGenerationParameters(BigInteger.valueOf(0x10001), new SecureRandom(), 2048, 25));
+
+        PGPKeyPair keyPair = new BcPGPKeyPair(PublicKeyAlgorithmTags.RSA_GENERAL, kpGen.generateKeyPair(), new Date());
+        PGPSignatureGenerator sGen = new PGPSignatureGenerator(new BcPGPContentSignerBuilder(PublicKeyAlgorithmTags.RSA_GENERAL, hashAlgorithm));
+
+        sGen.init(PGPSignature.BINARY_DOCUMENT, keyPair.getPrivateKey());
+
+        File file = File.createTempFile("bcpg", ".dat");
+
+        try
+        {
+            OutputStream fOut = new FileOutputStream(file);
+            byte[] block = new byte[1 << 20];
+            Random random = new Random(1);
+
+            for (long written = 0; written < size; written += block.length)
+            {
+                random.nextBytes(block);
+
+                int len = (int)Math.min(block.length, size - written);
+
+                fOut.write(block, 0, len);
+                sGen.update(block, 0, len);
+            }
+
+            fOut.close();
+
+            PGPSignature signature = sGen.generate();
+
+            System.out.println((size / (1024 * 1024)) + "MB, hash algorithm " + hashAlgorithm);
+
+            for (int i = 0; i != 2; i++)
+            {
+                runStream("stream, 8KB reads:  ", keyPair, signature, file, 8 * 1024);
+                runStream("stream, 64KB reads: ", keyPair, signature, file, 64 * 1024);
+                runMapped("mapped:             ", keyPair, signature, file);
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private static void runStream(String label, PGPKeyPair keyPair, PGPSignature signature, File file, int bufSize)
+        throws Exception
+    {
+        long start = System.nanoTime();
+
+        signature.init(new BcPGPContentVerifierBuilderProvider(), keyPair.getPublicKey());
+
+        InputStream fIn = new FileInputStream(file);
+        byte[] buf = new byte[bufSize];
+        int len;
+
+        while ((len = fIn.read(buf, 0, buf.length)) >= 0)
+        {
+            signature.update(buf, 0, len);
+        }
+
+        fIn.close();
+
+        check(signature.verify());
+
+        System.out.println(label + rate(file.length(), System.nanoTime() - start) + " MB/s");
+    }
+
+    private static void runMapped(String label, PGPKeyPair keyPair, PGPSignature signature, File file)
+        throws Exception
+    {
+        long start = System.nanoTime();
+
+        signature.init(new BcPGPContentVerifierBuilderProvider(), keyPair.getPublicKey());
+
+        check(new PGPDetachedSignatureVerifier().verify(signature, file));
+
+        System.out.println(label + rate(file.length(), System.nanoTime() - start) + " MB/s");
+    }
+
+    private static void check(boolean verified)
+    {
+        if (!verified)
+        {
+            throw new IllegalStateException("signature did not verify");
+        }
+    }
+
+    private static long rate(long size, long time)
+    {
+        return (size * 1000000000L) / (time * 1024 * 1024);
+    }
+}
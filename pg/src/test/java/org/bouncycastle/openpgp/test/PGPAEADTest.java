@@ -0,0 +1,525 @@
+package org.bouncycastle.openpgp.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Date;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.bouncycastle.bcpg.AEADAlgorithmTags;
+import org.bouncycastle.bcpg.AEADEncDataPacket;
+import org.bouncycastle.bcpg.BCPGInputStream;
+import org.bouncycastle.bcpg.BCPGOutputStream;
+import org.bouncycastle.bcpg.ContainedPacket;
+import org.bouncycastle.bcpg.PacketTags;
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.bcpg.SymmetricKeyEncSessionPacket;
+import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openpgp.PGPDataValidationException;
+import org.bouncycastle.openpgp.PGPEncryptedDataGenerator;
+import org.bouncycastle.openpgp.PGPEncryptedDataList;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPKeyPair;
+import org.bouncycastle.openpgp.PGPLiteralData;
+import org.bouncycastle.openpgp.PGPLiteralDataGenerator;
+import org.bouncycastle.openpgp.PGPPBEEncryptedData;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyEncryptedData;
+import org.bouncycastle.openpgp.jcajce.JcaPGPObjectFactory;
+import org.bouncycastle.openpgp.operator.PBEDataDecryptorFactory;
+import org.bouncycastle.openpgp.operator.PGPDataDecryptor;
+import org.bouncycastle.openpgp.operator.PGPDataEncryptor;
+import org.bouncycastle.openpgp.operator.PGPDataEncryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPBEDataDecryptorFactory;
+import org.bouncycastle.openpgp.operator.bc.BcPBEKeyEncryptionMethodGenerator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDataEncryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyPair;
+import org.bouncycastle.openpgp.operator.bc.BcPublicKeyDataDecryptorFactory;
+import org.bouncycastle.openpgp.operator.bc.BcPublicKeyKeyEncryptionMethodGenerator;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPDigestCalculatorProviderBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcePBEDataDecryptorFactoryBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcePBEKeyEncryptionMethodGenerator;
+import org.bouncycastle.openpgp.operator.jcajce.JcePGPDataEncryptorBuilder;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.io.Streams;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Round trip, tamper and truncation checks for AEAD encrypted data, with chunks processed
+ * sequentially and in parallel.
+ */
+public class PGPAEADTest
+    extends SimpleTest
+{
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    private ExecutorService executor;
+
+    public String getName()
+    {
+        return "PGPAEAD";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        executor = Executors.newFixedThreadPool(3);
+
+        try
+        {
+            int[] aeadAlgorithms = { AEADAlgorithmTags.EAX, AEADAlgorithmTags.OCB };
+            int[] lengths = { 0, 1, 63, 64, 65, 128, 1000 };
+
+            for (int i = 0; i != aeadAlgorithms.length; i++)
+            {
+                for (int j = 0; j != lengths.length; j++)
+                {
+                    pbeTest(aeadAlgorithms[i], lengths[j]);
+                }
+
+                largeTest(aeadAlgorithms[i]);
+                tamperTest(aeadAlgorithms[i]);
+                truncationTest(aeadAlgorithms[i]);
+            }
+
+            publicKeyTest();
+            rejectingExecutorTest();
+            invalidParametersTest();
+            nonAEADOperatorTest();
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void pbeTest(int aeadAlgorithm, int length)
+        throws Exception
+    {
+        byte[] data = randomData(length);
+
+        for (int encryptor = 0; encryptor != 2; encryptor++)
+        {
+            for (int parallel = 0; parallel != 2; parallel++)
+            {
+                byte[] fixed = encryptPBE(createBuilder(encryptor == 0, SymmetricKeyAlgorithmTags.AES_128, aeadAlgorithm, 0),
+                    data, false, (parallel != 0) ? executor : null);
+                byte[] partial = encryptPBE(createBuilder(encryptor == 0, SymmetricKeyAlgorithmTags.AES_256, aeadAlgorithm, 0),
+                    data, true, (parallel != 0) ? executor : null);
+
+                checkPBE(data, fixed, aeadAlgorithm);
+                checkPBE(data, partial, aeadAlgorithm);
+            }
+        }
+    }
+
+    private void largeTest(int aeadAlgorithm)
+        throws Exception
+    {
+        byte[] data = randomData(200000);
+
+        byte[] encrypted = encryptPBE(createBuilder(true, SymmetricKeyAlgorithmTags.CAMELLIA_128, aeadAlgorithm, 6), data, true, executor);
+
+        checkPBE(data, encrypted, aeadAlgorithm);
+
+        encrypted = encryptPBE(createBuilder(false, SymmetricKeyAlgorithmTags.AES_192, aeadAlgorithm, 4), data, false, executor);
+
+        checkPBE(data, encrypted, aeadAlgorithm);
+    }
+
+    private void checkPBE(byte[] data, byte[] encrypted, int aeadAlgorithm)
+        throws Exception
+    {
+        PGPEncryptedDataList encList = new PGPEncryptedDataList(encrypted);
+        PBEDataDecryptorFactory[] factories = {
+            new BcPBEDataDecryptorFactory(PASSWORD, new BcPGPDigestCalculatorProvider()),
+            new JcePBEDataDecryptorFactoryBuilder(new JcaPGPDigestCalculatorProviderBuilder().setProvider("BC").build()).setProvider("BC").build(PASSWORD)
+        };
+
+        for (int i = 0; i != factories.length; i++)
+        {
+            for (int parallel = 0; parallel != 2; parallel++)
+            {
+                encList = new PGPEncryptedDataList(encrypted);
+
+                PGPPBEEncryptedData encData = (PGPPBEEncryptedData)encList.get(0);
+
+                isTrue(encData.isAEAD());
+                isTrue(encData.isIntegrityProtected());
+
+                InputStream in = encData.getDataStream(factories[i], (parallel != 0) ? executor : null);
+
+                isTrue("AEAD decryption failed", Arrays.areEqual(data, Streams.readAll(in)));
+                isTrue(encData.verify());
+            }
+        }
+
+        PGPPBEEncryptedData encData = (PGPPBEEncryptedData)new PGPEncryptedDataList(encrypted).get(0);
+
+        try
+        {
+            encData.getDataStream(new BcPBEDataDecryptorFactory("wrong".toCharArray(), new BcPGPDigestCalculatorProvider()));
+            fail("wrong password accepted");
+        }
+        catch (PGPDataValidationException e)
+        {
+            // expected
+        }
+
+        // the session key packet should be version 5, for the AEAD algorithm used.
+        BCPGInputStream pIn = new BCPGInputStream(new ByteArrayInputStream(encrypted));
+        SymmetricKeyEncSessionPacket keyPacket = (SymmetricKeyEncSessionPacket)pIn.readPacket();
+
+        isEquals(SymmetricKeyEncSessionPacket.VERSION_5, keyPacket.getVersion());
+        isEquals(aeadAlgorithm, keyPacket.getAEADAlgorithm());
+    }
+
+    private void tamperTest(int aeadAlgorithm)
+        throws Exception
+    {
+        byte[] data = randomData(1000);
+        byte[] encrypted = encryptPBE(createBuilder(true, SymmetricKeyAlgorithmTags.AES_128, aeadAlgorithm, 0), data, false, null);
+
+        // in a middle chunk
+        checkFails(tamper(encrypted, encrypted.length / 2), false);
+        // in the final tag - all the data can be read, but the end of the stream fails.
+        checkFails(tamper(encrypted, encrypted.length - 1), true);
+    }
+
+    private void truncationTest(int aeadAlgorithm)
+        throws Exception
+    {
+        byte[] data = randomData(1000);
+        byte[] encrypted = encryptPBE(createBuilder(true, SymmetricKeyAlgorithmTags.AES_128, aeadAlgorithm, 0), data, false, null);
+
+        BCPGInputStream pIn = new BCPGInputStream(new ByteArrayInputStream(encrypted));
+        ContainedPacket keyPacket = (ContainedPacket)pIn.readPacket();
+        AEADEncDataPacket aeadPacket = (AEADEncDataPacket)pIn.readPacket();
+        byte[] body = Streams.readAll(aeadPacket.getInputStream());
+        int chunk = 64 + 16;
+
+        isEquals(((1000 + 63) / 64) * chunk - (64 - 1000 % 64) + 16, body.length);
+
+        // the packet can be rebuilt as is.
+        checkPBE(data, rebuild(keyPacket, aeadPacket, body), aeadAlgorithm);
+
+        // drop the last chunk, but keep the final tag.
+        int lastChunk = body.length - 16 - (1000 % 64 + 16);
+        checkFails(rebuild(keyPacket, aeadPacket, Arrays.concatenate(Arrays.copyOfRange(body, 0, lastChunk),
+            Arrays.copyOfRange(body, body.length - 16, body.length))), true);
+
+        // drop the first full chunk.
+        checkFails(rebuild(keyPacket, aeadPacket, Arrays.copyOfRange(body, chunk, body.length)), false);
+
+        // swap the first two chunks.
+        checkFails(rebuild(keyPacket, aeadPacket, Arrays.concatenate(Arrays.copyOfRange(body, chunk, 2 * chunk),
+            Arrays.copyOfRange(body, 0, chunk), Arrays.copyOfRange(body, 2 * chunk, body.length))), false);
+
+        // drop the final tag.
+        checkFails(rebuild(keyPacket, aeadPacket, Arrays.copyOfRange(body, 0, body.length - 16)), false);
+    }
+
+    private void checkFails(byte[] encrypted, boolean dataReadable)
+        throws Exception
+    {
+        for (int parallel = 0; parallel != 2; parallel++)
+        {
+            InputStream in;
+
+            try
+            {
+                PGPPBEEncryptedData encData = (PGPPBEEncryptedData)new PGPEncryptedDataList(encrypted).get(0);
+
+                in = encData.getDataStream(new BcPBEDataDecryptorFactory(PASSWORD, new BcPGPDigestCalculatorProvider()),
+                    (parallel != 0) ? executor : null);
+            }
+            catch (PGPException e)
+            {
+                isTrue("setup failure for readable data", !dataReadable);
+                continue;
+            }
+
+            int count = 0;
+
+            try
+            {
+                while (in.read() >= 0)
+                {
+                    count++;
+                }
+                fail("modified data not detected");
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+
+            if (dataReadable)
+            {
+                isTrue("data not returned", count > 0);
+            }
+        }
+    }
+
+    private void publicKeyTest()
+        throws Exception
+    {
+        RSAKeyPairGenerator kpGen = new RSAKeyPairGenerator();
+
+        kpGen.init(new RSAKeyGenerationParameters(BigInteger.valueOf(0x10001), new SecureRandom(), 1024, 25));
+
+        PGPKeyPair keyPair = new BcPGPKeyPair(PGPPublicKey.RSA_GENERAL, kpGen.generateKeyPair(), new Date());
+        byte[] data = randomData(5000);
+
+        PGPEncryptedDataGenerator encGen = new PGPEncryptedDataGenerator(
+            createBuilder(false, SymmetricKeyAlgorithmTags.AES_256, AEADAlgorithmTags.OCB, 1), false, executor);
+
+        encGen.addMethod(new BcPublicKeyKeyEncryptionMethodGenerator(keyPair.getPublicKey()));
+        encGen.addMethod(new BcPBEKeyEncryptionMethodGenerator(PASSWORD).setSecureRandom(new SecureRandom()));
+
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        OutputStream encOut = encGen.open(bOut, new byte[1 << 10]);
+        PGPLiteralDataGenerator lGen = new PGPLiteralDataGenerator();
+        OutputStream lOut = lGen.open(encOut, PGPLiteralData.BINARY, "data", data.length, new Date());
+
+        lOut.write(data);
+        lGen.close();
+        encGen.close();
+
+        PGPEncryptedDataList encList = new PGPEncryptedDataList(bOut.toByteArray());
+
+        isEquals(2, encList.size());
+
+        PGPPublicKeyEncryptedData pkData = (PGPPublicKeyEncryptedData)encList.get(0);
+
+        isEquals(SymmetricKeyAlgorithmTags.AES_256, pkData.getSymmetricAlgorithm(new BcPublicKeyDataDecryptorFactory(keyPair.getPrivateKey())));
+
+        InputStream clear = pkData.getDataStream(new BcPublicKeyDataDecryptorFactory(keyPair.getPrivateKey()), executor);
+        PGPLiteralData literal = (PGPLiteralData)new JcaPGPObjectFactory(clear).nextObject();
+
+        isTrue("public key decryption failed", Arrays.areEqual(data, Streams.readAll(literal.getInputStream())));
+        isTrue(pkData.verify());
+
+        // the same session key through the PBE method.
+        PGPPBEEncryptedData pbeData = (PGPPBEEncryptedData)new PGPEncryptedDataList(bOut.toByteArray()).get(1);
+
+        isEquals(SymmetricKeyAlgorithmTags.AES_256, pbeData.getSymmetricAlgorithm(new BcPBEDataDecryptorFactory(PASSWORD, new BcPGPDigestCalculatorProvider())));
+
+        clear = pbeData.getDataStream(new BcPBEDataDecryptorFactory(PASSWORD, new BcPGPDigestCalculatorProvider()));
+        literal = (PGPLiteralData)new JcaPGPObjectFactory(clear).nextObject();
+
+        isTrue("PBE decryption failed", Arrays.areEqual(data, Streams.readAll(literal.getInputStream())));
+    }
+
+    private void rejectingExecutorTest()
+        throws Exception
+    {
+        Executor rejecting = new Executor()
+        {
+            public void execute(Runnable command)
+            {
+                throw new RejectedExecutionException();
+            }
+        };
+
+        byte[] data = randomData(3000);
+        byte[] encrypted = encryptPBE(createBuilder(true, SymmetricKeyAlgorithmTags.AES_128, AEADAlgorithmTags.EAX, 0), data, true, rejecting);
+
+        PGPPBEEncryptedData encData = (PGPPBEEncryptedData)new PGPEncryptedDataList(encrypted).get(0);
+        InputStream in = encData.getDataStream(new BcPBEDataDecryptorFactory(PASSWORD, new BcPGPDigestCalculatorProvider()), rejecting);
+
+        isTrue(Arrays.areEqual(data, Streams.readAll(in)));
+    }
+
+    private void invalidParametersTest()
+        throws Exception
+    {
+        try
+        {
+            new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128).setWithAEAD(3, 0);
+            fail("unknown AEAD algorithm accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            new JcePGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128).setWithAEAD(AEADAlgorithmTags.OCB, 17);
+            fail("oversized chunk accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            encryptPBE(createBuilder(true, SymmetricKeyAlgorithmTags.CAST5, AEADAlgorithmTags.OCB, 0), new byte[10], false, null);
+            fail("64 bit block cipher accepted");
+        }
+        catch (PGPException e)
+        {
+            // expected
+        }
+    }
+
+    /*
+     * operators which only implement the base interfaces still work for CFB, but cannot be used for AEAD.
+     */
+    private void nonAEADOperatorTest()
+        throws Exception
+    {
+        final PGPDataEncryptorBuilder cfbBuilder = new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128)
+            .setWithIntegrityPacket(true).setSecureRandom(new SecureRandom());
+        PGPDataEncryptorBuilder builder = new PGPDataEncryptorBuilder()
+        {
+            public int getAlgorithm()
+            {
+                return cfbBuilder.getAlgorithm();
+            }
+
+            public PGPDataEncryptor build(byte[] keyBytes)
+                throws PGPException
+            {
+                return cfbBuilder.build(keyBytes);
+            }
+
+            public SecureRandom getSecureRandom()
+            {
+                return cfbBuilder.getSecureRandom();
+            }
+        };
+
+        final BcPBEDataDecryptorFactory bcFactory = new BcPBEDataDecryptorFactory(PASSWORD, new BcPGPDigestCalculatorProvider());
+        PBEDataDecryptorFactory factory = new PBEDataDecryptorFactory(PASSWORD, new BcPGPDigestCalculatorProvider())
+        {
+            public byte[] recoverSessionData(int keyAlgorithm, byte[] key, byte[] secKeyData)
+                throws PGPException
+            {
+                return bcFactory.recoverSessionData(keyAlgorithm, key, secKeyData);
+            }
+
+            public PGPDataDecryptor createDataDecryptor(boolean withIntegrityPacket, int encAlgorithm, byte[] key)
+                throws PGPException
+            {
+                return bcFactory.createDataDecryptor(withIntegrityPacket, encAlgorithm, key);
+            }
+        };
+
+        byte[] data = randomData(100);
+
+        PGPPBEEncryptedData encData = (PGPPBEEncryptedData)new PGPEncryptedDataList(encryptPBE(builder, data, false, null)).get(0);
+
+        isTrue(!encData.isAEAD());
+        isTrue("CFB decryption failed", Arrays.areEqual(data, Streams.readAll(encData.getDataStream(factory))));
+
+        encData = (PGPPBEEncryptedData)new PGPEncryptedDataList(
+            encryptPBE(createBuilder(true, SymmetricKeyAlgorithmTags.AES_128, AEADAlgorithmTags.OCB, 0), data, false, null)).get(0);
+
+        try
+        {
+            encData.getDataStream(factory);
+            fail("AEAD decrypted with a non-AEAD factory");
+        }
+        catch (PGPException e)
+        {
+            isEquals("data decryptor factory does not support AEAD encrypted session keys", e.getMessage());
+        }
+    }
+
+    private PGPDataEncryptorBuilder createBuilder(boolean bc, int encAlgorithm, int aeadAlgorithm, int chunkSize)
+    {
+        if (bc)
+        {
+            return new BcPGPDataEncryptorBuilder(encAlgorithm).setWithAEAD(aeadAlgorithm, chunkSize).setSecureRandom(new SecureRandom());
+        }
+
+        return new JcePGPDataEncryptorBuilder(encAlgorithm).setWithAEAD(aeadAlgorithm, chunkSize).setProvider("BC").setSecureRandom(new SecureRandom());
+    }
+
+    private byte[] encryptPBE(PGPDataEncryptorBuilder builder, byte[] data, boolean partial, Executor executor)
+        throws Exception
+    {
+        PGPEncryptedDataGenerator encGen = new PGPEncryptedDataGenerator(builder, false, executor);
+
+        if (builder instanceof BcPGPDataEncryptorBuilder)
+        {
+            encGen.addMethod(new BcPBEKeyEncryptionMethodGenerator(PASSWORD).setSecureRandom(new SecureRandom()));
+        }
+        else
+        {
+            encGen.addMethod(new JcePBEKeyEncryptionMethodGenerator(PASSWORD).setProvider("BC").setSecureRandom(new SecureRandom()));
+        }
+
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        OutputStream out = partial ? encGen.open(bOut, new byte[1 << 8]) : encGen.open(bOut, data.length);
+
+        // a mix of single byte and bulk writes.
+        if (data.length > 0)
+        {
+            out.write(data[0]);
+            out.write(data, 1, data.length - 1);
+        }
+        out.close();
+
+        return bOut.toByteArray();
+    }
+
+    private byte[] rebuild(ContainedPacket keyPacket, AEADEncDataPacket aeadPacket, byte[] body)
+        throws IOException
+    {
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        byte[] header = aeadPacket.getAAData();
+        byte[] iv = aeadPacket.getIV();
+
+        bOut.write(keyPacket.getEncoded());
+
+        BCPGOutputStream pOut = new BCPGOutputStream(bOut, PacketTags.AEAD_ENC_DATA, header.length - 1 + iv.length + body.length);
+
+        pOut.write(header, 1, header.length - 1);
+        pOut.write(iv);
+        pOut.write(body);
+        pOut.finish();
+
+        return bOut.toByteArray();
+    }
+
+    private byte[] tamper(byte[] data, int index)
+    {
+        byte[] tampered = Arrays.clone(data);
+
+        tampered[index] ^= 0x01;
+
+        return tampered;
+    }
+
+    private byte[] randomData(int length)
+    {
+        byte[] data = new byte[length];
+
+        new SecureRandom().nextBytes(data);
+
+        return data;
+    }
+
+    public static void main(
+        String[]    args)
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new PGPAEADTest());
+    }
+}
@@ -2,10 +2,14 @@
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.SecureRandom;
 
 import org.bouncycastle.bcpg.ArmoredInputStream;
 import org.bouncycastle.bcpg.ArmoredOutputStream;
+import org.bouncycastle.bcpg.CRC24;
 import org.bouncycastle.openpgp.PGPUtil;
 import org.bouncycastle.openpgp.jcajce.JcaPGPObjectFactory;
 import org.bouncycastle.util.Arrays;
@@ -292,6 +296,139 @@ public void performTest()
         blankLineTest();
         pgpUtilTest();
         repeatHeaderTest();
+        crcTest();
+        bulkTest();
+    }
+
+    private void crcTest()
+    {
+        CRC24 crc = new CRC24();
+        byte[] check = Strings.toByteArray("123456789");
+
+        crc.update(check, 0, check.length);
+        isEquals(0x21cf02, crc.getValue());
+
+        byte[] data = new byte[1000];
+        new SecureRandom().nextBytes(data);
+
+        for (int len = 0; len <= 40; len++)
+        {
+            CRC24 single = new CRC24();
+            CRC24 bulk = new CRC24();
+
+            for (int i = 0; i != len; i++)
+            {
+                single.update(data[i]);
+            }
+            bulk.update(data, 0, len);
+
+            isEquals("crc length " + len, single.getValue(), bulk.getValue());
+        }
+
+        CRC24 single = new CRC24();
+        CRC24 bulk = new CRC24();
+        for (int i = 0; i != data.length; i++)
+        {
+            single.update(data[i] & 0xff);
+        }
+        bulk.update(data, 0, 3);
+        bulk.update(data, 3, data.length - 3);
+        isEquals(single.getValue(), bulk.getValue());
+    }
+
+    private void bulkTest()
+        throws Exception
+    {
+        SecureRandom random = new SecureRandom();
+        int[] lengths = { 1, 2, 3, 4, 47, 48, 49, 50, 95, 96, 97, 1000, 4096, 65537 };
+
+        for (int l = 0; l != lengths.length; l++)
+        {
+            byte[] data = new byte[lengths[l]];
+            random.nextBytes(data);
+
+            ByteArrayOutputStream single = new ByteArrayOutputStream();
+            ArmoredOutputStream aOut = new ArmoredOutputStream(single);
+            for (int i = 0; i != data.length; i++)
+            {
+                aOut.write(data[i]);
+            }
+            aOut.close();
+
+            ByteArrayOutputStream bulk = new ByteArrayOutputStream();
+            aOut = new ArmoredOutputStream(bulk);
+            for (int off = 0; off < data.length;)
+            {
+                int len = Math.min(data.length - off, random.nextInt(200));
+                aOut.write(data, off, len);
+                off += len;
+            }
+            aOut.close();
+
+            isTrue("bulk armor " + data.length, Arrays.areEqual(single.toByteArray(), bulk.toByteArray()));
+
+            byte[] armor = Arrays.concatenate(bulk.toByteArray(), Strings.toByteArray("TRAILER"));
+
+            // block decoding with mark() supported, and character by character without it.
+            ByteArrayInputStream bIn = new ByteArrayInputStream(armor);
+            isTrue("bulk read " + data.length, Arrays.areEqual(data, readAll(new ArmoredInputStream(bIn), random)));
+            isTrue("armor end " + data.length, bIn.available() <= 8);
+            isEquals("TRAILER", Strings.fromByteArray(Arrays.copyOfRange(armor, armor.length - 7, armor.length)));
+
+            bIn = new ByteArrayInputStream(armor);
+            isTrue("no mark read " + data.length, Arrays.areEqual(data, readAll(new ArmoredInputStream(new NoMarkInputStream(bIn)), random)));
+            isTrue("no mark armor end " + data.length, bIn.available() <= 8);
+
+            // a damaged character in the body should be picked up by the crc.
+            int index = armor.length / 2;
+            while (armor[index] == '\r' || armor[index] == '\n' || armor[index] == '=')
+            {
+                index++;
+            }
+            armor[index] = (byte)((armor[index] == 'A') ? 'B' : 'A');
+
+            if (data.length > 48)
+            {
+                try
+                {
+                    readAll(new ArmoredInputStream(new ByteArrayInputStream(armor)), random);
+                    fail("damaged armor not detected " + data.length);
+                }
+                catch (IOException e)
+                {
+                    // expected
+                }
+            }
+        }
+    }
+
+    private static byte[] readAll(ArmoredInputStream aIn, SecureRandom random)
+        throws IOException
+    {
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        int len;
+
+        while ((len = aIn.read(buf, 0, 1 + random.nextInt(buf.length))) >= 0)
+        {
+            bOut.write(buf, 0, len);
+        }
+
+        return bOut.toByteArray();
+    }
+
+    private static class NoMarkInputStream
+        extends FilterInputStream
+    {
+        NoMarkInputStream(InputStream in)
+        {
+            super(in);
+        }
+
+        public boolean markSupported()
+        {
+            return false;
+        }
     }
 
     public String getName()
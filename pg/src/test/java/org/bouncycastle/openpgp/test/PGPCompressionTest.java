@@ -1,16 +1,24 @@
 package org.bouncycastle.openpgp.test;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.security.Security;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.bouncycastle.apache.bzip2.CBZip2InputStream;
+import org.bouncycastle.apache.bzip2.CBZip2OutputStream;
+import org.bouncycastle.apache.bzip2.CBZip2ParallelInputStream;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.openpgp.PGPCompressedData;
 import org.bouncycastle.openpgp.PGPCompressedDataGenerator;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.jcajce.JcaPGPObjectFactory;
+import org.bouncycastle.util.io.Streams;
 import org.bouncycastle.util.test.SimpleTest;
 import org.bouncycastle.util.test.UncloseableOutputStream;
 
@@ -25,6 +33,8 @@ public void performTest()
         testCompression(PGPCompressedData.ZLIB);
         testCompression(PGPCompressedData.BZIP2);
 
+        testParallelBZip2();
+
         //
         // new style - using stream close
         //
@@ -128,6 +138,120 @@ private void testCompression(
         }
     }
 
+    private void testParallelBZip2()
+        throws Exception
+    {
+        byte[] data = new byte[400000];
+        Random random = new Random(7);
+        for (int i = 0; i != data.length; i++)
+        {
+            data[i] = (byte)((i % 1000 < 300) ? 'a' : 'a' + random.nextInt(20));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try
+        {
+            // block size 1 gives a stream of several blocks.
+            ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+            OutputStream out = new CBZip2OutputStream(bOut, 1);
+            out.write(data);
+            out.close();
+
+            byte[] expected = bOut.toByteArray();
+
+            bOut = new ByteArrayOutputStream();
+            out = new CBZip2OutputStream(bOut, 1, executor);
+            out.write(data, 0, 1000);
+            for (int i = 1000; i != 2000; i++)
+            {
+                out.write(data[i]);
+            }
+            out.write(data, 2000, data.length - 2000);
+            out.close();
+
+            isTrue("parallel compression differs", areEqual(expected, bOut.toByteArray()));
+
+            bOut = new ByteArrayOutputStream();
+            out = new CBZip2OutputStream(bOut, 1, executor, 1);
+            out.write(data);
+            out.close();
+
+            isTrue("single block compression differs", areEqual(expected, bOut.toByteArray()));
+
+            try
+            {
+                new CBZip2OutputStream(new ByteArrayOutputStream(), 1, executor, 0);
+                fail("no exception");
+            }
+            catch (IllegalArgumentException e)
+            {
+                isEquals("maxPendingBlocks must be positive", e.getMessage());
+            }
+
+            isTrue("sequential decompression failed", areEqual(data, Streams.readAll(new CBZip2InputStream(new ByteArrayInputStream(expected)))));
+            isTrue("parallel decompression failed", areEqual(data, Streams.readAll(new CBZip2ParallelInputStream(new ByteArrayInputStream(expected), executor))));
+            isTrue("single block decompression failed", areEqual(data, Streams.readAll(new CBZip2ParallelInputStream(new ByteArrayInputStream(expected), executor, 1))));
+
+            InputStream in = new CBZip2ParallelInputStream(new ByteArrayInputStream(expected), executor, 3);
+            bOut.reset();
+            int ch;
+            while ((ch = in.read()) >= 0)
+            {
+                bOut.write(ch);
+            }
+            isTrue("byte decompression failed", areEqual(data, bOut.toByteArray()));
+
+            byte[] corrupt = (byte[])expected.clone();
+            corrupt[corrupt.length / 2] ^= 0x10;
+            try
+            {
+                Streams.readAll(new CBZip2ParallelInputStream(new ByteArrayInputStream(corrupt), executor));
+                fail("corrupted stream not detected");
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+
+            try
+            {
+                Streams.readAll(new CBZip2ParallelInputStream(new ByteArrayInputStream(expected, 0, expected.length - 10), executor));
+                fail("truncated stream not detected");
+            }
+            catch (IOException e)
+            {
+                isEquals("unexpected end of BZIP2 stream", e.getMessage());
+            }
+
+            // through the OpenPGP generator and compressed data object.
+            bOut = new ByteArrayOutputStream();
+            PGPCompressedDataGenerator cPacket = new PGPCompressedDataGenerator(PGPCompressedData.BZIP2);
+            out = cPacket.open(new UncloseableOutputStream(bOut));
+            out.write(data);
+            out.close();
+
+            expected = bOut.toByteArray();
+
+            bOut = new ByteArrayOutputStream();
+            cPacket = new PGPCompressedDataGenerator(PGPCompressedData.BZIP2, -1, executor);
+            out = cPacket.open(new UncloseableOutputStream(bOut));
+            out.write(data);
+            out.close();
+
+            isTrue("parallel compressed data differs", areEqual(expected, bOut.toByteArray()));
+
+            JcaPGPObjectFactory pgpFact = new JcaPGPObjectFactory(expected);
+            PGPCompressedData c1 = (PGPCompressedData)pgpFact.nextObject();
+
+            isTrue("parallel data stream failed", areEqual(data, Streams.readAll(c1.getDataStream(executor))));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
     public String getName()
     {
         return "PGPCompressionTest";
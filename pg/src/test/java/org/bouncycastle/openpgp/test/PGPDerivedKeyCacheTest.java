@@ -0,0 +1,353 @@
+package org.bouncycastle.openpgp.test;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.bcpg.S2K;
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPKeyPair;
+import org.bouncycastle.openpgp.PGPKeyRingGenerator;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPrivateKeyExtractor;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPSecretKeyRing;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.operator.PBESecretKeyDecryptor;
+import org.bouncycastle.openpgp.operator.PGPDerivedKeyCache;
+import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
+import org.bouncycastle.openpgp.operator.PGPDigestCalculatorProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPBESecretKeyDecryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPBESecretKeyEncryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyPair;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPDigestCalculatorProviderBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcePBESecretKeyDecryptorBuilder;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Check secret key unlocking through a PGPDerivedKeyCache, and with a PGPPrivateKeyExtractor.
+ */
+public class PGPDerivedKeyCacheTest
+    extends SimpleTest
+{
+    private static final char[] passPhrase = "hello world!".toCharArray();
+
+    public String getName()
+    {
+        return "PGPDerivedKeyCache";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        PGPSecretKeyRing secretKeyRing = generateKeyRing();
+        CountingCalculatorProvider calcProvider = new CountingCalculatorProvider();
+
+        List expected = extractAll(secretKeyRing, new BcPBESecretKeyDecryptorBuilder(calcProvider).build(passPhrase));
+
+        isEquals(3, expected.size());
+        isEquals("uncached derivations", 3, calcProvider.getCount());
+
+        // the subkeys share an S2K with the master key, so the key is only derived once.
+        PGPDerivedKeyCache cache = new PGPDerivedKeyCache(4, 60000);
+        PBESecretKeyDecryptor decryptor = new BcPBESecretKeyDecryptorBuilder(calcProvider).setKeyCache(cache).build(passPhrase);
+
+        calcProvider.reset();
+        checkKeys(expected, extractAll(secretKeyRing, decryptor));
+        isEquals("cached derivations", 1, calcProvider.getCount());
+        isEquals(1, cache.size());
+
+        calcProvider.reset();
+        checkKeys(expected, extractAll(secretKeyRing, new BcPBESecretKeyDecryptorBuilder(calcProvider).setKeyCache(cache).build(passPhrase)));
+        isEquals("derivations from warm cache", 0, calcProvider.getCount());
+
+        // a different pass phrase must not find the cached key.
+        try
+        {
+            secretKeyRing.getSecretKey().extractPrivateKey(new BcPBESecretKeyDecryptorBuilder(calcProvider).setKeyCache(cache).build("wrong".toCharArray()));
+            fail("wrong pass phrase accepted");
+        }
+        catch (PGPException e)
+        {
+            // expected
+        }
+        isEquals(2, cache.size());
+
+        cache.clear();
+        isEquals(0, cache.size());
+
+        calcProvider.reset();
+        checkKeys(expected, extractAll(secretKeyRing, decryptor));
+        isEquals("derivations after clear", 1, calcProvider.getCount());
+
+        expiryTest(secretKeyRing, calcProvider);
+        evictionTest(secretKeyRing, calcProvider);
+        extractorTest(secretKeyRing, expected);
+        waiterTest();
+
+        PGPDigestCalculatorProvider jcaCalcProvider = new JcaPGPDigestCalculatorProviderBuilder().setProvider("BC").build();
+        cache = new PGPDerivedKeyCache(4, 60000);
+
+        checkKeys(expected, extractAll(secretKeyRing, new JcePBESecretKeyDecryptorBuilder(jcaCalcProvider).setProvider("BC").setKeyCache(cache).build(passPhrase)));
+        isEquals(1, cache.size());
+    }
+
+    private void expiryTest(PGPSecretKeyRing secretKeyRing, CountingCalculatorProvider calcProvider)
+        throws Exception
+    {
+        PGPDerivedKeyCache cache = new PGPDerivedKeyCache(4, 20);
+        PBESecretKeyDecryptor decryptor = new BcPBESecretKeyDecryptorBuilder(calcProvider).setKeyCache(cache).build(passPhrase);
+
+        secretKeyRing.getSecretKey().extractPrivateKey(decryptor);
+        isEquals(1, cache.size());
+
+        Thread.sleep(50);
+
+        isEquals("key not expired", 0, cache.size());
+
+        calcProvider.reset();
+        secretKeyRing.getSecretKey().extractPrivateKey(decryptor);
+        isEquals("derivations after expiry", 1, calcProvider.getCount());
+    }
+
+    private void evictionTest(PGPSecretKeyRing secretKeyRing, CountingCalculatorProvider calcProvider)
+        throws Exception
+    {
+        PGPDerivedKeyCache cache = new PGPDerivedKeyCache(1, 60000);
+        PBESecretKeyDecryptor decryptor = new BcPBESecretKeyDecryptorBuilder(calcProvider).setKeyCache(cache).build(passPhrase);
+
+        secretKeyRing.getSecretKey().extractPrivateKey(decryptor);
+
+        try
+        {
+            secretKeyRing.getSecretKey().extractPrivateKey(new BcPBESecretKeyDecryptorBuilder(calcProvider).setKeyCache(cache).build("wrong".toCharArray()));
+            fail("wrong pass phrase accepted");
+        }
+        catch (PGPException e)
+        {
+            // expected
+        }
+        isEquals(1, cache.size());
+
+        // the wrong pass phrase key should have pushed out the right one.
+        calcProvider.reset();
+        secretKeyRing.getSecretKey().extractPrivateKey(decryptor);
+        isEquals("derivations after eviction", 1, calcProvider.getCount());
+    }
+
+    private void extractorTest(PGPSecretKeyRing secretKeyRing, List expected)
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        try
+        {
+            CountingCalculatorProvider calcProvider = new CountingCalculatorProvider();
+            PGPDerivedKeyCache cache = new PGPDerivedKeyCache(4, 60000);
+            PGPPrivateKeyExtractor extractor = new PGPPrivateKeyExtractor(executor);
+
+            checkKeys(expected, extractor.extractPrivateKeys(secretKeyRing, new BcPBESecretKeyDecryptorBuilder(calcProvider).setKeyCache(cache).build(passPhrase)));
+            isEquals("parallel derivations", 1, calcProvider.getCount());
+
+            checkKeys(expected, extractor.extractPrivateKeys(secretKeyRing.getSecretKeys(), new BcPBESecretKeyDecryptorBuilder(calcProvider).build(passPhrase)));
+
+            try
+            {
+                extractor.extractPrivateKeys(secretKeyRing, new BcPBESecretKeyDecryptorBuilder(calcProvider).setKeyCache(cache).build("wrong".toCharArray()));
+                fail("wrong pass phrase accepted");
+            }
+            catch (PGPException e)
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void waiterTest()
+        throws Exception
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final PGPDigestCalculatorProvider calcProvider = new BlockingCalculatorProvider(release);
+        final PGPDerivedKeyCache cache = new PGPDerivedKeyCache(4, 60000);
+        final S2K s2k = new S2K(HashAlgorithmTags.SHA512, new byte[8], 0x60);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        try
+        {
+            List results = new ArrayList();
+
+            for (int i = 0; i != 3; i++)
+            {
+                results.add(executor.submit(new Callable()
+                {
+                    public Object call()
+                        throws Exception
+                    {
+                        return cache.getKey(calcProvider, SymmetricKeyAlgorithmTags.AES_256, s2k, passPhrase);
+                    }
+                }));
+            }
+
+            // give the other threads time to start waiting on the one deriving the key.
+            Thread.sleep(100);
+            release.countDown();
+
+            byte[] expected = new PGPDerivedKeyCache(1, 60000).getKey(new BcPGPDigestCalculatorProvider(), SymmetricKeyAlgorithmTags.AES_256, s2k, passPhrase);
+
+            for (int i = 0; i != results.size(); i++)
+            {
+                isTrue("waiter key mismatch", Arrays.areEqual(expected, (byte[])((Future)results.get(i)).get()));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private List extractAll(PGPSecretKeyRing secretKeyRing, PBESecretKeyDecryptor decryptor)
+        throws PGPException
+    {
+        List keys = new ArrayList();
+
+        for (Iterator it = secretKeyRing.getSecretKeys(); it.hasNext();)
+        {
+            keys.add(((PGPSecretKey)it.next()).extractPrivateKey(decryptor));
+        }
+
+        return keys;
+    }
+
+    private void checkKeys(List expected, List keys)
+        throws Exception
+    {
+        isEquals(expected.size(), keys.size());
+
+        for (int i = 0; i != expected.size(); i++)
+        {
+            PGPPrivateKey expectedKey = (PGPPrivateKey)expected.get(i);
+            PGPPrivateKey key = (PGPPrivateKey)keys.get(i);
+
+            isEquals(expectedKey.getKeyID(), key.getKeyID());
+            isTrue("private key mismatch", Arrays.areEqual(expectedKey.getPrivateKeyDataPacket().getEncoded(), key.getPrivateKeyDataPacket().getEncoded()));
+        }
+    }
+
+    private PGPSecretKeyRing generateKeyRing()
+        throws Exception
+    {
+        Date now = new Date((System.currentTimeMillis() / 1000) * 1000);
+        RSAKeyPairGenerator kpGen = new RSAKeyPairGenerator();
+
+        kpGen.init(new RSAKeyGenerationParameters(BigInteger.valueOf(0x10001), new SecureRandom(), 1024, 25));
+
+        PGPKeyPair master = new BcPGPKeyPair(PGPPublicKey.RSA_GENERAL, kpGen.generateKeyPair(), now);
+        PGPDigestCalculator sha1Calc = new BcPGPDigestCalculatorProvider().get(HashAlgorithmTags.SHA1);
+        PGPDigestCalculator s2kCalc = new BcPGPDigestCalculatorProvider().get(HashAlgorithmTags.SHA512);
+
+        PGPKeyRingGenerator keyRingGen = new PGPKeyRingGenerator(PGPSignature.POSITIVE_CERTIFICATION, master,
+            "test@bouncycastle.org", sha1Calc, null, null,
+            new BcPGPContentSignerBuilder(PGPPublicKey.RSA_GENERAL, HashAlgorithmTags.SHA256),
+            new BcPBESecretKeyEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_256, s2kCalc, 0x90).build(passPhrase));
+
+        keyRingGen.addSubKey(new BcPGPKeyPair(PGPPublicKey.RSA_GENERAL, kpGen.generateKeyPair(), now));
+        keyRingGen.addSubKey(new BcPGPKeyPair(PGPPublicKey.RSA_GENERAL, kpGen.generateKeyPair(), now));
+
+        return keyRingGen.generateSecretKeyRing();
+    }
+
+    /**
+     * Counts requests for the S2K digest, one per key derivation.
+     */
+    private static class CountingCalculatorProvider
+        implements PGPDigestCalculatorProvider
+    {
+        private final PGPDigestCalculatorProvider calcProvider = new BcPGPDigestCalculatorProvider();
+        private int count;
+
+        public synchronized PGPDigestCalculator get(int algorithm)
+            throws PGPException
+        {
+            if (algorithm == HashAlgorithmTags.SHA512)
+            {
+                count++;
+            }
+
+            return calcProvider.get(algorithm);
+        }
+
+        synchronized int getCount()
+        {
+            return count;
+        }
+
+        synchronized void reset()
+        {
+            count = 0;
+        }
+    }
+
+    /**
+     * Holds up S2K derivations until released.
+     */
+    private static class BlockingCalculatorProvider
+        implements PGPDigestCalculatorProvider
+    {
+        private final PGPDigestCalculatorProvider calcProvider = new BcPGPDigestCalculatorProvider();
+        private final CountDownLatch release;
+
+        BlockingCalculatorProvider(CountDownLatch release)
+        {
+            this.release = release;
+        }
+
+        public PGPDigestCalculator get(int algorithm)
+            throws PGPException
+        {
+            if (algorithm == HashAlgorithmTags.SHA512)
+            {
+                try
+                {
+                    release.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new PGPException("interrupted");
+                }
+            }
+
+            return calcProvider.get(algorithm);
+        }
+    }
+
+    public static void main(
+        String[]    args)
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new PGPDerivedKeyCacheTest());
+    }
+}
@@ -0,0 +1,215 @@
+package org.bouncycastle.openpgp.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Date;
+import java.util.Random;
+
+import org.bouncycastle.bcpg.BCPGOutputStream;
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.bcpg.PublicKeyAlgorithmTags;
+import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openpgp.PGPDetachedSignatureVerifier;
+import org.bouncycastle.openpgp.PGPKeyPair;
+import org.bouncycastle.openpgp.PGPOnePassSignature;
+import org.bouncycastle.openpgp.PGPOnePassSignatureList;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureGenerator;
+import org.bouncycastle.openpgp.PGPSignatureList;
+import org.bouncycastle.openpgp.bc.BcPGPObjectFactory;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentVerifierBuilderProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyPair;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPContentVerifierBuilderProvider;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Check signatures verified over memory mapped files agree with ones verified over the same data
+ * in memory.
+ */
+public class PGPDetachedSignatureVerifierTest
+    extends SimpleTest
+{
+    public String getName()
+    {
+        return "PGPDetachedSignatureVerifier";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        RSAKeyPairGenerator kpGen = new RSAKeyPairGenerator();
+
+        kpGen.init(new RSAKeyGenerationParameters(BigInteger.valueOf(0x10001), new SecureRandom(), 1024, 25));
+
+        PGPKeyPair keyPair = new BcPGPKeyPair(PublicKeyAlgorithmTags.RSA_GENERAL, kpGen.generateKeyPair(), new Date());
+
+        Random random = new Random(1);
+        int[] lengths = { 0, 1, 1000, 256 * 1024, 700001 };
+
+        for (int i = 0; i != lengths.length; i++)
+        {
+            byte[] data = new byte[lengths[i]];
+
+            random.nextBytes(data);
+
+            fileTest(keyPair, data, PGPSignature.BINARY_DOCUMENT);
+        }
+
+        byte[] text = "line one\nline two\r\nline three\rline four\n".getBytes("UTF-8");
+
+        fileTest(keyPair, text, PGPSignature.CANONICAL_TEXT_DOCUMENT);
+
+        invalidWindowTest();
+        missingFileTest(keyPair);
+    }
+
+    private void fileTest(PGPKeyPair keyPair, byte[] data, int signatureType)
+        throws Exception
+    {
+        File file = File.createTempFile("bcpg", ".dat");
+
+        try
+        {
+            writeFile(file, data);
+
+            PGPSignature detached = sign(keyPair, data, signatureType);
+            int[] windowSizes = { 1, 4096, 100000, 1 << 20 };
+
+            for (int i = 0; i != windowSizes.length; i++)
+            {
+                if (data.length > 100000 && windowSizes[i] < 4096)
+                {
+                    continue;
+                }
+
+                PGPDetachedSignatureVerifier verifier = new PGPDetachedSignatureVerifier(windowSizes[i]);
+
+                detached.init(new BcPGPContentVerifierBuilderProvider(), keyPair.getPublicKey());
+                isTrue("detached failed " + data.length + " " + windowSizes[i], verifier.verify(detached, file));
+
+                detached.init(new JcaPGPContentVerifierBuilderProvider().setProvider("BC"), keyPair.getPublicKey());
+                verifier.update(detached, file);
+                isTrue("detached update failed " + data.length + " " + windowSizes[i], detached.verify());
+
+                checkOnePass(keyPair, data, signatureType, verifier, file);
+            }
+
+            detached.init(new BcPGPContentVerifierBuilderProvider(), keyPair.getPublicKey());
+            isTrue("default window failed", new PGPDetachedSignatureVerifier().verify(detached, file));
+
+            if (data.length != 0)
+            {
+                byte[] tampered = (byte[])data.clone();
+
+                tampered[tampered.length / 2] ^= 1;
+
+                writeFile(file, tampered);
+
+                detached.init(new BcPGPContentVerifierBuilderProvider(), keyPair.getPublicKey());
+                isTrue("tampered file verified", !new PGPDetachedSignatureVerifier(4096).verify(detached, file));
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private void checkOnePass(PGPKeyPair keyPair, byte[] data, int signatureType, PGPDetachedSignatureVerifier verifier, File file)
+        throws Exception
+    {
+        PGPSignatureGenerator sGen = new PGPSignatureGenerator(new BcPGPContentSignerBuilder(PublicKeyAlgorithmTags.RSA_GENERAL, HashAlgorithmTags.SHA256));
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        BCPGOutputStream bcOut = new BCPGOutputStream(bOut);
+
+        sGen.init(signatureType, keyPair.getPrivateKey());
+
+        sGen.generateOnePassVersion(false).encode(bcOut);
+        sGen.update(data);
+        sGen.generate().encode(bcOut);
+
+        bcOut.close();
+
+        BcPGPObjectFactory pgpFact = new BcPGPObjectFactory(new ByteArrayInputStream(bOut.toByteArray()));
+        PGPOnePassSignature ops = ((PGPOnePassSignatureList)pgpFact.nextObject()).get(0);
+        PGPSignature sig = ((PGPSignatureList)pgpFact.nextObject()).get(0);
+
+        ops.init(new BcPGPContentVerifierBuilderProvider(), keyPair.getPublicKey());
+        isTrue("one pass failed " + data.length, verifier.verify(ops, sig, file));
+
+        ops.init(new BcPGPContentVerifierBuilderProvider(), keyPair.getPublicKey());
+        verifier.update(ops, file);
+        isTrue("one pass update failed " + data.length, ops.verify(sig));
+    }
+
+    private void invalidWindowTest()
+    {
+        try
+        {
+            new PGPDetachedSignatureVerifier(0);
+            fail("zero window size accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            isEquals("window size must be positive", e.getMessage());
+        }
+    }
+
+    private void missingFileTest(PGPKeyPair keyPair)
+        throws Exception
+    {
+        File file = File.createTempFile("bcpg", ".dat");
+
+        file.delete();
+
+        PGPSignature detached = sign(keyPair, new byte[0], PGPSignature.BINARY_DOCUMENT);
+
+        detached.init(new BcPGPContentVerifierBuilderProvider(), keyPair.getPublicKey());
+
+        try
+        {
+            new PGPDetachedSignatureVerifier().verify(detached, file);
+            fail("missing file not detected");
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    private PGPSignature sign(PGPKeyPair keyPair, byte[] data, int signatureType)
+        throws Exception
+    {
+        PGPSignatureGenerator sGen = new PGPSignatureGenerator(new BcPGPContentSignerBuilder(PublicKeyAlgorithmTags.RSA_GENERAL, HashAlgorithmTags.SHA256));
+
+        sGen.init(signatureType, keyPair.getPrivateKey());
+        sGen.update(data);
+
+        return sGen.generate();
+    }
+
+    private void writeFile(File file, byte[] data)
+        throws IOException
+    {
+        FileOutputStream fOut = new FileOutputStream(file);
+
+        fOut.write(data);
+        fOut.close();
+    }
+
+    public static void main(String[] args)
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new PGPDetachedSignatureVerifierTest());
+    }
+}
@@ -7,8 +7,10 @@
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.Security;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 
 import javax.crypto.Cipher;
 
@@ -37,6 +39,7 @@
 import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
 import org.bouncycastle.openpgp.PGPSecretKey;
 import org.bouncycastle.openpgp.PGPSecretKeyRing;
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
 import org.bouncycastle.openpgp.PGPSignature;
 import org.bouncycastle.openpgp.PGPSignatureSubpacketGenerator;
 import org.bouncycastle.openpgp.PGPUtil;
@@ -3419,6 +3422,7 @@ public void performTest()
             testCurve25519Ring();
             testShouldProduceSubkeys();
             testApacheRings();
+            testIndexedCollections();
         }
         catch (PGPException e)
         {
@@ -3434,6 +3438,246 @@ public void performTest()
         }
     }
 
+    /*
+     * the key ID, fingerprint and user ID indexes must give the same answers as looking through every ring.
+     */
+    private void testIndexedCollections()
+        throws Exception
+    {
+        List pubRings = new ArrayList();
+        byte[][] pubs = { pub1, pub2, pub3, pub5, pub6, pub8, pub10 };
+        for (int i = 0; i != pubs.length; i++)
+        {
+            for (Iterator it = new JcaPGPPublicKeyRingCollection(pubs[i]).getKeyRings(); it.hasNext();)
+            {
+                pubRings.add(it.next());
+            }
+        }
+
+        PGPPublicKeyRingCollection pubCol = new PGPPublicKeyRingCollection(pubRings);
+        checkPublicIndex(pubCol, pubRings);
+
+        // take each ring out in turn, and put it back.
+        for (int i = 0; i != pubRings.size(); i++)
+        {
+            PGPPublicKeyRing ring = (PGPPublicKeyRing)pubRings.get(i);
+            List remaining = new ArrayList(pubRings);
+            remaining.remove(i);
+
+            PGPPublicKeyRingCollection removed = PGPPublicKeyRingCollection.removePublicKeyRing(pubCol, ring);
+            checkPublicIndex(removed, remaining);
+            isTrue(!removed.contains(ring.getPublicKey().getKeyID()));
+            isTrue(!removed.contains(ring.getPublicKey().getFingerprint()));
+
+            // a ring added back goes to the end of the collection.
+            remaining.add(ring);
+            checkPublicIndex(PGPPublicKeyRingCollection.addPublicKeyRing(removed, ring), remaining);
+        }
+
+        // substring index built before the collection changes is kept up to date.
+        pubCol.getKeyRings("test", true, true);
+        PGPPublicKeyRing last = (PGPPublicKeyRing)pubRings.get(pubRings.size() - 1);
+        List remaining = new ArrayList(pubRings);
+        remaining.remove(last);
+        PGPPublicKeyRingCollection removed = PGPPublicKeyRingCollection.removePublicKeyRing(pubCol, last);
+        checkPublicIndex(removed, remaining);
+        remaining.add(last);
+        checkPublicIndex(PGPPublicKeyRingCollection.addPublicKeyRing(removed, last), remaining);
+
+        // rings added and removed in bulk.
+        List firstHalf = new ArrayList(pubRings.subList(0, pubRings.size() / 2));
+        List secondHalf = new ArrayList(pubRings.subList(pubRings.size() / 2, pubRings.size()));
+        PGPPublicKeyRingCollection half = PGPPublicKeyRingCollection.removePublicKeyRings(pubCol, secondHalf);
+        checkPublicIndex(half, firstHalf);
+        isEquals(firstHalf.size(), half.size());
+        checkPublicIndex(PGPPublicKeyRingCollection.addPublicKeyRings(half, secondHalf), pubRings);
+        checkPublicIndex(PGPPublicKeyRingCollection.addPublicKeyRings(
+            new PGPPublicKeyRingCollection(new ArrayList()), pubRings), pubRings);
+
+        try
+        {
+            PGPPublicKeyRingCollection.addPublicKeyRings(half, firstHalf.subList(0, 1));
+            fail("no exception");
+        }
+        catch (IllegalArgumentException e)
+        {
+            isEquals("Collection already contains a key with a keyID for a passed in ring.", e.getMessage());
+        }
+
+        try
+        {
+            PGPPublicKeyRingCollection.removePublicKeyRings(half, secondHalf);
+            fail("no exception");
+        }
+        catch (IllegalArgumentException e)
+        {
+            isEquals("Collection does not contain a key with a keyID for a passed in ring.", e.getMessage());
+        }
+
+        List secRings = new ArrayList();
+        byte[][] secs = { sec1, sec2, sec3, sec4, sec5, sec8, sec9, sec10 };
+        for (int i = 0; i != secs.length; i++)
+        {
+            for (Iterator it = new JcaPGPSecretKeyRingCollection(secs[i]).getKeyRings(); it.hasNext();)
+            {
+                secRings.add(it.next());
+            }
+        }
+
+        PGPSecretKeyRingCollection secCol = new PGPSecretKeyRingCollection(secRings);
+        checkSecretIndex(secCol, secRings);
+
+        PGPSecretKeyRing secRing = (PGPSecretKeyRing)secRings.get(0);
+        remaining = new ArrayList(secRings);
+        remaining.remove(0);
+        PGPSecretKeyRingCollection secRemoved = PGPSecretKeyRingCollection.removeSecretKeyRing(secCol, secRing);
+        checkSecretIndex(secRemoved, remaining);
+        isTrue(!secRemoved.contains(secRing.getSecretKey().getPublicKey().getFingerprint()));
+        checkSecretIndex(PGPSecretKeyRingCollection.addSecretKeyRing(secRemoved, secRing), secRings);
+
+        List secSecondHalf = new ArrayList(secRings.subList(secRings.size() / 2, secRings.size()));
+        secRemoved = PGPSecretKeyRingCollection.removeSecretKeyRings(secCol, secSecondHalf);
+        checkSecretIndex(secRemoved, secRings.subList(0, secRings.size() / 2));
+        checkSecretIndex(PGPSecretKeyRingCollection.addSecretKeyRings(secRemoved, secSecondHalf), secRings);
+    }
+
+    private void checkPublicIndex(PGPPublicKeyRingCollection col, List rings)
+        throws Exception
+    {
+        for (int i = 0; i != rings.size(); i++)
+        {
+            PGPPublicKeyRing ring = (PGPPublicKeyRing)rings.get(i);
+
+            for (Iterator it = ring.getPublicKeys(); it.hasNext();)
+            {
+                PGPPublicKey key = (PGPPublicKey)it.next();
+
+                isTrue("key ID", Arrays.areEqual(key.getFingerprint(), col.getPublicKey(key.getKeyID()).getFingerprint()));
+                isTrue("fingerprint", Arrays.areEqual(key.getFingerprint(), col.getPublicKey(key.getFingerprint()).getFingerprint()));
+                isTrue("ring by key ID", col.getPublicKeyRing(key.getKeyID()).getPublicKey().getKeyID() == ring.getPublicKey().getKeyID());
+                isTrue("ring by fingerprint", col.getPublicKeyRing(key.getFingerprint()).getPublicKey().getKeyID() == ring.getPublicKey().getKeyID());
+            }
+
+            for (Iterator it = ring.getPublicKey().getUserIDs(); it.hasNext();)
+            {
+                String userID = (String)it.next();
+
+                checkUserID(col, rings, userID, false, false);
+                checkUserID(col, rings, userID.toUpperCase(), false, true);
+                checkUserID(col, rings, userID.substring(0, userID.length() / 2), true, false);
+                checkUserID(col, rings, userID.substring(userID.length() / 3).toLowerCase(), true, true);
+                checkUserID(col, rings, userID.substring(0, Math.min(2, userID.length())), true, false);
+
+                int start = userID.indexOf('<');
+                if (start >= 0 && userID.indexOf('>', start) > start + 1)
+                {
+                    String email = userID.substring(start + 1, userID.indexOf('>', start));
+
+                    isTrue("email", contains(col.getKeyRingsByEmail(email.toUpperCase()), ring.getPublicKey().getKeyID()));
+                }
+            }
+        }
+
+        isTrue(col.getPublicKey(0x0102030405060708L) == null);
+        isTrue(col.getPublicKey(new byte[20]) == null);
+        isTrue(!col.getKeyRings("no such user", true, true).hasNext());
+        isTrue(!col.getKeyRingsByEmail("nobody@example.com").hasNext());
+    }
+
+    private void checkUserID(PGPPublicKeyRingCollection col, List rings, String userID, boolean matchPartial, boolean ignoreCase)
+        throws Exception
+    {
+        List expected = new ArrayList();
+        String match = ignoreCase ? userID.toLowerCase() : userID;
+
+        for (int i = 0; i != rings.size(); i++)
+        {
+            PGPPublicKeyRing ring = (PGPPublicKeyRing)rings.get(i);
+
+            for (Iterator it = ring.getPublicKey().getUserIDs(); it.hasNext();)
+            {
+                String next = (String)it.next();
+                if (ignoreCase)
+                {
+                    next = next.toLowerCase();
+                }
+
+                if (matchPartial ? next.indexOf(match) > -1 : next.equals(match))
+                {
+                    expected.add(new Long(ring.getPublicKey().getKeyID()));
+                }
+            }
+        }
+
+        List found = new ArrayList();
+        for (Iterator it = col.getKeyRings(userID, matchPartial, ignoreCase); it.hasNext();)
+        {
+            found.add(new Long(((PGPPublicKeyRing)it.next()).getPublicKey().getKeyID()));
+        }
+
+        isEquals("user ID " + userID, expected.size(), found.size());
+        isTrue("user ID order " + userID, found.equals(expected));
+    }
+
+    private void checkSecretIndex(PGPSecretKeyRingCollection col, List rings)
+        throws Exception
+    {
+        for (int i = 0; i != rings.size(); i++)
+        {
+            PGPSecretKeyRing ring = (PGPSecretKeyRing)rings.get(i);
+            long ringID = ring.getSecretKey().getKeyID();
+
+            for (Iterator it = ring.getSecretKeys(); it.hasNext();)
+            {
+                PGPSecretKey key = (PGPSecretKey)it.next();
+                byte[] fingerprint = key.getPublicKey().getFingerprint();
+
+                isTrue("secret key ID", col.getSecretKey(key.getKeyID()).getKeyID() == key.getKeyID());
+                isTrue("secret fingerprint", col.getSecretKey(fingerprint).getKeyID() == key.getKeyID());
+                isTrue("secret ring", col.getSecretKeyRing(key.getKeyID()).getSecretKey().getKeyID() == ringID);
+                isTrue("secret ring by fingerprint", col.getSecretKeyRing(fingerprint).getSecretKey().getKeyID() == ringID);
+            }
+
+            for (Iterator it = ring.getSecretKey().getUserIDs(); it.hasNext();)
+            {
+                String userID = (String)it.next();
+
+                isTrue("secret user ID", containsSecret(col.getKeyRings(userID), ringID));
+                isTrue("secret user ID case", containsSecret(col.getKeyRings(userID.toUpperCase(), false, true), ringID));
+                isTrue("secret partial user ID", containsSecret(col.getKeyRings(userID.substring(1), true), ringID));
+            }
+        }
+
+        isTrue(col.getSecretKey(0x0102030405060708L) == null);
+        isTrue(col.getSecretKey(new byte[20]) == null);
+    }
+
+    private static boolean contains(Iterator rings, long keyID)
+    {
+        while (rings.hasNext())
+        {
+            if (((PGPPublicKeyRing)rings.next()).getPublicKey().getKeyID() == keyID)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean containsSecret(Iterator rings, long keyID)
+    {
+        while (rings.hasNext())
+        {
+            if (((PGPSecretKeyRing)rings.next()).getSecretKey().getKeyID() == keyID)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
     public String getName()
     {
         return "PGPKeyRingTest";
@@ -9,10 +9,20 @@
 import java.util.Iterator;
 import java.util.Random;
 
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openpgp.PGPEncryptedDataGenerator;
+import org.bouncycastle.openpgp.PGPEncryptedDataList;
+import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPLiteralData;
 import org.bouncycastle.openpgp.PGPLiteralDataGenerator;
+import org.bouncycastle.openpgp.PGPPBEEncryptedData;
 import org.bouncycastle.openpgp.jcajce.JcaPGPObjectFactory;
+import org.bouncycastle.openpgp.operator.bc.BcPBEDataDecryptorFactory;
+import org.bouncycastle.openpgp.operator.bc.BcPBEKeyEncryptionMethodGenerator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDataEncryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.test.SimpleTest;
 import org.bouncycastle.util.test.UncloseableOutputStream;
 
@@ -145,8 +155,110 @@ private void iteratorTest()
         }
     }
 
-    public void performTest()
+    /*
+     * write partial packets in odd sized pieces and read them back the same way, so writes and reads
+     * straddle chunk boundaries.
+     */
+    private void partialBulkTest()
+        throws IOException, PGPException
+    {
+        Random rand = new Random(1);
+        byte[] data = new byte[100000];
+
+        rand.nextBytes(data);
+
+        for (int power = 9; power <= 17; power += 4)
+        {
+            ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+            PGPLiteralDataGenerator generator = new PGPLiteralDataGenerator();
+            OutputStream out = generator.open(new UncloseableOutputStream(bOut), PGPLiteralData.BINARY,
+                PGPLiteralData.CONSOLE, new Date(), new byte[1 << power]);
+
+            writeInPieces(out, data, rand);
+            generator.close();
+
+            JcaPGPObjectFactory fact = new JcaPGPObjectFactory(bOut.toByteArray());
+            PGPLiteralData ld = (PGPLiteralData)fact.nextObject();
+
+            isTrue("partial read back failed - power = " + power, Arrays.areEqual(data, readInPieces(ld.getInputStream(), rand)));
+
+            // integrity protected, so the reads go through the MDC look ahead as well.
+            bOut = new ByteArrayOutputStream();
+            PGPEncryptedDataGenerator encGen = new PGPEncryptedDataGenerator(
+                new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128).setWithIntegrityPacket(true));
+
+            encGen.addMethod(new BcPBEKeyEncryptionMethodGenerator("password".toCharArray()));
+
+            OutputStream encOut = encGen.open(new UncloseableOutputStream(bOut), new byte[1 << power]);
+
+            writeInPieces(encOut, data, rand);
+            encOut.close();
+
+            fact = new JcaPGPObjectFactory(bOut.toByteArray());
+            PGPEncryptedDataList encList = (PGPEncryptedDataList)fact.nextObject();
+            PGPPBEEncryptedData encData = (PGPPBEEncryptedData)encList.get(0);
+
+            InputStream clear = encData.getDataStream(new BcPBEDataDecryptorFactory("password".toCharArray(), new BcPGPDigestCalculatorProvider()));
+
+            isTrue("encrypted read back failed - power = " + power, Arrays.areEqual(data, readInPieces(clear, rand)));
+            isTrue("integrity check failed - power = " + power, encData.verify());
+        }
+    }
+
+    private void writeInPieces(OutputStream out, byte[] data, Random rand)
         throws IOException
+    {
+        int off = 0;
+        while (off < data.length)
+        {
+            if (rand.nextInt(4) == 0)
+            {
+                out.write(data[off++]);
+            }
+            else
+            {
+                int len = Math.min(data.length - off, rand.nextInt(3000));
+
+                out.write(data, off, len);
+                off += len;
+            }
+        }
+    }
+
+    private byte[] readInPieces(InputStream in, Random rand)
+        throws IOException
+    {
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        byte[] buf = new byte[3000];
+
+        for (;;)
+        {
+            if (rand.nextInt(4) == 0)
+            {
+                int ch = in.read();
+                if (ch < 0)
+                {
+                    break;
+                }
+                bOut.write(ch);
+            }
+            else
+            {
+                // includes reads shorter than the MDC look ahead.
+                int len = in.read(buf, 0, (rand.nextInt(2) == 0) ? 1 + rand.nextInt(30) : buf.length);
+                if (len < 0)
+                {
+                    break;
+                }
+                bOut.write(buf, 0, len);
+            }
+        }
+
+        return bOut.toByteArray();
+    }
+
+    public void performTest()
+        throws IOException, PGPException
     {
         PGPLiteralDataGenerator oldGenerator = new PGPLiteralDataGenerator(true);
 
@@ -157,6 +269,8 @@ public void performTest()
         readBackTest(newGenerator);
 
         iteratorTest();
+
+        partialBulkTest();
     }
 
     public String getName()
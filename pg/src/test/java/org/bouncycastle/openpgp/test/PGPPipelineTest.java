@@ -0,0 +1,276 @@
+package org.bouncycastle.openpgp.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openpgp.PGPCompressedData;
+import org.bouncycastle.openpgp.PGPCompressedDataGenerator;
+import org.bouncycastle.openpgp.PGPEncryptedDataGenerator;
+import org.bouncycastle.openpgp.PGPKeyPair;
+import org.bouncycastle.openpgp.PGPLiteralData;
+import org.bouncycastle.openpgp.PGPLiteralDataGenerator;
+import org.bouncycastle.openpgp.PGPPipelinedOutputStream;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureGenerator;
+import org.bouncycastle.openpgp.PGPSignatureSubpacketGenerator;
+import org.bouncycastle.openpgp.operator.bc.BcPBEKeyEncryptionMethodGenerator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDataEncryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyPair;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.test.SimpleTest;
+import org.bouncycastle.util.test.UncloseableOutputStream;
+
+/**
+ * Check pipelined compression, encryption and signing produce the same output as doing it all on
+ * one thread.
+ */
+public class PGPPipelineTest
+    extends SimpleTest
+{
+    private static final Date DATE = new Date((System.currentTimeMillis() / 1000) * 1000);
+
+    public String getName()
+    {
+        return "PGPPipeline";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        byte[] data = new byte[300000];
+        Random random = new Random(42);
+        for (int i = 0; i != data.length; i++)
+        {
+            data[i] = (byte)('a' + random.nextInt(8));    // something worth compressing
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Executor rejecting = new Executor()
+        {
+            public void execute(Runnable command)
+            {
+                throw new RejectedExecutionException();
+            }
+        };
+
+        try
+        {
+            int[] algorithms = { PGPCompressedData.UNCOMPRESSED, PGPCompressedData.ZIP, PGPCompressedData.ZLIB, PGPCompressedData.BZIP2 };
+
+            for (int i = 0; i != algorithms.length; i++)
+            {
+                byte[] expected = encrypt(data, algorithms[i], null);
+
+                isTrue("pipelined " + algorithms[i], Arrays.areEqual(expected, encrypt(data, algorithms[i], executor)));
+                isTrue("rejected " + algorithms[i], Arrays.areEqual(expected, encrypt(data, algorithms[i], rejecting)));
+            }
+
+            signatureTest(data, executor);
+            signatureTest(data, rejecting);
+            stageTest(data, executor);
+            errorTest(executor);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private byte[] encrypt(byte[] data, int algorithm, Executor executor)
+        throws Exception
+    {
+        Random random = new Random(1);
+
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        BcPGPDataEncryptorBuilder encryptorBuilder = new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128)
+            .setWithIntegrityPacket(true)
+            .setSecureRandom(new FixedRandom(random));
+        PGPEncryptedDataGenerator encGen;
+        PGPCompressedDataGenerator comGen;
+
+        if (executor != null)
+        {
+            encGen = new PGPEncryptedDataGenerator(encryptorBuilder, false, executor);
+            comGen = new PGPCompressedDataGenerator(algorithm, -1, executor);
+        }
+        else
+        {
+            encGen = new PGPEncryptedDataGenerator(encryptorBuilder, false);
+            comGen = new PGPCompressedDataGenerator(algorithm, -1);
+        }
+
+        encGen.addMethod(new BcPBEKeyEncryptionMethodGenerator("password".toCharArray()).setSecureRandom(new FixedRandom(random)));
+
+        OutputStream encOut = encGen.open(new UncloseableOutputStream(bOut), new byte[1 << 12]);
+        OutputStream comOut = comGen.open(encOut, new byte[1 << 12]);
+        OutputStream litOut = new PGPLiteralDataGenerator().open(comOut, PGPLiteralData.BINARY, "data", DATE, new byte[1 << 12]);
+
+        for (int off = 0; off < data.length; off += 1000)
+        {
+            litOut.write(data, off, Math.min(1000, data.length - off));
+        }
+        litOut.write(7);
+
+        litOut.close();
+        comOut.close();
+        encOut.close();
+
+        return bOut.toByteArray();
+    }
+
+    private void signatureTest(byte[] data, Executor executor)
+        throws Exception
+    {
+        RSAKeyPairGenerator kpGen = new RSAKeyPairGenerator();
+        kpGen.init(new RSAKeyGenerationParameters(BigInteger.valueOf(0x10001), new SecureRandom(), 1024, 25));
+
+        PGPKeyPair keyPair = new BcPGPKeyPair(PGPPublicKey.RSA_GENERAL, kpGen.generateKeyPair(), DATE);
+
+        PGPSignatureGenerator direct = createSigner(keyPair, PGPSignature.BINARY_DOCUMENT);
+        PGPSignatureGenerator pipelined = createSigner(keyPair, PGPSignature.BINARY_DOCUMENT);
+
+        direct.update(data);
+
+        OutputStream sigOut = new PGPPipelinedOutputStream(pipelined, executor, 4096, 2);
+        sigOut.write(data);
+        sigOut.close();
+
+        isTrue("binary signature", Arrays.areEqual(direct.generate().getEncoded(), pipelined.generate().getEncoded()));
+
+        // canonical text keeps its line ending state across blocks.
+        byte[] text = new byte[10000];
+        for (int i = 0; i != text.length; i++)
+        {
+            text[i] = (byte)(((i % 7) == 0) ? '\r' : (((i % 7) == 1) ? '\n' : 'x'));
+        }
+
+        direct = createSigner(keyPair, PGPSignature.CANONICAL_TEXT_DOCUMENT);
+        pipelined = createSigner(keyPair, PGPSignature.CANONICAL_TEXT_DOCUMENT);
+
+        direct.update(text);
+
+        sigOut = new PGPPipelinedOutputStream(pipelined, executor, 99, 3);
+        for (int i = 0; i != text.length; i++)
+        {
+            sigOut.write(text[i]);
+        }
+        sigOut.close();
+
+        isTrue("text signature", Arrays.areEqual(direct.generate().getEncoded(), pipelined.generate().getEncoded()));
+    }
+
+    private PGPSignatureGenerator createSigner(PGPKeyPair keyPair, int sigType)
+        throws Exception
+    {
+        PGPSignatureGenerator sigGen = new PGPSignatureGenerator(
+            new BcPGPContentSignerBuilder(PGPPublicKey.RSA_GENERAL, HashAlgorithmTags.SHA256));
+        PGPSignatureSubpacketGenerator subpackets = new PGPSignatureSubpacketGenerator();
+
+        subpackets.setSignatureCreationTime(false, DATE);
+
+        sigGen.init(sigType, keyPair.getPrivateKey());
+        sigGen.setHashedSubpackets(subpackets.generate());
+
+        return sigGen;
+    }
+
+    private void stageTest(byte[] data, Executor executor)
+        throws Exception
+    {
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        PGPPipelinedOutputStream pOut = new PGPPipelinedOutputStream(bOut, executor, 1000, 1);
+
+        pOut.write(data, 0, 1500);
+        pOut.flush();
+        isEquals(1500, bOut.size());
+
+        pOut.write(data, 1500, data.length - 1500);
+        pOut.finish();
+        isTrue(Arrays.areEqual(data, bOut.toByteArray()));
+
+        try
+        {
+            pOut.write(1);
+            fail("no exception");
+        }
+        catch (IOException e)
+        {
+            isEquals("pipeline stage closed", e.getMessage());
+        }
+    }
+
+    private void errorTest(Executor executor)
+        throws Exception
+    {
+        OutputStream failing = new OutputStream()
+        {
+            int count;
+
+            public void write(int b)
+                throws IOException
+            {
+                if (++count > 5000)
+                {
+                    throw new IOException("stage failed");
+                }
+            }
+        };
+
+        PGPPipelinedOutputStream pOut = new PGPPipelinedOutputStream(failing, executor, 100, 2);
+
+        try
+        {
+            for (int i = 0; i != 10000; i++)
+            {
+                pOut.write(i);
+            }
+            pOut.close();
+            fail("no exception");
+        }
+        catch (IOException e)
+        {
+            isEquals("stage failed", e.getMessage());
+        }
+    }
+
+    private static class FixedRandom
+        extends SecureRandom
+    {
+        private final Random random;
+
+        FixedRandom(Random random)
+        {
+            this.random = random;
+        }
+
+        public void nextBytes(byte[] bytes)
+        {
+            random.nextBytes(bytes);
+        }
+    }
+
+    public static void main(
+        String[] args)
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new PGPPipelineTest());
+    }
+}
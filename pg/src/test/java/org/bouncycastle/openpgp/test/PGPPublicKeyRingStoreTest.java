@@ -0,0 +1,262 @@
+package org.bouncycastle.openpgp.test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.Security;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.bouncycastle.gpg.keybox.KeyBlob;
+import org.bouncycastle.gpg.keybox.PublicKeyRingBlob;
+import org.bouncycastle.gpg.keybox.bc.BcKeyBox;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPPublicKeyRingStore;
+import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
+import org.bouncycastle.util.io.Streams;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Check a memory mapped key ring store gives the same answers as a key ring collection.
+ */
+public class PGPPublicKeyRingStoreTest
+    extends SimpleTest
+{
+    public String getName()
+    {
+        return "PGPPublicKeyRingStore";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        PGPKeyRingTest data = new PGPKeyRingTest();
+
+        List rings = new ArrayList();
+        byte[][] pubs = { data.pub1, data.pub2, data.pub3, data.pub5, data.pub6, data.pub8, data.pub10 };
+        for (int i = 0; i != pubs.length; i++)
+        {
+            for (Iterator it = new PGPPublicKeyRingCollection(pubs[i], new BcKeyFingerprintCalculator()).getKeyRings(); it.hasNext();)
+            {
+                rings.add(it.next());
+            }
+        }
+
+        File keyRingFile = File.createTempFile("bcpubring", ".gpg");
+        File indexFile = new File(keyRingFile.getPath() + ".idx");
+
+        try
+        {
+            writeRings(keyRingFile, rings);
+
+            PGPPublicKeyRingStore store = new PGPPublicKeyRingStore(keyRingFile, new BcKeyFingerprintCalculator());
+            checkStore(store, rings);
+            store.close();
+
+            isTrue("index file exists", !indexFile.exists());
+
+            // first open writes the index, the second reads it.
+            store = new PGPPublicKeyRingStore(keyRingFile, indexFile, new BcKeyFingerprintCalculator());
+            checkStore(store, rings);
+            store.close();
+
+            isTrue("index file not written", indexFile.length() > 0);
+
+            store = new PGPPublicKeyRingStore(keyRingFile, indexFile, new BcKeyFingerprintCalculator());
+            checkStore(store, rings);
+            store.close();
+
+            // a damaged index is rebuilt.
+            FileOutputStream fOut = new FileOutputStream(indexFile);
+            fOut.write(new byte[100]);
+            fOut.close();
+
+            store = new PGPPublicKeyRingStore(keyRingFile, indexFile, new BcKeyFingerprintCalculator());
+            checkStore(store, rings);
+            store.close();
+
+            // as are ones with impossible ring (offset 24) or key (offset 40) counts.
+            int[] countOffsets = { 24, 24, 40, 40 };
+            int[] counts = { -1, Integer.MAX_VALUE, -1, Integer.MAX_VALUE };
+            for (int i = 0; i != counts.length; i++)
+            {
+                corruptIndex(indexFile, countOffsets[i], counts[i]);
+
+                store = new PGPPublicKeyRingStore(keyRingFile, indexFile, new BcKeyFingerprintCalculator());
+                checkStore(store, rings);
+                store.close();
+            }
+
+            // so is one for a key ring file which has changed since.
+            rings.remove(0);
+            writeRings(keyRingFile, rings);
+            keyRingFile.setLastModified(keyRingFile.lastModified() - 10000);
+
+            store = new PGPPublicKeyRingStore(keyRingFile, indexFile, new BcKeyFingerprintCalculator());
+            checkStore(store, rings);
+            store.close();
+
+            keyBoxTest(keyRingFile);
+
+            fOut = new FileOutputStream(keyRingFile);
+            fOut.write(data.sec1);
+            fOut.close();
+
+            try
+            {
+                new PGPPublicKeyRingStore(keyRingFile, new BcKeyFingerprintCalculator());
+                fail("no exception");
+            }
+            catch (PGPException e)
+            {
+                isTrue(e.getMessage().startsWith("secret key found where public key ring expected"));
+            }
+        }
+        finally
+        {
+            keyRingFile.delete();
+            indexFile.delete();
+        }
+    }
+
+    private void corruptIndex(File indexFile, int offset, int value)
+        throws IOException
+    {
+        InputStream fIn = new FileInputStream(indexFile);
+        byte[] index = Streams.readAll(fIn);
+        fIn.close();
+
+        Pack.intToBigEndian(value, index, offset);
+
+        FileOutputStream fOut = new FileOutputStream(indexFile);
+        fOut.write(index);
+        fOut.close();
+    }
+
+    private void keyBoxTest(File keyBoxFile)
+        throws Exception
+    {
+        InputStream in = PGPPublicKeyRingStoreTest.class.getResourceAsStream("/pgpdata/pubring.kbx");
+        byte[] keyBox = Streams.readAll(in);
+        in.close();
+
+        FileOutputStream fOut = new FileOutputStream(keyBoxFile);
+        fOut.write(keyBox);
+        fOut.close();
+
+        List rings = new ArrayList();
+        for (Iterator it = new BcKeyBox(keyBox).getKeyBlobs().iterator(); it.hasNext();)
+        {
+            KeyBlob blob = (KeyBlob)it.next();
+
+            if (blob instanceof PublicKeyRingBlob)
+            {
+                rings.add(((PublicKeyRingBlob)blob).getPGPPublicKeyRing());
+            }
+        }
+
+        isTrue("no rings in keybox", rings.size() > 0);
+
+        PGPPublicKeyRingStore store = new PGPPublicKeyRingStore(keyBoxFile, new BcKeyFingerprintCalculator());
+        checkStore(store, rings);
+        store.close();
+    }
+
+    private void checkStore(PGPPublicKeyRingStore store, List rings)
+        throws Exception
+    {
+        PGPPublicKeyRingCollection collection = new PGPPublicKeyRingCollection(rings);
+
+        isEquals("size", rings.size(), store.size());
+
+        int count = 0;
+        for (Iterator it = store.getKeyRings(); it.hasNext(); count++)
+        {
+            isTrue("ring " + count, Arrays.areEqual(((PGPPublicKeyRing)rings.get(count)).getEncoded(),
+                ((PGPPublicKeyRing)it.next()).getEncoded()));
+        }
+
+        for (int i = 0; i != rings.size(); i++)
+        {
+            PGPPublicKeyRing ring = (PGPPublicKeyRing)rings.get(i);
+
+            for (Iterator it = ring.getPublicKeys(); it.hasNext();)
+            {
+                PGPPublicKey key = (PGPPublicKey)it.next();
+
+                isTrue("contains key ID", store.contains(key.getKeyID()));
+                isTrue("contains fingerprint", store.contains(key.getFingerprint()));
+                isTrue("key ID", Arrays.areEqual(key.getEncoded(), store.getPublicKey(key.getKeyID()).getEncoded()));
+                isTrue("fingerprint", Arrays.areEqual(key.getEncoded(), store.getPublicKey(key.getFingerprint()).getEncoded()));
+                isTrue("ring by key ID", Arrays.areEqual(ring.getEncoded(), store.getPublicKeyRing(key.getKeyID()).getEncoded()));
+                isTrue("ring by fingerprint", Arrays.areEqual(ring.getEncoded(), store.getPublicKeyRing(key.getFingerprint()).getEncoded()));
+            }
+
+            for (Iterator it = ring.getPublicKey().getUserIDs(); it.hasNext();)
+            {
+                String userID = (String)it.next();
+
+                checkUserID(store, collection, userID, false, false);
+                checkUserID(store, collection, userID.toUpperCase(), false, true);
+                checkUserID(store, collection, userID.substring(userID.length() / 2), true, false);
+                checkUserID(store, collection, userID.substring(0, Math.min(2, userID.length())).toLowerCase(), true, true);
+            }
+        }
+
+        isTrue(!store.contains(0x0102030405060708L));
+        isTrue(store.getPublicKey(0x0102030405060708L) == null);
+        isTrue(store.getPublicKeyRing(new byte[20]) == null);
+        isTrue(!store.getKeyRingsByEmail("nobody@example.com").hasNext());
+    }
+
+    private void checkUserID(PGPPublicKeyRingStore store, PGPPublicKeyRingCollection collection, String userID,
+        boolean matchPartial, boolean ignoreCase)
+        throws Exception
+    {
+        isEquals("user ID " + userID, count(collection.getKeyRings(userID, matchPartial, ignoreCase)),
+            count(store.getKeyRings(userID, matchPartial, ignoreCase)));
+    }
+
+    private static int count(Iterator it)
+    {
+        int count = 0;
+
+        while (it.hasNext())
+        {
+            it.next();
+            count++;
+        }
+
+        return count;
+    }
+
+    private static void writeRings(File file, List rings)
+        throws IOException
+    {
+        FileOutputStream fOut = new FileOutputStream(file);
+
+        for (int i = 0; i != rings.size(); i++)
+        {
+            ((PGPPublicKeyRing)rings.get(i)).encode(fOut);
+        }
+
+        fOut.close();
+    }
+
+    public static void main(
+        String[] args)
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new PGPPublicKeyRingStoreTest());
+    }
+}
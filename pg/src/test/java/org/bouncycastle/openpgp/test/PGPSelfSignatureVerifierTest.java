@@ -0,0 +1,204 @@
+package org.bouncycastle.openpgp.test;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.crypto.generators.RSAKeyPairGenerator;
+import org.bouncycastle.crypto.params.RSAKeyGenerationParameters;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPKeyPair;
+import org.bouncycastle.openpgp.PGPKeyRingGenerator;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSelfSignatureResult;
+import org.bouncycastle.openpgp.PGPSelfSignatureVerifier;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.operator.PGPContentVerifierBuilderProvider;
+import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
+import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator;
+import org.bouncycastle.openpgp.operator.bc.BcPBESecretKeyEncryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentVerifierBuilderProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPGPKeyPair;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * Check self-signature verification of whole key rings agrees with verifying each signature
+ * individually.
+ */
+public class PGPSelfSignatureVerifierTest
+    extends SimpleTest
+{
+    private final PGPContentVerifierBuilderProvider verifierProvider = new BcPGPContentVerifierBuilderProvider();
+
+    public String getName()
+    {
+        return "PGPSelfSignatureVerifier";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        PGPKeyRingTest data = new PGPKeyRingTest();
+        byte[][] pubs = { data.pub1, data.pub2, data.pub3, data.pub5, data.pub6, data.pub8, data.pub10 };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try
+        {
+            for (int i = 0; i != pubs.length; i++)
+            {
+                PGPPublicKeyRingCollection keyRings = new PGPPublicKeyRingCollection(pubs[i], new BcKeyFingerprintCalculator());
+
+                List results = new PGPSelfSignatureVerifier(verifierProvider).verify(keyRings);
+                List parallelResults = new PGPSelfSignatureVerifier(verifierProvider, executor).verify(keyRings);
+
+                isTrue("no self-signatures found " + i, !results.isEmpty());
+                isEquals(results.size(), parallelResults.size());
+
+                for (int j = 0; j != results.size(); j++)
+                {
+                    PGPSelfSignatureResult result = (PGPSelfSignatureResult)results.get(j);
+                    PGPSelfSignatureResult parallelResult = (PGPSelfSignatureResult)parallelResults.get(j);
+
+                    isTrue(result.getSignature() == parallelResult.getSignature());
+                    isEquals(result.isVerified(), parallelResult.isVerified());
+
+                    checkAgainstSingle(keyRings, result);
+                }
+
+                int count = 0;
+                for (Iterator it = keyRings.getKeyRings(); it.hasNext();)
+                {
+                    count += new PGPSelfSignatureVerifier(verifierProvider, executor).verify((PGPPublicKeyRing)it.next()).size();
+                }
+                isEquals(results.size(), count);
+            }
+
+            generatedKeyTest(executor);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void checkAgainstSingle(PGPPublicKeyRingCollection keyRings, PGPSelfSignatureResult result)
+        throws PGPException
+    {
+        PGPSignature sig = result.getSignature();
+        PGPPublicKey key = result.getPublicKey();
+        PGPPublicKey masterKey = keyRings.getPublicKeyRing(key.getKeyID()).getPublicKey();
+        boolean expected;
+
+        sig.init(verifierProvider, masterKey);
+
+        try
+        {
+            if (result.getRawUserID() != null)
+            {
+                expected = sig.verifyCertification(result.getRawUserID(), masterKey);
+            }
+            else if (result.getUserAttributes() != null)
+            {
+                expected = sig.verifyCertification(result.getUserAttributes(), masterKey);
+            }
+            else if (key.isMasterKey())
+            {
+                expected = sig.verifyCertification(masterKey);
+            }
+            else
+            {
+                expected = sig.verifyCertification(masterKey, key);
+            }
+        }
+        catch (PGPException e)
+        {
+            isTrue("exception not reported", result.getException() != null);
+            return;
+        }
+
+        isEquals("mismatch on " + Long.toHexString(key.getKeyID()), expected, result.isVerified());
+    }
+
+    private void generatedKeyTest(ExecutorService executor)
+        throws Exception
+    {
+        Date now = new Date((System.currentTimeMillis() / 1000) * 1000);
+        RSAKeyPairGenerator kpGen = new RSAKeyPairGenerator();
+
+        kpGen.init(new RSAKeyGenerationParameters(BigInteger.valueOf(0x10001), new SecureRandom(), 1024, 25));
+
+        PGPKeyPair master = new BcPGPKeyPair(PGPPublicKey.RSA_GENERAL, kpGen.generateKeyPair(), now);
+        PGPKeyPair sub = new BcPGPKeyPair(PGPPublicKey.RSA_GENERAL, kpGen.generateKeyPair(), now);
+        PGPDigestCalculator sha1Calc = new BcPGPDigestCalculatorProvider().get(HashAlgorithmTags.SHA1);
+
+        PGPKeyRingGenerator keyRingGen = new PGPKeyRingGenerator(PGPSignature.POSITIVE_CERTIFICATION, master,
+            "test@bouncycastle.org", sha1Calc, null, null,
+            new BcPGPContentSignerBuilder(PGPPublicKey.RSA_GENERAL, HashAlgorithmTags.SHA256),
+            new BcPBESecretKeyEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128, sha1Calc).build("password".toCharArray()));
+
+        keyRingGen.addSubKey(sub);
+
+        PGPPublicKeyRing keyRing = keyRingGen.generatePublicKeyRing();
+        List results = new PGPSelfSignatureVerifier(verifierProvider, executor).verify(keyRing);
+
+        isEquals(2, results.size());
+
+        PGPSelfSignatureResult idResult = (PGPSelfSignatureResult)results.get(0);
+        PGPSelfSignatureResult subResult = (PGPSelfSignatureResult)results.get(1);
+
+        isTrue(idResult.isVerified());
+        isEquals("test@bouncycastle.org", idResult.getUserID());
+        isTrue(idResult.getPublicKey().isMasterKey());
+        isTrue(subResult.isVerified());
+        isEquals(PGPSignature.SUBKEY_BINDING, subResult.getSignature().getSignatureType());
+        isEquals(sub.getKeyID(), subResult.getPublicKey().getKeyID());
+        isTrue(subResult.getUserID() == null && subResult.getException() == null);
+
+        // move the user ID certification to another user ID - it should no longer verify.
+        PGPPublicKey masterKey = PGPPublicKey.addCertification(keyRing.getPublicKey(), "forged@bouncycastle.org", idResult.getSignature());
+        keyRing = PGPPublicKeyRing.insertPublicKey(keyRing, masterKey);
+
+        results = new PGPSelfSignatureVerifier(verifierProvider).verify(keyRing);
+
+        isEquals(3, results.size());
+
+        for (int i = 0; i != results.size(); i++)
+        {
+            PGPSelfSignatureResult result = (PGPSelfSignatureResult)results.get(i);
+
+            isEquals(!"forged@bouncycastle.org".equals(result.getUserID()), result.isVerified());
+        }
+
+        // a subkey binding on the master key is the wrong type for where it is.
+        masterKey = PGPPublicKey.addCertification(keyRing.getPublicKey(), subResult.getSignature());
+        keyRing = PGPPublicKeyRing.insertPublicKey(keyRing, masterKey);
+
+        PGPSelfSignatureResult result = (PGPSelfSignatureResult)new PGPSelfSignatureVerifier(verifierProvider).verify(keyRing).get(0);
+
+        isTrue(!result.isVerified());
+        isTrue(result.getException() != null);
+        isTrue(Arrays.areEqual(masterKey.getFingerprint(), result.getPublicKey().getFingerprint()));
+    }
+
+    public static void main(
+        String[]    args)
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new PGPSelfSignatureVerifierTest());
+    }
+}
@@ -0,0 +1,121 @@
+package org.bouncycastle.openpgp.test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Random;
+
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.openpgp.PGPEncryptedDataGenerator;
+import org.bouncycastle.openpgp.PGPEncryptedDataList;
+import org.bouncycastle.openpgp.PGPLiteralData;
+import org.bouncycastle.openpgp.PGPLiteralDataGenerator;
+import org.bouncycastle.openpgp.PGPPBEEncryptedData;
+import org.bouncycastle.openpgp.bc.BcPGPObjectFactory;
+import org.bouncycastle.openpgp.operator.bc.BcPBEDataDecryptorFactory;
+import org.bouncycastle.openpgp.operator.bc.BcPBEKeyEncryptionMethodGenerator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDataEncryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDigestCalculatorProvider;
+
+/**
+ * Benchmark of encrypting, then decrypting and checking the integrity of, a large message made of
+ * partial length packets. The message is written to a temporary file, so sizes of several GB are
+ * fine.
+ * <p>
+ * Usage: PacketStreamPerformanceTest [message size in MB] [partial chunk size as a power of 2] [read size]
+ * </p>
+ */
+public class PacketStreamPerformanceTest
+{
+    private static final int DEFAULT_SIZE = 256;
+    private static final int DEFAULT_POWER = 16;
+    private static final int DEFAULT_READ_SIZE = 1 << 16;
+
+    private static final char[] PASSWORD = "password".toCharArray();
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        long size = ((args.length > 0) ? Long.parseLong(args[0]) : DEFAULT_SIZE) * 1024 * 1024;
+        int power = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_POWER;
+        int readSize = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_READ_SIZE;
+
+        byte[] block = new byte[1 << 16];
+        new Random(1).nextBytes(block);
+
+        File file = File.createTempFile("bcpg", ".pgp");
+
+        try
+        {
+            long start = System.nanoTime();
+
+            OutputStream fOut = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+            PGPEncryptedDataGenerator encGen = new PGPEncryptedDataGenerator(
+                new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128).setWithIntegrityPacket(true));
+
+            encGen.addMethod(new BcPBEKeyEncryptionMethodGenerator(PASSWORD));
+
+            OutputStream encOut = encGen.open(fOut, new byte[1 << power]);
+            PGPLiteralDataGenerator litGen = new PGPLiteralDataGenerator();
+            OutputStream litOut = litGen.open(encOut, PGPLiteralData.BINARY, "data", new Date(), new byte[1 << power]);
+
+            for (long written = 0; written < size; written += block.length)
+            {
+                litOut.write(block, 0, (int)Math.min(block.length, size - written));
+            }
+
+            litOut.close();
+            encOut.close();
+            fOut.close();
+
+            long encryptTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+
+            InputStream fIn = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+            BcPGPObjectFactory fact = new BcPGPObjectFactory(fIn);
+            PGPEncryptedDataList encList = (PGPEncryptedDataList)fact.nextObject();
+            PGPPBEEncryptedData encData = (PGPPBEEncryptedData)encList.get(0);
+
+            InputStream clear = encData.getDataStream(new BcPBEDataDecryptorFactory(PASSWORD, new BcPGPDigestCalculatorProvider()));
+            PGPLiteralData ld = (PGPLiteralData)new BcPGPObjectFactory(clear).nextObject();
+            InputStream litIn = ld.getInputStream();
+
+            byte[] buf = new byte[readSize];
+            long read = 0;
+            int len;
+
+            while ((len = litIn.read(buf, 0, buf.length)) >= 0)
+            {
+                read += len;
+            }
+
+            if (read != size || !encData.verify())
+            {
+                throw new IllegalStateException("message did not decrypt correctly");
+            }
+
+            fIn.close();
+
+            long decryptTime = System.nanoTime() - start;
+
+            System.out.println((size / (1024 * 1024)) + "MB, 2^" + power + " byte chunks, " + readSize + " byte reads");
+            System.out.println("encrypt:              " + rate(size, encryptTime) + " MB/s");
+            System.out.println("decrypt and verify:   " + rate(size, decryptTime) + " MB/s");
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private static long rate(long size, long time)
+    {
+        return (size * 1000000000L) / (time * 1024 * 1024);
+    }
+}
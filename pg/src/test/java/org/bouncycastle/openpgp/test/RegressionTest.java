@@ -10,6 +10,9 @@
     public static Test[] tests = {
         new BcPGPKeyRingTest(),
         new PGPKeyRingTest(),
+        new PGPPublicKeyRingStoreTest(),
+        new PGPSelfSignatureVerifierTest(),
+        new PGPDerivedKeyCacheTest(),
         new BcPGPRSATest(),
         new PGPRSATest(),
         new BcPGPDSATest(),
@@ -24,6 +27,9 @@
         new PGPSignatureTest(),
         new PGPClearSignedSignatureTest(),
         new PGPCompressionTest(),
+        new PGPPipelineTest(),
+        new PGPAEADTest(),
+        new PGPDetachedSignatureVerifierTest(),
         new PGPNoPrivateKeyTest(),
         new PGPECDSATest(),
         new PGPECDHTest(),
@@ -12,6 +12,7 @@
 
 import org.bouncycastle.asn1.ASN1Encoding;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERCursor;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.asn1.x509.Certificate;
@@ -21,6 +22,7 @@
 import org.bouncycastle.asn1.x509.TBSCertificate;
 import org.bouncycastle.operator.ContentVerifier;
 import org.bouncycastle.operator.ContentVerifierProvider;
+import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Encodable;
 
 /**
@@ -33,6 +35,9 @@
 
     private transient Certificate x509Certificate;
     private transient Extensions  extensions;
+    private transient byte[]      encoding;
+    private transient int         hashValue;
+    private transient boolean     hashValueSet;
 
     private static Certificate parseBytes(byte[] certEncoding)
         throws IOException
@@ -61,6 +66,12 @@ public X509CertificateHolder(byte[] certEncoding)
         throws IOException
     {
         this(parseBytes(certEncoding));
+
+        // keep the bytes read only if they are DER, otherwise getEncoded() re-encodes on first use.
+        if (DERCursor.isDEREncoding(certEncoding))
+        {
+            this.encoding = Arrays.clone(certEncoding);
+        }
     }
 
     /**
@@ -313,12 +324,23 @@ public boolean equals(
 
         X509CertificateHolder other = (X509CertificateHolder)o;
 
+        if (this.hashValueSet && other.hashValueSet && this.hashValue != other.hashValue)
+        {
+            return false;
+        }
+
         return this.x509Certificate.equals(other.x509Certificate);
     }
 
     public int hashCode()
     {
-        return this.x509Certificate.hashCode();
+        if (!hashValueSet)
+        {
+            hashValue = this.x509Certificate.hashCode();
+            hashValueSet = true;
+        }
+
+        return hashValue;
     }
 
     /**
@@ -330,7 +352,12 @@ public int hashCode()
     public byte[] getEncoded()
         throws IOException
     {
-        return x509Certificate.getEncoded();
+        if (encoding == null)
+        {
+            encoding = x509Certificate.getEncoded();
+        }
+
+        return Arrays.clone(encoding);
     }
 
     private void readObject(
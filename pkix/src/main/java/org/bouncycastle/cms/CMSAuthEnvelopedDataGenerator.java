@@ -48,8 +48,7 @@ private CMSAuthEnvelopedData doGenerate(
         {
             OutputStream cOut = contentEncryptor.getOutputStream(bOut);
 
-            content.write(cOut);
-            
+            // associated data goes first - not all AEAD implementations accept it after the content.
             if (authAttrsGenerator != null)
             {
                 AttributeTable attrTable = authAttrsGenerator.getAttributes(new HashMap());
@@ -59,6 +58,8 @@ private CMSAuthEnvelopedData doGenerate(
                 contentEncryptor.getAADStream().write(authenticatedAttrSet.getEncoded(ASN1Encoding.DER));
             }
 
+            content.write(cOut);
+
             cOut.close();
         }
         catch (IOException e)
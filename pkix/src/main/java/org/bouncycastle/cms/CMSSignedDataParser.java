@@ -1,6 +1,7 @@
 package org.bouncycastle.cms;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -12,6 +13,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.ASN1EncodableVector;
@@ -88,6 +90,8 @@
 {
     private static final CMSSignedHelper HELPER = CMSSignedHelper.INSTANCE;
 
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
     private SignedDataParser        _signedData;
     private ASN1ObjectIdentifier    _signedContentType;
     private CMSTypedStream          _signedContent;
@@ -97,6 +101,7 @@
     private SignerInformationStore  _signerInfoStore;
     private ASN1Set                 _certSet, _crlSet;
     private boolean                 _isCertCrlParsed;
+    private boolean                 _isContentRead;
 
     public CMSSignedDataParser(
         DigestCalculatorProvider digestCalculatorProvider,
@@ -398,9 +403,132 @@ public CMSTypedStream getSignedContent()
         InputStream digStream = CMSUtils.attachDigestsToInputStream(
             digests.values(), _signedContent.getContentStream());
 
+        _isContentRead = true;
+
         return new CMSTypedStream(_signedContent.getContentType(), digStream);
     }
 
+    /**
+     * Calculate the content digests from detached content held in a file. The parser should have
+     * been created without the signed content.
+     *
+     * @param contentFile the file holding the content that was signed.
+     * @throws CMSException if the file cannot be read.
+     * @see #processContent(File, int)
+     */
+    public void processContent(File contentFile)
+        throws CMSException
+    {
+        processContent(contentFile, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Calculate the content digests from detached content held in a file. The parser should have
+     * been created without the signed content.
+     * <p>
+     * Rather than being read through an input stream, the file is memory mapped windowSize bytes at
+     * a time, and each window is passed to the digest calculators in large blocks. Once this has
+     * been called the signers can be checked using getSignerInfos() or verifySignatures().
+     * </p>
+     * @param contentFile the file holding the content that was signed.
+     * @param windowSize the number of bytes of the file to map at a time.
+     * @throws CMSException if the file cannot be read.
+     * @throws IllegalStateException if the parser already has the signed content, or it has been read.
+     */
+    public void processContent(File contentFile, int windowSize)
+        throws CMSException
+    {
+        if (windowSize <= 0)
+        {
+            throw new IllegalArgumentException("window size must be positive");
+        }
+        if (_signedContent != null || _isContentRead)
+        {
+            throw new IllegalStateException("signed content already present");
+        }
+
+        try
+        {
+            CMSUtils.digestMappedFile(digests.values(), contentFile, windowSize);
+        }
+        catch (IOException e)
+        {
+            throw new CMSException("unable to read signed content: " + e.getMessage(), e);
+        }
+
+        _isContentRead = true;
+    }
+
+    /**
+     * Verify all the SignerInformation objects and their associated counter signatures attached
+     * to this CMS SignedData object.
+     *
+     * @param verifierProvider  a provider of SignerInformationVerifier objects.
+     * @return true if all verify, false otherwise.
+     * @throws CMSException  if an exception occurs during the verification process.
+     * @see #verifySignatures(SignerInformationVerifierProvider, boolean, Executor)
+     */
+    public boolean verifySignatures(SignerInformationVerifierProvider verifierProvider)
+        throws CMSException
+    {
+        return verifySignatures(verifierProvider, false);
+    }
+
+    /**
+     * Verify all the SignerInformation objects and optionally their associated counter signatures attached
+     * to this CMS SignedData object.
+     *
+     * @param verifierProvider  a provider of SignerInformationVerifier objects.
+     * @param ignoreCounterSignatures if true don't check counter signatures. If false check counter signatures as well.
+     * @return true if all verify, false otherwise.
+     * @throws CMSException  if an exception occurs during the verification process.
+     * @see #verifySignatures(SignerInformationVerifierProvider, boolean, Executor)
+     */
+    public boolean verifySignatures(SignerInformationVerifierProvider verifierProvider, boolean ignoreCounterSignatures)
+        throws CMSException
+    {
+        return verifySignatures(verifierProvider, ignoreCounterSignatures, new Executor()
+        {
+            public void execute(Runnable task)
+            {
+                task.run();
+            }
+        });
+    }
+
+    /**
+     * Verify all the SignerInformation objects and optionally their associated counter signatures attached
+     * to this CMS SignedData object, running the signature checks in parallel on the passed in executor.
+     * <p>
+     * If getSignedContent() has not been called the signed content will be drained first. The content is
+     * only read once, with a single digest calculated for each distinct digest algorithm, so memory use
+     * does not depend on the size of the content. The verifiers returned by verifierProvider may be used
+     * on the executor's threads, so they should not share state across calls.
+     * </p>
+     * @param verifierProvider  a provider of SignerInformationVerifier objects.
+     * @param ignoreCounterSignatures if true don't check counter signatures. If false check counter signatures as well.
+     * @param executor the executor to run the individual verifications on.
+     * @return true if all verify, false otherwise.
+     * @throws CMSException  if an exception occurs during the verification process.
+     */
+    public boolean verifySignatures(SignerInformationVerifierProvider verifierProvider, boolean ignoreCounterSignatures, Executor executor)
+        throws CMSException
+    {
+        if (!_isContentRead && _signedContent != null)
+        {
+            try
+            {
+                getSignedContent().drain();
+            }
+            catch (IOException e)
+            {
+                throw new CMSException("unable to read signed content: " + e.getMessage(), e);
+            }
+        }
+
+        return CMSUtils.verifySigners(getSignerInfos().getSigners(), verifierProvider, ignoreCounterSignatures, executor);
+    }
+
     /**
      * Replace the signerinformation store associated with the passed
      * in message contained in the stream original with the new one passed in.
@@ -1,14 +1,22 @@
 package org.bouncycastle.cms;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.ASN1EncodableVector;
@@ -37,6 +45,7 @@
 import org.bouncycastle.cert.X509CRLHolder;
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.operator.DigestCalculator;
+import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.util.Store;
 import org.bouncycastle.util.Strings;
 import org.bouncycastle.util.io.Streams;
@@ -45,6 +54,8 @@
 
 class CMSUtils
 {
+    private static final int MAPPED_BLOCK_SIZE = 256 * 1024;
+
     private static final Set<String> des = new HashSet<String>();
     private static final Set mqvAlgs = new HashSet();
     private static final Set ecAlgs = new HashSet();
@@ -341,6 +352,118 @@ public static byte[] streamToByteArray(
         return Streams.readAllLimited(in, limit);
     }
 
+    /**
+     * Verify a collection of signers, and optionally their counter signatures, running each signature
+     * verification as a separate task on the passed in executor. Verifiers are obtained from the provider
+     * on the calling thread, so the provider does not need to be thread safe.
+     */
+    static boolean verifySigners(Collection signers, SignerInformationVerifierProvider verifierProvider, boolean ignoreCounterSignatures, Executor executor)
+        throws CMSException
+    {
+        List tasks = new ArrayList();
+        boolean complete = false;
+
+        try
+        {
+            try
+            {
+                for (Iterator it = signers.iterator(); it.hasNext();)
+                {
+                    addVerificationTasks(tasks, (SignerInformation)it.next(), verifierProvider, ignoreCounterSignatures, executor);
+                }
+            }
+            catch (OperatorCreationException e)
+            {
+                throw new CMSException("failure in verifier provider: " + e.getMessage(), e);
+            }
+
+            boolean result = true;
+            for (Iterator it = tasks.iterator(); it.hasNext();)
+            {
+                FutureTask task = (FutureTask)it.next();
+
+                try
+                {
+                    if (!((Boolean)task.get()).booleanValue())
+                    {
+                        result = false;
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new CMSException("signature verification interrupted", e);
+                }
+                catch (ExecutionException e)
+                {
+                    Throwable cause = e.getCause();
+
+                    if (cause instanceof CMSException)
+                    {
+                        throw (CMSException)cause;
+                    }
+                    if (cause instanceof RuntimeException)
+                    {
+                        throw (RuntimeException)cause;
+                    }
+                    if (cause instanceof Error)
+                    {
+                        throw (Error)cause;
+                    }
+                    throw new CMSException("exception in signature verification: " + cause.getMessage(), (Exception)cause);
+                }
+            }
+
+            complete = true;
+
+            return result;
+        }
+        finally
+        {
+            if (!complete)
+            {
+                // don't leave tasks already handed to the executor running after a failure
+                cancelTasks(tasks);
+            }
+        }
+    }
+
+    private static void cancelTasks(List tasks)
+    {
+        for (Iterator it = tasks.iterator(); it.hasNext();)
+        {
+            ((FutureTask)it.next()).cancel(true);
+        }
+    }
+
+    private static void addVerificationTasks(List tasks, final SignerInformation signer, SignerInformationVerifierProvider verifierProvider, boolean ignoreCounterSignatures, Executor executor)
+        throws OperatorCreationException
+    {
+        final SignerInformationVerifier verifier = verifierProvider.get(signer.getSID());
+
+        FutureTask task = new FutureTask(new Callable()
+        {
+            public Object call()
+                throws Exception
+            {
+                return Boolean.valueOf(signer.verify(verifier));
+            }
+        });
+
+        tasks.add(task);
+        executor.execute(task);
+
+        if (!ignoreCounterSignatures)
+        {
+            Collection counterSigners = signer.getCounterSignatures().getSigners();
+
+            for (Iterator it = counterSigners.iterator(); it.hasNext();)
+            {
+                addVerificationTasks(tasks, (SignerInformation)it.next(), verifierProvider, false, executor);
+            }
+        }
+    }
+
     static InputStream attachDigestsToInputStream(Collection digests, InputStream s)
     {
         InputStream result = s;
@@ -353,6 +476,51 @@ static InputStream attachDigestsToInputStream(Collection digests, InputStream s)
         return result;
     }
 
+    /**
+     * Feed the contents of a file to a collection of digest calculators, memory mapping the file a
+     * window at a time and passing each window on in large blocks.
+     */
+    static void digestMappedFile(Collection digests, File file, int windowSize)
+        throws IOException
+    {
+        OutputStream[] digOuts = new OutputStream[digests.size()];
+        Iterator it = digests.iterator();
+        for (int i = 0; i != digOuts.length; i++)
+        {
+            digOuts[i] = ((DigestCalculator)it.next()).getOutputStream();
+        }
+
+        RandomAccessFile raFile = new RandomAccessFile(file, "r");
+
+        try
+        {
+            FileChannel channel = raFile.getChannel();
+            long length = channel.size();
+            byte[] block = new byte[(int)Math.min(MAPPED_BLOCK_SIZE, Math.min(windowSize, length))];
+
+            for (long pos = 0; pos < length; pos += windowSize)
+            {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(windowSize, length - pos));
+
+                while (window.hasRemaining())
+                {
+                    int len = Math.min(block.length, window.remaining());
+
+                    window.get(block, 0, len);
+
+                    for (int i = 0; i != digOuts.length; i++)
+                    {
+                        digOuts[i].write(block, 0, len);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            raFile.close();
+        }
+    }
+
     static OutputStream attachSignersToOutputStream(Collection signers, OutputStream s)
     {
         OutputStream result = s;
@@ -3,8 +3,10 @@
 import java.io.IOException;
 import java.io.OutputStream;
 import java.security.SecureRandom;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.cms.GCMParameters;
 import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
@@ -28,6 +30,8 @@
 
     private EnvelopedDataHelper helper = new EnvelopedDataHelper();
     private SecureRandom random;
+    private Executor executor;
+    private int maxPendingSegments;
 
     public BcCMSContentEncryptorBuilder(ASN1ObjectIdentifier encryptionOID)
     {
@@ -72,11 +76,42 @@ public BcCMSContentEncryptorBuilder setSecureRandom(SecureRandom random)
         return this;
     }
 
+    /**
+     * Provide an executor to encrypt the content on. When set, AES-GCM content is processed in
+     * independent segments spread across the executor's threads, with the output written in order and
+     * identical to that of a single-threaded encryptor. Associated data must be written to the encryptor's
+     * AAD stream after calling getOutputStream() and before any content.
+     * <p>
+     * Note: this only applies to AES-GCM, other algorithms (for example CBC modes) cannot be encrypted
+     * in parallel and are not affected.
+     * </p>
+     *
+     * @param executor the executor to run segment encryption on.
+     * @param maxPendingSegments the maximum number of segments (of 64KB) to have in flight at once.
+     * @return the current builder instance.
+     */
+    public BcCMSContentEncryptorBuilder setExecutor(Executor executor, int maxPendingSegments)
+    {
+        if (maxPendingSegments < 1)
+        {
+            throw new IllegalArgumentException("maxPendingSegments must be at least 1");
+        }
+
+        this.executor = executor;
+        this.maxPendingSegments = maxPendingSegments;
+
+        return this;
+    }
+
     public OutputEncryptor build()
         throws CMSException
     {
         if (helper.isAuthEnveloped(encryptionOID))
         {
+            if (executor != null)
+            {
+                return new CMSParallelAuthOutputEncryptor(encryptionOID, keySize, random);
+            }
             return new CMSAuthOutputEncryptor(encryptionOID, keySize, random);
         }
         return new CMSOutputEncryptor(encryptionOID, keySize, random);
@@ -156,6 +191,87 @@ public byte[] getMAC()
         }
     }
 
+    private class CMSParallelAuthOutputEncryptor
+        implements OutputAEADEncryptor
+    {
+        private KeyParameter encKey;
+        private AlgorithmIdentifier algorithmIdentifier;
+        private ParallelGCMOutputStream gcmOut;
+
+        CMSParallelAuthOutputEncryptor(ASN1ObjectIdentifier encryptionOID, int keySize, SecureRandom random)
+            throws CMSException
+        {
+            if (random == null)
+            {
+                random = new SecureRandom();
+            }
+
+            CipherKeyGenerator keyGen = helper.createKeyGenerator(encryptionOID, keySize, random);
+
+            encKey = new KeyParameter(keyGen.generateKey());
+
+            algorithmIdentifier = helper.generateEncryptionAlgID(encryptionOID, encKey, random);
+        }
+
+        public AlgorithmIdentifier getAlgorithmIdentifier()
+        {
+            return algorithmIdentifier;
+        }
+
+        public OutputStream getOutputStream(OutputStream dOut)
+        {
+            GCMParameters gcmParameters = GCMParameters.getInstance(algorithmIdentifier.getParameters());
+
+            gcmOut = new ParallelGCMOutputStream(dOut, encKey, gcmParameters.getNonce(), gcmParameters.getIcvLen(),
+                executor, maxPendingSegments);
+
+            return gcmOut;
+        }
+
+        public GenericKey getKey()
+        {
+            return new GenericKey(algorithmIdentifier, encKey.getKey());
+        }
+
+        public OutputStream getAADStream()
+        {
+            if (gcmOut == null)
+            {
+                throw new IllegalStateException("getOutputStream() must be called before getAADStream()");
+            }
+
+            return new ParallelAADStream(gcmOut);
+        }
+
+        public byte[] getMAC()
+        {
+            return gcmOut.getMac();
+        }
+    }
+
+    private static class ParallelAADStream
+        extends OutputStream
+    {
+        private ParallelGCMOutputStream gcmOut;
+
+        public ParallelAADStream(ParallelGCMOutputStream gcmOut)
+        {
+            this.gcmOut = gcmOut;
+        }
+
+        public void write(byte[] buf, int off, int len)
+            throws IOException
+        {
+            gcmOut.processAADBytes(buf, off, len);
+        }
+
+        public void write(int b)
+            throws IOException
+        {
+            gcmOut.processAADBytes(new byte[] { (byte)b }, 0, 1);
+        }
+    }
+
     private static class AADStream
         extends OutputStream
     {
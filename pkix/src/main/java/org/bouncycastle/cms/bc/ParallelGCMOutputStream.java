@@ -0,0 +1,338 @@
+package org.bouncycastle.cms.bc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.io.CipherIOException;
+import org.bouncycastle.crypto.modes.gcm.GCMExponentiator;
+import org.bouncycastle.crypto.modes.gcm.GCMMultiplier;
+import org.bouncycastle.crypto.modes.gcm.GCMUtil;
+import org.bouncycastle.crypto.modes.gcm.Tables1kGCMExponentiator;
+import org.bouncycastle.crypto.modes.gcm.Tables4kGCMMultiplier;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
+
+/**
+ * AES-GCM encrypting output stream which splits the content into fixed size segments and
+ * encrypts them on an Executor. Each segment is CTR encrypted and GHASHed independently starting
+ * at its own counter offset, the per-segment hashes are then combined in order on the writing
+ * thread using S = S.H^m + Y, so the output (ciphertext followed by the tag) is identical to that
+ * of a GCMBlockCipher. Associated data must be supplied before any content is written.
+ */
+class ParallelGCMOutputStream
+    extends OutputStream
+{
+    static final int SEGMENT_SIZE = 64 * 1024;
+
+    private static final int BLOCK_SIZE = 16;
+    private static final int SEGMENT_BLOCKS = SEGMENT_SIZE / BLOCK_SIZE;
+    private static final long MAX_BLOCKS = 0xFFFFFFFFL - 1;     // page 8, len(P) <= 2^39 - 256
+
+    private final OutputStream out;
+    private final KeyParameter key;
+    private final Executor executor;
+    private final int maxPending;
+    private final int macSize;
+
+    private final GCMMultiplier multiplier = new Tables4kGCMMultiplier();
+    private final GCMExponentiator exponentiator = new Tables1kGCMExponentiator();
+    private final byte[] H;
+    private final byte[] J0;
+    private final byte[] S = new byte[BLOCK_SIZE];
+    private final byte[] H_seg = new byte[BLOCK_SIZE];
+
+    private final LinkedList pending = new LinkedList();
+
+    private byte[] atBlock = new byte[BLOCK_SIZE];
+    private int atBlockPos;
+    private long atLength;
+
+    private byte[] buf = new byte[SEGMENT_SIZE];
+    private int bufOff;
+    private long blockCount;
+    private long totalLength;
+    private boolean dataStarted;
+    private byte[] mac;
+
+    ParallelGCMOutputStream(OutputStream out, KeyParameter key, byte[] nonce, int macSize, Executor executor, int maxPending)
+    {
+        this.out = out;
+        this.key = key;
+        this.executor = executor;
+        this.maxPending = maxPending;
+        this.macSize = macSize;
+
+        BlockCipher cipher = createCipher(key);
+
+        this.H = new byte[BLOCK_SIZE];
+        cipher.processBlock(H, 0, H, 0);
+
+        multiplier.init(H);
+        exponentiator.init(H);
+        exponentiator.exponentiateX(SEGMENT_BLOCKS, H_seg);
+
+        this.J0 = new byte[BLOCK_SIZE];
+
+        if (nonce.length == 12)
+        {
+            System.arraycopy(nonce, 0, J0, 0, nonce.length);
+            this.J0[BLOCK_SIZE - 1] = 0x01;
+        }
+        else
+        {
+            gHASH(multiplier, J0, nonce, 0, nonce.length);
+            byte[] X = new byte[BLOCK_SIZE];
+            Pack.longToBigEndian((long)nonce.length * 8, X, 8);
+            gHASH(multiplier, J0, X, 0, BLOCK_SIZE);
+        }
+    }
+
+    void processAADBytes(byte[] in, int inOff, int len)
+    {
+        if (dataStarted)
+        {
+            throw new IllegalStateException("associated data must be processed before content");
+        }
+
+        for (int i = 0; i < len; ++i)
+        {
+            atBlock[atBlockPos] = in[inOff + i];
+            if (++atBlockPos == BLOCK_SIZE)
+            {
+                gHASH(multiplier, S, atBlock, 0, BLOCK_SIZE);
+                atBlockPos = 0;
+                atLength += BLOCK_SIZE;
+            }
+        }
+    }
+
+    byte[] getMac()
+    {
+        return Arrays.clone(mac);
+    }
+
+    public void write(int b)
+        throws IOException
+    {
+        write(new byte[] { (byte)b }, 0, 1);
+    }
+
+    public void write(byte[] in, int inOff, int len)
+        throws IOException
+    {
+        startData();
+
+        while (len > 0)
+        {
+            int chunk = Math.min(len, SEGMENT_SIZE - bufOff);
+
+            System.arraycopy(in, inOff, buf, bufOff, chunk);
+            bufOff += chunk;
+            inOff += chunk;
+            len -= chunk;
+
+            if (bufOff == SEGMENT_SIZE)
+            {
+                submitSegment();
+            }
+        }
+    }
+
+    public void flush()
+        throws IOException
+    {
+        out.flush();
+    }
+
+    public void close()
+        throws IOException
+    {
+        startData();
+
+        if (bufOff > 0)
+        {
+            submitSegment();
+        }
+
+        while (!pending.isEmpty())
+        {
+            completeSegment();
+        }
+
+        byte[] X = new byte[BLOCK_SIZE];
+        Pack.longToBigEndian(atLength * 8, X, 0);
+        Pack.longToBigEndian(totalLength * 8, X, 8);
+
+        gHASH(multiplier, S, X, 0, BLOCK_SIZE);
+
+        // T = MSBt(GCTRk(J0,S))
+        byte[] tag = new byte[BLOCK_SIZE];
+        createCipher(key).processBlock(J0, 0, tag, 0);
+        GCMUtil.xor(tag, S);
+
+        mac = new byte[macSize];
+        System.arraycopy(tag, 0, mac, 0, macSize);
+
+        out.write(mac);
+        out.close();
+    }
+
+    private void startData()
+    {
+        if (!dataStarted)
+        {
+            if (atBlockPos > 0)
+            {
+                gHASH(multiplier, S, atBlock, 0, atBlockPos);
+                atLength += atBlockPos;
+            }
+
+            dataStarted = true;
+        }
+    }
+
+    private void submitSegment()
+        throws IOException
+    {
+        final byte[] segment = buf;
+        final int segmentLen = bufOff;
+        final long firstBlock = blockCount;
+
+        blockCount += (segmentLen + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        totalLength += segmentLen;
+
+        if (blockCount > MAX_BLOCKS)
+        {
+            throw new IOException("attempt to process too many blocks");
+        }
+
+        FutureTask task = new FutureTask(new Callable()
+        {
+            public Object call()
+                throws Exception
+            {
+                return encryptSegment(segment, segmentLen, firstBlock);
+            }
+        });
+
+        pending.addLast(task);
+        executor.execute(task);
+
+        buf = new byte[SEGMENT_SIZE];
+        bufOff = 0;
+
+        if (pending.size() >= maxPending)
+        {
+            completeSegment();
+        }
+    }
+
+    private void completeSegment()
+        throws IOException
+    {
+        FutureTask task = (FutureTask)pending.removeFirst();
+        Segment segment;
+
+        try
+        {
+            segment = (Segment)task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new CipherIOException("interrupted waiting for segment encryption", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new CipherIOException("exception encrypting segment: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        if (segment.blocks == SEGMENT_BLOCKS)
+        {
+            GCMUtil.multiply(S, H_seg);
+        }
+        else
+        {
+            byte[] H_c = new byte[BLOCK_SIZE];
+            exponentiator.exponentiateX(segment.blocks, H_c);
+            GCMUtil.multiply(S, H_c);
+        }
+        GCMUtil.xor(S, segment.hash);
+
+        out.write(segment.data, 0, segment.dataLen);
+    }
+
+    private Segment encryptSegment(byte[] data, int len, long firstBlock)
+    {
+        BlockCipher cipher = createCipher(key);
+        byte[] counter = Arrays.clone(J0);
+        byte[] ctrBlock = new byte[BLOCK_SIZE];
+        byte[] hash = new byte[BLOCK_SIZE];
+
+        // inc32 - the counter only ever changes in the low order 32 bits.
+        int ctrBase = Pack.bigEndianToInt(J0, 12) + 1 + (int)firstBlock;
+        int blocks = 0;
+
+        for (int pos = 0; pos < len; pos += BLOCK_SIZE)
+        {
+            int num = Math.min(len - pos, BLOCK_SIZE);
+
+            Pack.intToBigEndian(ctrBase + blocks, counter, 12);
+            cipher.processBlock(counter, 0, ctrBlock, 0);
+
+            for (int i = 0; i < num; ++i)
+            {
+                data[pos + i] ^= ctrBlock[i];
+            }
+
+            gHASH(multiplier, hash, data, pos, num);
+            blocks++;
+        }
+
+        return new Segment(data, len, hash, blocks);
+    }
+
+    private static BlockCipher createCipher(KeyParameter key)
+    {
+        BlockCipher cipher = new AESEngine();
+
+        cipher.init(true, key);
+
+        return cipher;
+    }
+
+    private static void gHASH(GCMMultiplier multiplier, byte[] Y, byte[] b, int off, int len)
+    {
+        for (int pos = 0; pos < len; pos += BLOCK_SIZE)
+        {
+            int num = Math.min(len - pos, BLOCK_SIZE);
+
+            GCMUtil.xor(Y, b, off + pos, num);
+            multiplier.multiplyH(Y);
+        }
+    }
+
+    private static class Segment
+    {
+        final byte[] data;
+        final int dataLen;
+        final byte[] hash;
+        final int blocks;
+
+        Segment(byte[] data, int dataLen, byte[] hash, int blocks)
+        {
+            this.data = data;
+            this.dataLen = dataLen;
+            this.hash = hash;
+            this.blocks = blocks;
+        }
+    }
+}
@@ -4,6 +4,7 @@
 import java.util.Map;
 
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1ObjectIdentifierMap;
 import org.bouncycastle.asn1.bsi.BSIObjectIdentifiers;
 import org.bouncycastle.asn1.cryptopro.CryptoProObjectIdentifiers;
 import org.bouncycastle.asn1.eac.EACObjectIdentifiers;
@@ -23,6 +24,7 @@
     implements AlgorithmNameFinder
 {
     private final static Map algorithms = new HashMap();
+    private final static ASN1ObjectIdentifierMap<String> algorithmNames;
 
     static
     {
@@ -133,16 +135,18 @@
         algorithms.put(GNUObjectIdentifiers.Serpent_256_CBC, "Serpent-256/CBC");
         algorithms.put(GNUObjectIdentifiers.Serpent_256_CFB, "Serpent-256/CFB");
         algorithms.put(GNUObjectIdentifiers.Serpent_256_OFB, "Serpent-256/OFB");
+
+        algorithmNames = new ASN1ObjectIdentifierMap<String>(algorithms);
     }
 
     public boolean hasAlgorithmName(ASN1ObjectIdentifier objectIdentifier)
     {
-        return algorithms.containsKey(objectIdentifier);
+        return algorithmNames.containsKey(objectIdentifier);
     }
 
     public String getAlgorithmName(ASN1ObjectIdentifier objectIdentifier)
     {
-        String name = (String)algorithms.get(objectIdentifier);
+        String name = algorithmNames.get(objectIdentifier);
 
         return (name != null) ? name : objectIdentifier.getId();
     }
@@ -89,31 +89,58 @@ public byte[] getHash(DigestCalculator digestCalculator)
         {
             TreeSet<byte[]> hashes = getHashes(digestCalculator);
 
-            if (hashes.size() > 1)
-            {
-                byte[] concat = new byte[0];
-                Iterator<byte[]> iterator = hashes.iterator();
+            groupHash = calcNodeHash(digestCalculator, (byte[][])hashes.toArray(new byte[hashes.size()][]));
+        }
 
-                while (iterator.hasNext())
-                {
-                    concat = Arrays.concatenate(concat, (byte[])iterator.next());
-                }
+        return groupHash;
+    }
 
-                groupHash = calcDigest(digestCalculator, concat);
-            }
-            else
+    /**
+     * Calculate the hash of a hash tree node as described in RFC 4998 - the distinct child hashes are
+     * sorted in binary ascending order, concatenated, and the result hashed. A node with only one
+     * distinct child hash takes that hash as its value.
+     *
+     * @param digestCalculator the {@link DigestCalculator} to use for computing the hash
+     * @param hashes the hashes of the node's children.
+     * @return the hash for the node.
+     */
+    static byte[] calcNodeHash(DigestCalculator digestCalculator, byte[][] hashes)
+    {
+        TreeSet<byte[]> sorted = new TreeSet(new ByteArrayComparator());
+
+        for (int i = 0; i != hashes.length; i++)
+        {
+            sorted.add(hashes[i]);
+        }
+
+        if (sorted.size() == 1)
+        {
+            return (byte[])sorted.first();
+        }
+
+        try
+        {
+            OutputStream dOut = digestCalculator.getOutputStream();
+
+            for (Iterator<byte[]> iterator = sorted.iterator(); iterator.hasNext();)
             {
-                groupHash = (byte[])hashes.first();
+                dOut.write((byte[])iterator.next());
             }
-        }
 
-        return groupHash;
+            dOut.close();
+
+            return digestCalculator.getDigest();
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException("digest calculator failure: " + e.getMessage());
+        }
     }
 
     /**
      * Comparator for byte arrays
      */
-    private class ByteArrayComparator
+    private static class ByteArrayComparator
         implements Comparator
     {
         public int compare(Object l, Object r)
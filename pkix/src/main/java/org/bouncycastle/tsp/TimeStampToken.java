@@ -18,6 +18,7 @@
 import org.bouncycastle.asn1.ess.SigningCertificateV2;
 import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.tsp.PartialHashtree;
 import org.bouncycastle.asn1.tsp.TSTInfo;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
@@ -298,6 +299,75 @@ public boolean isSignatureValid(
         }
     }
 
+    /**
+     * Validate that the passed in hash is covered by this time stamp token using an RFC 4998
+     * reduced hash tree, such as the one carried in an ArchiveTimeStamp produced by
+     * TimeStampTokenGenerator.generateBatch().
+     * <p>
+     * Note: this only checks the link between the hash and the token's message imprint, the token
+     * itself still needs to be checked with validate().
+     * </p>
+     *
+     * @param hash the hash, or message imprint digest, of the data of interest.
+     * @param reducedHashTree the reduced hash tree linking the hash to the token's message imprint.
+     * @param digestCalculator a calculator for the token's message imprint digest algorithm.
+     * @throws TSPValidationException if the hash is not covered by the token.
+     */
+    public void validateReducedHashTree(
+        byte[]                  hash,
+        PartialHashtree[]       reducedHashTree,
+        DigestCalculator        digestCalculator)
+        throws TSPValidationException
+    {
+        if (!digestCalculator.getAlgorithmIdentifier().getAlgorithm().equals(tstInfo.getMessageImprintAlgOID()))
+        {
+            throw new TSPValidationException("digest calculator does not match time stamp message imprint algorithm.");
+        }
+
+        byte[] current = hash;
+
+        if (reducedHashTree != null && reducedHashTree.length > 0)
+        {
+            byte[][] values = reducedHashTree[0].getValues();
+            boolean found = false;
+
+            for (int i = 0; i != values.length; i++)
+            {
+                if (Arrays.areEqual(current, values[i]))
+                {
+                    found = true;
+                    break;
+                }
+            }
+
+            if (!found)
+            {
+                throw new TSPValidationException("hash not present in reduced hash tree.");
+            }
+
+            if (values.length > 1)
+            {
+                current = DataGroup.calcNodeHash(digestCalculator, values);
+            }
+
+            for (int i = 1; i != reducedHashTree.length; i++)
+            {
+                byte[][] siblings = reducedHashTree[i].getValues();
+                byte[][] children = new byte[siblings.length + 1][];
+
+                System.arraycopy(siblings, 0, children, 0, siblings.length);
+                children[siblings.length] = current;
+
+                current = DataGroup.calcNodeHash(digestCalculator, children);
+            }
+        }
+
+        if (!Arrays.constantTimeAreEqual(current, tstInfo.getMessageImprintDigest()))
+        {
+            throw new TSPValidationException("reduced hash tree does not match time stamp message imprint.");
+        }
+    }
+
     /**
      * Return the underlying CMSSignedData object.
      * 
@@ -22,6 +22,7 @@
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.DERNull;
 import org.bouncycastle.asn1.cms.AttributeTable;
+import org.bouncycastle.asn1.cms.ContentInfo;
 import org.bouncycastle.asn1.ess.ESSCertID;
 import org.bouncycastle.asn1.ess.ESSCertIDv2;
 import org.bouncycastle.asn1.ess.SigningCertificate;
@@ -29,8 +30,11 @@
 import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 import org.bouncycastle.asn1.tsp.Accuracy;
+import org.bouncycastle.asn1.tsp.ArchiveTimeStamp;
 import org.bouncycastle.asn1.tsp.MessageImprint;
+import org.bouncycastle.asn1.tsp.PartialHashtree;
 import org.bouncycastle.asn1.tsp.TSTInfo;
+import org.bouncycastle.asn1.tsp.TimeStampReq;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.asn1.x509.Extensions;
 import org.bouncycastle.asn1.x509.ExtensionsGenerator;
@@ -483,6 +487,140 @@ messageImprint, new ASN1Integer(serialNumber),
         }
     }
 
+    /**
+     * Generate a single TimeStampToken covering a batch of requests, returning an ArchiveTimeStamp for each
+     * request in the batch.
+     * <p>
+     * The message imprints of the requests are used as the leaves of a hash tree as described in RFC 4998, and
+     * the token is issued over the root of the tree, so only one signature is required for the whole batch. The
+     * ArchiveTimeStamp returned for each request carries the shared token and the reduced hash tree required to
+     * link the request's message imprint to the root - see TimeStampToken.validateReducedHashTree().
+     * </p>
+     * <p>
+     * All requests must use the digest algorithm of the passed in digest calculator and, if present, the same
+     * policy. Nonces and extensions in the individual requests cannot be reflected in the shared token, so clients
+     * that rely on them should be served with generate().
+     * </p>
+     *
+     * @param requests the originating requests, in the order the results should be returned.
+     * @param digestCalculator the calculator used to build the hash tree.
+     * @param serialNumber serial number for the TimeStampToken
+     * @param genTime token generation time.
+     * @param additionalExtensions extra extensions to be added to the response token, may be null.
+     * @return an array of ArchiveTimeStamp, one for each request.
+     * @throws TSPException if the requests cannot be combined, or the token cannot be generated.
+     */
+    public ArchiveTimeStamp[] generateBatch(
+        TimeStampRequest[]  requests,
+        DigestCalculator    digestCalculator,
+        BigInteger          serialNumber,
+        Date                genTime,
+        Extensions          additionalExtensions)
+        throws TSPException
+    {
+        if (requests.length == 0)
+        {
+            throw new IllegalArgumentException("no requests in batch");
+        }
+
+        AlgorithmIdentifier digAlg = digestCalculator.getAlgorithmIdentifier();
+        ASN1ObjectIdentifier reqPolicy = requests[0].getReqPolicy();
+        boolean certReq = false;
+
+        byte[][] level = new byte[requests.length][];
+        for (int i = 0; i != requests.length; i++)
+        {
+            TimeStampRequest request = requests[i];
+
+            if (!digAlg.getAlgorithm().equals(request.getMessageImprintAlgOID()))
+            {
+                throw new TSPException("request message imprint algorithm does not match batch digest algorithm");
+            }
+
+            ASN1ObjectIdentifier policy = request.getReqPolicy();
+            if (reqPolicy == null ? policy != null : !reqPolicy.equals(policy))
+            {
+                throw new TSPException("requests in batch do not share a policy");
+            }
+
+            certReq |= request.getCertReq();
+            level[i] = request.getMessageImprintDigest();
+        }
+
+        //
+        // build the tree, recording the siblings needed to get from each leaf to the root.
+        //
+        List[] paths = new List[requests.length];
+        int[] positions = new int[requests.length];
+
+        for (int i = 0; i != requests.length; i++)
+        {
+            paths[i] = new ArrayList();
+            positions[i] = i;
+
+            if ((i ^ 1) < level.length)
+            {
+                paths[i].add(new PartialHashtree(new byte[][] { level[i], level[i ^ 1] }));
+            }
+            else
+            {
+                paths[i].add(new PartialHashtree(level[i]));
+            }
+        }
+
+        boolean firstLevel = true;
+        while (level.length > 1)
+        {
+            if (!firstLevel)
+            {
+                for (int i = 0; i != requests.length; i++)
+                {
+                    int sibling = positions[i] ^ 1;
+
+                    if (sibling < level.length)
+                    {
+                        paths[i].add(new PartialHashtree(level[sibling]));
+                    }
+                }
+            }
+            firstLevel = false;
+
+            byte[][] parents = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < level.length; i += 2)
+            {
+                if (i + 1 < level.length)
+                {
+                    parents[i / 2] = DataGroup.calcNodeHash(digestCalculator, new byte[][] { level[i], level[i + 1] });
+                }
+                else
+                {
+                    parents[i / 2] = level[i];
+                }
+            }
+
+            for (int i = 0; i != requests.length; i++)
+            {
+                positions[i] /= 2;
+            }
+
+            level = parents;
+        }
+
+        TimeStampRequest rootRequest = new TimeStampRequest(new TimeStampReq(
+            new MessageImprint(digAlg, level[0]), reqPolicy, null, ASN1Boolean.getInstance(certReq), null));
+
+        ContentInfo token = generate(rootRequest, serialNumber, genTime, additionalExtensions).toCMSSignedData().toASN1Structure();
+
+        ArchiveTimeStamp[] timeStamps = new ArchiveTimeStamp[requests.length];
+        for (int i = 0; i != requests.length; i++)
+        {
+            timeStamps[i] = new ArchiveTimeStamp(digAlg,
+                (PartialHashtree[])paths[i].toArray(new PartialHashtree[paths[i].size()]), token);
+        }
+
+        return timeStamps;
+    }
+
     // we need to produce a correct DER encoding GeneralizedTime here as the BC ASN.1 library doesn't handle this properly yet.
     private ASN1GeneralizedTime createGeneralizedTime(Date time)
         throws TSPException
@@ -4677,6 +4677,30 @@ private void zeroDataTest()
         }
     }
 
+    private void holderEncodingTest()
+        throws Exception
+    {
+        X509CertificateHolder holder = new X509CertificateHolder(cert1);
+
+        isTrue("DER encoding not returned", areEqual(cert1, holder.getEncoded()));
+
+        // give the outer SEQUENCE a non-minimal length, which must not be returned by getEncoded()
+        byte[] ber = new byte[cert1.length + 1];
+        int length = ((cert1[2] & 0xff) << 8) | (cert1[3] & 0xff);
+
+        isTrue("unexpected certificate layout", cert1[1] == (byte)0x82 && length == cert1.length - 4);
+
+        ber[0] = cert1[0];
+        ber[1] = (byte)0x83;
+        System.arraycopy(cert1, 2, ber, 3, cert1.length - 2);
+
+        X509CertificateHolder berHolder = new X509CertificateHolder(ber);
+
+        isTrue("non-DER encoding retained", areEqual(cert1, berHolder.getEncoded()));
+        isTrue("holder equals failed", holder.equals(berHolder) && berHolder.equals(holder));
+        isTrue("holder hashCode failed", holder.hashCode() == berHolder.hashCode());
+    }
+
     private void checkSerialisation()
         throws Exception
     {
@@ -4829,6 +4853,7 @@ public void performTest()
         checkCertificate(18, emptyDNCert);
 
         zeroDataTest();
+        holderEncodingTest();
 
         checkSerialisation();
     }
@@ -3,12 +3,15 @@
 import java.security.KeyFactory;
 import java.security.KeyPair;
 import java.security.PrivateKey;
+import java.security.SecureRandom;
 import java.security.Security;
 import java.security.cert.X509Certificate;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -196,4 +199,56 @@ public AttributeTable getAttributes(Map parameters)
 
         assertEquals("Hello, world!", Strings.fromByteArray(recData));
     }
+
+    public void testParallelGCM()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try
+        {
+            int[] sizes = { 0, 13, 65536, 3 * 65536 + 7 };
+
+            for (int i = 0; i != sizes.length; i++)
+            {
+                byte[] message = new byte[sizes[i]];
+
+                new SecureRandom().nextBytes(message);
+
+                OutputEncryptor encryptor = new BcCMSContentEncryptorBuilder(NISTObjectIdentifiers.id_aes256_GCM)
+                    .setExecutor(executor, 2).build();
+
+                CMSAuthEnvelopedDataGenerator authGen = new CMSAuthEnvelopedDataGenerator();
+
+                authGen.setAuthenticatedAttributeGenerator(new CMSAttributeTableGenerator()
+                {
+                    public AttributeTable getAttributes(Map parameters)
+                        throws CMSAttributeTableGenerationException
+                    {
+                        Hashtable<ASN1ObjectIdentifier, Attribute> attrs = new Hashtable<ASN1ObjectIdentifier, Attribute>();
+                        Attribute testAttr = new Attribute(CMSAttributes.signingTime,
+                            new DERSet(new Time(new Date())));
+                        attrs.put(testAttr.getAttrType(), testAttr);
+                        return new AttributeTable(attrs);
+                    }
+                });
+
+                authGen.addRecipientInfoGenerator(new JceKeyTransRecipientInfoGenerator(_reciCert));
+
+                CMSAuthEnvelopedData authData = authGen.generate(new CMSProcessableByteArray(message), (OutputAEADEncryptor)encryptor);
+
+                CMSAuthEnvelopedData encAuthData = new CMSAuthEnvelopedData(authData.getEncoded());
+
+                RecipientInformation recipient = (RecipientInformation)encAuthData.getRecipientInfos().getRecipients().iterator().next();
+
+                byte[] recData = recipient.getContent(new JceKeyTransAuthEnvelopedRecipient(_reciKP.getPrivate()).setProvider(BC));
+
+                assertTrue(Arrays.areEqual(message, recData));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
 }
\ No newline at end of file
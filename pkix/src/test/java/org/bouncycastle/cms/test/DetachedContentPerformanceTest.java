@@ -0,0 +1,129 @@
+package org.bouncycastle.cms.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.util.Random;
+
+import org.bouncycastle.cms.CMSSignedDataParser;
+import org.bouncycastle.cms.CMSSignedDataStreamGenerator;
+import org.bouncycastle.cms.CMSTypedStream;
+import org.bouncycastle.cms.SignerId;
+import org.bouncycastle.cms.SignerInformationVerifier;
+import org.bouncycastle.cms.SignerInformationVerifierProvider;
+import org.bouncycastle.cms.jcajce.JcaSignerInfoGeneratorBuilder;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+
+/**
+ * Benchmark of verifying a detached CMS signature over a file by reading the content through a
+ * CMSTypedStream against having the parser digest the file memory mapped.
+ * <p>
+ * Usage: DetachedContentPerformanceTest [file size in MB]
+ * </p>
+ */
+public class DetachedContentPerformanceTest
+{
+    private static final String BC = BouncyCastleProvider.PROVIDER_NAME;
+    private static final int DEFAULT_SIZE = 256;
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        long size = ((args.length > 0) ? Long.parseLong(args[0]) : DEFAULT_SIZE) * 1024 * 1024;
+
+        KeyPair keyPair = CMSTestUtil.makeKeyPair();
+        final X509Certificate cert = CMSTestUtil.makeCertificate(keyPair, "CN=Test", keyPair, "CN=Test");
+
+        File file = File.createTempFile("bcpkix", ".dat");
+
+        try
+        {
+            CMSSignedDataStreamGenerator gen = new CMSSignedDataStreamGenerator();
+
+            gen.addSignerInfoGenerator(new JcaSignerInfoGeneratorBuilder(new JcaDigestCalculatorProviderBuilder().setProvider(BC).build())
+                .build(new JcaContentSignerBuilder("SHA256withRSA").setProvider(BC).build(keyPair.getPrivate()), cert));
+
+            ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+            OutputStream sigOut = gen.open(bOut);
+            OutputStream fOut = new FileOutputStream(file);
+            byte[] block = new byte[1 << 20];
+            Random random = new Random(1);
+
+            for (long written = 0; written < size; written += block.length)
+            {
+                random.nextBytes(block);
+
+                int len = (int)Math.min(block.length, size - written);
+
+                fOut.write(block, 0, len);
+                sigOut.write(block, 0, len);
+            }
+
+            fOut.close();
+            sigOut.close();
+
+            byte[] sigBlock = bOut.toByteArray();
+
+            SignerInformationVerifierProvider verifierProvider = new SignerInformationVerifierProvider()
+            {
+                public SignerInformationVerifier get(SignerId sid)
+                    throws OperatorCreationException
+                {
+                    return new JcaSimpleSignerInfoVerifierBuilder().setProvider(BC).build(cert);
+                }
+            };
+
+            System.out.println((size / (1024 * 1024)) + "MB, SHA-256");
+
+            for (int i = 0; i != 2; i++)
+            {
+                long start = System.nanoTime();
+
+                CMSSignedDataParser sp = new CMSSignedDataParser(new JcaDigestCalculatorProviderBuilder().setProvider(BC).build(),
+                    new CMSTypedStream(new FileInputStream(file)), sigBlock);
+
+                sp.getSignedContent().drain();
+                check(sp.verifySignatures(verifierProvider));
+
+                System.out.println("CMSTypedStream: " + rate(size, System.nanoTime() - start) + " MB/s");
+
+                start = System.nanoTime();
+
+                sp = new CMSSignedDataParser(new JcaDigestCalculatorProviderBuilder().setProvider(BC).build(), sigBlock);
+
+                sp.processContent(file);
+                check(sp.verifySignatures(verifierProvider));
+
+                System.out.println("mapped:         " + rate(size, System.nanoTime() - start) + " MB/s");
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private static void check(boolean verified)
+    {
+        if (!verified)
+        {
+            throw new IllegalStateException("signature did not verify");
+        }
+    }
+
+    private static long rate(long size, long time)
+    {
+        return (size * 1000000000L) / (time * 1024 * 1024);
+    }
+}
@@ -3,11 +3,14 @@
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.security.KeyPair;
 import java.security.MessageDigest;
 import java.security.Security;
+import java.security.cert.CertificateException;
 import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
@@ -19,6 +22,11 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import junit.framework.Test;
 import junit.framework.TestCase;
@@ -41,21 +49,27 @@
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.bouncycastle.cms.CMSAlgorithm;
 import org.bouncycastle.cms.CMSAttributeTableGenerator;
+import org.bouncycastle.cms.CMSException;
 import org.bouncycastle.cms.CMSProcessableByteArray;
 import org.bouncycastle.cms.CMSSignedData;
 import org.bouncycastle.cms.CMSSignedDataGenerator;
 import org.bouncycastle.cms.CMSSignedDataParser;
 import org.bouncycastle.cms.CMSSignedDataStreamGenerator;
+import org.bouncycastle.cms.CMSSignerDigestMismatchException;
 import org.bouncycastle.cms.CMSTypedData;
 import org.bouncycastle.cms.CMSTypedStream;
 import org.bouncycastle.cms.DefaultSignedAttributeTableGenerator;
+import org.bouncycastle.cms.SignerId;
 import org.bouncycastle.cms.SignerInformation;
 import org.bouncycastle.cms.SignerInformationStore;
+import org.bouncycastle.cms.SignerInformationVerifier;
+import org.bouncycastle.cms.SignerInformationVerifierProvider;
 import org.bouncycastle.cms.jcajce.JcaSignerInfoGeneratorBuilder;
 import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoGeneratorBuilder;
 import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
 import org.bouncycastle.util.CollectionStore;
@@ -587,6 +601,233 @@ public void testSHA1AndMD5WithRSA()
         verifySignatures(sp);
     }
     
+    public void testParallelVerification()
+        throws Exception
+    {
+        List                  certList = new ArrayList();
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+
+        certList.add(_origCert);
+        certList.add(_signCert);
+
+        final Store     certs = new JcaCertStore(certList);
+
+        CMSSignedDataStreamGenerator gen = new CMSSignedDataStreamGenerator();
+        JcaSignerInfoGeneratorBuilder signerInfoGeneratorBuilder = new JcaSignerInfoGeneratorBuilder(new JcaDigestCalculatorProviderBuilder().setProvider(BC).build());
+
+        gen.addSignerInfoGenerator(signerInfoGeneratorBuilder.build(new JcaContentSignerBuilder("SHA256withRSA").setProvider(BC).build(_origKP.getPrivate()), _origCert));
+        gen.addSignerInfoGenerator(signerInfoGeneratorBuilder.build(new JcaContentSignerBuilder("SHA256withRSA").setProvider(BC).build(_signKP.getPrivate()), _signCert));
+        gen.addSignerInfoGenerator(signerInfoGeneratorBuilder.build(new JcaContentSignerBuilder("SHA1withRSA").setProvider(BC).build(_signKP.getPrivate()), _signCert));
+
+        gen.addCertificates(certs);
+
+        OutputStream sigOut = gen.open(bOut, true);
+
+        for (int i = 0; i != 20000; i++)
+        {
+            sigOut.write(i & 0xff);
+        }
+
+        sigOut.close();
+
+        SignerInformationVerifierProvider verifierProvider = new SignerInformationVerifierProvider()
+        {
+            public SignerInformationVerifier get(SignerId sid)
+                throws OperatorCreationException
+            {
+                X509CertificateHolder cert = (X509CertificateHolder)certs.getMatches(sid).iterator().next();
+
+                try
+                {
+                    return new JcaSimpleSignerInfoVerifierBuilder().setProvider(BC).build(cert);
+                }
+                catch (CertificateException e)
+                {
+                    throw new OperatorCreationException(e.getMessage(), e);
+                }
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        try
+        {
+            CMSSignedDataParser sp = new CMSSignedDataParser(new JcaDigestCalculatorProviderBuilder().setProvider(BC).build(), bOut.toByteArray());
+
+            assertEquals(2, sp.getDigestAlgorithmIDs().size());
+            assertTrue(sp.verifySignatures(verifierProvider, false, executor));
+            assertEquals(3, sp.getSignerInfos().size());
+
+            CMSSignedData sd = new CMSSignedData(bOut.toByteArray());
+
+            assertTrue(sd.verifySignatures(verifierProvider, false, executor));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        // an executor which accepts the first task without running it and then rejects the rest
+        final List accepted = new ArrayList();
+        Executor rejecting = new Executor()
+        {
+            public void execute(Runnable task)
+            {
+                if (!accepted.isEmpty())
+                {
+                    throw new RejectedExecutionException("queue full");
+                }
+                accepted.add(task);
+            }
+        };
+
+        try
+        {
+            new CMSSignedData(bOut.toByteArray()).verifySignatures(verifierProvider, false, rejecting);
+            fail("no exception");
+        }
+        catch (RejectedExecutionException e)
+        {
+            assertEquals("queue full", e.getMessage());
+        }
+
+        assertEquals(1, accepted.size());
+        assertTrue(((Future)accepted.get(0)).isCancelled());
+
+        // tamper with the content
+        CMSSignedDataParser sp = new CMSSignedDataParser(new JcaDigestCalculatorProviderBuilder().setProvider(BC).build(),
+            new CMSTypedStream(new ByteArrayInputStream(new byte[20000])), bOut.toByteArray());
+
+        try
+        {
+            sp.verifySignatures(verifierProvider);
+            fail("no exception");
+        }
+        catch (CMSSignerDigestMismatchException e)
+        {
+            assertEquals("message-digest attribute value does not match calculated value", e.getMessage());
+        }
+    }
+
+    public void testDetachedFileContent()
+        throws Exception
+    {
+        List                  certList = new ArrayList();
+        ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+
+        certList.add(_origCert);
+        certList.add(_signCert);
+
+        Store     certs = new JcaCertStore(certList);
+
+        CMSSignedDataStreamGenerator gen = new CMSSignedDataStreamGenerator();
+        JcaSignerInfoGeneratorBuilder signerInfoGeneratorBuilder = new JcaSignerInfoGeneratorBuilder(new JcaDigestCalculatorProviderBuilder().setProvider(BC).build());
+
+        gen.addSignerInfoGenerator(signerInfoGeneratorBuilder.build(new JcaContentSignerBuilder("SHA256withRSA").setProvider(BC).build(_origKP.getPrivate()), _origCert));
+        gen.addSignerInfoGenerator(signerInfoGeneratorBuilder.build(new JcaContentSignerBuilder("SHA1withRSA").setProvider(BC).build(_signKP.getPrivate()), _signCert));
+
+        gen.addCertificates(certs);
+
+        byte[] data = new byte[300001];
+        for (int i = 0; i != data.length; i++)
+        {
+            data[i] = (byte)(i * 7);
+        }
+
+        OutputStream sigOut = gen.open(bOut);
+
+        sigOut.write(data);
+
+        sigOut.close();
+
+        File file = File.createTempFile("bcpkix", ".dat");
+
+        try
+        {
+            FileOutputStream fOut = new FileOutputStream(file);
+
+            fOut.write(data);
+            fOut.close();
+
+            int[] windowSizes = { 4096, 100000, 1 << 20 };
+
+            for (int i = 0; i != windowSizes.length; i++)
+            {
+                CMSSignedDataParser sp = new CMSSignedDataParser(new JcaDigestCalculatorProviderBuilder().setProvider(BC).build(), bOut.toByteArray());
+
+                sp.processContent(file, windowSizes[i]);
+
+                verifySignatures(sp);
+
+                for (Iterator it = sp.getSignerInfos().getSigners().iterator(); it.hasNext();)
+                {
+                    SignerInformation signer = (SignerInformation)it.next();
+                    MessageDigest md = MessageDigest.getInstance(signer.getDigestAlgOID(), BC);
+
+                    assertTrue(MessageDigest.isEqual(md.digest(data), signer.getContentDigest()));
+                }
+            }
+
+            CMSSignedDataParser sp = new CMSSignedDataParser(new JcaDigestCalculatorProviderBuilder().setProvider(BC).build(), bOut.toByteArray());
+
+            sp.processContent(file);
+
+            assertEquals(2, sp.getSignerInfos().size());
+            verifySignatures(sp);
+
+            try
+            {
+                sp.processContent(file);
+                fail("no exception");
+            }
+            catch (IllegalStateException e)
+            {
+                assertEquals("signed content already present", e.getMessage());
+            }
+
+            // tamper with the content
+            data[data.length / 2] ^= 1;
+
+            fOut = new FileOutputStream(file);
+
+            fOut.write(data);
+            fOut.close();
+
+            sp = new CMSSignedDataParser(new JcaDigestCalculatorProviderBuilder().setProvider(BC).build(), bOut.toByteArray());
+
+            sp.processContent(file);
+
+            SignerInformation signer = (SignerInformation)sp.getSignerInfos().getSigners().iterator().next();
+            X509CertificateHolder cert = (X509CertificateHolder)certs.getMatches(signer.getSID()).iterator().next();
+
+            try
+            {
+                signer.verify(new JcaSimpleSignerInfoVerifierBuilder().setProvider(BC).build(cert));
+                fail("no exception");
+            }
+            catch (CMSSignerDigestMismatchException e)
+            {
+                assertEquals("message-digest attribute value does not match calculated value", e.getMessage());
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+
+        CMSSignedDataParser sp = new CMSSignedDataParser(new JcaDigestCalculatorProviderBuilder().setProvider(BC).build(), bOut.toByteArray());
+
+        try
+        {
+            sp.processContent(file);
+            fail("no exception");
+        }
+        catch (CMSException e)
+        {
+            assertTrue(e.getMessage().startsWith("unable to read signed content"));
+        }
+    }
+
     public void testSHA1WithRSAEncapsulatedBufferedStream()
         throws Exception
     {
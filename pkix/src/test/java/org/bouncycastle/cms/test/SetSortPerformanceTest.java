@@ -0,0 +1,86 @@
+package org.bouncycastle.cms.test;
+
+import java.security.KeyPair;
+import java.security.Security;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.DERSet;
+import org.bouncycastle.asn1.x509.Certificate;
+import org.bouncycastle.cert.jcajce.JcaCertStore;
+import org.bouncycastle.cms.CMSProcessableByteArray;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.CMSSignedDataGenerator;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoGeneratorBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/**
+ * Benchmark of DER SET OF sorting on the large certificate sets produced by CMSSignedDataGenerator.
+ * <p>
+ * Usage: SetSortPerformanceTest [certificate count] [rounds]
+ * </p>
+ */
+public class SetSortPerformanceTest
+{
+    private static final int DEFAULT_CERT_COUNT = 2000;
+    private static final int DEFAULT_ROUNDS = 10;
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        int certCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_CERT_COUNT;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_ROUNDS;
+
+        KeyPair signKP = CMSTestUtil.makeKeyPair();
+        String signDN = "O=Bouncy Castle, C=AU";
+        X509Certificate signCert = CMSTestUtil.makeV1Certificate(signKP, signDN, signKP, signDN);
+
+        List certList = new ArrayList();
+        ASN1EncodableVector certVector = new ASN1EncodableVector();
+
+        for (int i = 0; i != certCount; i++)
+        {
+            X509Certificate cert = CMSTestUtil.makeV1Certificate(signKP, "CN=Cert " + i + ", O=Bouncy Castle, C=AU", signKP, signDN);
+
+            certList.add(cert);
+            certVector.add(Certificate.getInstance(cert.getEncoded()));
+        }
+
+        CMSSignedDataGenerator gen = new CMSSignedDataGenerator();
+
+        gen.addSignerInfoGenerator(new JcaSimpleSignerInfoGeneratorBuilder().setProvider("BC").build("SHA256withRSA", signKP.getPrivate(), signCert));
+        gen.addCertificates(new JcaCertStore(certList));
+
+        CMSSignedData signedData = gen.generate(new CMSProcessableByteArray(new byte[100]), true);
+
+        // warm up
+        for (int i = 0; i != 3; i++)
+        {
+            new DERSet(certVector).getEncoded();
+            signedData.getEncoded(ASN1Encoding.DER);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i != rounds; i++)
+        {
+            new DERSet(certVector).getEncoded();
+        }
+        long setTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i != rounds; i++)
+        {
+            signedData.getEncoded(ASN1Encoding.DER);
+        }
+        long signedDataTime = System.nanoTime() - start;
+
+        System.out.println(certCount + " certificates, " + rounds + " rounds");
+        System.out.println("DERSet construct + encode:    " + (setTime / rounds / 1000) + " us/round");
+        System.out.println("SignedData DER encoding:      " + (signedDataTime / rounds / 1000) + " us/round");
+    }
+}
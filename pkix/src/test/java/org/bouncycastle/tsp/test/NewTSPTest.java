@@ -18,6 +18,7 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.SimpleTimeZone;
+import java.util.TreeSet;
 
 import junit.framework.TestCase;
 import org.bouncycastle.asn1.ASN1Encoding;
@@ -32,6 +33,7 @@
 import org.bouncycastle.asn1.ess.SigningCertificate;
 import org.bouncycastle.asn1.ess.SigningCertificateV2;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.tsp.ArchiveTimeStamp;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
 import org.bouncycastle.asn1.x509.Extension;
@@ -60,6 +62,7 @@
 import org.bouncycastle.operator.DigestCalculator;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.bouncycastle.tsp.DataGroup;
 import org.bouncycastle.tsp.GenTimeAccuracy;
 import org.bouncycastle.tsp.TSPAlgorithms;
 import org.bouncycastle.tsp.TSPException;
@@ -73,6 +76,7 @@
 import org.bouncycastle.tsp.TimeStampTokenInfo;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Store;
+import org.bouncycastle.util.Strings;
 
 public class NewTSPTest
     extends TestCase
@@ -110,6 +114,7 @@ public void testGeneral()
         resolutionTest(origKP.getPrivate(), origCert, certs, TimeStampTokenGenerator.R_HUNDREDTHS_OF_SECONDS, "19700101000009.99Z");
         resolutionTest(origKP.getPrivate(), origCert, certs, TimeStampTokenGenerator.R_MILLISECONDS, "19700101000009.999Z");
         basicSha256Test(origKP.getPrivate(), origCert, certs);
+        batchTest(origKP.getPrivate(), origCert, certs);
         basicTestWithTSA(origKP.getPrivate(), origCert, certs);
         overrideAttrsTest(origKP.getPrivate(), origCert, certs);
         responseValidationTest(origKP.getPrivate(), origCert, certs);
@@ -396,6 +401,107 @@ private void basicSha256Test(
         assertTrue(Arrays.areEqual(certHash, sigCertV2.getCerts()[0].getCertHash()));
     }
 
+    private void batchTest(
+        PrivateKey privateKey,
+        X509Certificate cert,
+        Store certs)
+        throws Exception
+    {
+        TimeStampTokenGenerator tsTokenGen = new TimeStampTokenGenerator(
+            new JcaSimpleSignerInfoGeneratorBuilder().build("SHA256withRSA", privateKey, cert), new SHA256DigestCalculator(), new ASN1ObjectIdentifier("1.2"));
+
+        tsTokenGen.addCertificates(certs);
+
+        TimeStampRequestGenerator reqGen = new TimeStampRequestGenerator();
+
+        for (int count = 1; count <= 9; count++)
+        {
+            TimeStampRequest[] requests = new TimeStampRequest[count];
+
+            for (int i = 0; i != count; i++)
+            {
+                byte[] imprint = new byte[32];
+
+                imprint[0] = (byte)count;
+                imprint[31] = (byte)i;
+
+                requests[i] = reqGen.generate(TSPAlgorithms.SHA256, imprint);
+            }
+
+            ArchiveTimeStamp[] timeStamps = tsTokenGen.generateBatch(requests, new SHA256DigestCalculator(), BigInteger.valueOf(count), new Date(), null);
+
+            assertEquals(count, timeStamps.length);
+
+            for (int i = 0; i != count; i++)
+            {
+                ArchiveTimeStamp ats = ArchiveTimeStamp.getInstance(timeStamps[i].getEncoded());
+                TimeStampToken tsToken = new TimeStampToken(ats.getTimeStamp());
+
+                tsToken.validate(new JcaSimpleSignerInfoVerifierBuilder().setProvider(BC).build(cert));
+                tsToken.validateReducedHashTree(requests[i].getMessageImprintDigest(), ats.getReducedHashTree(), new SHA256DigestCalculator());
+
+                try
+                {
+                    tsToken.validateReducedHashTree(new byte[32], ats.getReducedHashTree(), new SHA256DigestCalculator());
+                    fail("bad hash not detected");
+                }
+                catch (TSPValidationException e)
+                {
+                    // expected
+                }
+
+                int other = (i + 2) % count;
+                if (other / 2 != i / 2)
+                {
+                    try
+                    {
+                        tsToken.validateReducedHashTree(requests[other].getMessageImprintDigest(), ats.getReducedHashTree(), new SHA256DigestCalculator());
+                        fail("path for wrong request not detected");
+                    }
+                    catch (TSPValidationException e)
+                    {
+                        // expected
+                    }
+                }
+            }
+        }
+
+        // a pair of requests is hashed the same way as a data group of the two data objects
+        List dataObjects = new ArrayList();
+        dataObjects.add(Strings.toByteArray("first"));
+        dataObjects.add(Strings.toByteArray("second"));
+
+        DataGroup dataGroup = new DataGroup(dataObjects);
+        TreeSet hashes = dataGroup.getHashes(new SHA256DigestCalculator());
+        TimeStampRequest[] pair = new TimeStampRequest[] {
+            reqGen.generate(TSPAlgorithms.SHA256, (byte[])hashes.last()), reqGen.generate(TSPAlgorithms.SHA256, (byte[])hashes.first()) };
+
+        ArchiveTimeStamp[] pairStamps = tsTokenGen.generateBatch(pair, new SHA256DigestCalculator(), BigInteger.TEN, new Date(), null);
+
+        assertTrue(Arrays.areEqual(dataGroup.getHash(new SHA256DigestCalculator()),
+            new TimeStampToken(pairStamps[0].getTimeStamp()).getTimeStampInfo().getMessageImprintDigest()));
+
+        // identical requests are a single data object
+        pair = new TimeStampRequest[] { pair[0], pair[0] };
+        pairStamps = tsTokenGen.generateBatch(pair, new SHA256DigestCalculator(), BigInteger.TEN, new Date(), null);
+
+        TimeStampToken pairToken = new TimeStampToken(pairStamps[1].getTimeStamp());
+
+        assertTrue(Arrays.areEqual(pair[0].getMessageImprintDigest(), pairToken.getTimeStampInfo().getMessageImprintDigest()));
+        pairToken.validateReducedHashTree(pair[0].getMessageImprintDigest(), pairStamps[1].getReducedHashTree(), new SHA256DigestCalculator());
+
+        try
+        {
+            tsTokenGen.generateBatch(new TimeStampRequest[] { reqGen.generate(TSPAlgorithms.SHA1, new byte[20]) },
+                new SHA256DigestCalculator(), BigInteger.ONE, new Date(), null);
+            fail("mismatched algorithm not detected");
+        }
+        catch (TSPException e)
+        {
+            assertEquals("request message imprint algorithm does not match batch digest algorithm", e.getMessage());
+        }
+    }
+
     private void overrideAttrsTest(
         PrivateKey privateKey,
         X509Certificate cert,
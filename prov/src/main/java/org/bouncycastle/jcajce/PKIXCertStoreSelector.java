@@ -68,6 +68,16 @@ public Certificate getCertificate()
          return null;
     }
 
+    /**
+     * Return the CertSelector this selector is based on.
+     *
+     * @return the underlying CertSelector.
+     */
+    CertSelector getBaseSelector()
+    {
+        return baseSelector;
+    }
+
     public boolean match(Certificate cert)
     {
         return baseSelector.match(cert);
@@ -0,0 +1,374 @@
+package org.bouncycastle.jcajce;
+
+import java.math.BigInteger;
+import java.security.cert.CertSelector;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509CertSelector;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.bouncycastle.asn1.ASN1OctetString;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Iterable;
+import org.bouncycastle.util.Selector;
+import org.bouncycastle.util.StoreException;
+
+/**
+ * An immutable certificate store which indexes its X.509 certificates by subject DN, subject key identifier,
+ * issuer and serial number, and SHA-256 fingerprint.
+ * <p>
+ * Where the selector passed to getMatches() is a {@link PKIXCertStoreSelector} wrapping an {@link X509CertSelector},
+ * or is an X509CertSelector itself (such as {@link org.bouncycastle.x509.X509CertStoreSelector}), the most specific
+ * criteria set on the selector is used to look up candidates in the index, otherwise every certificate in the store
+ * is considered. Candidates are always checked against the full selector before being returned, so the results are
+ * the same as for a {@link org.bouncycastle.util.CollectionStore} - path building with a large number of intermediate
+ * certificates just avoids a linear scan at each step.
+ * </p>
+ */
+public class PKIXIndexedCertStore
+    implements PKIXCertStore<X509Certificate>, Iterable<X509Certificate>
+{
+    private final List<X509Certificate> certificates = new ArrayList<X509Certificate>();
+    private final Map<X500Principal, List<X509Certificate>> subjectIndex = new HashMap<X500Principal, List<X509Certificate>>();
+    private final Map<ByteKey, List<X509Certificate>> keyIdIndex = new HashMap<ByteKey, List<X509Certificate>>();
+    private final Map<IssuerSerialKey, List<X509Certificate>> issuerSerialIndex = new HashMap<IssuerSerialKey, List<X509Certificate>>();
+    private final Map<ByteKey, List<X509Certificate>> fingerprintIndex = new HashMap<ByteKey, List<X509Certificate>>();
+
+    /**
+     * Base constructor - build an indexed store from a collection of certificates. Objects in the collection
+     * which are not X.509 certificates are ignored.
+     *
+     * @param certs the certificates to be indexed, the collection is copied.
+     * @throws IllegalArgumentException if a certificate in the collection cannot be encoded.
+     */
+    public PKIXIndexedCertStore(Collection<? extends Certificate> certs)
+    {
+        for (Iterator it = certs.iterator(); it.hasNext();)
+        {
+            Object obj = it.next();
+
+            if (obj instanceof X509Certificate)
+            {
+                X509Certificate cert = (X509Certificate)obj;
+                ByteKey fingerprint = new ByteKey(calculateFingerprint(cert));
+
+                if (fingerprintIndex.containsKey(fingerprint))
+                {
+                    continue;       // duplicate
+                }
+
+                certificates.add(cert);
+                addEntry(fingerprintIndex, fingerprint, cert);
+                addEntry(subjectIndex, cert.getSubjectX500Principal(), cert);
+                addEntry(issuerSerialIndex, new IssuerSerialKey(cert.getIssuerX500Principal(), cert.getSerialNumber()), cert);
+
+                byte[] keyId = getSubjectKeyIdentifier(cert);
+                if (keyId != null)
+                {
+                    addEntry(keyIdIndex, new ByteKey(keyId), cert);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the number of certificates in the store.
+     *
+     * @return the count of indexed certificates.
+     */
+    public int size()
+    {
+        return certificates.size();
+    }
+
+    /**
+     * Return the certificates with the passed in subject.
+     *
+     * @param subject the subject DN of interest.
+     * @return a possibly empty collection of certificates.
+     */
+    public Collection<X509Certificate> getCertificatesBySubject(X500Principal subject)
+    {
+        return getEntries(subjectIndex, subject);
+    }
+
+    /**
+     * Return the certificates with the passed in subject key identifier.
+     *
+     * @param keyIdentifier the key identifier octets (the contents of the OCTET STRING in the extension).
+     * @return a possibly empty collection of certificates.
+     */
+    public Collection<X509Certificate> getCertificatesBySubjectKeyIdentifier(byte[] keyIdentifier)
+    {
+        return getEntries(keyIdIndex, new ByteKey(keyIdentifier));
+    }
+
+    /**
+     * Return the certificate with the passed in issuer and serial number.
+     *
+     * @param issuer the issuer DN of interest.
+     * @param serialNumber the certificate serial number.
+     * @return the matching certificate, null if there isn't one.
+     */
+    public X509Certificate getCertificate(X500Principal issuer, BigInteger serialNumber)
+    {
+        return getFirst(getEntries(issuerSerialIndex, new IssuerSerialKey(issuer, serialNumber)));
+    }
+
+    /**
+     * Return the certificate with the passed in SHA-256 fingerprint.
+     *
+     * @param sha256Fingerprint the SHA-256 digest of the certificate's encoding.
+     * @return the matching certificate, null if there isn't one.
+     */
+    public X509Certificate getCertificateByFingerprint(byte[] sha256Fingerprint)
+    {
+        return getFirst(getEntries(fingerprintIndex, new ByteKey(sha256Fingerprint)));
+    }
+
+    /**
+     * Return the matches in the store for the passed in selector.
+     *
+     * @param selector the selector to match against.
+     * @return a possibly empty collection of matching certificates.
+     */
+    public Collection<X509Certificate> getMatches(Selector<X509Certificate> selector)
+        throws StoreException
+    {
+        if (selector == null)
+        {
+            return new ArrayList<X509Certificate>(certificates);
+        }
+
+        Collection<X509Certificate> candidates = getCandidates(selector);
+        List<X509Certificate> col = new ArrayList<X509Certificate>();
+
+        for (Iterator<X509Certificate> it = candidates.iterator(); it.hasNext();)
+        {
+            X509Certificate cert = it.next();
+
+            if (selector.match(cert))
+            {
+                col.add(cert);
+            }
+        }
+
+        return col;
+    }
+
+    public Iterator<X509Certificate> iterator()
+    {
+        return getMatches(null).iterator();
+    }
+
+    private Collection<X509Certificate> getCandidates(Selector selector)
+    {
+        X509CertSelector certSelector = null;
+
+        if (selector instanceof PKIXCertStoreSelector)
+        {
+            CertSelector baseSelector = ((PKIXCertStoreSelector)selector).getBaseSelector();
+
+            if (baseSelector instanceof X509CertSelector)
+            {
+                certSelector = (X509CertSelector)baseSelector;
+            }
+        }
+        else if (selector instanceof X509CertSelector)
+        {
+            certSelector = (X509CertSelector)selector;
+        }
+
+        if (certSelector == null)
+        {
+            return certificates;
+        }
+
+        X509Certificate cert = certSelector.getCertificate();
+        if (cert != null)
+        {
+            return getEntries(fingerprintIndex, new ByteKey(calculateFingerprint(cert)));
+        }
+
+        X500Principal issuer = certSelector.getIssuer();
+        BigInteger serialNumber = certSelector.getSerialNumber();
+        if (issuer != null && serialNumber != null)
+        {
+            return getEntries(issuerSerialIndex, new IssuerSerialKey(issuer, serialNumber));
+        }
+
+        byte[] keyId = certSelector.getSubjectKeyIdentifier();
+        if (keyId != null)
+        {
+            try
+            {
+                return getEntries(keyIdIndex, new ByteKey(ASN1OctetString.getInstance(keyId).getOctets()));
+            }
+            catch (Exception e)
+            {
+                // malformed key identifier - fall through to the other criteria
+            }
+        }
+
+        X500Principal subject = certSelector.getSubject();
+        if (subject != null)
+        {
+            return getEntries(subjectIndex, subject);
+        }
+
+        return certificates;
+    }
+
+    private static byte[] getSubjectKeyIdentifier(X509Certificate cert)
+    {
+        byte[] extValue = cert.getExtensionValue(Extension.subjectKeyIdentifier.getId());
+
+        if (extValue != null)
+        {
+            try
+            {
+                return ASN1OctetString.getInstance(ASN1OctetString.getInstance(extValue).getOctets()).getOctets();
+            }
+            catch (Exception e)
+            {
+                // ignore - certificate will not be indexed by key identifier
+            }
+        }
+
+        return null;
+    }
+
+    private static byte[] calculateFingerprint(X509Certificate cert)
+    {
+        byte[] encoding;
+        try
+        {
+            encoding = cert.getEncoded();
+        }
+        catch (CertificateEncodingException e)
+        {
+            throw new IllegalArgumentException("unable to encode certificate: " + e.getMessage());
+        }
+
+        Digest digest = new SHA256Digest();
+        byte[] fingerprint = new byte[digest.getDigestSize()];
+
+        digest.update(encoding, 0, encoding.length);
+        digest.doFinal(fingerprint, 0);
+
+        return fingerprint;
+    }
+
+    private static void addEntry(Map map, Object key, X509Certificate cert)
+    {
+        List<X509Certificate> entries = (List<X509Certificate>)map.get(key);
+
+        if (entries == null)
+        {
+            entries = new ArrayList<X509Certificate>(1);
+            map.put(key, entries);
+        }
+
+        entries.add(cert);
+    }
+
+    private static Collection<X509Certificate> getEntries(Map map, Object key)
+    {
+        List<X509Certificate> entries = (List<X509Certificate>)map.get(key);
+
+        if (entries == null)
+        {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(entries);
+    }
+
+    private static X509Certificate getFirst(Collection<X509Certificate> entries)
+    {
+        if (entries.isEmpty())
+        {
+            return null;
+        }
+
+        return entries.iterator().next();
+    }
+
+    private static class ByteKey
+    {
+        private final byte[] bytes;
+        private final int hashCode;
+
+        ByteKey(byte[] bytes)
+        {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+
+            if (!(o instanceof ByteKey))
+            {
+                return false;
+            }
+
+            return Arrays.areEqual(bytes, ((ByteKey)o).bytes);
+        }
+    }
+
+    private static class IssuerSerialKey
+    {
+        private final X500Principal issuer;
+        private final BigInteger serialNumber;
+
+        IssuerSerialKey(X500Principal issuer, BigInteger serialNumber)
+        {
+            this.issuer = issuer;
+            this.serialNumber = serialNumber;
+        }
+
+        public int hashCode()
+        {
+            return issuer.hashCode() ^ serialNumber.hashCode();
+        }
+
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+
+            if (!(o instanceof IssuerSerialKey))
+            {
+                return false;
+            }
+
+            IssuerSerialKey other = (IssuerSerialKey)o;
+
+            return issuer.equals(other.issuer) && serialNumber.equals(other.serialNumber);
+        }
+    }
+}
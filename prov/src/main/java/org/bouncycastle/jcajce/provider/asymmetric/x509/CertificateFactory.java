@@ -21,6 +21,8 @@
 import org.bouncycastle.asn1.ASN1Sequence;
 import org.bouncycastle.asn1.ASN1Set;
 import org.bouncycastle.asn1.ASN1TaggedObject;
+import org.bouncycastle.asn1.BERSequence;
+import org.bouncycastle.asn1.DERCursor;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 import org.bouncycastle.asn1.pkcs.SignedData;
 import org.bouncycastle.asn1.x509.Certificate;
@@ -57,17 +59,25 @@ private java.security.cert.Certificate readDERCertificate(
         ASN1InputStream dIn)
         throws IOException, CertificateParsingException
     {
-        return getCertificate(ASN1Sequence.getInstance(dIn.readObject()));
+        ASN1Sequence seq = ASN1Sequence.getInstance(dIn.readObject());
+
+        if (seq == null || seq instanceof BERSequence)
+        {
+            return getCertificate(seq, null);
+        }
+
+        // the stream is lazily evaluated, so this returns the definite-length encoding as read.
+        return getCertificate(seq, seq.getEncoded());
     }
 
     private java.security.cert.Certificate readPEMCertificate(
         InputStream in)
         throws IOException, CertificateParsingException
     {
-        return getCertificate(PEM_CERT_PARSER.readPEMObject(in));
+        return getCertificate(PEM_CERT_PARSER.readPEMObject(in), null);
     }
 
-    private java.security.cert.Certificate getCertificate(ASN1Sequence seq)
+    private java.security.cert.Certificate getCertificate(ASN1Sequence seq, byte[] encoding)
         throws CertificateParsingException
     {
         if (seq == null)
@@ -87,8 +97,23 @@ private java.security.cert.Certificate getCertificate(ASN1Sequence seq)
             }
         }
 
-        return new X509CertificateObject(bcHelper,
-                            Certificate.getInstance(seq));
+        return createCertificate(Certificate.getInstance(seq), encoding);
+    }
+
+    /**
+     * Create a certificate object retaining the encoding it was read from if that is already the DER
+     * encoding, otherwise the DER encoding is computed on first use, so getEncoded() and equals() do
+     * not depend on how the certificate was read.
+     */
+    private java.security.cert.Certificate createCertificate(Certificate c, byte[] encoding)
+        throws CertificateParsingException
+    {
+        if (encoding != null && !DERCursor.isDEREncoding(encoding))
+        {
+            encoding = null;
+        }
+
+        return new X509CertificateObject(bcHelper, c, encoding);
     }
 
     private java.security.cert.Certificate getCertificate()
@@ -102,8 +127,7 @@ private java.security.cert.Certificate getCertificate()
 
                 if (obj instanceof ASN1Sequence)
                 {
-                   return new X509CertificateObject(bcHelper,
-                                    Certificate.getInstance(obj));
+                   return createCertificate(Certificate.getInstance(obj), null);
                 }
             }
         }
@@ -231,8 +255,8 @@ else if (currentStream != in) // reset if input stream has changed
                 return readPEMCertificate(pis);
             }
             else
-            {
-                return readDERCertificate(new ASN1InputStream(pis));
+            {       // lazy evaluate so the encoding can be retained without re-encoding
+                return readDERCertificate(new ASN1InputStream(pis, true));
             }
         }
         catch (Exception e)
@@ -20,12 +20,14 @@
 import org.bouncycastle.jcajce.provider.asymmetric.util.PKCS12BagAttributeCarrierImpl;
 import org.bouncycastle.jcajce.util.JcaJceHelper;
 import org.bouncycastle.jce.interfaces.PKCS12BagAttributeCarrier;
+import org.bouncycastle.util.Arrays;
 
 class X509CertificateObject
     extends X509CertificateImpl
     implements PKCS12BagAttributeCarrier
 {
     private final Object                cacheLock = new Object();
+    private final byte[]                encodingValue;
     private X509CertificateInternal     internalCertificateValue;
     private X500Principal               issuerValue;
     private PublicKey                   publicKeyValue;
@@ -39,8 +41,20 @@
 
     X509CertificateObject(JcaJceHelper bcHelper, org.bouncycastle.asn1.x509.Certificate c)
         throws CertificateParsingException
+    {
+        this(bcHelper, c, null);
+    }
+
+    /**
+     * Create a certificate object which retains its encoding, the encoding must be the DER
+     * encoding of c and is not copied.
+     */
+    X509CertificateObject(JcaJceHelper bcHelper, org.bouncycastle.asn1.x509.Certificate c, byte[] encoding)
+        throws CertificateParsingException
     {
         super(bcHelper, c, createBasicConstraints(c), createKeyUsage(c), createSigAlgName(c), createSigAlgParams(c));
+
+        this.encodingValue = encoding;
     }
 
     public void checkValidity(Date date) throws CertificateExpiredException, CertificateNotYetValidException
@@ -170,6 +184,11 @@ public boolean equals(Object other)
         {
             X509CertificateObject otherBC = (X509CertificateObject)other;
 
+            if (null != this.encodingValue && null != otherBC.encodingValue)
+            {
+                return Arrays.areEqual(this.encodingValue, otherBC.encodingValue);
+            }
+
             if (this.hashValueSet && otherBC.hashValueSet)
             {
                 if (this.hashValue != otherBC.hashValue)
@@ -190,6 +209,25 @@ else if (null == internalCertificateValue || null == otherBC.internalCertificate
         return getInternalCertificate().equals(other);
     }
 
+    public byte[] getEncoded()
+        throws CertificateEncodingException
+    {
+        if (null != encodingValue)
+        {
+            return Arrays.clone(encodingValue);
+        }
+
+        try
+        {
+            // the DER encoding is computed on first use and kept by the internal certificate
+            return Arrays.clone(getInternalCertificate().getEncoded());
+        }
+        catch (CertificateEncodingException e)
+        {
+            return super.getEncoded();
+        }
+    }
+
     public int hashCode()
     {
         if (!hashValueSet)
@@ -249,14 +287,17 @@ private X509CertificateInternal getInternalCertificate()
             }
         }
 
-        byte[] encoding;
-        try
+        byte[] encoding = encodingValue;
+        if (null == encoding)
         {
-            encoding = getEncoded();
-        }
-        catch (CertificateEncodingException e)
-        {
-            encoding = null;
+            try
+            {
+                encoding = super.getEncoded();
+            }
+            catch (CertificateEncodingException e)
+            {
+                encoding = null;
+            }
         }
 
         X509CertificateInternal temp = new X509CertificateInternal(bcHelper, c, basicConstraints, keyUsage, sigAlgName,
@@ -12,10 +12,12 @@
 import java.security.spec.PSSParameterSpec;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bouncycastle.asn1.ASN1Encodable;
 import org.bouncycastle.asn1.ASN1Null;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1ObjectIdentifierMap;
 import org.bouncycastle.asn1.ASN1Sequence;
 import org.bouncycastle.asn1.DERNull;
 import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
@@ -31,16 +33,23 @@
 
 class X509SignatureUtil
 {
-    private static final Map<ASN1ObjectIdentifier, String> algNames = new HashMap<ASN1ObjectIdentifier, String>();
+    private static final ASN1ObjectIdentifierMap<String> algNames;
 
     static
     {
-        algNames.put(EdECObjectIdentifiers.id_Ed25519, "Ed25519");
-        algNames.put(EdECObjectIdentifiers.id_Ed448, "Ed448");
-        algNames.put(OIWObjectIdentifiers.dsaWithSHA1, "SHA1withDSA");
-        algNames.put(X9ObjectIdentifiers.id_dsa_with_sha1, "SHA1withDSA");
+        Map<ASN1ObjectIdentifier, String> names = new HashMap<ASN1ObjectIdentifier, String>();
+
+        names.put(EdECObjectIdentifiers.id_Ed25519, "Ed25519");
+        names.put(EdECObjectIdentifiers.id_Ed448, "Ed448");
+        names.put(OIWObjectIdentifiers.dsaWithSHA1, "SHA1withDSA");
+        names.put(X9ObjectIdentifiers.id_dsa_with_sha1, "SHA1withDSA");
+
+        algNames = new ASN1ObjectIdentifierMap<String>(names);
     }
 
+    // names found in the BC provider, saves building alias property strings for every certificate or CRL.
+    private static final Map<ASN1ObjectIdentifier, ProviderAlgName> bcAlgNames = new ConcurrentHashMap<ASN1ObjectIdentifier, ProviderAlgName>();
+
     private static final ASN1Null derNull = DERNull.INSTANCE;
 
     static boolean isCompositeAlgorithm(AlgorithmIdentifier algorithmIdentifier)
@@ -102,7 +111,7 @@ static String getSignatureName(
         }
 
         // deal with the "weird" ones.
-        String algName = (String)algNames.get(sigAlgId.getAlgorithm());
+        String algName = algNames.get(sigAlgId.getAlgorithm());
         if (algName != null)
         {
             return algName;
@@ -135,9 +144,16 @@ private static String findAlgName(ASN1ObjectIdentifier algOid)
 
         if (prov != null)
         {
+            ProviderAlgName cached = (ProviderAlgName)bcAlgNames.get(algOid);
+            if (cached != null && cached.provider == prov)
+            {
+                return cached.algName;
+            }
+
             String algName = lookupAlg(prov, algOid);
             if (algName != null)
             {
+                bcAlgNames.put(algOid, new ProviderAlgName(prov, algName));
                 return algName;
             }
         }
@@ -201,4 +217,15 @@ static void prettyPrintSignature(byte[] sig, StringBuffer buf, String nl)
         }
     }
 
+    private static class ProviderAlgName
+    {
+        final Provider provider;
+        final String algName;
+
+        ProviderAlgName(Provider provider, String algName)
+        {
+            this.provider = provider;
+            this.algName = algName;
+        }
+    }
 }
@@ -33,7 +33,6 @@
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.crypto.OutputLengthException;
-import org.bouncycastle.crypto.engines.DSTU7624Engine;
 import org.bouncycastle.crypto.modes.AEADBlockCipher;
 import org.bouncycastle.crypto.modes.AEADCipher;
 import org.bouncycastle.crypto.modes.CBCBlockCipher;
@@ -98,6 +97,7 @@
 
     private BlockCipher baseEngine;
     private BlockCipherProvider engineProvider;
+    private EnginePool.PooledBlockCipherProvider pooledProvider;
     private GenericBlockCipher cipher;
     private ParametersWithIV ivParam;
     private AEADParameters aeadParams;
@@ -143,6 +143,12 @@ protected BaseBlockCipher(
     protected BaseBlockCipher(
         BlockCipherProvider provider)
     {
+        if (EnginePool.isEnabled())
+        {
+            pooledProvider = new EnginePool.PooledBlockCipherProvider(provider);
+            provider = pooledProvider;
+        }
+
         baseEngine = provider.get();
         engineProvider = provider;
 
@@ -403,7 +409,7 @@ else if (modeName.equals("CTR"))
         {
             ivLength = baseEngine.getBlockSize();
             fixedIv = false;
-            if (baseEngine instanceof DSTU7624Engine)
+            if (baseEngine.getAlgorithmName().startsWith("DSTU7624"))
             {
                 cipher = new BufferedGenericBlockCipher(new BufferedBlockCipher(
                     new KCTRBlockCipher(baseEngine)));
@@ -434,7 +440,7 @@ else if (modeName.equals("CTS"))
         else if (modeName.equals("CCM"))
         {
             ivLength = 12; // CCM nonce 7..13 bytes
-            if (baseEngine instanceof DSTU7624Engine)
+            if (baseEngine.getAlgorithmName().startsWith("DSTU7624"))
             {
                 cipher = new AEADGenericBlockCipher(new KCCMBlockCipher(baseEngine));
             }
@@ -466,7 +472,7 @@ else if (modeName.equals("EAX"))
         else if (modeName.equals("GCM"))
         {
             ivLength = baseEngine.getBlockSize();
-            if (baseEngine instanceof DSTU7624Engine)
+            if (baseEngine.getAlgorithmName().startsWith("DSTU7624"))
             {
                 cipher = new AEADGenericBlockCipher(new KGCMBlockCipher(baseEngine));
             }
@@ -1125,19 +1131,23 @@ protected byte[] engineDoFinal(
         int len = 0;
         byte[] tmp = new byte[engineGetOutputSize(inputLen)];
 
-        if (inputLen != 0)
-        {
-            len = cipher.processBytes(input, inputOffset, inputLen, tmp, 0);
-        }
-
         try
         {
+            if (inputLen != 0)
+            {
+                len = cipher.processBytes(input, inputOffset, inputLen, tmp, 0);
+            }
+
             len += cipher.doFinal(tmp, len);
         }
         catch (DataLengthException e)
         {
             throw new IllegalBlockSizeException(e.getMessage());
         }
+        finally
+        {
+            releasePooledEngines();
+        }
 
         if (len == tmp.length)
         {
@@ -1188,6 +1198,22 @@ protected int engineDoFinal(
         {
             throw new IllegalBlockSizeException(e.getMessage());
         }
+        finally
+        {
+            releasePooledEngines();
+        }
+    }
+
+    /*
+     * doFinal() leaves the cipher reset and keyed, so the engines can go back to the pool - if we are
+     * used again they are checked out again on demand.
+     */
+    private void releasePooledEngines()
+    {
+        if (pooledProvider != null)
+        {
+            pooledProvider.release();
+        }
     }
 
     private boolean isAEADModeName(
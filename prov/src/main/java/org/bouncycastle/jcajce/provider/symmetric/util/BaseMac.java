@@ -41,7 +41,7 @@
     protected BaseMac(
         Mac macEngine)
     {
-        this.macEngine = macEngine;
+        this.macEngine = EnginePool.isEnabled() ? EnginePool.PooledHMac.wrap(macEngine) : macEngine;
     }
 
     protected BaseMac(
@@ -50,7 +50,7 @@ protected BaseMac(
         int pbeHash,
         int keySize)
     {
-        this.macEngine = macEngine;
+        this.macEngine = EnginePool.isEnabled() ? EnginePool.PooledHMac.wrap(macEngine) : macEngine;
         this.scheme = scheme;
         this.pbeHash = pbeHash;
         this.keySize = keySize;
@@ -103,7 +103,7 @@ protected void engineInit(
                 digest = GOST3411;
                 keySize = 256;
             }
-            else if (macEngine instanceof HMac)
+            else if (macEngine instanceof HMac || macEngine instanceof EnginePool.PooledHMac)
             {
                 if (!macEngine.getAlgorithmName().startsWith("SHA-1"))
                 {
@@ -0,0 +1,529 @@
+package org.bouncycastle.jcajce.provider.symmetric.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.macs.HMac;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Memoable;
+import org.bouncycastle.util.Properties;
+
+/**
+ * A per thread pool of lightweight engines which have already been initialised with a key, allowing
+ * Cipher and Mac SPIs that are created and keyed with the same key over and over to skip the key
+ * schedule, or for HMAC the hashing of the key pads.
+ * <p>
+ * Pooling is off by default, it is enabled by setting "org.bouncycastle.jcajce.provider.engine_pooling"
+ * to true as a system, security, or thread local property. The system and security properties are only
+ * read the first time they are needed, thread local settings are checked each time. Each thread keeps
+ * at most MAX_ENTRIES keyed engines, the least recently used engine is re-keyed with an all zero key,
+ * and its copy of the key cleared, when it is evicted. Engines are checked out while an SPI is using them and only returned
+ * once a doFinal() has put them back in their freshly keyed state.
+ * </p>
+ */
+class EnginePool
+{
+    static final String ENGINE_POOLING = "org.bouncycastle.jcajce.provider.engine_pooling";
+
+    static final int MAX_ENTRIES = 16;
+
+    private static final ThreadLocal pools = new ThreadLocal()
+    {
+        protected Object initialValue()
+        {
+            return new LinkedHashMap(MAX_ENTRIES, 0.75f, true)
+            {
+                protected boolean removeEldestEntry(Map.Entry eldest)
+                {
+                    if (size() > MAX_ENTRIES)
+                    {
+                        ((PoolEntry)eldest.getValue()).zeroize();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    };
+
+    private static volatile Boolean enabled;       // the security or system property setting, read once
+
+    static boolean isEnabled()
+    {
+        if (Properties.hasThreadOverride(ENGINE_POOLING))
+        {
+            return Properties.isOverrideSet(ENGINE_POOLING);
+        }
+
+        Boolean isEnabled = enabled;
+        if (isEnabled == null)
+        {
+            isEnabled = Properties.isOverrideSet(ENGINE_POOLING) ? Boolean.TRUE : Boolean.FALSE;
+            enabled = isEnabled;
+        }
+
+        return isEnabled.booleanValue();
+    }
+
+    /**
+     * Zeroize and discard all the engines pooled by the current thread.
+     */
+    static void clear()
+    {
+        Map pool = (Map)pools.get();
+
+        for (Iterator it = pool.values().iterator(); it.hasNext();)
+        {
+            ((PoolEntry)it.next()).zeroize();
+        }
+
+        pool.clear();
+    }
+
+    /**
+     * Return the number of engines pooled by the current thread.
+     */
+    static int size()
+    {
+        return ((Map)pools.get()).size();
+    }
+
+    private static Object checkOut(PoolKey key)
+    {
+        PoolEntry entry = (PoolEntry)((Map)pools.get()).remove(key);
+
+        if (entry == null)
+        {
+            return null;
+        }
+
+        entry.key.clear();
+
+        return entry.engine;
+    }
+
+    private static void checkIn(PoolKey key, Object engine)
+    {
+        Map pool = (Map)pools.get();
+        PoolEntry entry = new PoolEntry(key.copy(), engine);
+
+        if (pool.containsKey(key))
+        {
+            // already have one keyed like this, we only keep a single engine per key.
+            entry.zeroize();
+        }
+        else
+        {
+            pool.put(entry.key, entry);
+        }
+    }
+
+    private static boolean isPoolable(CipherParameters params)
+    {
+        // subclasses of KeyParameter carry extra parameters the engine may have been keyed with.
+        return params != null && params.getClass() == KeyParameter.class;
+    }
+
+    /**
+     * Identifies a keyed engine - the key bytes are our own copy, compared in constant time.
+     */
+    private static class PoolKey
+    {
+        private final Class engineClass;
+        private final String algorithm;
+        private final boolean forEncryption;
+        private final byte[] key;
+        private final int hashCode;
+
+        PoolKey(Class engineClass, String algorithm, boolean forEncryption, byte[] key)
+        {
+            this.engineClass = engineClass;
+            this.algorithm = algorithm;
+            this.forEncryption = forEncryption;
+            this.key = Arrays.clone(key);
+            this.hashCode = (algorithm.hashCode() * 31 + key.length) * 2 + (forEncryption ? 1 : 0);
+        }
+
+        PoolKey copy()
+        {
+            return new PoolKey(engineClass, algorithm, forEncryption, key);
+        }
+
+        void clear()
+        {
+            Arrays.fill(key, (byte)0);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (o == this)
+            {
+                return true;
+            }
+            if (!(o instanceof PoolKey))
+            {
+                return false;
+            }
+
+            PoolKey other = (PoolKey)o;
+
+            return engineClass == other.engineClass && forEncryption == other.forEncryption
+                && algorithm.equals(other.algorithm) && Arrays.constantTimeAreEqual(key, other.key);
+        }
+    }
+
+    /**
+     * A pooled engine - the pool owns the key in the entry, so it is cleared when the entry leaves the pool.
+     */
+    private static class PoolEntry
+    {
+        final PoolKey key;
+        final Object engine;
+
+        PoolEntry(PoolKey key, Object engine)
+        {
+            this.key = key;
+            this.engine = engine;
+        }
+
+        void zeroize()
+        {
+            try
+            {
+                KeyParameter zeroKey = new KeyParameter(new byte[key.key.length]);
+
+                if (engine instanceof BlockCipher)
+                {
+                    ((BlockCipher)engine).init(key.forEncryption, zeroKey);
+                }
+                else
+                {
+                    ((Mac)engine).init(zeroKey);
+                }
+            }
+            catch (RuntimeException e)
+            {
+                // the engine is being discarded anyway.
+            }
+            finally
+            {
+                key.clear();
+            }
+        }
+    }
+
+    /**
+     * A BlockCipherProvider handing out pooled engines, which keeps track of them so the SPI using them
+     * can return them to the pool.
+     */
+    static class PooledBlockCipherProvider
+        implements BlockCipherProvider
+    {
+        private final BlockCipherProvider provider;
+        private final List engines = new ArrayList(2);
+
+        PooledBlockCipherProvider(BlockCipherProvider provider)
+        {
+            this.provider = provider;
+        }
+
+        public BlockCipher get()
+        {
+            PooledBlockCipher engine = new PooledBlockCipher(provider);
+
+            engines.add(engine);
+
+            return engine;
+        }
+
+        void release()
+        {
+            for (int i = 0; i != engines.size(); i++)
+            {
+                ((PooledBlockCipher)engines.get(i)).release();
+            }
+        }
+    }
+
+    /**
+     * A block cipher which takes its keyed engine from the pool on init(), and re-acquires one if it
+     * is used again after being released.
+     */
+    static class PooledBlockCipher
+        implements BlockCipher
+    {
+        private final BlockCipherProvider provider;
+        private final Class engineClass;
+        private final String algorithmName;
+        private final int blockSize;
+
+        private BlockCipher spare;
+        private BlockCipher engine;
+        private PoolKey poolKey;
+
+        PooledBlockCipher(BlockCipherProvider provider)
+        {
+            this.provider = provider;
+            this.spare = provider.get();
+            this.engineClass = spare.getClass();
+            this.algorithmName = spare.getAlgorithmName();
+            this.blockSize = spare.getBlockSize();
+        }
+
+        public void init(boolean forEncryption, CipherParameters params)
+            throws IllegalArgumentException
+        {
+            release();
+
+            if (poolKey != null)
+            {
+                poolKey.clear();
+            }
+
+            if (isPoolable(params))
+            {
+                poolKey = new PoolKey(engineClass, algorithmName, forEncryption, ((KeyParameter)params).getKey());
+                engine = acquire();
+            }
+            else
+            {
+                poolKey = null;
+                engine = newEngine();
+                engine.init(forEncryption, params);
+            }
+        }
+
+        public String getAlgorithmName()
+        {
+            return algorithmName;
+        }
+
+        public int getBlockSize()
+        {
+            return blockSize;
+        }
+
+        public int processBlock(byte[] in, int inOff, byte[] out, int outOff)
+        {
+            if (engine == null)
+            {
+                if (poolKey == null)
+                {
+                    throw new IllegalStateException(algorithmName + " engine not initialised");
+                }
+                engine = acquire();
+            }
+
+            return engine.processBlock(in, inOff, out, outOff);
+        }
+
+        public void reset()
+        {
+            if (engine != null)
+            {
+                engine.reset();
+            }
+        }
+
+        /**
+         * Return the engine to the pool - only pooled engines are given back, anything else stays with us.
+         */
+        void release()
+        {
+            if (engine != null && poolKey != null)
+            {
+                checkIn(poolKey, engine);
+                engine = null;
+            }
+        }
+
+        private BlockCipher acquire()
+        {
+            BlockCipher pooled = (BlockCipher)checkOut(poolKey);
+
+            if (pooled == null)
+            {
+                pooled = newEngine();
+                pooled.init(poolKey.forEncryption, new KeyParameter(poolKey.key));
+            }
+
+            return pooled;
+        }
+
+        private BlockCipher newEngine()
+        {
+            if (spare != null)
+            {
+                BlockCipher e = spare;
+
+                spare = null;
+
+                return e;
+            }
+
+            return provider.get();
+        }
+    }
+
+    /**
+     * An HMAC which takes its keyed engine from the pool on init() and returns it on doFinal(), at which
+     * point HMac has already reset itself to the keyed state. New engines are built on copies of a
+     * Memoable digest, so only HMACs over Memoable digests can be pooled.
+     */
+    static class PooledHMac
+        implements Mac
+    {
+        private final Memoable prototype;
+        private final String algorithmName;
+        private final int macSize;
+
+        private HMac spare;
+        private HMac engine;
+        private PoolKey poolKey;
+
+        private PooledHMac(HMac hMac)
+        {
+            this.spare = hMac;
+            this.prototype = ((Memoable)hMac.getUnderlyingDigest()).copy();
+            this.algorithmName = hMac.getAlgorithmName();
+            this.macSize = hMac.getMacSize();
+        }
+
+        /**
+         * Return a pooling wrapper for macEngine if it is an HMAC which can be pooled, otherwise macEngine.
+         */
+        static Mac wrap(Mac macEngine)
+        {
+            if (macEngine instanceof HMac && ((HMac)macEngine).getUnderlyingDigest() instanceof Memoable)
+            {
+                return new PooledHMac((HMac)macEngine);
+            }
+
+            return macEngine;
+        }
+
+        public void init(CipherParameters params)
+            throws IllegalArgumentException
+        {
+            release();
+
+            if (poolKey != null)
+            {
+                poolKey.clear();
+            }
+
+            if (isPoolable(params))
+            {
+                poolKey = new PoolKey(HMac.class, algorithmName, true, ((KeyParameter)params).getKey());
+                engine = acquire();
+            }
+            else
+            {
+                poolKey = null;
+                engine = newEngine();
+                engine.init(params);
+            }
+        }
+
+        public String getAlgorithmName()
+        {
+            return algorithmName;
+        }
+
+        public int getMacSize()
+        {
+            return macSize;
+        }
+
+        public void update(byte in)
+            throws IllegalStateException
+        {
+            getEngine().update(in);
+        }
+
+        public void update(byte[] in, int inOff, int len)
+        {
+            getEngine().update(in, inOff, len);
+        }
+
+        public int doFinal(byte[] out, int outOff)
+        {
+            int len = getEngine().doFinal(out, outOff);
+
+            release();
+
+            return len;
+        }
+
+        public void reset()
+        {
+            if (engine != null)
+            {
+                engine.reset();
+            }
+        }
+
+        private HMac getEngine()
+        {
+            if (engine == null)
+            {
+                if (poolKey == null)
+                {
+                    throw new IllegalStateException(algorithmName + " not initialised");
+                }
+                engine = acquire();
+            }
+
+            return engine;
+        }
+
+        private void release()
+        {
+            if (engine != null && poolKey != null)
+            {
+                checkIn(poolKey, engine);
+                engine = null;
+            }
+        }
+
+        private HMac acquire()
+        {
+            HMac pooled = (HMac)checkOut(poolKey);
+
+            if (pooled == null)
+            {
+                pooled = newEngine();
+                pooled.init(new KeyParameter(poolKey.key));
+            }
+
+            return pooled;
+        }
+
+        private HMac newEngine()
+        {
+            if (spare != null)
+            {
+                HMac e = spare;
+
+                spare = null;
+
+                return e;
+            }
+
+            return new HMac((Digest)prototype.copy());
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package org.bouncycastle.jcajce.spec;
 
 import java.security.spec.KeySpec;
+import java.util.concurrent.Executor;
 
+import org.bouncycastle.crypto.generators.SCryptBufferPool;
 import org.bouncycastle.util.Arrays;
 
 /**
@@ -16,16 +18,32 @@
     private final int blockSize;
     private final int parallelizationParameter;
     private final int keySize;
+    private final Executor executor;
+    private final SCryptBufferPool bufferPool;
 
     public ScryptKeySpec(char[] password, byte[] salt, int costParameter, int blockSize, int parallelizationParameter, int keySize)
     {
+        this(password, salt, costParameter, blockSize, parallelizationParameter, keySize, null, null);
+    }
 
+    /**
+     * Create a key spec which has the parallel instances of scrypt run on an executor, and/or their scratch
+     * memory taken from a buffer pool.
+     *
+     * @param executor executor to run the parallel instances on, null to run them on the calling thread.
+     * @param bufferPool pool to take scratch memory from, null to allocate it each time.
+     */
+    public ScryptKeySpec(char[] password, byte[] salt, int costParameter, int blockSize, int parallelizationParameter, int keySize,
+        Executor executor, SCryptBufferPool bufferPool)
+    {
         this.password = password;
         this.salt = Arrays.clone(salt);
         this.costParameter = costParameter;
         this.blockSize = blockSize;
         this.parallelizationParameter = parallelizationParameter;
         this.keySize = keySize;
+        this.executor = executor;
+        this.bufferPool = bufferPool;
     }
 
     public char[] getPassword()
@@ -62,4 +80,24 @@ public int getKeyLength()
     {
         return keySize;
     }
-}
\ No newline at end of file
+
+    /**
+     * Return the executor the parallel instances of scrypt should be run on.
+     *
+     * @return the executor to use, null if none.
+     */
+    public Executor getExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * Return the pool scrypt's scratch memory should be taken from.
+     *
+     * @return the buffer pool to use, null if none.
+     */
+    public SCryptBufferPool getBufferPool()
+    {
+        return bufferPool;
+    }
+}
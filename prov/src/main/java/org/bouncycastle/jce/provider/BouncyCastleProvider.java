@@ -1,14 +1,26 @@
 package org.bouncycastle.jce.provider;
 
 import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.security.AccessController;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PrivilegedAction;
 import java.security.Provider;
 import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.isara.IsaraObjectIdentifiers;
@@ -30,6 +42,8 @@
 import org.bouncycastle.pqc.jcajce.provider.sphincs.Sphincs256KeyFactorySpi;
 import org.bouncycastle.pqc.jcajce.provider.xmss.XMSSKeyFactorySpi;
 import org.bouncycastle.pqc.jcajce.provider.xmss.XMSSMTKeyFactorySpi;
+import org.bouncycastle.util.Properties;
+import org.bouncycastle.util.Strings;
 
 /**
  * To add the provider at runtime use:
@@ -54,6 +68,12 @@
  * most preferred).
  * <p>Note: JCE algorithm names should be upper-case only so the case insensitive
  * test for getInstance works.
+ * <p>
+ * If the system or security property "org.bouncycastle.jce.provider.lazy_registration" is set to true
+ * when the provider is constructed, the algorithm families are registered from a service index generated
+ * at build time and each family's classes are only loaded the first time one of its services, properties,
+ * or key info converters is asked for. If the index is not available all the algorithms are registered
+ * up front as usual.
  */
 public final class BouncyCastleProvider extends Provider
     implements ConfigurableProvider
@@ -65,6 +85,7 @@ public final class BouncyCastleProvider extends Provider
     public static final ProviderConfiguration CONFIGURATION = new BouncyCastleProviderConfiguration();
 
     private static final Map keyInfoConverters = new HashMap();
+    private static final Map lazyKeyInfoConverters = new HashMap();
 
     private static final Class revChkClass = ClassUtil.loadClass(BouncyCastleProvider.class, "java.security.cert.PKIXRevocationChecker");
 
@@ -137,6 +158,17 @@ public final class BouncyCastleProvider extends Provider
         "DRBG"
     };
 
+    private static final String LAZY_REGISTRATION = "org.bouncycastle.jce.provider.lazy_registration";
+
+    private ProviderServiceIndex serviceIndex;      // null if everything has been registered
+    private boolean[] familyLoaded;
+
+    private final Map serviceMap = new ConcurrentHashMap();     // type -> (upper case algorithm -> Service)
+    private final Map attributeMaps = new HashMap();
+    private final Map creatorMap = new ConcurrentHashMap();     // class name -> ConstructorCreator
+
+    private static final Map directCreators = createDirectCreators();
+
     /**
      * Construct a new provider.  This should only be required when
      * using runtime registration of the provider using the
@@ -158,21 +190,37 @@ public Object run()
 
     private void setup()
     {
-        loadAlgorithms(DIGEST_PACKAGE, DIGESTS);
-
-        loadAlgorithms(SYMMETRIC_PACKAGE, SYMMETRIC_GENERIC);
-
-        loadAlgorithms(SYMMETRIC_PACKAGE, SYMMETRIC_MACS);
+        String[] mappingClasses = getMappingClasses();
 
-        loadAlgorithms(SYMMETRIC_PACKAGE, SYMMETRIC_CIPHERS);
-
-        loadAlgorithms(ASYMMETRIC_PACKAGE, ASYMMETRIC_GENERIC);
+        if (Properties.isOverrideSet(LAZY_REGISTRATION))
+        {
+            serviceIndex = ProviderServiceIndex.load(mappingClasses);
+        }
 
-        loadAlgorithms(ASYMMETRIC_PACKAGE, ASYMMETRIC_CIPHERS);
+        if (serviceIndex != null)
+        {
+            familyLoaded = new boolean[serviceIndex.getFamilyCount()];
 
-        loadAlgorithms(KEYSTORE_PACKAGE, KEYSTORES);
+            synchronized (keyInfoConverters)
+            {
+                for (Iterator it = serviceIndex.getConverterOIDs().iterator(); it.hasNext();)
+                {
+                    Object oid = it.next();
 
-        loadAlgorithms(SECURE_RANDOM_PACKAGE, SECURE_RANDOMS);
+                    if (!keyInfoConverters.containsKey(oid))
+                    {
+                        lazyKeyInfoConverters.put(oid, this);
+                    }
+                }
+            }
+        }
+        else
+        {
+            for (int i = 0; i != mappingClasses.length; i++)
+            {
+                loadMappings(mappingClasses[i]);
+            }
+        }
 
         loadPQCKeys();  // so we can handle certificates containing them.
 
@@ -232,25 +280,488 @@ private void setup()
         put("Alg.Alias.CertStore.X509LDAP", "LDAP");
     }
 
-    private void loadAlgorithms(String packageName, String[] names)
+    /**
+     * Return the names of the $Mappings classes for the algorithm families, in registration order.
+     */
+    static String[] getMappingClasses()
+    {
+        List names = new ArrayList();
+
+        addMappingClasses(names, DIGEST_PACKAGE, DIGESTS);
+        addMappingClasses(names, SYMMETRIC_PACKAGE, SYMMETRIC_GENERIC);
+        addMappingClasses(names, SYMMETRIC_PACKAGE, SYMMETRIC_MACS);
+        addMappingClasses(names, SYMMETRIC_PACKAGE, SYMMETRIC_CIPHERS);
+        addMappingClasses(names, ASYMMETRIC_PACKAGE, ASYMMETRIC_GENERIC);
+        addMappingClasses(names, ASYMMETRIC_PACKAGE, ASYMMETRIC_CIPHERS);
+        addMappingClasses(names, KEYSTORE_PACKAGE, KEYSTORES);
+        addMappingClasses(names, SECURE_RANDOM_PACKAGE, SECURE_RANDOMS);
+
+        return (String[])names.toArray(new String[names.size()]);
+    }
+
+    private static void addMappingClasses(List names, String packageName, String[] families)
+    {
+        for (int i = 0; i != families.length; i++)
+        {
+            names.add(packageName + families[i] + "$Mappings");
+        }
+    }
+
+    private void loadMappings(String className)
+    {
+        Class clazz = ClassUtil.loadClass(BouncyCastleProvider.class, className);
+
+        if (clazz != null)
+        {
+            try
+            {
+                ((AlgorithmProvider)clazz.newInstance()).configure(this);
+            }
+            catch (Exception e)
+            {   // this should never ever happen!!
+                throw new InternalError("cannot create instance of "
+                    + className + " : " + e);
+            }
+        }
+    }
+
+    private void loadFamily(final int family)
+    {
+        // the provider is locked while a family is registered so other threads never see it half done.
+        synchronized (this)
+        {
+            if (familyLoaded[family])
+            {
+                return;
+            }
+            familyLoaded[family] = true;        // set first, a family may look up its own entries.
+
+            AccessController.doPrivileged(new PrivilegedAction()
+            {
+                public Object run()
+                {
+                    loadMappings(serviceIndex.getFamily(family));
+                    return null;
+                }
+            });
+        }
+    }
+
+    private void loadFamilies(String key)
     {
-        for (int i = 0; i != names.length; i++)
+        if (serviceIndex != null)
         {
-            Class clazz = ClassUtil.loadClass(BouncyCastleProvider.class, packageName + names[i] + "$Mappings");
+            int[] families = serviceIndex.getFamilies(ProviderServiceIndex.getEntryKey(key));
 
-            if (clazz != null)
+            if (families != null)
             {
-                try
+                for (int i = 0; i != families.length; i++)
                 {
-                    ((AlgorithmProvider)clazz.newInstance()).configure(this);
+                    loadFamily(families[i]);
                 }
-                catch (Exception e)
-                {   // this should never ever happen!!
-                    throw new InternalError("cannot create instance of "
-                        + packageName + names[i] + "$Mappings : " + e);
+            }
+        }
+    }
+
+    private void loadAllFamilies()
+    {
+        if (serviceIndex != null)
+        {
+            for (int i = 0; i != familyLoaded.length; i++)
+            {
+                loadFamily(i);
+            }
+        }
+    }
+
+    private void loadConverterFamily(ASN1ObjectIdentifier oid)
+    {
+        int family = serviceIndex.getConverterFamily(oid);
+
+        if (family >= 0)
+        {
+            loadFamily(family);
+        }
+    }
+
+    public Service getService(String type, String algorithm)
+    {
+        // algorithm names are case insensitive, as they are for Provider.
+        String key = Strings.toUpperCase(algorithm);
+        Map services = getTypeServices(type);
+        Service service = (Service)services.get(key);
+
+        if (service == null)
+        {
+            loadFamilies(type + "." + algorithm);
+
+            Service base = super.getService(type, algorithm);
+            if (base == null)
+            {
+                return null;
+            }
+
+            Map attributes;
+            synchronized (attributeMaps)
+            {
+                attributes = (Map)attributeMaps.get(Strings.toUpperCase(base.getType() + "." + base.getAlgorithm()));
+            }
+
+            service = new BcService(this, base.getType(), base.getAlgorithm(), base.getClassName(), attributes, getCreator(base.getType(), base.getClassName()));
+
+            // loading a family changes the table, clearing the cache, so look the map up again.
+            getTypeServices(type).put(key, service);
+        }
+
+        return service;
+    }
+
+    private Map getTypeServices(String type)
+    {
+        Map services = (Map)serviceMap.get(type);
+        if (services == null)
+        {
+            synchronized (serviceMap)
+            {
+                services = (Map)serviceMap.get(type);
+                if (services == null)
+                {
+                    services = new ConcurrentHashMap();
+                    serviceMap.put(type, services);
                 }
             }
         }
+
+        return services;
+    }
+
+    public Set<Service> getServices()
+    {
+        loadAllFamilies();
+
+        Set<Service> serviceSet = super.getServices();
+        Set<Service> bcServiceSet = new HashSet<Service>();
+
+        for (Iterator it = serviceSet.iterator(); it.hasNext();)
+        {
+            Service service = (Service)it.next();
+
+            bcServiceSet.add(getService(service.getType(), service.getAlgorithm()));
+        }
+
+        return Collections.unmodifiableSet(bcServiceSet);
+    }
+
+    private EngineCreator getCreator(String type, String className)
+    {
+        if (type.equals("CertStore"))
+        {
+            return null;        // the constructor takes a parameter, leave it to Service.newInstance()
+        }
+
+        EngineCreator creator = (EngineCreator)directCreators.get(className);
+
+        if (creator == null)
+        {
+            creator = (EngineCreator)creatorMap.get(className);
+            if (creator == null)
+            {
+                creator = new ConstructorCreator(className);
+                creatorMap.put(className, creator);
+            }
+        }
+
+        return creator;
+    }
+
+    /**
+     * Creators for the most commonly requested engines, keyed by implementation class name, so these are
+     * created without reflection. Other engines are created through their class's constructor.
+     */
+    private static Map createDirectCreators()
+    {
+        Map creators = new HashMap();
+
+        creators.put("org.bouncycastle.jcajce.provider.digest.SHA1$Digest", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.digest.SHA1.Digest();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.digest.SHA224$Digest", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.digest.SHA224.Digest();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.digest.SHA256$Digest", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.digest.SHA256.Digest();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.digest.SHA384$Digest", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.digest.SHA384.Digest();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.digest.SHA512$Digest", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.digest.SHA512.Digest();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.digest.SHA1$HashMac", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.digest.SHA1.HashMac();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.digest.SHA224$HashMac", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.digest.SHA224.HashMac();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.digest.SHA256$HashMac", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.digest.SHA256.HashMac();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.digest.SHA384$HashMac", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.digest.SHA384.HashMac();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.digest.SHA512$HashMac", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.digest.SHA512.HashMac();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.asymmetric.rsa.DigestSignatureSpi$SHA256", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.asymmetric.rsa.DigestSignatureSpi.SHA256();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.asymmetric.rsa.DigestSignatureSpi$SHA384", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.asymmetric.rsa.DigestSignatureSpi.SHA384();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.asymmetric.rsa.DigestSignatureSpi$SHA512", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.asymmetric.rsa.DigestSignatureSpi.SHA512();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.asymmetric.ec.SignatureSpi$ecDSA256", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.asymmetric.ec.SignatureSpi.ecDSA256();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.asymmetric.ec.SignatureSpi$ecDSA384", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.asymmetric.ec.SignatureSpi.ecDSA384();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.asymmetric.ec.SignatureSpi$ecDSA512", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.asymmetric.ec.SignatureSpi.ecDSA512();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.asymmetric.edec.SignatureSpi$Ed25519", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.asymmetric.edec.SignatureSpi.Ed25519();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.symmetric.AES$ECB", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.symmetric.AES.ECB();
+            }
+        });
+        creators.put("org.bouncycastle.jcajce.provider.symmetric.AES$GCM", new EngineCreator()
+        {
+            public Object createInstance(Object constructorParameter)
+            {
+                return new org.bouncycastle.jcajce.provider.symmetric.AES.GCM();
+            }
+        });
+
+        return Collections.unmodifiableMap(creators);
+    }
+
+    public String getProperty(String key)
+    {
+        loadFamilies(key);
+
+        return super.getProperty(key);
+    }
+
+    public Object get(Object key)
+    {
+        if (key instanceof String)
+        {
+            loadFamilies((String)key);
+        }
+
+        return super.get(key);
+    }
+
+    public boolean containsKey(Object key)
+    {
+        if (key instanceof String)
+        {
+            loadFamilies((String)key);
+        }
+
+        return super.containsKey(key);
+    }
+
+    public synchronized Object put(Object key, Object value)
+    {
+        if (key instanceof String)
+        {
+            loadFamilies((String)key);
+        }
+
+        Object previous = super.put(key, value);
+
+        clearServiceCache();
+
+        return previous;
+    }
+
+    public synchronized void putAll(Map<?, ?> t)
+    {
+        for (Iterator it = t.keySet().iterator(); it.hasNext();)
+        {
+            Object key = it.next();
+            if (key instanceof String)
+            {
+                loadFamilies((String)key);
+            }
+        }
+
+        super.putAll(t);
+
+        clearServiceCache();
+    }
+
+    public synchronized Object remove(Object key)
+    {
+        if (key instanceof String)
+        {
+            loadFamilies((String)key);
+        }
+
+        Object previous = super.remove(key);
+
+        clearServiceCache();
+
+        return previous;
+    }
+
+    public synchronized void clear()
+    {
+        loadAllFamilies();
+
+        super.clear();
+
+        clearServiceCache();
+    }
+
+    protected synchronized void putService(Service s)
+    {
+        loadFamilies(s.getType() + "." + s.getAlgorithm());
+
+        super.putService(s);
+
+        clearServiceCache();
+    }
+
+    protected synchronized void removeService(Service s)
+    {
+        loadFamilies(s.getType() + "." + s.getAlgorithm());
+
+        super.removeService(s);
+
+        clearServiceCache();
+    }
+
+    /**
+     * Drop the services handed out so far, called whenever the provider table changes.
+     */
+    private void clearServiceCache()
+    {
+        // the Provider constructor may add entries before our fields are set.
+        if (serviceMap != null)
+        {
+            serviceMap.clear();
+        }
+    }
+
+    public Set<Object> keySet()
+    {
+        loadAllFamilies();
+
+        return super.keySet();
+    }
+
+    public Set<Map.Entry<Object, Object>> entrySet()
+    {
+        loadAllFamilies();
+
+        return super.entrySet();
+    }
+
+    public Collection<Object> values()
+    {
+        loadAllFamilies();
+
+        return super.values();
+    }
+
+    public Enumeration<Object> keys()
+    {
+        loadAllFamilies();
+
+        return super.keys();
+    }
+
+    public Enumeration<Object> elements()
+    {
+        loadAllFamilies();
+
+        return super.elements();
     }
 
     private void loadPQCKeys()
@@ -290,6 +801,12 @@ public void addAlgorithm(String key, String value)
         }
 
         put(key, value);
+
+        int space = key.indexOf(' ');
+        if (space > 0)
+        {
+            addAttribute(key.substring(0, space), key.substring(space + 1), value);
+        }
     }
 
     public void addAlgorithm(String type, ASN1ObjectIdentifier oid, String className)
@@ -308,7 +825,7 @@ public void addKeyInfoConverter(ASN1ObjectIdentifier oid, AsymmetricKeyInfoConve
 
     public AsymmetricKeyInfoConverter getKeyInfoConverter(ASN1ObjectIdentifier oid)
     {
-        return (AsymmetricKeyInfoConverter)keyInfoConverters.get(oid);
+        return getAsymmetricKeyInfoConverter(oid);
     }
 
     public void addAttributes(String key, Map<String, String> attributeMap)
@@ -323,11 +840,51 @@ public void addAttributes(String key, Map<String, String> attributeMap)
             }
 
             put(attributeKey, attributeMap.get(attributeName));
+            addAttribute(key, attributeName, (String)attributeMap.get(attributeName));
         }
     }
 
+    private void addAttribute(String key, String attributeName, String attributeValue)
+    {
+        String serviceKey = Strings.toUpperCase(key);
+
+        synchronized (attributeMaps)
+        {
+            Map attributes = (Map)attributeMaps.get(serviceKey);
+            if (attributes == null)
+            {
+                attributes = new HashMap();
+                attributeMaps.put(serviceKey, attributes);
+            }
+            attributes.put(attributeName, attributeValue);
+        }
+
+        // services carry a copy of their attributes
+        clearServiceCache();
+    }
+
     private static AsymmetricKeyInfoConverter getAsymmetricKeyInfoConverter(ASN1ObjectIdentifier algorithm)
     {
+        BouncyCastleProvider lazyProvider;
+
+        synchronized (keyInfoConverters)
+        {
+            AsymmetricKeyInfoConverter converter = (AsymmetricKeyInfoConverter)keyInfoConverters.get(algorithm);
+            if (converter != null)
+            {
+                return converter;
+            }
+
+            lazyProvider = (BouncyCastleProvider)lazyKeyInfoConverters.remove(algorithm);
+            if (lazyProvider == null)
+            {
+                return null;
+            }
+        }
+
+        // the family must be registered without holding the converter lock - see loadFamily().
+        lazyProvider.loadConverterFamily(algorithm);
+
         synchronized (keyInfoConverters)
         {
             return (AsymmetricKeyInfoConverter)keyInfoConverters.get(algorithm);
@@ -359,4 +916,96 @@ public static PrivateKey getPrivateKey(PrivateKeyInfo privateKeyInfo)
 
         return converter.generatePrivate(privateKeyInfo);
     }
+
+    private static class BcService
+        extends Service
+    {
+        private final EngineCreator creator;
+
+        BcService(Provider provider, String type, String algorithm, String className, Map attributes, EngineCreator creator)
+        {
+            super(provider, type, algorithm, className, null, attributes);
+            this.creator = creator;
+        }
+
+        public Object newInstance(Object constructorParameter)
+            throws NoSuchAlgorithmException
+        {
+            if (creator == null || constructorParameter != null)
+            {
+                // Service checks the parameter against the engine type and finds a matching constructor.
+                return super.newInstance(constructorParameter);
+            }
+
+            try
+            {
+                return creator.createInstance(null);
+            }
+            catch (NoSuchAlgorithmException e)
+            {
+                throw e;
+            }
+            catch (Exception e)
+            {
+                throw new NoSuchAlgorithmException("Unable to invoke creator for " + getAlgorithm() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Creates instances of an implementation class using its public no-argument constructor, which is only
+     * looked up the first time it is needed.
+     */
+    private static class ConstructorCreator
+        implements EngineCreator
+    {
+        private final String className;
+
+        private volatile Constructor constructor;
+
+        ConstructorCreator(String className)
+        {
+            this.className = className;
+        }
+
+        public Object createInstance(Object constructorParameter)
+            throws GeneralSecurityException
+        {
+            try
+            {
+                Constructor cons = constructor;
+                if (cons == null)
+                {
+                    Class clazz = ClassUtil.loadClass(BouncyCastleProvider.class, className);
+
+                    if (clazz == null)
+                    {
+                        throw new NoSuchAlgorithmException("cannot find implementation class " + className);
+                    }
+
+                    cons = clazz.getConstructor(new Class[0]);
+                    constructor = cons;
+                }
+
+                return cons.newInstance(new Object[0]);
+            }
+            catch (InvocationTargetException e)
+            {
+                Throwable cause = e.getTargetException();
+                if (cause instanceof GeneralSecurityException)
+                {
+                    throw (GeneralSecurityException)cause;
+                }
+                throw new NoSuchAlgorithmException("Error constructing implementation (" + className + "): " + cause, cause);
+            }
+            catch (GeneralSecurityException e)
+            {
+                throw e;
+            }
+            catch (Exception e)
+            {
+                throw new NoSuchAlgorithmException("Error constructing implementation (" + className + "): " + e, e);
+            }
+        }
+    }
 }
@@ -0,0 +1,9 @@
+package org.bouncycastle.jce.provider;
+
+import java.security.GeneralSecurityException;
+
+interface EngineCreator
+{
+    Object createInstance(Object constructorParameter)
+        throws GeneralSecurityException;
+}
@@ -0,0 +1,318 @@
+package org.bouncycastle.jce.provider;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.jcajce.provider.config.ConfigurableProvider;
+import org.bouncycastle.jcajce.provider.symmetric.util.ClassUtil;
+import org.bouncycastle.jcajce.provider.util.AlgorithmProvider;
+import org.bouncycastle.jcajce.provider.util.AsymmetricKeyInfoConverter;
+import org.bouncycastle.util.Strings;
+
+/**
+ * An index of the provider entries and key info converters registered by each of the provider's
+ * algorithm families (the $Mappings classes), allowing the families to be configured on demand.
+ * <p>
+ * The index is generated at build time by running main(), which configures each family in turn
+ * against a recording provider and writes out what was registered.
+ * </p>
+ */
+class ProviderServiceIndex
+{
+    static final String RESOURCE_NAME = "BouncyCastleProvider.idx";
+
+    private static final String HEADER = "# BouncyCastleProvider service index - generated, do not edit";
+
+    private final String[] families;
+    private final Map<String, int[]> entryFamilies;
+    private final Map<ASN1ObjectIdentifier, Integer> converterFamilies;
+
+    private ProviderServiceIndex(String[] families, Map<String, int[]> entryFamilies, Map<ASN1ObjectIdentifier, Integer> converterFamilies)
+    {
+        this.families = families;
+        this.entryFamilies = entryFamilies;
+        this.converterFamilies = converterFamilies;
+    }
+
+    /**
+     * Load the index from the class path.
+     *
+     * @param mappingClasses the $Mappings class names the provider would configure, in order.
+     * @return the index, or null if it is missing or was generated for a different set of families.
+     */
+    static ProviderServiceIndex load(String[] mappingClasses)
+    {
+        InputStream in = ProviderServiceIndex.class.getResourceAsStream(RESOURCE_NAME);
+
+        if (in == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            try
+            {
+                return read(in, mappingClasses);
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+    }
+
+    private static ProviderServiceIndex read(InputStream in, String[] mappingClasses)
+        throws IOException
+    {
+        BufferedReader bRd = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        List<String> families = new ArrayList<String>();
+        Map<String, int[]> entryFamilies = new HashMap<String, int[]>();
+        Map<ASN1ObjectIdentifier, Integer> converterFamilies = new HashMap<ASN1ObjectIdentifier, Integer>();
+
+        String line;
+        while ((line = bRd.readLine()) != null)
+        {
+            if (line.length() == 0 || line.charAt(0) == '#')
+            {
+                continue;
+            }
+
+            int family = families.size() - 1;
+            char type = line.charAt(0);
+
+            if (type == '@')
+            {
+                families.add(line.substring(1));
+            }
+            else if (family < 0)
+            {
+                return null;
+            }
+            else if (type == '=')
+            {
+                converterFamilies.put(new ASN1ObjectIdentifier(line.substring(1)), Integer.valueOf(family));
+            }
+            else
+            {
+                int[] existing = (int[])entryFamilies.get(line);
+                if (existing == null)
+                {
+                    entryFamilies.put(line, new int[] { family });
+                }
+                else
+                {
+                    int[] tmp = new int[existing.length + 1];
+                    System.arraycopy(existing, 0, tmp, 0, existing.length);
+                    tmp[existing.length] = family;
+                    entryFamilies.put(line, tmp);
+                }
+            }
+        }
+
+        String[] familyNames = (String[])families.toArray(new String[families.size()]);
+        if (!Arrays.equals(familyNames, mappingClasses))
+        {
+            return null;        // stale index
+        }
+
+        return new ProviderServiceIndex(familyNames, entryFamilies, converterFamilies);
+    }
+
+    /**
+     * Reduce a provider key ("Type.Algorithm", "Alg.Alias.Type.Algorithm", or "Type.Algorithm Attribute")
+     * to the upper case "TYPE.ALGORITHM" it was indexed under.
+     */
+    static String getEntryKey(String key)
+    {
+        if (key.startsWith("Alg.Alias."))
+        {
+            key = key.substring("Alg.Alias.".length());
+        }
+
+        int space = key.indexOf(' ');
+        if (space > 0)
+        {
+            key = key.substring(0, space);
+        }
+
+        return Strings.toUpperCase(key);
+    }
+
+    int getFamilyCount()
+    {
+        return families.length;
+    }
+
+    String getFamily(int family)
+    {
+        return families[family];
+    }
+
+    /**
+     * Return the families which register entries for the passed in key.
+     *
+     * @param key a normalised key, as returned by getEntryKey().
+     * @return the families, null if the key is not in the index.
+     */
+    int[] getFamilies(String key)
+    {
+        return (int[])entryFamilies.get(key);
+    }
+
+    Set<ASN1ObjectIdentifier> getConverterOIDs()
+    {
+        return converterFamilies.keySet();
+    }
+
+    int getConverterFamily(ASN1ObjectIdentifier oid)
+    {
+        Integer family = (Integer)converterFamilies.get(oid);
+
+        return (family != null) ? family.intValue() : -1;
+    }
+
+    /**
+     * Generate the index for the provider's families and write it to out.
+     */
+    static void generate(String[] mappingClasses, OutputStream out)
+        throws IOException
+    {
+        Recorder recorder = new Recorder();
+        PrintWriter pWrt = new PrintWriter(new OutputStreamWriter(out, "UTF-8"));
+
+        pWrt.println(HEADER);
+
+        for (int i = 0; i != mappingClasses.length; i++)
+        {
+            Class clazz = ClassUtil.loadClass(ProviderServiceIndex.class, mappingClasses[i]);
+            if (clazz == null)
+            {
+                throw new IOException("cannot load " + mappingClasses[i]);
+            }
+
+            recorder.entries.clear();
+            recorder.converters.clear();
+
+            try
+            {
+                ((AlgorithmProvider)clazz.newInstance()).configure(recorder);
+            }
+            catch (Exception e)
+            {
+                throw new IOException("cannot configure " + mappingClasses[i] + ": " + e);
+            }
+
+            pWrt.println("@" + mappingClasses[i]);
+            for (Iterator it = recorder.entries.iterator(); it.hasNext();)
+            {
+                pWrt.println(it.next());
+            }
+            for (Iterator it = recorder.converters.iterator(); it.hasNext();)
+            {
+                pWrt.println("=" + it.next());
+            }
+        }
+
+        pWrt.flush();
+    }
+
+    /**
+     * Generate the service index resource.
+     * <p>
+     * Usage: ProviderServiceIndex output_file
+     * </p>
+     */
+    public static void main(String[] args)
+        throws IOException
+    {
+        OutputStream out = new FileOutputStream(args[0]);
+
+        try
+        {
+            generate(BouncyCastleProvider.getMappingClasses(), out);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Collects the entries made by a single family - hasAlgorithm() sees everything registered so far,
+     * in the same order as for a fully configured provider.
+     */
+    private static class Recorder
+        implements ConfigurableProvider
+    {
+        private final Set<String> keys = new HashSet<String>();
+        private final Map<ASN1ObjectIdentifier, AsymmetricKeyInfoConverter> keyInfoConverters = new HashMap<ASN1ObjectIdentifier, AsymmetricKeyInfoConverter>();
+
+        final Set<String> entries = new LinkedHashSet<String>();
+        final List<ASN1ObjectIdentifier> converters = new ArrayList<ASN1ObjectIdentifier>();
+
+        public void setParameter(String parameterName, Object parameter)
+        {
+        }
+
+        public void addAlgorithm(String key, String value)
+        {
+            if (!keys.add(key))
+            {
+                throw new IllegalStateException("duplicate provider key (" + key + ") found");
+            }
+
+            entries.add(getEntryKey(key));
+        }
+
+        public void addAlgorithm(String type, ASN1ObjectIdentifier oid, String className)
+        {
+            addAlgorithm(type + "." + oid, className);
+            addAlgorithm(type + ".OID." + oid, className);
+        }
+
+        public boolean hasAlgorithm(String type, String name)
+        {
+            return keys.contains(type + "." + name) || keys.contains("Alg.Alias." + type + "." + name);
+        }
+
+        public void addKeyInfoConverter(ASN1ObjectIdentifier oid, AsymmetricKeyInfoConverter keyInfoConverter)
+        {
+            keyInfoConverters.put(oid, keyInfoConverter);
+            converters.add(oid);
+        }
+
+        public AsymmetricKeyInfoConverter getKeyInfoConverter(ASN1ObjectIdentifier oid)
+        {
+            return (AsymmetricKeyInfoConverter)keyInfoConverters.get(oid);
+        }
+
+        public void addAttributes(String key, Map<String, String> attributeMap)
+        {
+            for (Iterator it = attributeMap.keySet().iterator(); it.hasNext();)
+            {
+                addAlgorithm(key + " " + it.next(), null);
+            }
+        }
+    }
+}
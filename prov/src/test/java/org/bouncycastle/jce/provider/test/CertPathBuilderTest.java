@@ -22,6 +22,9 @@
 import java.util.List;
 import java.util.Set;
 
+import org.bouncycastle.jcajce.PKIXExtendedBuilderParameters;
+import org.bouncycastle.jcajce.PKIXExtendedParameters;
+import org.bouncycastle.jcajce.PKIXIndexedCertStore;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.util.test.SimpleTest;
 
@@ -203,6 +206,63 @@ private void eeOnlyInSelectorTest()
         }
     }
 
+    private void indexedStoreTest()
+        throws Exception
+    {
+        KeyPair         rootPair = TestUtils.generateRSAKeyPair();
+        KeyPair         interPair = TestUtils.generateRSAKeyPair();
+        KeyPair         endPair = TestUtils.generateRSAKeyPair();
+        KeyPair         miscPair = TestUtils.generateRSAKeyPair();
+
+        X509Certificate rootCert = TestUtils.generateRootCert(rootPair);
+        X509Certificate interCert = TestUtils.generateIntermediateCert(interPair.getPublic(), rootPair.getPrivate(), rootCert);
+        X509Certificate endCert = TestUtils.generateEndEntityCert(endPair.getPublic(), interPair.getPrivate(), interCert);
+        X509Certificate miscCert = TestUtils.generateEndEntityCert(miscPair.getPublic(), interPair.getPrivate(), interCert);
+
+        List list = new ArrayList();
+
+        list.add(interCert);
+        list.add(endCert);
+        list.add(miscCert);
+        list.add(endCert);
+
+        PKIXIndexedCertStore store = new PKIXIndexedCertStore(list);
+
+        isEquals(3, store.size());
+        isTrue(store.getCertificatesBySubject(interCert.getSubjectX500Principal()).contains(interCert));
+        isTrue(endCert.equals(store.getCertificate(endCert.getIssuerX500Principal(), endCert.getSerialNumber())));
+        isTrue(null == store.getCertificate(endCert.getIssuerX500Principal(), BigInteger.valueOf(1000)));
+
+        X509CertSelector certSelect = new X509CertSelector();
+
+        certSelect.setCertificate(miscCert);
+
+        isEquals(1, store.getMatches(org.bouncycastle.x509.X509CertStoreSelector.getInstance(certSelect)).size());
+
+        // build the path
+        CertPathBuilder  builder = CertPathBuilder.getInstance("PKIX", "BC");
+        X509CertSelector pathConstraints = new X509CertSelector();
+
+        pathConstraints.setSubject(endCert.getSubjectX500Principal().getEncoded());
+
+        PKIXBuilderParameters buildParams = new PKIXBuilderParameters(Collections.singleton(new TrustAnchor(rootCert, null)), pathConstraints);
+
+        buildParams.setDate(new Date());
+        buildParams.setRevocationEnabled(false);
+
+        PKIXExtendedParameters baseParams = new PKIXExtendedParameters.Builder(buildParams)
+            .addCertificateStore(store)
+            .build();
+
+        PKIXCertPathBuilderResult result = (PKIXCertPathBuilderResult)builder.build(new PKIXExtendedBuilderParameters.Builder(baseParams).build());
+        CertPath                  path = result.getCertPath();
+
+        if (path.getCertificates().size() != 2)
+        {
+            fail("wrong number of certs in indexedStoreTest path");
+        }
+    }
+
     public void performTest()
         throws Exception
     {
@@ -210,6 +270,7 @@ public void performTest()
         v0Test();
         eeInSelectorTest();
         eeOnlyInSelectorTest();
+        indexedStoreTest();
     }
     
     public String getName()
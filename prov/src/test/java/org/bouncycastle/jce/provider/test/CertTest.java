@@ -1611,6 +1611,28 @@ private void checkComparison(byte[] encCert)
             fail("BC/Sun equals test failed");
         }
 
+        // the encoding the certificate was parsed from should be retained
+        X509Certificate bcCert2 = (X509Certificate)bcFact.generateCertificate(new ByteArrayInputStream(encCert));
+
+        isTrue("encoding not retained", areEqual(encCert, bcCert.getEncoded()));
+        isTrue("BC/BC equals test failed", bcCert.equals(bcCert2) && bcCert2.equals(bcCert));
+        isTrue("BC/BC hashCode test failed", bcCert.hashCode() == bcCert2.hashCode());
+
+        // a certificate read from PEM should compare the same way
+        String pem = "-----BEGIN CERTIFICATE-----\n" + Strings.fromByteArray(Base64.encode(encCert)) + "\n-----END CERTIFICATE-----\n";
+        X509Certificate pemCert = (X509Certificate)bcFact.generateCertificate(new ByteArrayInputStream(Strings.toByteArray(pem)));
+
+        isTrue("PEM encoding wrong", areEqual(encCert, pemCert.getEncoded()));
+        isTrue("BC/PEM equals test failed", bcCert.equals(pemCert) && pemCert.equals(bcCert));
+        isTrue("BC/PEM hashCode test failed", bcCert.hashCode() == pemCert.hashCode());
+
+        // a non-DER encoding is not retained, getEncoded() must still return DER
+        X509Certificate berCert = (X509Certificate)bcFact.generateCertificate(new ByteArrayInputStream(nonMinimalLength(encCert)));
+
+        isTrue("non-DER encoding retained", areEqual(encCert, berCert.getEncoded()));
+        isTrue("BC/non-DER equals test failed", bcCert.equals(berCert) && berCert.equals(bcCert));
+        isTrue("BC/non-DER hashCode test failed", bcCert.hashCode() == berCert.hashCode());
+
         // Yes, they actually changed hashCode() on a certificate in JDK 1.8...
 //        if (bcCert.hashCode() != sunCert.hashCode())
 //        {
@@ -1618,6 +1640,27 @@ private void checkComparison(byte[] encCert)
 //        }
     }
 
+    /**
+     * Re-encode a certificate with a non-minimal length on its signature algorithm identifier.
+     */
+    private byte[] nonMinimalLength(byte[] encCert)
+    {
+        int tbsEnd = 8 + (((encCert[6] & 0xff) << 8) | (encCert[7] & 0xff));
+        int outerLength = (((encCert[2] & 0xff) << 8) | (encCert[3] & 0xff)) + 1;
+
+        isTrue("unexpected certificate layout", encCert[1] == (byte)0x82 && encCert[5] == (byte)0x82 && encCert[tbsEnd + 1] > 0);
+
+        byte[] ber = new byte[encCert.length + 1];
+
+        System.arraycopy(encCert, 0, ber, 0, tbsEnd + 1);
+        ber[2] = (byte)(outerLength >> 8);
+        ber[3] = (byte)outerLength;
+        ber[tbsEnd + 1] = (byte)0x81;
+        System.arraycopy(encCert, tbsEnd + 1, ber, tbsEnd + 2, encCert.length - tbsEnd - 1);
+
+        return ber;
+    }
+
     private void testV1CRL()
         throws Exception
     {
@@ -0,0 +1,323 @@
+package org.bouncycastle.jce.provider.test;
+
+import java.security.SecureRandom;
+import java.security.Security;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.util.Properties;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * check Cipher and Mac SPIs running over pooled engines produce the same results as unpooled ones.
+ */
+public class EnginePoolingTest
+    extends SimpleTest
+{
+    private static final String ENGINE_POOLING = "org.bouncycastle.jcajce.provider.engine_pooling";
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "EnginePooling";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        macTest("HmacSHA256", 32);
+        macTest("HmacSHA512", 200);      // key longer than the block size
+        macTest("HmacSHA3-256", 32);
+        macTest("AESCMAC", 16);          // not pooled
+
+        cipherTest("AES/ECB/NoPadding", 16, 0);
+        cipherTest("AES/CBC/PKCS5Padding", 32, 16);
+        cipherTest("AES/CTR/NoPadding", 24, 16);
+        cipherTest("Twofish/CBC/PKCS5Padding", 16, 16);
+        cipherTest("DSTU7624-128/CBC/PKCS5Padding", 16, 16);
+        cipherTest("DES/CBC/PKCS5Padding", 8, 8);      // not pooled
+
+        gcmTest();
+        interleaveTest();
+        evictionTest();
+    }
+
+    private void macTest(String algorithm, int keySize)
+        throws Exception
+    {
+        byte[][] keys = new byte[3][keySize];
+        for (int i = 0; i != keys.length; i++)
+        {
+            random.nextBytes(keys[i]);
+        }
+
+        byte[] data = new byte[100];
+        random.nextBytes(data);
+
+        for (int i = 0; i != 10; i++)
+        {
+            SecretKeySpec key = new SecretKeySpec(keys[i % keys.length], algorithm);
+
+            Mac plain = Mac.getInstance(algorithm, "BC");
+            plain.init(key);
+            byte[] expected = plain.doFinal(data);
+
+            enablePooling();
+            Mac pooled;
+            try
+            {
+                pooled = Mac.getInstance(algorithm, "BC");
+            }
+            finally
+            {
+                disablePooling();
+            }
+
+            pooled.init(key);
+            isTrue(algorithm + " mac " + i, areEqual(expected, pooled.doFinal(data)));
+
+            // used again after doFinal, without re-initialising.
+            pooled.update(data, 0, 10);
+            pooled.update(data, 10, data.length - 10);
+            isTrue(algorithm + " mac reuse " + i, areEqual(expected, pooled.doFinal()));
+
+            // reset part way through.
+            pooled.update(data, 0, 10);
+            pooled.reset();
+            isTrue(algorithm + " mac reset " + i, areEqual(expected, pooled.doFinal(data)));
+        }
+    }
+
+    private void cipherTest(String transformation, int keySize, int ivSize)
+        throws Exception
+    {
+        String algorithm = transformation.substring(0, transformation.indexOf('/'));
+        byte[] data = new byte[64];
+        random.nextBytes(data);
+
+        for (int i = 0; i != 6; i++)
+        {
+            byte[] keyBytes = new byte[keySize];
+            random.nextBytes(keyBytes);
+            SecretKeySpec key = new SecretKeySpec(keyBytes, algorithm);
+            IvParameterSpec iv = (ivSize == 0) ? null : new IvParameterSpec(new byte[ivSize]);
+
+            Cipher plain = Cipher.getInstance(transformation, "BC");
+            plain.init(Cipher.ENCRYPT_MODE, key, iv);
+            byte[] expected = plain.doFinal(data);
+
+            for (int j = 0; j != 3; j++)
+            {
+                Cipher pooled = createPooledCipher(transformation);
+
+                pooled.init(Cipher.ENCRYPT_MODE, key, iv);
+                isTrue(transformation + " encrypt " + i, areEqual(expected, pooled.doFinal(data)));
+                // used again after doFinal, without re-initialising.
+                isTrue(transformation + " encrypt reuse " + i, areEqual(expected, pooled.doFinal(data)));
+
+                pooled = createPooledCipher(transformation);
+
+                pooled.init(Cipher.DECRYPT_MODE, key, iv);
+                byte[] part = pooled.update(expected, 0, 20);
+                byte[] rest = pooled.doFinal(expected, 20, expected.length - 20);
+                byte[] decrypted = new byte[data.length];
+                int len = 0;
+                if (part != null)
+                {
+                    System.arraycopy(part, 0, decrypted, 0, part.length);
+                    len = part.length;
+                }
+                System.arraycopy(rest, 0, decrypted, len, rest.length);
+                isTrue(transformation + " decrypt " + i, areEqual(data, decrypted));
+            }
+        }
+    }
+
+    private void gcmTest()
+        throws Exception
+    {
+        byte[] keyBytes = new byte[16];
+        random.nextBytes(keyBytes);
+        SecretKeySpec key = new SecretKeySpec(keyBytes, "AES");
+        byte[] data = new byte[33];
+
+        for (int i = 0; i != 4; i++)
+        {
+            GCMParameterSpec spec = new GCMParameterSpec(128, new byte[] { (byte)i, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 });
+
+            Cipher plain = Cipher.getInstance("AES/GCM/NoPadding", "BC");
+            plain.init(Cipher.ENCRYPT_MODE, key, spec);
+            plain.updateAAD(new byte[3]);
+            byte[] expected = plain.doFinal(data);
+
+            Cipher pooled = createPooledCipher("AES/GCM/NoPadding");
+            pooled.init(Cipher.ENCRYPT_MODE, key, spec);
+            pooled.updateAAD(new byte[3]);
+            isTrue("gcm encrypt", areEqual(expected, pooled.doFinal(data)));
+
+            pooled = createPooledCipher("AES/GCM/NoPadding");
+            pooled.init(Cipher.DECRYPT_MODE, key, spec);
+            pooled.updateAAD(new byte[3]);
+            isTrue("gcm decrypt", areEqual(data, pooled.doFinal(expected)));
+        }
+    }
+
+    /*
+     * several SPIs using the same key at the same time on the one thread must not share an engine.
+     */
+    private void interleaveTest()
+        throws Exception
+    {
+        byte[] keyBytes = new byte[16];
+        random.nextBytes(keyBytes);
+        SecretKeySpec key = new SecretKeySpec(keyBytes, "HmacSHA256");
+        byte[] data1 = new byte[50];
+        byte[] data2 = new byte[70];
+        random.nextBytes(data1);
+        random.nextBytes(data2);
+
+        Mac plain = Mac.getInstance("HmacSHA256", "BC");
+        plain.init(key);
+        byte[] expected1 = plain.doFinal(data1);
+        byte[] expected2 = plain.doFinal(data2);
+
+        enablePooling();
+        try
+        {
+            Mac mac1 = Mac.getInstance("HmacSHA256", "BC");
+            Mac mac2 = Mac.getInstance("HmacSHA256", "BC");
+
+            mac1.init(key);
+            mac1.update(data1, 0, 25);
+            mac2.init(key);
+            mac2.update(data2, 0, 35);
+            mac1.update(data1, 25, 25);
+
+            Mac mac3 = Mac.getInstance("HmacSHA256", "BC");
+            mac3.init(key);
+            isTrue(areEqual(expected2, mac3.doFinal(data2)));
+
+            mac2.update(data2, 35, 35);
+            isTrue(areEqual(expected2, mac2.doFinal()));
+            isTrue(areEqual(expected1, mac1.doFinal()));
+
+            isTrue(areEqual(expected1, mac3.doFinal(data1)));
+        }
+        finally
+        {
+            disablePooling();
+        }
+
+        SecretKeySpec aesKey = new SecretKeySpec(keyBytes, "AES");
+        IvParameterSpec iv = new IvParameterSpec(new byte[16]);
+        Cipher plainCipher = Cipher.getInstance("AES/CBC/NoPadding", "BC");
+        plainCipher.init(Cipher.ENCRYPT_MODE, aesKey, iv);
+        byte[] expected = plainCipher.doFinal(new byte[64]);
+
+        Cipher enc = createPooledCipher("AES/CBC/NoPadding");
+        Cipher dec = createPooledCipher("AES/CBC/NoPadding");
+        enc.init(Cipher.ENCRYPT_MODE, aesKey, iv);
+        dec.init(Cipher.DECRYPT_MODE, aesKey, iv);
+
+        byte[] out1 = enc.update(new byte[32]);
+        byte[] dec1 = dec.update(expected, 0, 32);
+        byte[] out2 = enc.doFinal(new byte[32]);
+        byte[] dec2 = dec.doFinal(expected, 32, 32);
+
+        isTrue(areEqual(expected, concat(out1, out2)));
+        isTrue(areEqual(new byte[64], concat(dec1, dec2)));
+    }
+
+    /*
+     * more keys than the pool holds - evicted keys must still work when they come back round.
+     */
+    private void evictionTest()
+        throws Exception
+    {
+        byte[][] keys = new byte[40][16];
+        byte[][] expected = new byte[keys.length][];
+        byte[] data = new byte[32];
+
+        for (int i = 0; i != keys.length; i++)
+        {
+            random.nextBytes(keys[i]);
+
+            Mac plain = Mac.getInstance("HmacSHA256", "BC");
+            plain.init(new SecretKeySpec(keys[i], "HmacSHA256"));
+            expected[i] = plain.doFinal(data);
+        }
+
+        enablePooling();
+        try
+        {
+            Mac held = Mac.getInstance("HmacSHA256", "BC");
+            held.init(new SecretKeySpec(keys[0], "HmacSHA256"));
+            isTrue(areEqual(expected[0], held.doFinal(data)));
+
+            for (int round = 0; round != 3; round++)
+            {
+                for (int i = 0; i != keys.length; i++)
+                {
+                    Mac mac = Mac.getInstance("HmacSHA256", "BC");
+                    mac.init(new SecretKeySpec(keys[i], "HmacSHA256"));
+                    isTrue("eviction " + i, areEqual(expected[i], mac.doFinal(data)));
+                }
+            }
+
+            // the engine held was long since evicted.
+            isTrue(areEqual(expected[0], held.doFinal(data)));
+        }
+        finally
+        {
+            disablePooling();
+        }
+    }
+
+    private Cipher createPooledCipher(String transformation)
+        throws Exception
+    {
+        enablePooling();
+        try
+        {
+            return Cipher.getInstance(transformation, "BC");
+        }
+        finally
+        {
+            disablePooling();
+        }
+    }
+
+    private static void enablePooling()
+    {
+        Properties.setThreadOverride(ENGINE_POOLING, true);
+    }
+
+    private static void disablePooling()
+    {
+        Properties.removeThreadOverride(ENGINE_POOLING);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b)
+    {
+        byte[] rv = new byte[a.length + b.length];
+
+        System.arraycopy(a, 0, rv, 0, a.length);
+        System.arraycopy(b, 0, rv, a.length, b.length);
+
+        return rv;
+    }
+
+    public static void main(
+        String[] args)
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new EnginePoolingTest());
+    }
+}
@@ -0,0 +1,110 @@
+package org.bouncycastle.jce.provider.test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.Signature;
+import java.util.Iterator;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.util.Properties;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * check a provider created with lazy registration offers exactly what an eagerly configured one does.
+ */
+public class LazyRegistrationTest
+    extends SimpleTest
+{
+    private static final String LAZY_REGISTRATION = "org.bouncycastle.jce.provider.lazy_registration";
+
+    public String getName()
+    {
+        return "LazyRegistration";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        Provider eager = new BouncyCastleProvider();
+
+        serviceTest(eager, createLazyProvider());
+        propertyTest(eager, createLazyProvider());
+        servicesTest(eager, createLazyProvider());
+    }
+
+    private Provider createLazyProvider()
+    {
+        Properties.setThreadOverride(LAZY_REGISTRATION, true);
+        try
+        {
+            return new BouncyCastleProvider();
+        }
+        finally
+        {
+            Properties.removeThreadOverride(LAZY_REGISTRATION);
+        }
+    }
+
+    private void serviceTest(Provider eager, Provider lazy)
+        throws Exception
+    {
+        isTrue(null == lazy.getService("MessageDigest", "NOT-A-DIGEST"));
+
+        isEquals(eager.getService("MessageDigest", "SHA-256").getClassName(), lazy.getService("MessageDigest", "SHA-256").getClassName());
+        isEquals(eager.getService("Signature", "sha256withecdsa").getClassName(), lazy.getService("Signature", "SHA256WITHECDSA").getClassName());
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256", lazy);
+        isTrue(areEqual(MessageDigest.getInstance("SHA-256", eager).digest(new byte[10]), digest.digest(new byte[10])));
+
+        KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC", lazy);
+        kpGen.initialize(256);
+        KeyPair kp = kpGen.generateKeyPair();
+
+        Signature sig = Signature.getInstance("SHA256withECDSA", lazy);
+        sig.initSign(kp.getPrivate());
+        sig.update(new byte[10]);
+        byte[] signature = sig.sign();
+
+        sig = Signature.getInstance("SHA256withECDSA", eager);
+        sig.initVerify(kp.getPublic());
+        sig.update(new byte[10]);
+        isTrue(sig.verify(signature));
+
+        // transformations are resolved through the base algorithm
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding", lazy);
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(new byte[16], "AES"));
+        isEquals(26, cipher.doFinal(new byte[10]).length);
+
+        // aliases by OID
+        isEquals(eager.getProperty("Alg.Alias.Signature.1.2.840.10045.4.3.2"), lazy.getProperty("Alg.Alias.Signature.1.2.840.10045.4.3.2"));
+    }
+
+    private void propertyTest(Provider eager, Provider lazy)
+    {
+        // each look up only loads the families it needs - everything the eager provider has must be found.
+        for (Iterator it = eager.keySet().iterator(); it.hasNext();)
+        {
+            String key = (String)it.next();
+
+            isEquals(key, eager.getProperty(key), lazy.getProperty(key));
+        }
+
+        isEquals(eager.size(), lazy.keySet().size());
+    }
+
+    private void servicesTest(Provider eager, Provider lazy)
+    {
+        isEquals(eager.getServices().size(), lazy.getServices().size());
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new LazyRegistrationTest());
+    }
+}
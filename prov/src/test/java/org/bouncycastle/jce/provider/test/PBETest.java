@@ -9,6 +9,8 @@
 import java.security.spec.AlgorithmParameterSpec;
 import java.security.spec.InvalidParameterSpecException;
 import java.security.spec.KeySpec;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
@@ -27,11 +29,14 @@
 import org.bouncycastle.crypto.digests.SHA256Digest;
 import org.bouncycastle.crypto.generators.OpenSSLPBEParametersGenerator;
 import org.bouncycastle.crypto.generators.PKCS12ParametersGenerator;
+import org.bouncycastle.crypto.generators.SCrypt;
+import org.bouncycastle.crypto.generators.SCryptBufferPool;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.jcajce.PKCS12Key;
 import org.bouncycastle.jcajce.PKCS12KeyWithParameters;
 import org.bouncycastle.jcajce.provider.symmetric.util.BCPBEKey;
+import org.bouncycastle.jcajce.spec.ScryptKeySpec;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Strings;
@@ -702,6 +707,36 @@ public void performTest()
 
         testMixedKeyTypes();
         testNullSalt();
+        testScryptExecutor();
+    }
+
+    private void testScryptExecutor()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try
+        {
+            SecretKeyFactory fact = SecretKeyFactory.getInstance("SCRYPT", "BC");
+            SCryptBufferPool pool = new SCryptBufferPool(4 * 1024 * 1024);
+            byte[] salt = Strings.toByteArray("NaCl");
+            byte[] expected = SCrypt.generate(Strings.toByteArray("password"), salt, 1024, 8, 4, 32);
+
+            SecretKey key = fact.generateSecret(new ScryptKeySpec("password".toCharArray(), salt, 1024, 8, 4, 256));
+            isTrue("scrypt failed", Arrays.areEqual(expected, key.getEncoded()));
+
+            for (int i = 0; i != 2; i++)
+            {
+                key = fact.generateSecret(new ScryptKeySpec("password".toCharArray(), salt, 1024, 8, 4, 256, executor, pool));
+                isTrue("scrypt with executor failed", Arrays.areEqual(expected, key.getEncoded()));
+            }
+
+            isTrue("scrypt pool not used", pool.getPooledSize() != 0);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
     }
 
     private void testPKCS12Interop()
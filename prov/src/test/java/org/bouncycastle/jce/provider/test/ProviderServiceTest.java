@@ -0,0 +1,135 @@
+package org.bouncycastle.jce.provider.test;
+
+import java.security.InvalidParameterException;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+import java.security.cert.CollectionCertStoreParameters;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.util.test.SimpleTest;
+
+/**
+ * check the services handed out by the provider create their engines directly.
+ */
+public class ProviderServiceTest
+    extends SimpleTest
+{
+    public String getName()
+    {
+        return "ProviderService";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        Provider provider = new BouncyCastleProvider();
+
+        Provider.Service service = provider.getService("MessageDigest", "SHA-256");
+        isTrue(service == provider.getService("MessageDigest", "SHA-256"));
+        isTrue(service == provider.getService("MessageDigest", "sha-256"));
+        isTrue(null == provider.getService("MessageDigest", "SHA-257"));
+        isTrue(service.newInstance(null) instanceof java.security.MessageDigestSpi);
+
+        // constructor parameters are checked as Provider.Service does
+        try
+        {
+            service.newInstance("parameter");
+            fail("parameter accepted");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            isTrue(e.getCause() instanceof InvalidParameterException);
+        }
+        catch (InvalidParameterException e)
+        {
+            // expected, thrown directly before Java 9
+        }
+
+        // aliases resolve to the real algorithm
+        service = provider.getService("Signature", "1.2.840.10045.4.3.2");
+        isEquals("SHA256WITHECDSA", service.getAlgorithm());
+        isEquals("org.bouncycastle.jcajce.provider.asymmetric.ec.SignatureSpi$ecDSA256", service.getClassName());
+        isTrue(service.newInstance(null) instanceof java.security.SignatureSpi);
+        isTrue(service == provider.getService("Signature", "1.2.840.10045.4.3.2"));
+
+        // attributes are carried across
+        service = provider.getService("KeyAgreement", "ECDH");
+        isEquals("java.security.interfaces.ECPublicKey|java.security.interfaces.ECPrivateKey", service.getAttribute("SupportedKeyClasses"));
+
+        // engines with constructor parameters
+        service = provider.getService("CertStore", "Collection");
+        isTrue(service.newInstance(new CollectionCertStoreParameters(Collections.EMPTY_LIST)) instanceof java.security.cert.CertStoreSpi);
+
+        try
+        {
+            service.newInstance("parameter");
+            fail("parameter accepted");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            isTrue(e.getCause() instanceof InvalidParameterException);
+        }
+        catch (InvalidParameterException e)
+        {
+            // expected, thrown directly before Java 9
+        }
+
+        int count = 0;
+        for (Iterator it = provider.getServices().iterator(); it.hasNext();)
+        {
+            service = (Provider.Service)it.next();
+
+            isTrue(service == provider.getService(service.getType(), service.getAlgorithm()));
+            if (service.getType().equals("MessageDigest") || service.getType().equals("Mac") || service.getType().equals("Signature")
+                || service.getType().equals("Cipher"))
+            {
+                isTrue(service.getClassName(), service.newInstance(null) != null);
+            }
+            count++;
+        }
+        isTrue(count > 1000);
+
+        try
+        {
+            provider.getServices().clear();
+            fail("service set modifiable");
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // expected
+        }
+
+        tableChangeTest();
+    }
+
+    private void tableChangeTest()
+    {
+        BouncyCastleProvider provider = new BouncyCastleProvider();
+
+        // changes to the provider table must be seen by later look ups
+        Provider.Service service = provider.getService("MessageDigest", "SHA-256");
+        provider.put("MessageDigest.SHA-256", "org.bouncycastle.jcajce.provider.digest.SHA512$Digest");
+        isEquals("org.bouncycastle.jcajce.provider.digest.SHA512$Digest", provider.getService("MessageDigest", "SHA-256").getClassName());
+
+        provider.remove("MessageDigest.SHA-256");
+        isTrue(null == provider.getService("MessageDigest", "SHA-256"));
+
+        isTrue(null == provider.getService("MessageDigest", "TEST-DIGEST"));
+        provider.addAlgorithm("MessageDigest.TEST-DIGEST", service.getClassName());
+        isEquals(service.getClassName(), provider.getService("MessageDigest", "TEST-DIGEST").getClassName());
+
+        provider.putAll(Collections.singletonMap("MessageDigest.TEST-DIGEST2", service.getClassName()));
+        isEquals(service.getClassName(), provider.getService("MessageDigest", "TEST-DIGEST2").getClassName());
+
+        provider.clear();
+        isTrue(null == provider.getService("MessageDigest", "TEST-DIGEST"));
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new ProviderServiceTest());
+    }
+}
@@ -0,0 +1,103 @@
+package org.bouncycastle.jce.provider.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.security.Security;
+import java.security.Signature;
+import java.util.Arrays;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+/**
+ * Startup benchmark comparing eager and lazy algorithm registration in the BC provider. Each
+ * measurement is taken in a fresh JVM, as class loading and initialisation is what is being timed.
+ * <p>
+ * Usage: ProviderStartupPerformanceTest [runs per mode]
+ * </p>
+ */
+public class ProviderStartupPerformanceTest
+{
+    private static final String LAZY_REGISTRATION = "org.bouncycastle.jce.provider.lazy_registration";
+    private static final int DEFAULT_RUNS = 10;
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        if (args.length > 0 && args[0].equals("-child"))
+        {
+            runChild();
+            return;
+        }
+
+        int runs = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+
+        report("eager", runMode(false, runs));
+        report("lazy", runMode(true, runs));
+    }
+
+    private static long[][] runMode(boolean lazy, int runs)
+        throws Exception
+    {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        long[][] results = new long[runs][];
+
+        for (int i = 0; i != runs; i++)
+        {
+            ProcessBuilder pb = new ProcessBuilder(new String[] {
+                java, "-cp", System.getProperty("java.class.path"),
+                "-D" + LAZY_REGISTRATION + "=" + lazy,
+                ProviderStartupPerformanceTest.class.getName(), "-child" });
+
+            pb.redirectErrorStream(true);
+
+            Process p = pb.start();
+            BufferedReader bRd = new BufferedReader(new InputStreamReader(p.getInputStream()));
+            String line = bRd.readLine();
+            p.waitFor();
+
+            String[] times = line.split(" ");
+            results[i] = new long[] { Long.parseLong(times[0]), Long.parseLong(times[1]) };
+        }
+
+        return results;
+    }
+
+    private static void runChild()
+        throws Exception
+    {
+        long start = System.nanoTime();
+
+        Provider provider = new BouncyCastleProvider();
+        Security.addProvider(provider);
+
+        long constructed = System.nanoTime();
+
+        MessageDigest.getInstance("SHA-256", "BC").digest(new byte[32]);
+        Signature.getInstance("SHA256withECDSA", "BC");
+
+        long firstUse = System.nanoTime();
+
+        System.out.println(((constructed - start) / 1000) + " " + ((firstUse - start) / 1000));
+    }
+
+    private static void report(String mode, long[][] results)
+    {
+        long[] construct = new long[results.length];
+        long[] firstUse = new long[results.length];
+
+        for (int i = 0; i != results.length; i++)
+        {
+            construct[i] = results[i][0];
+            firstUse[i] = results[i][1];
+        }
+
+        Arrays.sort(construct);
+        Arrays.sort(firstUse);
+
+        System.out.println(mode + ": construct " + construct[construct.length / 2] + " us, construct + first use "
+            + firstUse[firstUse.length / 2] + " us (median of " + results.length + " runs)");
+    }
+}
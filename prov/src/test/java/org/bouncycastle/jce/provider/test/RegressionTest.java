@@ -90,7 +90,10 @@
         new SM2CipherTest(),
         new ZucTest(),
         new ChaCha20Poly1305Test(),
-        new SipHash128Test()
+        new SipHash128Test(),
+        new LazyRegistrationTest(),
+        new ProviderServiceTest(),
+        new EnginePoolingTest()
     };
 
     public static void main(String[] args)